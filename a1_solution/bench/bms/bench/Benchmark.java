@@ -0,0 +1,198 @@
+package bms.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A minimal benchmark harness measuring the average time and heap
+ * allocation per operation of a piece of code.
+ * <p>
+ * Each measurement runs a number of warm-up batches, whose results are
+ * discarded, followed by measured batches. Allocation is measured with the
+ * HotSpot per-thread allocation counter where it is available, and is
+ * reported as -1 otherwise.
+ */
+public class Benchmark {
+
+    /**
+     * Sink for values produced by benchmarked code, so that the JIT cannot
+     * eliminate the code as dead.
+     */
+    private static volatile long sink;
+
+    /**
+     * Number of warm-up batches run before measuring.
+     */
+    private final int warmupBatches;
+
+    /**
+     * Number of measured batches.
+     */
+    private final int measuredBatches;
+
+    /**
+     * Creates a new benchmark harness.
+     *
+     * @param warmupBatches number of warm-up batches to run before measuring
+     * @param measuredBatches number of batches to measure
+     * @throws IllegalArgumentException if measuredBatches &lt; 1 or
+     * warmupBatches &lt; 0
+     */
+    public Benchmark(int warmupBatches, int measuredBatches)
+            throws IllegalArgumentException {
+        if (warmupBatches < 0 || measuredBatches < 1) {
+            throw new IllegalArgumentException(
+                    "Must measure at least one batch");
+        }
+        this.warmupBatches = warmupBatches;
+        this.measuredBatches = measuredBatches;
+    }
+
+    /**
+     * A piece of code to benchmark.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * Runs the operation once.
+         *
+         * @return any value computed by the operation, which is consumed so
+         * that the operation is not optimised away
+         */
+        long run();
+    }
+
+    /**
+     * Runs the given operation in batches and returns the average cost of
+     * one call.
+     *
+     * @param name name to report the result under
+     * @param opsPerBatch number of times to call the operation per batch
+     * @param operation code to benchmark
+     * @return measured result
+     */
+    public Result measure(String name, int opsPerBatch, Operation operation) {
+        for (int b = 0; b < warmupBatches; b++) {
+            runBatch(opsPerBatch, operation);
+        }
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int b = 0; b < measuredBatches; b++) {
+            runBatch(opsPerBatch, operation);
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytesAfter = allocatedBytes();
+
+        double ops = (double) opsPerBatch * measuredBatches;
+        double bytesPerOp = bytesBefore < 0 ? -1
+                : (bytesAfter - bytesBefore) / ops;
+        return new Result(name, elapsed / ops, bytesPerOp);
+    }
+
+    /**
+     * Calls the operation the given number of times.
+     *
+     * @param ops number of calls
+     * @param operation code to call
+     */
+    private static void runBatch(int ops, Operation operation) {
+        long total = 0;
+        for (int i = 0; i < ops; i++) {
+            total += operation.run();
+        }
+        sink += total;
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread.
+     *
+     * @return bytes allocated; -1 if not supported by the JVM
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot =
+                    (com.sun.management.ThreadMXBean) bean;
+            if (hotspot.isThreadAllocatedMemorySupported()
+                    && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(
+                        Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Average cost of one call of a benchmarked operation.
+     */
+    public static class Result {
+        /**
+         * Name of the benchmark.
+         */
+        private final String name;
+
+        /**
+         * Average time per call, in nanoseconds.
+         */
+        private final double nanosPerOp;
+
+        /**
+         * Average bytes allocated per call; -1 if not measured.
+         */
+        private final double bytesPerOp;
+
+        /**
+         * Creates a new result.
+         *
+         * @param name name of the benchmark
+         * @param nanosPerOp average time per call, in nanoseconds
+         * @param bytesPerOp average bytes allocated per call; -1 if not
+         *                   measured
+         */
+        public Result(String name, double nanosPerOp, double bytesPerOp) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        /**
+         * Returns the name of the benchmark.
+         *
+         * @return benchmark name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the average time per call.
+         *
+         * @return nanoseconds per operation
+         */
+        public double getNanosPerOp() {
+            return nanosPerOp;
+        }
+
+        /**
+         * Returns the average heap allocation per call.
+         *
+         * @return bytes per operation; -1 if not measured
+         */
+        public double getBytesPerOp() {
+            return bytesPerOp;
+        }
+
+        /**
+         * Returns the human-readable string representation of this result.
+         * <p>
+         * For example: "Room.getSensor(Class): 3.21 ns/op, 0.0 B/op"
+         *
+         * @return string representation of this result
+         */
+        @Override
+        public String toString() {
+            return String.format("%s: %.2f ns/op, %.1f B/op",
+                    this.name, this.nanosPerOp, this.bytesPerOp);
+        }
+    }
+}
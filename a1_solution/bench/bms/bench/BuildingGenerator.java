@@ -0,0 +1,191 @@
+package bms.bench;
+
+import bms.building.Building;
+import bms.exceptions.DuplicateFloorException;
+import bms.exceptions.DuplicateRoomException;
+import bms.exceptions.DuplicateSensorException;
+import bms.exceptions.FloorTooSmallException;
+import bms.exceptions.InsufficientSpaceException;
+import bms.exceptions.NoFloorBelowException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.Sensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic buildings of a given size for benchmarking.
+ * <p>
+ * Every floor has the same number of rooms, and every room has the same
+ * number of sensors, with pseudo-random readings drawn from a range that
+ * exercises every hazard level band of each sensor type. The same seed
+ * always produces the same building.
+ */
+public class BuildingGenerator {
+
+    /**
+     * Area of every generated room, in square metres.
+     */
+    private static final double ROOM_AREA = 10;
+
+    /**
+     * Number of floors in each generated building.
+     */
+    private final int floors;
+
+    /**
+     * Number of rooms on each generated floor.
+     */
+    private final int roomsPerFloor;
+
+    /**
+     * Number of sensors in each generated room, 0 to 4.
+     */
+    private final int sensorsPerRoom;
+
+    /**
+     * Number of readings given to each generated sensor.
+     */
+    private final int readingsLength;
+
+    /**
+     * Update frequency of each generated sensor, other than temperature
+     * sensors which must always update every minute.
+     */
+    private final int updateFrequency;
+
+    /**
+     * Seed for the pseudo-random readings.
+     */
+    private final long seed;
+
+    /**
+     * Creates a new building generator.
+     *
+     * @param floors number of floors in each building
+     * @param roomsPerFloor number of rooms on each floor
+     * @param sensorsPerRoom number of sensors in each room, 0 to 4
+     * @param readingsLength number of readings given to each sensor
+     * @param updateFrequency update frequency of each sensor, 1 to 5
+     * @param seed seed for the pseudo-random readings
+     * @throws IllegalArgumentException if any count is out of range
+     */
+    public BuildingGenerator(int floors, int roomsPerFloor, int sensorsPerRoom,
+                             int readingsLength, int updateFrequency,
+                             long seed) throws IllegalArgumentException {
+        if (floors < 0 || roomsPerFloor < 0 || readingsLength < 1) {
+            throw new IllegalArgumentException("Floor and room counts must "
+                    + "be non-negative and readings length positive");
+        }
+        if (sensorsPerRoom < 0 || sensorsPerRoom > 4) {
+            throw new IllegalArgumentException(
+                    "Sensors per room must be between 0 and 4");
+        }
+        this.floors = floors;
+        this.roomsPerFloor = roomsPerFloor;
+        this.sensorsPerRoom = sensorsPerRoom;
+        this.readingsLength = readingsLength;
+        this.updateFrequency = updateFrequency;
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the number of rooms in each generated building.
+     *
+     * @return total number of rooms
+     */
+    public int getRoomCount() {
+        return floors * roomsPerFloor;
+    }
+
+    /**
+     * Returns the side length of a square floor big enough to hold the
+     * given number of rooms.
+     *
+     * @param rooms number of rooms the floor must hold
+     * @return floor side length, in metres
+     */
+    public static double floorSide(int rooms) {
+        return Math.max(Floor.getMinWidth(),
+                Math.ceil(Math.sqrt(rooms * ROOM_AREA)) + 1);
+    }
+
+    /**
+     * Generates a new building whose sensors are registered with the given
+     * timed item manager.
+     *
+     * @param timedItemManager manager for the building's sensors
+     * @return generated building
+     */
+    public Building generate(TimedItemManager timedItemManager) {
+        Random random = new Random(seed);
+        Building building = new Building("Synthetic", timedItemManager);
+        double side = floorSide(roomsPerFloor);
+        RoomType[] types = RoomType.values();
+        try {
+            for (int f = 1; f <= floors; f++) {
+                Floor floor = new Floor(f, side, side);
+                building.addFloor(floor);
+                for (int r = 0; r < roomsPerFloor; r++) {
+                    Room room = new Room(f * 100_000 + r,
+                            types[r % types.length], ROOM_AREA);
+                    for (int s = 0; s < sensorsPerRoom; s++) {
+                        room.addSensor(this.createSensor(s, random));
+                    }
+                    floor.addRoom(room);
+                }
+            }
+        } catch (DuplicateFloorException | NoFloorBelowException
+                | FloorTooSmallException | DuplicateRoomException
+                | InsufficientSpaceException | DuplicateSensorException e) {
+            // the generated dimensions and numbering are always valid
+            throw new IllegalStateException(e);
+        }
+        return building;
+    }
+
+    /**
+     * Creates one sensor of the given position's type.
+     *
+     * @param position index of the sensor within its room, 0 to 3
+     * @param random source of readings
+     * @return new sensor
+     */
+    private Sensor createSensor(int position, Random random) {
+        switch (position) {
+            case 0:
+                return new TemperatureSensor(readings(random, 15, 80));
+            case 1:
+                return new OccupancySensor(readings(random, 0, 40),
+                        updateFrequency, 30);
+            case 2:
+                return new CarbonDioxideSensor(readings(random, 400, 6000),
+                        updateFrequency, 600, 250);
+            default:
+                return new NoiseSensor(readings(random, 40, 100),
+                        updateFrequency);
+        }
+    }
+
+    /**
+     * Returns a new array of pseudo-random readings in the given range.
+     *
+     * @param random source of readings
+     * @param min smallest reading (inclusive)
+     * @param max largest reading (exclusive)
+     * @return array of readingsLength readings
+     */
+    private int[] readings(Random random, int min, int max) {
+        int[] readings = new int[readingsLength];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = min + random.nextInt(max - min);
+        }
+        return readings;
+    }
+}
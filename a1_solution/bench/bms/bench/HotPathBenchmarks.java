@@ -0,0 +1,304 @@
+package bms.bench;
+
+import bms.building.Building;
+import bms.exceptions.DuplicateRoomException;
+import bms.exceptions.FireDrillException;
+import bms.exceptions.InsufficientSpaceException;
+import bms.floor.Floor;
+import bms.metrics.Metrics;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.HazardSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.SensorKernel;
+import bms.sensors.SensorKind;
+import bms.sensors.TimedSensor;
+import bms.util.TickMode;
+import bms.util.TimedItemManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmarks for the hot paths of the building management system, run over
+ * a grid of synthetic building shapes.
+ * <p>
+ * Compile the main sources together with this source root and run this
+ * class, optionally overriding any parameter with {@code name=v1,v2,...}
+ * arguments, e.g.
+ * <pre>
+ * java bms.bench.HotPathBenchmarks floors=10,100 sensors=4 freq=1,5
+ * </pre>
+ * Parameters: {@code floors} (floors per building), {@code rooms} (rooms
+ * per floor), {@code sensors} (sensors per room, 0 to 4), {@code readings}
+ * (readings per sensor) and {@code freq} (sensor update frequency), plus
+ * {@code warmup} and {@code batches} for the number of warm-up and
+ * measured batches.
+ */
+public class HotPathBenchmarks {
+
+    /**
+     * Default value of each parameter, overridden by command line arguments.
+     */
+    private static final String[][] DEFAULTS = {
+            {"floors", "10,100"},
+            {"rooms", "100"},
+            {"sensors", "4"},
+            {"readings", "60"},
+            {"freq", "1,5"},
+            {"warmup", "5"},
+            {"batches", "10"},
+    };
+
+    /**
+     * Runs every benchmark for every combination of parameters, printing
+     * one line per result.
+     *
+     * @param args parameter overrides of the form name=v1,v2,...
+     */
+    public static void main(String[] args) {
+        Map<String, int[]> params = parseParams(args);
+        Benchmark benchmark = new Benchmark(params.get("warmup")[0],
+                params.get("batches")[0]);
+
+        for (int floors : params.get("floors")) {
+            for (int rooms : params.get("rooms")) {
+                for (int sensors : params.get("sensors")) {
+                    for (int readings : params.get("readings")) {
+                        for (int freq : params.get("freq")) {
+                            String shape = String.format(
+                                    "[floors=%d rooms=%d sensors=%d "
+                                            + "readings=%d freq=%d] ",
+                                    floors, rooms, sensors, readings, freq);
+                            BuildingGenerator generator = new BuildingGenerator(
+                                    floors, rooms, sensors, readings, freq,
+                                    42);
+                            for (Benchmark.Result result
+                                    : run(benchmark, generator, rooms)) {
+                                System.out.println(shape + result);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs every benchmark against buildings from the given generator.
+     *
+     * @param benchmark harness to measure with
+     * @param generator generator for the building under test
+     * @param roomsPerFloor number of rooms on each generated floor
+     * @return results of every benchmark
+     */
+    private static List<Benchmark.Result> run(Benchmark benchmark,
+                                              BuildingGenerator generator,
+                                              int roomsPerFloor) {
+        List<Benchmark.Result> results = new ArrayList<>();
+        TimedItemManager manager = new TimedItemManager();
+        Building building = generator.generate(manager);
+
+        for (TickMode mode : TickMode.values()) {
+            manager.setTickMode(mode);
+            results.add(benchmark.measure(
+                    "TimedItemManager.elapseOneMinute " + mode, 10, () -> {
+                        manager.elapseOneMinute();
+                        return manager.getMinutesElapsed();
+                    }));
+        }
+        manager.setTickMode(TickMode.SEQUENTIAL);
+
+        Metrics metrics = Metrics.getInstance();
+        boolean metricsEnabled = metrics.isEnabled();
+        metrics.setEnabled(true);
+        results.add(benchmark.measure(
+                "TimedItemManager.elapseOneMinute SEQUENTIAL with metrics",
+                10, () -> {
+                    manager.elapseOneMinute();
+                    return manager.getMinutesElapsed();
+                }));
+        metrics.setEnabled(metricsEnabled);
+
+        results.add(measureKernelTick(benchmark, generator));
+
+        results.add(measureFloorFill(benchmark, roomsPerFloor));
+
+        Room room = building.getFloorByNumber(1) == null ? null
+                : building.getFloorByNumber(1).getRoomByNumber(100_000);
+        if (room != null) {
+            results.add(benchmark.measure("Room.getSensor(String)", 100_000,
+                    () -> room.getSensor("OccupancySensor") == null ? 0 : 1));
+            results.add(benchmark.measure("Room.getSensor(Class)", 100_000,
+                    () -> room.getSensor(OccupancySensor.class) == null
+                            ? 0 : 1));
+        }
+
+        if (building.roomCount() > 0) {
+            results.add(benchmark.measure("Building.fireDrill", 10, () -> {
+                try {
+                    building.fireDrill(RoomType.STUDY);
+                } catch (FireDrillException e) {
+                    throw new IllegalStateException(e);
+                }
+                building.cancelFireDrill();
+                return 1;
+            }));
+        }
+
+        for (Map.Entry<SensorKind, HazardSensor[]> entry
+                : hazardSensorsByKind(building).entrySet()) {
+            HazardSensor[] hazardSensors = entry.getValue();
+            results.add(benchmark.measure(
+                    entry.getKey() + ".getHazardLevel sweep of "
+                            + hazardSensors.length, 10, () -> {
+                        long sum = 0;
+                        for (HazardSensor sensor : hazardSensors) {
+                            sum += sensor.getHazardLevel();
+                        }
+                        return sum;
+                    }));
+        }
+
+        results.add(benchmark.measure("HazardIndex.maxHazardLevel cached",
+                1_000, () -> building.getHazardIndex().maxHazardLevel()));
+        results.add(benchmark.measure("HazardIndex.maxHazardLevel after tick",
+                10, () -> {
+                    manager.elapseOneMinute();
+                    return building.getHazardIndex().maxHazardLevel();
+                }));
+        // measured last, as creating the roll-ups adds work to every tick
+        results.add(benchmark.measure(
+                "HazardRollup.getMaxHazardLevel after tick", 10, () -> {
+                    manager.elapseOneMinute();
+                    return building.getHazardRollup().getMaxHazardLevel();
+                }));
+        return results;
+    }
+
+    /**
+     * Measures ticking a separately generated building whose timed sensors
+     * have all been adopted by a {@link SensorKernel}.
+     *
+     * @param benchmark harness to measure with
+     * @param generator generator for the building under test
+     * @return measured result
+     */
+    private static Benchmark.Result measureKernelTick(
+            Benchmark benchmark, BuildingGenerator generator) {
+        TimedItemManager manager = new TimedItemManager();
+        Building building = generator.generate(manager);
+        SensorKernel kernel = new SensorKernel(manager);
+        building.forEachSensor(sensor -> {
+            if (sensor instanceof TimedSensor) {
+                kernel.add((TimedSensor) sensor);
+            }
+        });
+        return benchmark.measure("TimedItemManager.elapseOneMinute KERNEL",
+                10, () -> {
+                    manager.elapseOneMinute();
+                    return manager.getMinutesElapsed();
+                });
+    }
+
+    /**
+     * Measures filling an empty floor with the given number of rooms.
+     *
+     * @param benchmark harness to measure with
+     * @param roomCount number of rooms to add to the floor
+     * @return measured result
+     */
+    private static Benchmark.Result measureFloorFill(Benchmark benchmark,
+                                                     int roomCount) {
+        double side = BuildingGenerator.floorSide(roomCount);
+        Room[] rooms = new Room[roomCount];
+        for (int i = 0; i < roomCount; i++) {
+            rooms[i] = new Room(i, RoomType.OFFICE, 10);
+        }
+        return benchmark.measure("Floor.addRoom x " + roomCount, 10, () -> {
+            Floor floor = new Floor(1, side, side);
+            try {
+                for (Room room : rooms) {
+                    floor.addRoom(room);
+                }
+            } catch (DuplicateRoomException | InsufficientSpaceException e) {
+                throw new IllegalStateException(e);
+            }
+            return floor.roomCount();
+        });
+    }
+
+    /**
+     * Collects every built-in hazard sensor in the building, grouped by
+     * kind.
+     *
+     * @param building building to collect sensors from
+     * @return hazard sensors of each kind present in the building
+     */
+    private static Map<SensorKind, HazardSensor[]> hazardSensorsByKind(
+            Building building) {
+        Map<SensorKind, List<HazardSensor>> lists =
+                new EnumMap<>(SensorKind.class);
+        building.forEachSensor(sensor -> {
+            SensorKind kind = SensorKind.of(sensor.getClass());
+            if (kind != null && sensor instanceof HazardSensor) {
+                lists.computeIfAbsent(kind, k -> new ArrayList<>())
+                        .add((HazardSensor) sensor);
+            }
+        });
+        Map<SensorKind, HazardSensor[]> arrays =
+                new EnumMap<>(SensorKind.class);
+        for (Map.Entry<SensorKind, List<HazardSensor>> entry
+                : lists.entrySet()) {
+            arrays.put(entry.getKey(),
+                    entry.getValue().toArray(new HazardSensor[0]));
+        }
+        return arrays;
+    }
+
+    /**
+     * Parses name=v1,v2,... arguments over the default parameter values.
+     *
+     * @param args command line arguments
+     * @return values of every parameter
+     * @throws IllegalArgumentException if an argument is malformed or names
+     * an unknown parameter
+     */
+    static Map<String, int[]> parseParams(String[] args)
+            throws IllegalArgumentException {
+        Map<String, int[]> params = new HashMap<>();
+        for (String[] entry : DEFAULTS) {
+            params.put(entry[0], parseValues(entry[1]));
+        }
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split < 0 || !params.containsKey(arg.substring(0, split))) {
+                throw new IllegalArgumentException(
+                        "Unknown benchmark parameter: " + arg);
+            }
+            params.put(arg.substring(0, split),
+                    parseValues(arg.substring(split + 1)));
+        }
+        return params;
+    }
+
+    /**
+     * Parses a comma-separated list of integers.
+     *
+     * @param values comma-separated integers
+     * @return parsed values
+     * @throws IllegalArgumentException if any value is not an integer
+     */
+    private static int[] parseValues(String values)
+            throws IllegalArgumentException {
+        String[] parts = values.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,116 @@
+package bms.bench;
+
+import bms.sensors.NoiseSensor;
+
+/**
+ * Checks that the precomputed noise sensor tables agree with the original
+ * loudness formula, then compares the cost of a hazard level sweep using the
+ * tables against the same sweep calculating a power per sensor.
+ * <p>
+ * Run with optional {@code sensors=N warmup=N batches=N} arguments.
+ */
+public class NoiseSensorBenchmark {
+
+    /**
+     * Loudest reading checked for parity, beyond the end of the tables.
+     */
+    private static final int MAX_CHECKED_READING = 1_000;
+
+    /**
+     * Checks parity then runs the benchmarks, printing one line per result.
+     *
+     * @param args optional arguments of the form name=value
+     */
+    public static void main(String[] args) {
+        int sensorCount = 10_000;
+        int warmup = 5;
+        int batches = 10;
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            int value = Integer.parseInt(parts[1]);
+            switch (parts[0]) {
+                case "sensors":
+                    sensorCount = value;
+                    break;
+                case "warmup":
+                    warmup = value;
+                    break;
+                case "batches":
+                    batches = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                            "Unknown parameter: " + parts[0]);
+            }
+        }
+
+        checkParity();
+        System.out.println("Parity: table matches formula for readings 0-"
+                + MAX_CHECKED_READING);
+
+        NoiseSensor[] sensors = new NoiseSensor[sensorCount];
+        for (int i = 0; i < sensorCount; i++) {
+            sensors[i] = new NoiseSensor(new int[] {30 + i % 60}, 1);
+        }
+        Benchmark benchmark = new Benchmark(warmup, batches);
+        System.out.println(benchmark.measure(
+                "NoiseSensor.getHazardLevel (table) x " + sensorCount, 10,
+                () -> {
+                    long sum = 0;
+                    for (NoiseSensor sensor : sensors) {
+                        sum += sensor.getHazardLevel();
+                    }
+                    return sum;
+                }));
+        System.out.println(benchmark.measure(
+                "NoiseSensor hazard level (Math.pow) x " + sensorCount, 10,
+                () -> {
+                    long sum = 0;
+                    for (NoiseSensor sensor : sensors) {
+                        sum += formulaHazardLevel(sensor.getCurrentReading());
+                    }
+                    return sum;
+                }));
+    }
+
+    /**
+     * Checks the relative loudness and hazard level reported by a noise
+     * sensor against the original formula for every reading up to
+     * {@link #MAX_CHECKED_READING}.
+     *
+     * @throws IllegalStateException if any reading disagrees
+     */
+    private static void checkParity() throws IllegalStateException {
+        for (int reading = 0; reading <= MAX_CHECKED_READING; reading++) {
+            NoiseSensor sensor = new NoiseSensor(new int[] {reading}, 1);
+            double loudness = formulaRelativeLoudness(reading);
+            if (sensor.calculateRelativeLoudness() != loudness
+                    || sensor.getHazardLevel()
+                    != formulaHazardLevel(reading)) {
+                throw new IllegalStateException(
+                        "Table disagrees with formula at " + reading + "dB");
+            }
+        }
+    }
+
+    /**
+     * Calculates relative loudness with the original formula.
+     *
+     * @param reading noise reading in decibels
+     * @return relative loudness compared to 70dB
+     */
+    private static double formulaRelativeLoudness(int reading) {
+        return Math.pow(2, (reading - 70) / 10.0);
+    }
+
+    /**
+     * Calculates a hazard level with the original formula.
+     *
+     * @param reading noise reading in decibels
+     * @return hazard level, 0 to 100
+     */
+    private static int formulaHazardLevel(int reading) {
+        double relativeLoudnessMult100 = formulaRelativeLoudness(reading) * 100;
+        return (int) Math.min(Math.floor(relativeLoudnessMult100), 100);
+    }
+}
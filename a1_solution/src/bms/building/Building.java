@@ -5,11 +5,25 @@ import bms.exceptions.FireDrillException;
 import bms.exceptions.FloorTooSmallException;
 import bms.exceptions.NoFloorBelowException;
 import bms.floor.Floor;
+import bms.hazard.HazardIndex;
+import bms.hazard.HazardRollup;
+import bms.metrics.Metrics;
+import bms.room.Room;
+import bms.room.RoomIndex;
 import bms.room.RoomType;
+import bms.sensors.Sensor;
 import bms.util.FireDrill;
+import bms.util.TimedItemManager;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * Represents a building of floors, which in turn, contain rooms.
@@ -19,6 +33,12 @@ import java.util.List;
  * <p>
  * A building can be evacuated, which causes all rooms on all floors within
  * the building to be evacuated.
+ * <p>
+ * Every building has a timed item manager which the timed sensors in its
+ * rooms are registered with. By default this is the singleton
+ * {@link TimedItemManager#getInstance()}, but a building can be given its own
+ * manager so that its sensors are ticked, and released, independently of
+ * other buildings.
  * @ass1
  */
 public class Building implements FireDrill {
@@ -33,6 +53,35 @@ public class Building implements FireDrill {
      */
     private List<Floor> floors;
 
+    /**
+     * Unmodifiable view of {@link #floors}, created once and shared by all
+     * callers of {@link #getFloorsView()}.
+     */
+    private List<Floor> floorsView;
+
+    /**
+     * Rooms on all floors of the building, indexed by room type. The room
+     * index of each floor is attached to this index.
+     */
+    private RoomIndex roomIndex;
+
+    /**
+     * Hazard index over the rooms in this building, created on first use.
+     */
+    private HazardIndex hazardIndex;
+
+    /**
+     * Roll-up of the hazard levels of the sensors in this building, which
+     * the roll-ups of its floors are attached to, created on first use.
+     */
+    private HazardRollup hazardRollup;
+
+    /**
+     * Timed item manager that the timed sensors in this building are
+     * registered with.
+     */
+    private TimedItemManager timedItemManager;
+
     /**
      * Creates a new empty building with no rooms.
      *
@@ -40,8 +89,32 @@ public class Building implements FireDrill {
      * @ass1
      */
     public Building(String name) {
+        this(name, TimedItemManager.getInstance());
+    }
+
+    /**
+     * Creates a new empty building with no rooms, whose timed sensors are
+     * registered with the given timed item manager.
+     * <p>
+     * Timed sensors in floors added to this building are moved to the given
+     * manager, so ticking the manager advances exactly the sensors in this
+     * building.
+     *
+     * @param name name of this building, eg. "General Purpose South"
+     * @param timedItemManager manager to register the building's sensors with
+     * @throws IllegalArgumentException if timedItemManager is null
+     */
+    public Building(String name, TimedItemManager timedItemManager)
+            throws IllegalArgumentException {
+        if (timedItemManager == null) {
+            throw new IllegalArgumentException(
+                    "Timed item manager must not be null");
+        }
         this.name = name;
         this.floors = new ArrayList<>();
+        this.floorsView = Collections.unmodifiableList(this.floors);
+        this.roomIndex = new RoomIndex();
+        this.timedItemManager = timedItemManager;
     }
 
     /**
@@ -54,6 +127,16 @@ public class Building implements FireDrill {
         return name;
     }
 
+    /**
+     * Returns the timed item manager the building's timed sensors are
+     * registered with.
+     *
+     * @return the building's timed item manager
+     */
+    public TimedItemManager getTimedItemManager() {
+        return timedItemManager;
+    }
+
     /**
      * Returns a new list containing all the floors in this building.
      * <p>
@@ -67,6 +150,158 @@ public class Building implements FireDrill {
         return new ArrayList<>(this.floors);
     }
 
+    /**
+     * Returns an unmodifiable, live view of the floors in this building,
+     * from the ground floor up.
+     * <p>
+     * Unlike {@link #getFloors()}, no copy is made: the same view is returned
+     * on every call and reflects floors added later.
+     *
+     * @return read-only view of all floors in the building
+     */
+    public List<Floor> getFloorsView() {
+        return this.floorsView;
+    }
+
+    /**
+     * Returns the number of floors in this building.
+     *
+     * @return number of floors
+     */
+    public int floorCount() {
+        return this.floors.size();
+    }
+
+    /**
+     * Returns the total number of rooms on all floors in this building.
+     *
+     * @return number of rooms
+     */
+    public int roomCount() {
+        return this.roomIndex.roomCount();
+    }
+
+    /**
+     * Returns the number of times a floor has been added to this building,
+     * or a room has been added to or removed from any of its floors.
+     * <p>
+     * Caches derived from the building's floors and rooms can compare this
+     * count against its value when they were built to tell whether they are
+     * out of date.
+     *
+     * @return number of structural modifications made to the building
+     * @see Floor#getModificationCount()
+     */
+    public int getModificationCount() {
+        int count = this.floors.size();
+        for (Floor floor : this.floors) {
+            count += floor.getModificationCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total number of sensors in all rooms in this building.
+     *
+     * @return number of sensors
+     */
+    public int sensorCount() {
+        int count = 0;
+        for (Floor floor : this.floors) {
+            count += floor.sensorCount();
+        }
+        return count;
+    }
+
+    /**
+     * Performs the given action on each floor in this building, from the
+     * ground floor up.
+     *
+     * @param action action to perform on each floor
+     */
+    public void forEachFloor(Consumer<? super Floor> action) {
+        for (Floor floor : this.floors) {
+            action.accept(floor);
+        }
+    }
+
+    /**
+     * Performs the given action on each room on each floor in this
+     * building.
+     *
+     * @param action action to perform on each room
+     */
+    public void forEachRoom(Consumer<? super Room> action) {
+        for (Floor floor : this.floors) {
+            floor.forEachRoom(action);
+        }
+    }
+
+    /**
+     * Performs the given action on each sensor in each room in this
+     * building.
+     *
+     * @param action action to perform on each sensor
+     */
+    public void forEachSensor(Consumer<? super Sensor> action) {
+        for (Floor floor : this.floors) {
+            floor.forEachSensor(action);
+        }
+    }
+
+    /**
+     * Returns the index of the rooms on all floors of this building by room
+     * type.
+     * <p>
+     * The same index is returned on every call. It includes the room index
+     * of every floor (see {@link Floor#getRoomIndex()}), so it is kept up to
+     * date as rooms are added to and removed from any floor.
+     *
+     * @return room index for this building
+     */
+    public RoomIndex getRoomIndex() {
+        return this.roomIndex;
+    }
+
+    /**
+     * Returns the hazard index over the rooms in this building, which can be
+     * used to query aggregate hazard levels.
+     * <p>
+     * The same index is returned on every call. It caches the hazard level
+     * of every sensor and is refreshed at most once per tick of the building's
+     * timed item manager.
+     *
+     * @return hazard index for this building
+     */
+    public synchronized HazardIndex getHazardIndex() {
+        if (this.hazardIndex == null) {
+            this.hazardIndex = new HazardIndex(this);
+        }
+        return this.hazardIndex;
+    }
+
+    /**
+     * Returns the roll-up of the hazard levels of the timed hazard sensors
+     * in this building.
+     * <p>
+     * The same roll-up is returned on every call. It is created on first
+     * use, and includes the roll-up of every floor in the building (see
+     * {@link Floor#getHazardRollup()}), so the maximum, sum and threshold
+     * counts of hazard levels across the whole building can be queried in
+     * constant time.
+     *
+     * @return hazard roll-up for this building
+     */
+    public synchronized HazardRollup getHazardRollup() {
+        if (this.hazardRollup == null) {
+            this.hazardRollup = new HazardRollup();
+            for (Floor floor : this.floors) {
+                floor.getHazardRollup().attachTo(this.hazardRollup);
+            }
+        }
+        return this.hazardRollup;
+    }
+
     /**
      * Searches for the floor with the specified floor number.
      * <p>
@@ -78,12 +313,12 @@ public class Building implements FireDrill {
      * @ass1
      */
     public Floor getFloorByNumber(int floorNumber) {
-        for (Floor floor : this.floors) {
-            if (floor.getFloorNumber() == floorNumber) {
-                return floor;
-            }
+        // floors can only be added directly above the current top floor, so
+        // the list of floors doubles as a dense index with floor n at n - 1
+        if (floorNumber < 1 || floorNumber > this.floors.size()) {
+            return null;
         }
-        return null;
+        return this.floors.get(floorNumber - 1);
     }
 
     /**
@@ -93,6 +328,9 @@ public class Building implements FireDrill {
      * there is no floor below, or the floor below does not have enough area
      * to support this floor, an exception should be thrown and no action
      * should be taken.
+     * <p>
+     * Once added, the floor is assigned the building's timed item manager
+     * (see {@link Floor#setTimedItemManager(TimedItemManager)}).
      *
      * @param newFloor object representing the new floor
      * @throws IllegalArgumentException if floor number is &lt;= 0,
@@ -109,7 +347,89 @@ public class Building implements FireDrill {
     public void addFloor(Floor newFloor) throws
             IllegalArgumentException, DuplicateFloorException,
             NoFloorBelowException, FloorTooSmallException {
+        this.checkFloor(newFloor, this.getFloorByNumber(this.floors.size()));
 
+        // No problems, so add floor to the list of floors
+        floors.add(newFloor);
+        newFloor.getRoomIndex().attachTo(this.roomIndex);
+        this.rollUp(newFloor);
+        newFloor.setTimedItemManager(this.timedItemManager);
+    }
+
+    /**
+     * Adds several floors to the building at once.
+     * <p>
+     * The floors may be given in any order. They are validated as a single
+     * stack on top of the building's existing floors, with the same rules as
+     * {@link #addFloor(Floor)}: each floor must have a valid floor number and
+     * dimensions, must not duplicate an existing floor or another floor in
+     * the collection, and must be supported by a big enough floor directly
+     * below it, whether that floor is already in the building or is also
+     * being added.
+     * <p>
+     * If any floor is invalid, an exception is thrown and no floors are
+     * added.
+     *
+     * @param newFloors floors to add to the building
+     * @throws IllegalArgumentException if any floor number is &lt;= 0,
+     * width &lt; Floor.getMinWidth(), or length &lt; Floor.getMinLength()
+     * @throws DuplicateFloorException if a floor at the level of any new
+     * floor already exists in the building or appears twice in newFloors
+     * @throws NoFloorBelowException if any floor at level 2 or above would
+     * have no floor below to support it
+     * @throws FloorTooSmallException if any floor at level 2 or above is not
+     * supported by a big enough floor below
+     */
+    public void addFloors(Collection<Floor> newFloors) throws
+            IllegalArgumentException, DuplicateFloorException,
+            NoFloorBelowException, FloorTooSmallException {
+        List<Floor> stack = new ArrayList<>(newFloors);
+        stack.sort(Comparator.comparingInt(Floor::getFloorNumber));
+
+        Floor topFloor = this.getFloorByNumber(this.floors.size());
+        for (Floor newFloor : stack) {
+            this.checkFloor(newFloor, topFloor);
+            topFloor = newFloor;
+        }
+
+        // No problems, so add all floors to the list of floors
+        for (Floor newFloor : stack) {
+            floors.add(newFloor);
+            newFloor.getRoomIndex().attachTo(this.roomIndex);
+            this.rollUp(newFloor);
+            newFloor.setTimedItemManager(this.timedItemManager);
+        }
+    }
+
+    /**
+     * Attaches the roll-up of the given floor to this building's roll-up, if
+     * it has been created.
+     *
+     * @param newFloor floor added to this building
+     */
+    private synchronized void rollUp(Floor newFloor) {
+        if (this.hazardRollup != null) {
+            newFloor.getHazardRollup().attachTo(this.hazardRollup);
+        }
+    }
+
+    /**
+     * Checks that the given floor can be placed directly on top of the given
+     * top floor.
+     *
+     * @param newFloor floor to check
+     * @param topFloor current top floor; null if there are no floors yet
+     * @throws IllegalArgumentException if floor number is &lt;= 0,
+     * width &lt; Floor.getMinWidth(), or length &lt; Floor.getMinLength()
+     * @throws DuplicateFloorException if newFloor is not above topFloor
+     * @throws NoFloorBelowException if newFloor is not directly above
+     * topFloor (or on the ground, if there is no top floor)
+     * @throws FloorTooSmallException if topFloor is not big enough to
+     * support newFloor
+     */
+    private void checkFloor(Floor newFloor, Floor topFloor) throws
+            IllegalArgumentException, DuplicateFloorException,
+            NoFloorBelowException, FloorTooSmallException {
         int newFloorNumber = newFloor.getFloorNumber();
         if (newFloorNumber < 1) {
             throw new IllegalArgumentException(
@@ -121,24 +441,21 @@ public class Building implements FireDrill {
             throw new IllegalArgumentException(
                     "Length cannot be less than " + Floor.getMinLength());
         }
-        if (this.getFloorByNumber(newFloorNumber) != null) {
+
+        int topFloorNumber = topFloor == null ? 0 : topFloor.getFloorNumber();
+        if (newFloorNumber <= topFloorNumber) {
             throw new DuplicateFloorException(
                     "This floor level already exists in the building.");
         }
-
-        Floor floorBelow = this.getFloorByNumber(newFloorNumber - 1);
-        if (newFloorNumber >= 2 && floorBelow == null) {
+        if (newFloorNumber > topFloorNumber + 1) {
             throw new NoFloorBelowException("There is no floor below to "
                     + "support this new floor.");
         }
-        if (newFloorNumber >= 2 && (newFloor.getWidth() > floorBelow.getWidth()
-                || newFloor.getLength() > floorBelow.getLength())) {
+        if (topFloor != null && (newFloor.getWidth() > topFloor.getWidth()
+                || newFloor.getLength() > topFloor.getLength())) {
             throw new FloorTooSmallException("The floor below does not "
                     + "have enough area to support this floor. ");
         }
-
-        // No problems, so add floor to the list of floors
-        floors.add(newFloor);
     }
 
     /**
@@ -160,23 +477,13 @@ public class Building implements FireDrill {
      * @ass1
      */
     public void fireDrill(RoomType roomType) throws FireDrillException {
-        if (this.floors.size() < 1) {
-            throw new FireDrillException("Cannot conduct fire drill because "
-                    + "there are no floors in the building yet!");
-        }
-        boolean hasRooms = false;
-        for (Floor floor : this.floors) {
-            if (!floor.getRooms().isEmpty()) {
-                hasRooms = true;
-            }
-        }
-        if (!hasRooms) {
-            throw new FireDrillException("Cannot conduct fire drill because "
-                    + "there are no rooms in the building yet!");
-        } else {
-            for (Floor floor : this.floors) {
-                floor.fireDrill(roomType);
-            }
+        Metrics metrics = Metrics.getInstance();
+        boolean timed = metrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0;
+        this.checkFireDrill();
+        this.roomIndex.forEachRoom(roomType, r -> r.setFireDrill(true));
+        if (timed) {
+            metrics.recordFireDrill(System.nanoTime() - start);
         }
     }
 
@@ -188,9 +495,145 @@ public class Building implements FireDrill {
      * @ass1
      */
     public void cancelFireDrill() {
+        Metrics metrics = Metrics.getInstance();
+        boolean timed = metrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0;
         for (Floor floor : this.floors) {
             floor.cancelFireDrill();
         }
+        if (timed) {
+            metrics.recordFireDrillCancellation(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Starts a fire drill in all rooms of the given type in the building,
+     * updating the floors in parallel on the common fork-join pool.
+     * <p>
+     * Equivalent to {@link #fireDrillAsync(RoomType, Executor)} with
+     * {@link ForkJoinPool#commonPool()}.
+     *
+     * @param roomType the type of room to carry out fire drills on; null if
+     *                 fire drills are to be carried out in all rooms
+     * @return handle tracking the progress of the drill
+     * @throws FireDrillException if there are no floors in the building, or
+     * there are floors but no rooms in the building
+     */
+    public FireDrillHandle fireDrillAsync(RoomType roomType)
+            throws FireDrillException {
+        return this.fireDrillAsync(roomType, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Starts a fire drill in all rooms of the given type in the building,
+     * updating each floor as a separate task on the given executor.
+     * <p>
+     * The building is checked in the same way as by
+     * {@link #fireDrill(RoomType)} before any task is submitted, so an
+     * exception is thrown on the calling thread if a drill cannot be carried
+     * out. Otherwise this method returns as soon as the tasks have been
+     * submitted, and the returned handle reports their progress.
+     * <p>
+     * Floors and rooms must not be added to or removed from the building
+     * until the drill has completed.
+     *
+     * @param roomType the type of room to carry out fire drills on; null if
+     *                 fire drills are to be carried out in all rooms
+     * @param executor executor to update the floors on
+     * @return handle tracking the progress of the drill
+     * @throws IllegalArgumentException if executor is null
+     * @throws FireDrillException if there are no floors in the building, or
+     * there are floors but no rooms in the building
+     */
+    public FireDrillHandle fireDrillAsync(RoomType roomType, Executor executor)
+            throws IllegalArgumentException, FireDrillException {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null");
+        }
+        this.checkFireDrill();
+        return this.updateFloorsAsync(roomType, false, executor);
+    }
+
+    /**
+     * Cancels any ongoing fire drill in the building, updating the floors in
+     * parallel on the common fork-join pool.
+     * <p>
+     * Equivalent to {@link #cancelFireDrillAsync(Executor)} with
+     * {@link ForkJoinPool#commonPool()}.
+     *
+     * @return handle tracking the progress of the cancellation
+     */
+    public FireDrillHandle cancelFireDrillAsync() {
+        return this.cancelFireDrillAsync(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Cancels any ongoing fire drill in the building, updating each floor as
+     * a separate task on the given executor.
+     * <p>
+     * Floors and rooms must not be added to or removed from the building
+     * until the cancellation has completed.
+     *
+     * @param executor executor to update the floors on
+     * @return handle tracking the progress of the cancellation
+     * @throws IllegalArgumentException if executor is null
+     */
+    public FireDrillHandle cancelFireDrillAsync(Executor executor)
+            throws IllegalArgumentException {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null");
+        }
+        return this.updateFloorsAsync(null, true, executor);
+    }
+
+    /**
+     * Checks that a fire drill can be carried out in this building.
+     *
+     * @throws FireDrillException if there are no floors in the building, or
+     * there are floors but no rooms in the building
+     */
+    private void checkFireDrill() throws FireDrillException {
+        if (this.floors.size() < 1) {
+            throw new FireDrillException("Cannot conduct fire drill because "
+                    + "there are no floors in the building yet!");
+        }
+        if (this.roomCount() == 0) {
+            throw new FireDrillException("Cannot conduct fire drill because "
+                    + "there are no rooms in the building yet!");
+        }
+    }
+
+    /**
+     * Starts or cancels a fire drill on each floor of this building as a
+     * separate task on the given executor.
+     *
+     * @param roomType the type of room to update; null for all rooms
+     * @param cancel true to cancel drills; false to start them
+     * @param executor executor to update the floors on
+     * @return handle tracking the progress of the tasks
+     */
+    private FireDrillHandle updateFloorsAsync(RoomType roomType,
+                                              boolean cancel,
+                                              Executor executor) {
+        FireDrillHandle handle = new FireDrillHandle(roomType, cancel,
+                this.floors.size());
+        CompletableFuture<?>[] tasks =
+                new CompletableFuture<?>[this.floors.size()];
+        for (int i = 0; i < tasks.length; i++) {
+            Floor floor = this.floors.get(i);
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                int rooms = floor.getRoomIndex().roomCount(roomType);
+                if (cancel) {
+                    floor.cancelFireDrill();
+                } else {
+                    floor.fireDrill(roomType);
+                }
+                handle.floorCompleted(rooms);
+            }, executor);
+        }
+        CompletableFuture.allOf(tasks).whenComplete(
+                (ignored, failure) -> handle.complete(failure));
+        return handle;
     }
 
     /**
@@ -0,0 +1,258 @@
+package bms.building;
+
+import bms.metrics.Metrics;
+import bms.room.RoomType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A handle to a fire drill (or the cancellation of one) which is being
+ * carried out asynchronously across the floors of a building.
+ * <p>
+ * The handle reports how many floors and rooms have been updated so far,
+ * and when the drill started and completed. Its {@link #getFuture() future}
+ * completes once every floor has been updated, or completes exceptionally
+ * if updating any floor failed.
+ * <p>
+ * See {@link Building#fireDrillAsync(RoomType)} and
+ * {@link Building#cancelFireDrillAsync()}.
+ */
+public class FireDrillHandle {
+
+    /**
+     * Type of room the drill was started in; null for all rooms.
+     */
+    private final RoomType roomType;
+
+    /**
+     * Whether this handle is for the cancellation of a drill rather than
+     * the start of one.
+     */
+    private final boolean cancellation;
+
+    /**
+     * Number of floors the drill is carried out on.
+     */
+    private final int floorCount;
+
+    /**
+     * Number of floors whose rooms have all been updated.
+     */
+    private final AtomicInteger completedFloors;
+
+    /**
+     * Number of rooms updated so far.
+     */
+    private final AtomicInteger updatedRooms;
+
+    /**
+     * Time at which the drill was started.
+     */
+    private final Instant startTime;
+
+    /**
+     * Value of {@link System#nanoTime()} when the drill was started, used to
+     * measure the drill's latency for {@link Metrics}.
+     */
+    private final long startNanos;
+
+    /**
+     * Time at which the last floor was updated, or null if the drill has not
+     * completed yet.
+     */
+    private volatile Instant completionTime;
+
+    /**
+     * Future completed with this handle once the drill has completed.
+     */
+    private final CompletableFuture<FireDrillHandle> future;
+
+    /**
+     * Creates a new handle for a drill that has just been started.
+     *
+     * @param roomType type of room the drill is carried out in; null for all
+     *                 rooms
+     * @param cancellation true if the drill is being cancelled rather than
+     *                     started
+     * @param floorCount number of floors the drill is carried out on
+     */
+    FireDrillHandle(RoomType roomType, boolean cancellation, int floorCount) {
+        this.roomType = roomType;
+        this.cancellation = cancellation;
+        this.floorCount = floorCount;
+        this.completedFloors = new AtomicInteger();
+        this.updatedRooms = new AtomicInteger();
+        this.startTime = Instant.now();
+        this.startNanos = System.nanoTime();
+        this.future = new CompletableFuture<>();
+    }
+
+    /**
+     * Returns the type of room the drill is carried out in.
+     *
+     * @return room type; null if the drill is carried out in all rooms
+     */
+    public RoomType getRoomType() {
+        return roomType;
+    }
+
+    /**
+     * Returns whether this handle tracks the cancellation of a drill, rather
+     * than the start of one.
+     *
+     * @return true if rooms are having their drill cancelled
+     */
+    public boolean isCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * Returns the number of floors the drill is carried out on.
+     *
+     * @return number of floors
+     */
+    public int getFloorCount() {
+        return floorCount;
+    }
+
+    /**
+     * Returns the number of floors whose rooms have all been updated.
+     *
+     * @return number of completed floors
+     */
+    public int getCompletedFloorCount() {
+        return completedFloors.get();
+    }
+
+    /**
+     * Returns the number of rooms updated so far.
+     *
+     * @return number of updated rooms
+     */
+    public int getUpdatedRoomCount() {
+        return updatedRooms.get();
+    }
+
+    /**
+     * Returns the fraction of floors whose rooms have all been updated.
+     *
+     * @return progress from 0 to 1 inclusive; 1 if there are no floors
+     */
+    public double getProgress() {
+        return floorCount == 0
+                ? 1 : (double) completedFloors.get() / floorCount;
+    }
+
+    /**
+     * Returns whether the drill has completed, either normally or because
+     * updating a floor failed.
+     *
+     * @return true if the drill has completed
+     */
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Returns the time at which the drill was started.
+     *
+     * @return start time
+     */
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the time at which the drill completed.
+     *
+     * @return completion time; null if the drill has not completed yet
+     */
+    public Instant getCompletionTime() {
+        return completionTime;
+    }
+
+    /**
+     * Returns how long the drill took to complete.
+     *
+     * @return time between the start and completion of the drill; null if
+     * the drill has not completed yet
+     */
+    public Duration getDuration() {
+        Instant completed = completionTime;
+        return completed == null
+                ? null : Duration.between(startTime, completed);
+    }
+
+    /**
+     * Returns a future which is completed with this handle once every floor
+     * has been updated, or completed exceptionally if updating any floor
+     * failed.
+     *
+     * @return future for the completion of the drill
+     */
+    public CompletableFuture<FireDrillHandle> getFuture() {
+        return future;
+    }
+
+    /**
+     * Records that all rooms on one floor have been updated.
+     *
+     * @param rooms number of rooms updated on the floor
+     */
+    void floorCompleted(int rooms) {
+        updatedRooms.addAndGet(rooms);
+        completedFloors.incrementAndGet();
+    }
+
+    /**
+     * Records that the drill has completed, and completes the future.
+     *
+     * @param failure exception thrown while updating a floor; null if every
+     *                floor was updated
+     */
+    void complete(Throwable failure) {
+        long nanos = System.nanoTime() - startNanos;
+        completionTime = Instant.now();
+        Metrics metrics = Metrics.getInstance();
+        if (metrics.isEnabled()) {
+            if (cancellation) {
+                metrics.recordFireDrillCancellation(nanos);
+            } else {
+                metrics.recordFireDrill(nanos);
+            }
+        }
+        if (failure == null) {
+            future.complete(this);
+        } else if (failure instanceof CompletionException
+                && failure.getCause() != null) {
+            future.completeExceptionally(failure.getCause());
+        } else {
+            future.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Returns the human-readable string representation of this handle.
+     * <p>
+     * The format of the string to return is
+     * "FireDrillHandle: type='roomType', floors='completed'/'total',
+     * rooms='updated', done='done'"
+     * without the single quotes, where 'roomType' is "ALL" if the drill is
+     * carried out in all rooms, or "CANCEL" if the drill is being cancelled.
+     *
+     * @return string representation of this handle
+     */
+    @Override
+    public String toString() {
+        return String.format(
+                "FireDrillHandle: type=%s, floors=%d/%d, rooms=%d, done=%b",
+                cancellation ? "CANCEL"
+                        : roomType == null ? "ALL" : roomType.toString(),
+                completedFloors.get(), floorCount, updatedRooms.get(),
+                isDone());
+    }
+}
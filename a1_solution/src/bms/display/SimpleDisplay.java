@@ -152,11 +152,11 @@ public class SimpleDisplay {
      */
     private static void displayBuilding(Building building) {
         System.out.println(building.toString());
-        for (Floor floor : building.getFloors()) {
+        for (Floor floor : building.getFloorsView()) {
             System.out.println("\t" + floor.toString());
-            for (Room room : floor.getRooms()) {
+            for (Room room : floor.getRoomsView()) {
                 System.out.println("\t\t" + room.toString());
-                for (Sensor sensor : room.getSensors()) {
+                for (Sensor sensor : room.getSensorsView()) {
                     System.out.println("\t\t\t" + sensor.toString());
                 }
             }
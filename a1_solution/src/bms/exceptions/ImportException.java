@@ -0,0 +1,60 @@
+package bms.exceptions;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exception thrown when one or more records could not be imported into a
+ * building by a {@link bms.io.BuildingImporter}.
+ * <p>
+ * Every invalid record is reported in a single exception, once the whole
+ * input has been read. At most a fixed number of error messages are kept,
+ * but all errors are counted.
+ */
+public class ImportException extends Exception {
+
+    /**
+     * Messages describing the invalid records, in input order.
+     */
+    private final List<String> errors;
+
+    /**
+     * Total number of invalid records, including those whose messages were
+     * not kept.
+     */
+    private final int errorCount;
+
+    /**
+     * Constructs an ImportException reporting the given errors.
+     *
+     * @param errors messages describing the invalid records, in input order
+     * @param errorCount total number of invalid records
+     */
+    public ImportException(List<String> errors, int errorCount) {
+        super(errorCount + " record(s) could not be imported"
+                + (errors.isEmpty() ? "" : ", first: " + errors.get(0)));
+        this.errors = Collections.unmodifiableList(errors);
+        this.errorCount = errorCount;
+    }
+
+    /**
+     * Returns the messages describing the invalid records, in input order.
+     * <p>
+     * If there were more errors than the importer keeps, only the first
+     * errors are returned.
+     *
+     * @return error messages
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the total number of records that could not be imported.
+     *
+     * @return number of invalid records
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+}
@@ -2,12 +2,26 @@ package bms.floor;
 
 import bms.exceptions.DuplicateRoomException;
 import bms.exceptions.InsufficientSpaceException;
+import bms.hazard.HazardIndex;
+import bms.hazard.HazardRollup;
 import bms.room.Room;
+import bms.room.RoomIndex;
 import bms.room.RoomType;
+import bms.sensors.Sensor;
 import bms.util.FireDrill;
+import bms.util.TimedItemManager;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Represents a floor of a building.
@@ -27,9 +41,60 @@ public class Floor implements FireDrill {
     private int floorNumber;
 
     /**
-     * List of rooms on the floor level.
+     * Rooms on the floor level, in the order they were added. This is the
+     * live collection of values of {@link #roomsByNumber}.
      */
-    private List<Room> rooms;
+    private Collection<Room> rooms;
+
+    /**
+     * Rooms on the floor level, indexed by room number, in the order they
+     * were added, so that rooms can be removed in constant time.
+     */
+    private Map<Integer, Room> roomsByNumber;
+
+    /**
+     * Rooms on the floor level, indexed by room type.
+     */
+    private RoomIndex roomIndex;
+
+    /**
+     * Unmodifiable view of {@link #rooms}, created once and shared by all
+     * callers of {@link #getRoomsView()}.
+     */
+    private List<Room> roomsView;
+
+    /**
+     * Rooms on the floor in the order they were added, used to answer
+     * positional queries on {@link #roomsView}; null if rooms have been
+     * added or removed since it was last built.
+     */
+    private Room[] roomArray;
+
+    /**
+     * Hazard index over the rooms in this floor, created on first use.
+     */
+    private HazardIndex hazardIndex;
+
+    /**
+     * Roll-up of the hazard levels of the sensors in this floor, which the
+     * roll-ups of its rooms are attached to, created on first use.
+     */
+    private HazardRollup hazardRollup;
+
+    /**
+     * Total area of all rooms on the floor, in square metres, summed in the
+     * order the rooms were added. Kept up to date as rooms are added, but
+     * only valid while occupiedAreaStale is false.
+     */
+    private float occupiedArea;
+
+    /**
+     * Whether a room has been removed since the occupied area was last
+     * summed. Subtracting the removed room's area instead would accumulate
+     * rounding error, so the area is summed again the next time it is
+     * needed.
+     */
+    private boolean occupiedAreaStale;
 
     /**
      * Width of the floor in metres.
@@ -51,6 +116,17 @@ public class Floor implements FireDrill {
      */
     private static final int MIN_LENGTH = 5;
 
+    /**
+     * Timed item manager assigned to the rooms on this floor, or null if the
+     * floor has not been assigned a manager.
+     */
+    private TimedItemManager timedItemManager;
+
+    /**
+     * Number of times a room has been added to or removed from this floor.
+     */
+    private int modificationCount;
+
     /**
      * Creates a new floor with the given floor number.
      *
@@ -65,7 +141,11 @@ public class Floor implements FireDrill {
         this.width = width;
         this.length = length;
 
-        this.rooms = new ArrayList<>();
+        this.roomsByNumber = new LinkedHashMap<>();
+        this.rooms = this.roomsByNumber.values();
+        this.roomIndex = new RoomIndex();
+        this.roomsView = new RoomsView();
+        this.occupiedArea = 0;
     }
 
     /**
@@ -111,6 +191,77 @@ public class Floor implements FireDrill {
         return new ArrayList<>(this.rooms);
     }
 
+    /**
+     * Returns an unmodifiable, live view of the rooms on this floor, in the
+     * order they were added.
+     * <p>
+     * Unlike {@link #getRooms()}, no copy is made: the same view is returned
+     * on every call and reflects rooms added or removed later.
+     *
+     * @return read-only view of all rooms on the floor
+     */
+    public List<Room> getRoomsView() {
+        return this.roomsView;
+    }
+
+    /**
+     * Returns the number of rooms on this floor.
+     *
+     * @return number of rooms
+     */
+    public int roomCount() {
+        return this.rooms.size();
+    }
+
+    /**
+     * Returns the number of times a room has been added to or removed from
+     * this floor.
+     * <p>
+     * Caches derived from the floor's rooms can compare this count against
+     * its value when they were built to tell whether they are out of date.
+     *
+     * @return number of structural modifications made to the floor
+     */
+    public int getModificationCount() {
+        return this.modificationCount;
+    }
+
+    /**
+     * Returns the total number of sensors in all rooms on this floor.
+     *
+     * @return number of sensors
+     */
+    public int sensorCount() {
+        int count = 0;
+        for (Room room : this.rooms) {
+            count += room.sensorCount();
+        }
+        return count;
+    }
+
+    /**
+     * Performs the given action on each room on this floor, in the order
+     * they were added.
+     *
+     * @param action action to perform on each room
+     */
+    public void forEachRoom(Consumer<? super Room> action) {
+        for (Room room : this.rooms) {
+            action.accept(room);
+        }
+    }
+
+    /**
+     * Performs the given action on each sensor in each room on this floor.
+     *
+     * @param action action to perform on each sensor
+     */
+    public void forEachSensor(Consumer<? super Sensor> action) {
+        for (Room room : this.rooms) {
+            room.forEachSensor(action);
+        }
+    }
+
     /**
      * Returns width of the floor.
      *
@@ -131,6 +282,87 @@ public class Floor implements FireDrill {
         return this.length;
     }
 
+    /**
+     * Returns the timed item manager assigned to this floor.
+     *
+     * @return the floor's timed item manager; null if none has been assigned
+     */
+    public TimedItemManager getTimedItemManager() {
+        return timedItemManager;
+    }
+
+    /**
+     * Assigns a timed item manager to this floor.
+     * <p>
+     * The manager is assigned to all rooms currently on the floor, and to
+     * any added to it later (see
+     * {@link Room#setTimedItemManager(TimedItemManager)}).
+     *
+     * @param timedItemManager manager to register the floor's sensors with
+     * @throws IllegalArgumentException if timedItemManager is null
+     */
+    public void setTimedItemManager(TimedItemManager timedItemManager)
+            throws IllegalArgumentException {
+        if (timedItemManager == null) {
+            throw new IllegalArgumentException(
+                    "Timed item manager must not be null");
+        }
+        this.timedItemManager = timedItemManager;
+        for (Room r : this.rooms) {
+            r.setTimedItemManager(timedItemManager);
+        }
+    }
+
+    /**
+     * Returns the index of the rooms on this floor by room type.
+     * <p>
+     * The same index is returned on every call, and is kept up to date as
+     * rooms are added and removed.
+     *
+     * @return room index for this floor
+     */
+    public RoomIndex getRoomIndex() {
+        return this.roomIndex;
+    }
+
+    /**
+     * Returns the hazard index over the rooms in this floor, which can be
+     * used to query aggregate hazard levels.
+     * <p>
+     * The same index is returned on every call. It caches the hazard level
+     * of every sensor and is refreshed at most once per tick of the floor's
+     * timed item manager.
+     *
+     * @return hazard index for this floor
+     */
+    public synchronized HazardIndex getHazardIndex() {
+        if (this.hazardIndex == null) {
+            this.hazardIndex = new HazardIndex(this);
+        }
+        return this.hazardIndex;
+    }
+
+    /**
+     * Returns the roll-up of the hazard levels of the timed hazard sensors
+     * in the rooms on this floor.
+     * <p>
+     * The same roll-up is returned on every call. It is created on first
+     * use, and includes the roll-up of every room on the floor (see
+     * {@link Room#getHazardRollup()}), so it is updated incrementally as
+     * their hazard levels change and as rooms are added and removed.
+     *
+     * @return hazard roll-up for this floor
+     */
+    public synchronized HazardRollup getHazardRollup() {
+        if (this.hazardRollup == null) {
+            this.hazardRollup = new HazardRollup();
+            for (Room room : this.rooms) {
+                room.getHazardRollup().attachTo(this.hazardRollup);
+            }
+        }
+        return this.hazardRollup;
+    }
+
     /**
      * Search for the room with the specified room number.
      * <p>
@@ -142,12 +374,7 @@ public class Floor implements FireDrill {
      * @ass1
      */
     public Room getRoomByNumber(int roomNumber) {
-        for (Room room : this.rooms) {
-            if (room.getRoomNumber() == roomNumber) {
-                return room;
-            }
-        }
-        return null;
+        return this.roomsByNumber.get(roomNumber);
     }
 
     /**
@@ -174,11 +401,24 @@ public class Floor implements FireDrill {
      * @ass1
      */
     public float occupiedArea() {
-        float area = 0;
-        for (Room room : rooms) {
-            area += room.getArea();
+        if (this.occupiedAreaStale) {
+            float area = 0;
+            for (Room room : this.rooms) {
+                area += room.getArea();
+            }
+            this.occupiedArea = area;
+            this.occupiedAreaStale = false;
         }
-        return area;
+        return this.occupiedArea;
+    }
+
+    /**
+     * Calculates the area of the floor which is not occupied by any rooms.
+     *
+     * @return area of the floor that is currently free, in square metres
+     */
+    public double remainingArea() {
+        return this.calculateArea() - this.occupiedArea();
     }
 
     /**
@@ -186,6 +426,9 @@ public class Floor implements FireDrill {
      * <p>
      * The dimensions of the room are managed automatically. The length and
      * width of the room do not need to be specified, only the required space.
+     * <p>
+     * If the floor has been assigned a timed item manager, it is also
+     * assigned to the new room.
      *
      * @param newRoom object representing the new room
      * @throws IllegalArgumentException if area is less than Room.getMinArea()
@@ -204,21 +447,145 @@ public class Floor implements FireDrill {
                     "Area cannot be less than " + Room.getMinArea());
         }
 
-        if (this.getRoomByNumber(newRoom.getRoomNumber()) != null) {
-            throw new DuplicateRoomException(
-                    "The room number " + newRoom.getRoomNumber()
-                            + " is already taken on this floor.");
+        if (this.roomsByNumber.containsKey(newRoom.getRoomNumber())) {
+            throw this.duplicateRoom(newRoom);
         }
 
-        if ((this.occupiedArea() + newRoom.getArea()) > this.calculateArea()) {
-            throw new InsufficientSpaceException("Insufficient space to add "
-                    + "room. Floor area:" + this.calculateArea()
-                    + "m^2, Occupied area: " + this.occupiedArea()
-                    + "m^2, This room: " + newRoom.getArea() + "m^2");
+        float occupiedArea = this.occupiedArea();
+        if ((occupiedArea + newRoom.getArea()) > this.calculateArea()) {
+            throw this.insufficientSpace(newRoom, occupiedArea);
         }
 
         // No problems, so add room to the list of rooms
-        rooms.add(newRoom);
+        this.insertRoom(newRoom);
+    }
+
+    /**
+     * Adds several rooms to the floor at once.
+     * <p>
+     * The rooms are validated together in a single pass, with the same rules
+     * as {@link #addRoom(Room)}: each room must be big enough, must not
+     * share a room number with a room already on the floor or another room
+     * in the collection, and all the rooms must fit in the space available
+     * on the floor.
+     * <p>
+     * If any room is invalid, an exception is thrown and no rooms are added.
+     *
+     * @param newRooms rooms to add to the floor
+     * @throws IllegalArgumentException if the area of any room is less than
+     * Room.getMinArea()
+     * @throws DuplicateRoomException if the number of any new room is already
+     * taken on this floor or appears twice in newRooms
+     * @throws InsufficientSpaceException if there is insufficient space
+     * available on the floor to be able to add all the rooms
+     */
+    public void addRooms(Collection<Room> newRooms)
+            throws DuplicateRoomException, InsufficientSpaceException {
+        Set<Integer> newRoomNumbers = new HashSet<>();
+        float area = this.occupiedArea();
+        for (Room newRoom : newRooms) {
+            if (newRoom.getArea() < Room.getMinArea()) {
+                throw new IllegalArgumentException(
+                        "Area cannot be less than " + Room.getMinArea());
+            }
+            if (this.roomsByNumber.containsKey(newRoom.getRoomNumber())
+                    || !newRoomNumbers.add(newRoom.getRoomNumber())) {
+                throw this.duplicateRoom(newRoom);
+            }
+            if ((area + newRoom.getArea()) > this.calculateArea()) {
+                throw this.insufficientSpace(newRoom, area);
+            }
+            area += newRoom.getArea();
+        }
+
+        // No problems, so add all rooms to the list of rooms
+        for (Room newRoom : newRooms) {
+            this.insertRoom(newRoom);
+        }
+    }
+
+    /**
+     * Removes the room with the specified room number from the floor.
+     * <p>
+     * The room's timed sensors are released from the floor's timed item
+     * manager (and from any {@link bms.sensors.SensorKernel} advancing
+     * them), so they are no longer advanced once the room has been removed
+     * (see {@link Room#releaseTimedSensors()}). They are registered again if
+     * the room is later added to a floor.
+     *
+     * @param roomNumber room number of room to remove
+     * @return the room that was removed; null if no room on the floor has
+     * the given number
+     */
+    public Room removeRoom(int roomNumber) {
+        Room room = this.roomsByNumber.remove(roomNumber);
+        if (room == null) {
+            return null;
+        }
+        this.roomArray = null;
+        this.modificationCount++;
+        this.roomIndex.remove(room);
+        room.releaseTimedSensors();
+        synchronized (this) {
+            if (this.hazardRollup != null) {
+                room.getHazardRollup().detach();
+            }
+        }
+        this.occupiedAreaStale = true;
+        return room;
+    }
+
+    /**
+     * Adds an already validated room to the floor.
+     *
+     * @param newRoom room to add
+     */
+    private void insertRoom(Room newRoom) {
+        this.roomsByNumber.put(newRoom.getRoomNumber(), newRoom);
+        this.roomArray = null;
+        this.modificationCount++;
+        this.roomIndex.add(newRoom);
+        if (!this.occupiedAreaStale) {
+            this.occupiedArea += newRoom.getArea();
+        }
+        synchronized (this) {
+            if (this.hazardRollup != null) {
+                newRoom.getHazardRollup().attachTo(this.hazardRollup);
+            }
+        }
+        if (this.timedItemManager != null) {
+            newRoom.setTimedItemManager(this.timedItemManager);
+        } else {
+            newRoom.restoreTimedSensors();
+        }
+    }
+
+    /**
+     * Creates the exception thrown when a room's number is already taken.
+     *
+     * @param newRoom room being added
+     * @return exception describing the duplicate room number
+     */
+    private DuplicateRoomException duplicateRoom(Room newRoom) {
+        return new DuplicateRoomException(
+                "The room number " + newRoom.getRoomNumber()
+                        + " is already taken on this floor.");
+    }
+
+    /**
+     * Creates the exception thrown when there is not enough space for a
+     * room.
+     *
+     * @param newRoom room being added
+     * @param occupied area already occupied, in square metres
+     * @return exception describing the lack of space
+     */
+    private InsufficientSpaceException insufficientSpace(Room newRoom,
+                                                         float occupied) {
+        return new InsufficientSpaceException("Insufficient space to add "
+                + "room. Floor area:" + this.calculateArea()
+                + "m^2, Occupied area: " + occupied
+                + "m^2, This room: " + newRoom.getArea() + "m^2");
     }
 
     /**
@@ -235,11 +602,7 @@ public class Floor implements FireDrill {
      * @ass1
      */
     public void fireDrill(RoomType roomType) {
-        for (Room r : this.rooms) {
-            if (roomType == null || roomType == r.getType()) {
-                r.setFireDrill(true);
-            }
-        }
+        this.roomIndex.forEachRoom(roomType, r -> r.setFireDrill(true));
     }
 
     /**
@@ -250,9 +613,7 @@ public class Floor implements FireDrill {
      * @ass1
      */
     public void cancelFireDrill() {
-        for (Room r : this.rooms) {
-            r.setFireDrill(false);
-        }
+        this.roomIndex.forEachRoom(null, r -> r.setFireDrill(false));
     }
 
     /**
@@ -282,4 +643,31 @@ public class Floor implements FireDrill {
                 this.length,
                 this.rooms.size());
     }
+
+    /**
+     * Read-only list view of the rooms on this floor. Iterating over the
+     * view walks the rooms directly; positional access uses an array of the
+     * rooms, rebuilt only after rooms have been added or removed.
+     */
+    private final class RoomsView extends AbstractList<Room> {
+        @Override
+        public Room get(int index) {
+            Room[] array = roomArray;
+            if (array == null) {
+                array = rooms.toArray(new Room[0]);
+                roomArray = array;
+            }
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return rooms.size();
+        }
+
+        @Override
+        public Iterator<Room> iterator() {
+            return Collections.unmodifiableCollection(rooms).iterator();
+        }
+    }
 }
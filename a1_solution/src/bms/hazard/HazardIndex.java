@@ -0,0 +1,651 @@
+package bms.hazard;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.metrics.Metrics;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.Sensor;
+import bms.sensors.SensorKind;
+import bms.sensors.TemperatureSensor;
+import bms.sensors.TimedHazardSensor;
+import bms.util.TimedItemManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A cache of the hazard levels of every hazard sensor in a building or on a
+ * floor, which can be queried for aggregate hazard levels.
+ * <p>
+ * Hazard levels are stored column by column (one array entry per room), and
+ * are only refreshed when the timed item manager of the building or floor
+ * has been ticked, or a floor or room has been added or removed, since the
+ * last refresh (see {@link Building#getModificationCount()}). Any number of
+ * queries between two such changes therefore only walk the rooms and
+ * sensors once.
+ * <p>
+ * Sensors added to or removed from a room between ticks are not reflected
+ * until the next tick, or until {@link #refresh()} is called.
+ * <p>
+ * Rooms without any hazard sensors (or without any matching the query)
+ * are considered to have a hazard level of 0.
+ * <p>
+ * When refreshing, the current readings of the sensors of each built-in
+ * kind are gathered into one array and their hazard levels computed in a
+ * single pass, using the batch methods of the sensor classes (such as
+ * {@link NoiseSensor#hazardLevels(int[], int[], int)}). Other hazard sensors
+ * are asked for their hazard level one at a time.
+ */
+public class HazardIndex {
+
+    /**
+     * Marker stored in a per-kind column for rooms without a sensor of that
+     * kind.
+     */
+    private static final int NO_SENSOR = -1;
+
+    /**
+     * Built-in sensor kinds, cached to avoid copying the array on every
+     * refresh.
+     */
+    private static final SensorKind[] KINDS = SensorKind.values();
+
+    /**
+     * Building being indexed, or null if a single floor is being indexed.
+     */
+    private final Building building;
+
+    /**
+     * Floor being indexed, or null if a building is being indexed.
+     */
+    private final Floor floor;
+
+    /**
+     * Value of the timed item manager's clock at the last refresh, or -1 if
+     * the index has never been refreshed.
+     */
+    private long refreshedAt;
+
+    /**
+     * Modification count of the building or floor at the last refresh.
+     */
+    private int refreshedModifications;
+
+    /**
+     * Number of rooms in the index.
+     */
+    private int roomCount;
+
+    /**
+     * Indexed rooms, in floor order then room order.
+     */
+    private Room[] rooms;
+
+    /**
+     * Floor number of each indexed room.
+     */
+    private int[] floorNumbers;
+
+    /**
+     * Type of each indexed room.
+     */
+    private RoomType[] roomTypes;
+
+    /**
+     * Highest hazard level among the hazard sensors in each room.
+     */
+    private int[] roomMax;
+
+    /**
+     * Sum of the hazard levels of the hazard sensors in each room.
+     */
+    private long[] roomSum;
+
+    /**
+     * Number of hazard sensors in each room.
+     */
+    private int[] roomSensors;
+
+    /**
+     * Hazard level of the sensor of each built-in kind in each room, indexed
+     * by {@link SensorKind#ordinal()} then room. {@link #NO_SENSOR} if the
+     * room has no hazard sensor of that kind.
+     */
+    private int[][] kindLevels;
+
+    /**
+     * Current readings of the sensors of each built-in kind gathered during
+     * a refresh, indexed by {@link SensorKind#ordinal()} then sensor.
+     */
+    private int[][] batchReadings;
+
+    /**
+     * Index of the room holding each sensor in {@link #batchReadings}.
+     */
+    private int[][] batchRooms;
+
+    /**
+     * Number of sensors of each built-in kind gathered during a refresh.
+     */
+    private int[] batchCounts;
+
+    /**
+     * Capacity of each occupancy sensor in {@link #batchReadings}.
+     */
+    private int[] occupancyCapacities;
+
+    /**
+     * Hazard levels computed from one kind's {@link #batchReadings}.
+     */
+    private int[] batchLevels;
+
+    /**
+     * Creates a new hazard index over every room in the given building.
+     *
+     * @param building building to index
+     */
+    public HazardIndex(Building building) {
+        this(building, null);
+    }
+
+    /**
+     * Creates a new hazard index over every room on the given floor.
+     *
+     * @param floor floor to index
+     */
+    public HazardIndex(Floor floor) {
+        this(null, floor);
+    }
+
+    /**
+     * Creates a new hazard index over a building or a floor.
+     *
+     * @param building building to index, or null if indexing a floor
+     * @param floor floor to index, or null if indexing a building
+     */
+    private HazardIndex(Building building, Floor floor) {
+        this.building = building;
+        this.floor = floor;
+        this.refreshedAt = -1;
+        this.rooms = new Room[0];
+        this.floorNumbers = new int[0];
+        this.roomTypes = new RoomType[0];
+        this.roomMax = new int[0];
+        this.roomSum = new long[0];
+        this.roomSensors = new int[0];
+        this.kindLevels = new int[SensorKind.count()][0];
+        this.batchReadings = new int[SensorKind.count()][0];
+        this.batchRooms = new int[SensorKind.count()][0];
+        this.batchCounts = new int[SensorKind.count()];
+        this.occupancyCapacities = new int[0];
+        this.batchLevels = new int[0];
+    }
+
+    /**
+     * Returns the highest hazard level reported by any hazard sensor.
+     *
+     * @return maximum hazard level, 0 to 100
+     */
+    public int maxHazardLevel() {
+        return this.maxHazardLevel(null, null);
+    }
+
+    /**
+     * Returns the highest hazard level reported by any hazard sensor of the
+     * given kind, in any room of the given type.
+     *
+     * @param roomType type of rooms to include; null to include all rooms
+     * @param kind kind of sensors to include; null to include all hazard
+     *             sensors
+     * @return maximum hazard level, 0 to 100
+     */
+    public synchronized int maxHazardLevel(RoomType roomType,
+                                           SensorKind kind) {
+        this.refreshIfTicked();
+        int[] levels = kind == null ? this.roomMax
+                : this.kindLevels[kind.ordinal()];
+        int max = 0;
+        for (int i = 0; i < this.roomCount; i++) {
+            if (roomType == null || this.roomTypes[i] == roomType) {
+                max = Math.max(max, levels[i]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the highest hazard level reported by any hazard sensor on the
+     * floor with the given number.
+     *
+     * @param floorNumber number of the floor to include
+     * @return maximum hazard level, 0 to 100; 0 if there is no such floor
+     */
+    public synchronized int maxHazardLevelOnFloor(int floorNumber) {
+        this.refreshIfTicked();
+        int max = 0;
+        for (int i = 0; i < this.roomCount; i++) {
+            if (this.floorNumbers[i] == floorNumber) {
+                max = Math.max(max, this.roomMax[i]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the average hazard level reported by all hazard sensors.
+     *
+     * @return average hazard level, 0 to 100
+     */
+    public double averageHazardLevel() {
+        return this.averageHazardLevel(null, null);
+    }
+
+    /**
+     * Returns the average hazard level reported by the hazard sensors of the
+     * given kind, in the rooms of the given type.
+     *
+     * @param roomType type of rooms to include; null to include all rooms
+     * @param kind kind of sensors to include; null to include all hazard
+     *             sensors
+     * @return average hazard level, 0 to 100; 0 if there are no matching
+     * sensors
+     */
+    public synchronized double averageHazardLevel(RoomType roomType,
+                                                  SensorKind kind) {
+        this.refreshIfTicked();
+        long sum = 0;
+        long count = 0;
+        for (int i = 0; i < this.roomCount; i++) {
+            if (roomType != null && this.roomTypes[i] != roomType) {
+                continue;
+            }
+            if (kind == null) {
+                sum += this.roomSum[i];
+                count += this.roomSensors[i];
+            } else if (this.kindLevels[kind.ordinal()][i] != NO_SENSOR) {
+                sum += this.kindLevels[kind.ordinal()][i];
+                count++;
+            }
+        }
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns the average hazard level reported by the hazard sensors on the
+     * floor with the given number.
+     *
+     * @param floorNumber number of the floor to include
+     * @return average hazard level, 0 to 100; 0 if there are no hazard
+     * sensors on the floor
+     */
+    public synchronized double averageHazardLevelOnFloor(int floorNumber) {
+        this.refreshIfTicked();
+        long sum = 0;
+        long count = 0;
+        for (int i = 0; i < this.roomCount; i++) {
+            if (this.floorNumbers[i] == floorNumber) {
+                sum += this.roomSum[i];
+                count += this.roomSensors[i];
+            }
+        }
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns the rooms whose highest sensor hazard level is strictly
+     * greater than the given threshold, in floor order then room order.
+     *
+     * @param threshold hazard level that must be exceeded
+     * @return new list of rooms exceeding the threshold
+     */
+    public synchronized List<Room> roomsAbove(int threshold) {
+        this.refreshIfTicked();
+        List<Room> result = new ArrayList<>();
+        for (int i = 0; i < this.roomCount; i++) {
+            if (this.roomMax[i] > threshold) {
+                result.add(this.rooms[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns up to k rooms with the highest hazard levels, most hazardous
+     * first. A room's hazard level is the highest level reported by any
+     * hazard sensor in it. Ties are broken in floor order then room order.
+     *
+     * @param k maximum number of rooms to return
+     * @return new list of the most hazardous rooms
+     * @throws IllegalArgumentException if k &lt; 0
+     */
+    public synchronized List<Room> topRooms(int k)
+            throws IllegalArgumentException {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be non-negative");
+        }
+        this.refreshIfTicked();
+        if (k == 0 || this.roomCount == 0) {
+            return new ArrayList<>();
+        }
+
+        // min-heap of the best k room indices seen so far; the head is the
+        // least hazardous (and, among equals, the latest) of them
+        int[] heap = new int[Math.min(k, this.roomCount)];
+        int size = 0;
+        for (int i = 0; i < this.roomCount; i++) {
+            if (size < heap.length) {
+                heap[size] = i;
+                this.siftUp(heap, size++);
+            } else if (this.ranksBelow(heap[0], i)) {
+                heap[0] = i;
+                this.siftDown(heap, size);
+            }
+        }
+        // popping the head repeatedly yields the least hazardous room first
+        Room[] result = new Room[size];
+        while (size > 0) {
+            result[size - 1] = this.rooms[heap[0]];
+            heap[0] = heap[--size];
+            this.siftDown(heap, size);
+        }
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
+    /**
+     * Returns whether room a ranks below room b, because it has a lower
+     * hazard level or, with the same level, comes later in the index.
+     *
+     * @param a index of the first room
+     * @param b index of the second room
+     * @return true if room a ranks below room b
+     */
+    private boolean ranksBelow(int a, int b) {
+        return this.roomMax[a] != this.roomMax[b]
+                ? this.roomMax[a] < this.roomMax[b] : a > b;
+    }
+
+    /**
+     * Moves the room at the given position of a heap of room indices up
+     * until its parent does not rank above it.
+     *
+     * @param heap heap of room indices, lowest ranked at the head
+     * @param position position of the room to move
+     */
+    private void siftUp(int[] heap, int position) {
+        int room = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!this.ranksBelow(room, heap[parent])) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = room;
+    }
+
+    /**
+     * Moves the room at the head of a heap of room indices down until
+     * neither of its children ranks below it.
+     *
+     * @param heap heap of room indices, lowest ranked at the head
+     * @param size number of rooms in the heap
+     */
+    private void siftDown(int[] heap, int size) {
+        if (size == 0) {
+            return;
+        }
+        int room = heap[0];
+        int position = 0;
+        int child;
+        while ((child = 2 * position + 1) < size) {
+            if (child + 1 < size
+                    && this.ranksBelow(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!this.ranksBelow(heap[child], room)) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = room;
+    }
+
+    /**
+     * Returns the number of minutes until any timed hazard sensor with a
+     * precomputed hazard schedule reaches a hazard level greater than or
+     * equal to the given threshold.
+     * <p>
+     * This is answered from the sensors' schedules (see
+     * {@link TimedHazardSensor#minutesUntilHazardLevel(int)}) without
+     * simulating forward, and is not cached. Sensors without a precomputed
+     * schedule are ignored.
+     *
+     * @param threshold hazard level to reach
+     * @return 0 if a scheduled sensor already reaches the threshold;
+     * otherwise the number of minutes until one does, or -1 if none will
+     */
+    public int minutesUntilHazardLevel(int threshold) {
+        int minutes = -1;
+        List<Floor> floors = this.building != null
+                ? this.building.getFloorsView() : List.of(this.floor);
+        for (Floor f : floors) {
+            for (Room room : f.getRoomsView()) {
+                for (Sensor sensor : room.getSensorsView()) {
+                    if (!(sensor instanceof TimedHazardSensor)) {
+                        continue;
+                    }
+                    TimedHazardSensor hazardSensor =
+                            (TimedHazardSensor) sensor;
+                    if (!hazardSensor.hasHazardSchedule()) {
+                        continue;
+                    }
+                    int until =
+                            hazardSensor.minutesUntilHazardLevel(threshold);
+                    if (until >= 0 && (minutes < 0 || until < minutes)) {
+                        minutes = until;
+                    }
+                }
+            }
+        }
+        return minutes;
+    }
+
+    /**
+     * Rebuilds the index from the current hazard levels of every sensor,
+     * regardless of whether the timed item manager has been ticked.
+     */
+    public synchronized void refresh() {
+        Metrics metrics = Metrics.getInstance();
+        boolean timed = metrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0;
+        this.refreshedAt = this.getTimedItemManager().getMinutesElapsed();
+        this.refreshedModifications = this.getModificationCount();
+
+        int count = 0;
+        if (this.building != null) {
+            for (Floor f : this.building.getFloorsView()) {
+                count += f.roomCount();
+            }
+        } else {
+            count = this.floor.roomCount();
+        }
+        this.ensureCapacity(count);
+
+        this.roomCount = 0;
+        Arrays.fill(this.batchCounts, 0);
+        if (this.building != null) {
+            for (Floor f : this.building.getFloorsView()) {
+                this.indexFloor(f);
+            }
+        } else {
+            this.indexFloor(this.floor);
+        }
+        for (SensorKind kind : KINDS) {
+            this.indexBatch(kind);
+        }
+        if (timed) {
+            metrics.recordHazardSweep(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Refreshes the index if the timed item manager has been ticked, or a
+     * floor or room has been added or removed, since the last refresh.
+     */
+    private void refreshIfTicked() {
+        if (this.refreshedAt
+                != this.getTimedItemManager().getMinutesElapsed()
+                || this.refreshedModifications
+                != this.getModificationCount()) {
+            this.refresh();
+        }
+    }
+
+    /**
+     * Returns the modification count of the indexed building or floor.
+     *
+     * @return number of structural modifications made so far
+     */
+    private int getModificationCount() {
+        return this.building != null
+                ? this.building.getModificationCount()
+                : this.floor.getModificationCount();
+    }
+
+    /**
+     * Returns the timed item manager whose ticks invalidate this index.
+     *
+     * @return manager of the indexed building or floor
+     */
+    private TimedItemManager getTimedItemManager() {
+        if (this.building != null) {
+            return this.building.getTimedItemManager();
+        }
+        TimedItemManager manager = this.floor.getTimedItemManager();
+        return manager == null ? TimedItemManager.getInstance() : manager;
+    }
+
+    /**
+     * Appends every room on the given floor to the index columns.
+     * <p>
+     * The readings of sensors of built-in kinds are gathered for
+     * {@link #indexBatch(SensorKind)}; only other hazard sensors are included
+     * in the room columns by this method.
+     *
+     * @param f floor to index
+     */
+    private void indexFloor(Floor f) {
+        for (Room room : f.getRoomsView()) {
+            int i = this.roomCount++;
+            this.rooms[i] = room;
+            this.floorNumbers[i] = f.getFloorNumber();
+            this.roomTypes[i] = room.getType();
+
+            int max = 0;
+            long sum = 0;
+            int sensors = 0;
+            for (int[] levels : this.kindLevels) {
+                levels[i] = NO_SENSOR;
+            }
+            for (Sensor sensor : room.getSensorsView()) {
+                if (!(sensor instanceof HazardSensor)) {
+                    continue;
+                }
+                SensorKind kind = SensorKind.of(sensor.getClass());
+                if (kind != null) {
+                    int k = kind.ordinal();
+                    int j = this.batchCounts[k]++;
+                    this.batchReadings[k][j] = sensor.getCurrentReading();
+                    this.batchRooms[k][j] = i;
+                    if (kind == SensorKind.OCCUPANCY) {
+                        this.occupancyCapacities[j] =
+                                ((OccupancySensor) sensor).getCapacity();
+                    }
+                    continue;
+                }
+                int level = ((HazardSensor) sensor).getHazardLevel();
+                max = Math.max(max, level);
+                sum += level;
+                sensors++;
+            }
+            this.roomMax[i] = max;
+            this.roomSum[i] = sum;
+            this.roomSensors[i] = sensors;
+        }
+    }
+
+    /**
+     * Computes the hazard levels of the gathered readings of the given kind
+     * in one pass, and adds them to the columns of the rooms holding the
+     * sensors.
+     *
+     * @param kind kind of sensors to index
+     */
+    private void indexBatch(SensorKind kind) {
+        int k = kind.ordinal();
+        int count = this.batchCounts[k];
+        int[] readings = this.batchReadings[k];
+        switch (kind) {
+            case CARBON_DIOXIDE:
+                CarbonDioxideSensor.hazardLevels(readings, this.batchLevels,
+                        count);
+                break;
+            case NOISE:
+                NoiseSensor.hazardLevels(readings, this.batchLevels, count);
+                break;
+            case OCCUPANCY:
+                OccupancySensor.hazardLevels(readings,
+                        this.occupancyCapacities, this.batchLevels, count);
+                break;
+            default:
+                TemperatureSensor.hazardLevels(readings, this.batchLevels,
+                        count);
+                break;
+        }
+
+        int[] rooms = this.batchRooms[k];
+        int[] levels = this.kindLevels[k];
+        for (int j = 0; j < count; j++) {
+            int i = rooms[j];
+            int level = this.batchLevels[j];
+            levels[i] = level;
+            this.roomMax[i] = Math.max(this.roomMax[i], level);
+            this.roomSum[i] += level;
+            this.roomSensors[i]++;
+        }
+    }
+
+    /**
+     * Grows the index columns if needed so they can hold the given number of
+     * rooms, and clears references to rooms beyond that number.
+     *
+     * @param capacity number of rooms the columns must hold
+     */
+    private void ensureCapacity(int capacity) {
+        if (this.rooms.length < capacity) {
+            this.rooms = new Room[capacity];
+            this.floorNumbers = new int[capacity];
+            this.roomTypes = new RoomType[capacity];
+            this.roomMax = new int[capacity];
+            this.roomSum = new long[capacity];
+            this.roomSensors = new int[capacity];
+            for (int k = 0; k < this.kindLevels.length; k++) {
+                this.kindLevels[k] = new int[capacity];
+                this.batchReadings[k] = new int[capacity];
+                this.batchRooms[k] = new int[capacity];
+            }
+            this.occupancyCapacities = new int[capacity];
+            this.batchLevels = new int[capacity];
+        } else {
+            Arrays.fill(this.rooms, capacity, this.rooms.length, null);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package bms.hazard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aggregate hazard levels (maximum, sum and counts over thresholds) of a
+ * group of hazard sensors, maintained incrementally as hazard levels change.
+ * <p>
+ * Roll-ups form a tree that mirrors the building: the roll-up of each room
+ * is attached to the roll-up of its floor, and the roll-up of each floor to
+ * that of its building. Every change to a roll-up is also applied to its
+ * ancestors, so queries take constant time at any level of the tree, and
+ * keeping the tree up to date only costs work for the levels that change.
+ * <p>
+ * A thread can batch the changes it makes to roll-ups (see
+ * {@link #beginBatch()}), in which case each roll-up changed on that thread
+ * collects the changes to pass on to its parent, and passes them on once
+ * when the batch ends. Threads changing roll-ups in the same building
+ * concurrently then contend for the roll-ups of its floors and of the
+ * building once per batch, rather than once per change.
+ * <p>
+ * Hazard levels are clamped to the range 0 to {@link #MAX_LEVEL} inclusive.
+ */
+public class HazardRollup {
+
+    /**
+     * Highest hazard level recorded by a roll-up.
+     */
+    public static final int MAX_LEVEL = 100;
+
+    /**
+     * Batch of the current thread, or null if the thread has never begun a
+     * batch.
+     */
+    private static final ThreadLocal<Batch> BATCH = new ThreadLocal<>();
+
+    /**
+     * Number of sensors at each hazard level, indexed by level.
+     */
+    private final int[] levelCounts;
+
+    /**
+     * Number of sensors included in this roll-up.
+     */
+    private int sensorCount;
+
+    /**
+     * Sum of the hazard levels of all sensors in this roll-up.
+     */
+    private long levelSum;
+
+    /**
+     * Highest hazard level of any sensor in this roll-up, or 0 if there are
+     * no sensors.
+     */
+    private int maxLevel;
+
+    /**
+     * Roll-up that this roll-up's sensors are also included in, or null if
+     * this roll-up has not been attached to a parent.
+     */
+    private HazardRollup parent;
+
+    /**
+     * Changes to the number of sensors at each level which have not yet
+     * been passed on to the parent, or null if there are none.
+     */
+    private int[] pendingCounts;
+
+    /**
+     * Creates a new roll-up with no sensors.
+     */
+    public HazardRollup() {
+        this.levelCounts = new int[MAX_LEVEL + 1];
+    }
+
+    /**
+     * Returns the number of sensors included in this roll-up.
+     *
+     * @return number of sensors
+     */
+    public synchronized int getSensorCount() {
+        return this.sensorCount;
+    }
+
+    /**
+     * Returns the sum of the hazard levels of all sensors in this roll-up.
+     *
+     * @return sum of hazard levels
+     */
+    public synchronized long getHazardLevelSum() {
+        return this.levelSum;
+    }
+
+    /**
+     * Returns the highest hazard level of any sensor in this roll-up.
+     *
+     * @return maximum hazard level; 0 if there are no sensors
+     */
+    public synchronized int getMaxHazardLevel() {
+        return this.maxLevel;
+    }
+
+    /**
+     * Returns the average hazard level of the sensors in this roll-up.
+     *
+     * @return average hazard level; 0 if there are no sensors
+     */
+    public synchronized double getAverageHazardLevel() {
+        return this.sensorCount == 0
+                ? 0 : (double) this.levelSum / this.sensorCount;
+    }
+
+    /**
+     * Returns the number of sensors in this roll-up whose hazard level is
+     * greater than or equal to the given threshold.
+     *
+     * @param threshold minimum hazard level to count
+     * @return number of sensors at or above the threshold
+     */
+    public synchronized int countAtOrAbove(int threshold) {
+        if (threshold <= 0) {
+            return this.sensorCount;
+        }
+        int count = 0;
+        for (int level = threshold; level <= this.maxLevel; level++) {
+            count += this.levelCounts[level];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the roll-up that this roll-up has been attached to.
+     *
+     * @return parent roll-up; null if not attached
+     */
+    public synchronized HazardRollup getParent() {
+        return this.parent;
+    }
+
+    /**
+     * Adds a sensor with the given hazard level to this roll-up and its
+     * ancestors.
+     *
+     * @param level hazard level of the sensor
+     */
+    public synchronized void add(int level) {
+        this.apply(clamp(level), 1);
+    }
+
+    /**
+     * Removes a sensor with the given hazard level from this roll-up and its
+     * ancestors.
+     *
+     * @param level last hazard level added or updated for the sensor
+     * @throws IllegalStateException if no sensor at the given level is
+     * included in this roll-up
+     */
+    public synchronized void remove(int level) throws IllegalStateException {
+        int clamped = clamp(level);
+        if (this.levelCounts[clamped] == 0) {
+            throw new IllegalStateException(
+                    "No sensor with hazard level " + clamped + " to remove");
+        }
+        this.apply(clamped, -1);
+    }
+
+    /**
+     * Moves a sensor in this roll-up (and its ancestors) from one hazard
+     * level to another.
+     *
+     * @param previousLevel last hazard level added or updated for the sensor
+     * @param level new hazard level of the sensor
+     * @throws IllegalStateException if no sensor at the previous level is
+     * included in this roll-up
+     */
+    public synchronized void update(int previousLevel, int level)
+            throws IllegalStateException {
+        int from = clamp(previousLevel);
+        int to = clamp(level);
+        if (this.levelCounts[from] == 0) {
+            throw new IllegalStateException(
+                    "No sensor with hazard level " + from + " to update");
+        }
+        if (from != to) {
+            this.move(from, to);
+        }
+    }
+
+    /**
+     * Attaches this roll-up to the given parent, so that the parent and its
+     * ancestors include every sensor in this roll-up, both now and as it
+     * changes.
+     * <p>
+     * If this roll-up was attached to another parent, it is detached from
+     * that parent first.
+     *
+     * @param parent roll-up to attach to
+     * @throws IllegalArgumentException if parent is null, or is this roll-up
+     * or one of its descendants
+     */
+    public synchronized void attachTo(HazardRollup parent)
+            throws IllegalArgumentException {
+        if (parent == null) {
+            throw new IllegalArgumentException("Parent must not be null");
+        }
+        for (HazardRollup ancestor = parent; ancestor != null;
+                ancestor = ancestor.getParent()) {
+            if (ancestor == this) {
+                throw new IllegalArgumentException(
+                        "Roll-up cannot be attached to itself");
+            }
+        }
+        if (this.parent == parent) {
+            return;
+        }
+        this.detach();
+        this.parent = parent;
+        parent.merge(this.levelCounts, 1);
+    }
+
+    /**
+     * Detaches this roll-up from its parent, removing its sensors from the
+     * parent and the parent's ancestors.
+     * <p>
+     * Does nothing if this roll-up is not attached.
+     */
+    public synchronized void detach() {
+        // the parent must hold this roll-up's current counts before they
+        // are removed from it
+        this.flushPending(null);
+        if (this.parent != null) {
+            this.parent.merge(this.levelCounts, -1);
+            this.parent = null;
+        }
+    }
+
+    /**
+     * Starts batching the changes to roll-ups made on the current thread.
+     * <p>
+     * Until the matching call to {@link #endBatch()}, a change to a
+     * roll-up is applied to that roll-up straight away, but only passed on
+     * to its ancestors when the batch ends. Batches may be nested, in which
+     * case the changes are passed on when the outermost batch ends.
+     */
+    public static void beginBatch() {
+        Batch batch = BATCH.get();
+        if (batch == null) {
+            batch = new Batch();
+            BATCH.set(batch);
+        }
+        batch.depth++;
+    }
+
+    /**
+     * Ends a batch begun with {@link #beginBatch()} on the current thread.
+     * When the outermost batch ends, every change made during it is passed
+     * on to the ancestors of the roll-ups it was made to, each roll-up
+     * passing on its changes to its parent at most once.
+     *
+     * @throws IllegalStateException if no batch has been begun on the
+     * current thread
+     */
+    public static void endBatch() throws IllegalStateException {
+        Batch batch = BATCH.get();
+        if (batch == null || batch.depth == 0) {
+            throw new IllegalStateException("No batch has been begun");
+        }
+        if (batch.depth == 1) {
+            // the batch is still open while flushing, so that a parent
+            // collects the changes of all its children before passing them
+            // on; parents are appended to the list as they are reached
+            List<HazardRollup> dirty = batch.dirty;
+            for (int i = 0; i < dirty.size(); i++) {
+                dirty.get(i).flushPending(batch);
+            }
+            dirty.clear();
+        }
+        batch.depth--;
+    }
+
+    /**
+     * Returns the human-readable string representation of this roll-up.
+     * <p>
+     * The format of the string to return is
+     * "HazardRollup: sensors='count', max='max', average='average'"
+     * without the single quotes, where the average is formatted to two (2)
+     * decimal places.
+     *
+     * @return string representation of this roll-up
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("HazardRollup: sensors=%d, max=%d, average=%.2f",
+                this.sensorCount, this.maxLevel,
+                this.getAverageHazardLevel());
+    }
+
+    /**
+     * Adds or removes a sensor at the given level in this roll-up and its
+     * ancestors.
+     *
+     * @param level clamped hazard level
+     * @param delta 1 to add the sensor; -1 to remove it
+     */
+    private synchronized void apply(int level, int delta) {
+        this.levelCounts[level] += delta;
+        this.sensorCount += delta;
+        this.levelSum += (long) delta * level;
+        this.updateMaxLevel(level);
+        if (this.parent != null) {
+            Batch batch = batching();
+            if (batch != null) {
+                this.defer(batch, level, delta);
+            } else {
+                this.parent.apply(level, delta);
+            }
+        }
+    }
+
+    /**
+     * Moves a sensor from one level to another in this roll-up and its
+     * ancestors.
+     *
+     * @param from clamped previous hazard level
+     * @param to clamped new hazard level
+     */
+    private synchronized void move(int from, int to) {
+        this.levelCounts[from]--;
+        this.levelCounts[to]++;
+        this.levelSum += to - from;
+        this.updateMaxLevel(to);
+        this.updateMaxLevel(from);
+        if (this.parent != null) {
+            Batch batch = batching();
+            if (batch != null) {
+                this.defer(batch, from, -1);
+                this.defer(batch, to, 1);
+            } else {
+                this.parent.move(from, to);
+            }
+        }
+    }
+
+    /**
+     * Adds or removes every sensor counted in the given level counts in this
+     * roll-up and its ancestors.
+     *
+     * @param counts number of sensors at each level
+     * @param sign 1 to add the sensors; -1 to remove them
+     */
+    private synchronized void merge(int[] counts, int sign) {
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            if (counts[level] != 0) {
+                this.levelCounts[level] += sign * counts[level];
+                this.sensorCount += sign * counts[level];
+                this.levelSum += (long) sign * counts[level] * level;
+            }
+        }
+        this.maxLevel = MAX_LEVEL;
+        this.lowerMaxLevel();
+        if (this.parent != null) {
+            Batch batch = batching();
+            if (batch != null) {
+                for (int level = 0; level <= MAX_LEVEL; level++) {
+                    if (counts[level] != 0) {
+                        this.defer(batch, level, sign * counts[level]);
+                    }
+                }
+            } else {
+                this.parent.merge(counts, sign);
+            }
+        }
+    }
+
+    /**
+     * Records a change in the number of sensors at the given level, to be
+     * passed on to the parent when the given batch ends. Must be called
+     * while holding this roll-up's lock.
+     *
+     * @param batch batch of the current thread
+     * @param level clamped hazard level
+     * @param delta change in the number of sensors at that level
+     */
+    private void defer(Batch batch, int level, int delta) {
+        if (this.pendingCounts == null) {
+            this.pendingCounts = batch.takeCounts();
+            batch.dirty.add(this);
+        }
+        this.pendingCounts[level] += delta;
+    }
+
+    /**
+     * Passes the changes not yet passed on to the parent on to it.
+     *
+     * @param batch batch to return the emptied counts to, or null to
+     *              discard them
+     */
+    private synchronized void flushPending(Batch batch) {
+        int[] counts = this.pendingCounts;
+        if (counts == null) {
+            return;
+        }
+        this.pendingCounts = null;
+        if (this.parent != null) {
+            this.parent.merge(counts, 1);
+        }
+        if (batch != null) {
+            Arrays.fill(counts, 0);
+            batch.spareCounts.push(counts);
+        }
+    }
+
+    /**
+     * Returns the batch of the current thread if it is batching changes.
+     *
+     * @return the current thread's batch, or null if changes are applied
+     * straight away
+     */
+    private static Batch batching() {
+        Batch batch = BATCH.get();
+        return batch != null && batch.depth > 0 ? batch : null;
+    }
+
+    /**
+     * Updates the maximum level after a sensor has been added at the given
+     * level, or removed from it.
+     *
+     * @param level level whose count changed
+     */
+    private void updateMaxLevel(int level) {
+        if (this.levelCounts[level] > 0) {
+            this.maxLevel = Math.max(this.maxLevel, level);
+        } else if (level == this.maxLevel) {
+            this.lowerMaxLevel();
+        }
+    }
+
+    /**
+     * Lowers the maximum level to the highest level that still has sensors,
+     * or 0 if there are none.
+     */
+    private void lowerMaxLevel() {
+        int level = this.maxLevel;
+        while (level > 0 && this.levelCounts[level] == 0) {
+            level--;
+        }
+        this.maxLevel = level;
+    }
+
+    /**
+     * Clamps the given hazard level to the range recorded by roll-ups.
+     *
+     * @param level hazard level
+     * @return level between 0 and {@link #MAX_LEVEL} inclusive
+     */
+    private static int clamp(int level) {
+        return Math.max(0, Math.min(MAX_LEVEL, level));
+    }
+
+    /**
+     * Changes to roll-ups batched by one thread.
+     */
+    private static final class Batch {
+        /**
+         * Number of batches begun and not yet ended on the thread.
+         */
+        private int depth;
+
+        /**
+         * Roll-ups which may have changes to pass on to their parents, in
+         * the order they were first changed.
+         */
+        private final List<HazardRollup> dirty = new ArrayList<>();
+
+        /**
+         * Emptied pending counts, kept for reuse so that batching does not
+         * allocate once the thread has warmed up.
+         */
+        private final ArrayDeque<int[]> spareCounts = new ArrayDeque<>();
+
+        /**
+         * Returns an array of pending counts, all zero.
+         *
+         * @return empty pending counts
+         */
+        private int[] takeCounts() {
+            int[] counts = this.spareCounts.poll();
+            return counts != null ? counts : new int[MAX_LEVEL + 1];
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package bms.io;
+
+import bms.building.Building;
+import bms.exceptions.DuplicateFloorException;
+import bms.exceptions.DuplicateRoomException;
+import bms.exceptions.DuplicateSensorException;
+import bms.exceptions.FloorTooSmallException;
+import bms.exceptions.ImportException;
+import bms.exceptions.InsufficientSpaceException;
+import bms.exceptions.NoFloorBelowException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.SensorKind;
+import bms.sensors.TemperatureSensor;
+import bms.sensors.TimedSensor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports floors, rooms and sensors into a building from a CSV or JSON
+ * stream.
+ * <p>
+ * The input is read one line at a time and each record is validated and
+ * added to the building as soon as it is read, so the time taken is linear
+ * in the size of the input and only the current line is held in memory.
+ * Records are validated by the same rules as {@link Building#addFloor},
+ * {@link Floor#addRoom} and {@link Room#addSensor}, but invalid records do
+ * not stop the import: they are skipped, and once the whole input has been
+ * read, every error is reported together in a single
+ * {@link ImportException}. Valid records are imported either way.
+ * <p>
+ * There are three kinds of record, with the following fields:
+ * <ul>
+ *     <li>{@code floor}: number, width, length</li>
+ *     <li>{@code room}: floor, number, type, area</li>
+ *     <li>{@code sensor}: floor, room, kind, frequency, readings, then
+ *     idealValue and variationLimit for a {@code CarbonDioxideSensor}, or
+ *     capacity for an {@code OccupancySensor}</li>
+ * </ul>
+ * A room's type is the name of a {@link RoomType}, and a sensor's kind is
+ * the simple class name of one of the built-in sensors (see
+ * {@link SensorKind}). Floors must be listed from the ground floor up, and
+ * each floor and room must be listed before anything inside it.
+ * <p>
+ * In CSV, each line is a record: the kind of record followed by its fields
+ * in the order above, separated by commas. Readings are separated by
+ * spaces. Blank lines and lines starting with {@code #} are ignored. For
+ * example:
+ * <pre>
+ * floor,1,10,10
+ * room,1,101,STUDY,20
+ * sensor,1,101,OccupancySensor,4,32 31 28,30
+ * </pre>
+ * In JSON, each line is an object (JSON Lines) whose {@code record} member
+ * gives the kind of record, with the fields as members and the readings as
+ * an array of numbers. Blank lines are ignored. For example:
+ * <pre>
+ * {"record": "floor", "number": 1, "width": 10, "length": 10}
+ * </pre>
+ */
+public class BuildingImporter {
+
+    /**
+     * Maximum number of error messages kept for the
+     * {@link ImportException}. Further errors are only counted.
+     */
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    /**
+     * Names of the fields of each kind of CSV record, in column order.
+     * Sensor records may have further columns, named by
+     * {@link #sensorColumns(SensorKind)}.
+     */
+    private static final Map<String, String[]> CSV_COLUMNS = Map.of(
+            "floor", new String[] {"number", "width", "length"},
+            "room", new String[] {"floor", "number", "type", "area"},
+            "sensor", new String[] {"floor", "room", "kind", "frequency",
+                    "readings"});
+
+    /**
+     * Building that records are imported into.
+     */
+    private final Building building;
+
+    /**
+     * Messages describing the invalid records of the current import.
+     */
+    private List<String> errors;
+
+    /**
+     * Number of invalid records in the current import.
+     */
+    private int errorCount;
+
+    /**
+     * Creates a new importer which adds records to the given building.
+     *
+     * @param building building to import into
+     * @throws IllegalArgumentException if building is null
+     */
+    public BuildingImporter(Building building) throws IllegalArgumentException {
+        if (building == null) {
+            throw new IllegalArgumentException("Building must not be null");
+        }
+        this.building = building;
+    }
+
+    /**
+     * Returns the building that records are imported into.
+     *
+     * @return the importer's building
+     */
+    public Building getBuilding() {
+        return this.building;
+    }
+
+    /**
+     * Imports the CSV records read from the given stream.
+     *
+     * @param in stream to read from; not closed by this method
+     * @return number of records imported
+     * @throws IOException if the stream cannot be read
+     * @throws ImportException if any records were invalid, after every
+     * valid record has been imported
+     */
+    public synchronized int importCsv(Reader in)
+            throws IOException, ImportException {
+        return this.importLines(in, false);
+    }
+
+    /**
+     * Imports the JSON Lines records read from the given stream.
+     *
+     * @param in stream to read from; not closed by this method
+     * @return number of records imported
+     * @throws IOException if the stream cannot be read
+     * @throws ImportException if any records were invalid, after every
+     * valid record has been imported
+     */
+    public synchronized int importJson(Reader in)
+            throws IOException, ImportException {
+        return this.importLines(in, true);
+    }
+
+    /**
+     * Imports the records read from the given stream, one per line.
+     *
+     * @param in stream to read from
+     * @param json true if lines are JSON objects; false if CSV
+     * @return number of records imported
+     * @throws IOException if the stream cannot be read
+     * @throws ImportException if any records were invalid
+     */
+    private int importLines(Reader in, boolean json)
+            throws IOException, ImportException {
+        this.errors = new ArrayList<>();
+        this.errorCount = 0;
+        BufferedReader reader = in instanceof BufferedReader
+                ? (BufferedReader) in : new BufferedReader(in);
+        int imported = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || (!json && trimmed.startsWith("#"))) {
+                continue;
+            }
+            try {
+                Map<String, Object> record = json
+                        ? JsonLineParser.parse(trimmed)
+                        : parseCsv(trimmed);
+                String error = this.apply(record);
+                if (error == null) {
+                    imported++;
+                } else {
+                    this.error(lineNumber, error);
+                }
+            } catch (IllegalArgumentException e) {
+                this.error(lineNumber, e.getMessage());
+            }
+        }
+        if (this.errorCount > 0) {
+            throw new ImportException(this.errors, this.errorCount);
+        }
+        return imported;
+    }
+
+    /**
+     * Records an invalid record.
+     *
+     * @param lineNumber line the record was read from
+     * @param message description of the problem
+     */
+    private void error(int lineNumber, String message) {
+        this.errorCount++;
+        if (this.errors.size() < MAX_REPORTED_ERRORS) {
+            this.errors.add("line " + lineNumber + ": " + message);
+        }
+    }
+
+    /**
+     * Adds the given record to the building.
+     *
+     * @param record fields of the record, including its kind
+     * @return description of why the record could not be added; null if it
+     * was added
+     * @throws IllegalArgumentException if a field is missing or malformed
+     */
+    private String apply(Map<String, Object> record)
+            throws IllegalArgumentException {
+        String kind = getString(record, "record");
+        switch (kind) {
+            case "floor":
+                return this.addFloor(record);
+            case "room":
+                return this.addRoom(record);
+            case "sensor":
+                return this.addSensor(record);
+            default:
+                return "unknown record kind \"" + kind + "\"";
+        }
+    }
+
+    /**
+     * Adds the floor described by the given record to the building.
+     *
+     * @param record fields of the record
+     * @return description of why the floor could not be added; null if it
+     * was added
+     * @throws IllegalArgumentException if a field is missing or malformed
+     */
+    private String addFloor(Map<String, Object> record)
+            throws IllegalArgumentException {
+        Floor floor = new Floor(getInt(record, "number"),
+                getDouble(record, "width"), getDouble(record, "length"));
+        try {
+            this.building.addFloor(floor);
+            return null;
+        } catch (DuplicateFloorException | NoFloorBelowException
+                | FloorTooSmallException e) {
+            return "floor " + floor.getFloorNumber() + ": " + e.getMessage();
+        }
+    }
+
+    /**
+     * Adds the room described by the given record to its floor.
+     *
+     * @param record fields of the record
+     * @return description of why the room could not be added; null if it
+     * was added
+     * @throws IllegalArgumentException if a field is missing or malformed
+     */
+    private String addRoom(Map<String, Object> record)
+            throws IllegalArgumentException {
+        int floorNumber = getInt(record, "floor");
+        Floor floor = this.building.getFloorByNumber(floorNumber);
+        if (floor == null) {
+            return "no floor " + floorNumber + " for room";
+        }
+        String type = getString(record, "type");
+        RoomType roomType;
+        try {
+            roomType = RoomType.valueOf(type);
+        } catch (IllegalArgumentException e) {
+            return "unknown room type \"" + type + "\"";
+        }
+        Room room = new Room(getInt(record, "number"), roomType,
+                getDouble(record, "area"));
+        try {
+            floor.addRoom(room);
+            return null;
+        } catch (DuplicateRoomException | InsufficientSpaceException e) {
+            return "room " + room.getRoomNumber() + ": " + e.getMessage();
+        }
+    }
+
+    /**
+     * Adds the sensor described by the given record to its room.
+     *
+     * @param record fields of the record
+     * @return description of why the sensor could not be added; null if it
+     * was added
+     * @throws IllegalArgumentException if a field is missing or malformed
+     */
+    private String addSensor(Map<String, Object> record)
+            throws IllegalArgumentException {
+        int floorNumber = getInt(record, "floor");
+        int roomNumber = getInt(record, "room");
+        Floor floor = this.building.getFloorByNumber(floorNumber);
+        Room room = floor == null ? null : floor.getRoomByNumber(roomNumber);
+        if (room == null) {
+            return "no room " + roomNumber + " on floor " + floorNumber
+                    + " for sensor";
+        }
+        String kindName = getString(record, "kind");
+        SensorKind kind = SensorKind.forSimpleName(kindName);
+        if (kind == null) {
+            return "unknown sensor kind \"" + kindName + "\"";
+        }
+        // checked before creating the sensor, which registers it with the
+        // default timed item manager
+        if (room.getSensor(kind) != null) {
+            return "duplicate " + kindName + " in room " + roomNumber;
+        }
+
+        int[] readings = getIntArray(record, "readings");
+        int frequency = getInt(record, "frequency");
+        TimedSensor sensor;
+        switch (kind) {
+            case CARBON_DIOXIDE:
+                sensor = new CarbonDioxideSensor(readings, frequency,
+                        getInt(record, "idealValue"),
+                        getInt(record, "variationLimit"));
+                break;
+            case NOISE:
+                sensor = new NoiseSensor(readings, frequency);
+                break;
+            case OCCUPANCY:
+                sensor = new OccupancySensor(readings, frequency,
+                        getInt(record, "capacity"));
+                break;
+            default:
+                if (frequency != 1) {
+                    return "TemperatureSensor frequency must be 1";
+                }
+                sensor = new TemperatureSensor(readings);
+                break;
+        }
+        try {
+            room.addSensor(sensor);
+        } catch (DuplicateSensorException e) {
+            // cannot happen, as the room was checked above
+            throw new IllegalStateException(e);
+        }
+        return null;
+    }
+
+    /**
+     * Parses a CSV line into a record.
+     *
+     * @param line line to parse, without surrounding whitespace
+     * @return fields of the record, including its kind under "record"
+     * @throws IllegalArgumentException if the line has the wrong number of
+     * fields for its kind
+     */
+    private static Map<String, Object> parseCsv(String line)
+            throws IllegalArgumentException {
+        String[] fields = line.split(",", -1);
+        String kind = fields[0].trim();
+        String[] columns = CSV_COLUMNS.get(kind);
+        if (columns == null) {
+            throw new IllegalArgumentException(
+                    "unknown record kind \"" + kind + "\"");
+        }
+        if (kind.equals("sensor") && fields.length > 3) {
+            columns = concat(columns,
+                    sensorColumns(SensorKind.forSimpleName(fields[3].trim())));
+        }
+        if (fields.length != columns.length + 1) {
+            throw new IllegalArgumentException("expected "
+                    + columns.length + " fields for " + kind + " but found "
+                    + (fields.length - 1));
+        }
+        Map<String, Object> record = new HashMap<>();
+        record.put("record", kind);
+        for (int i = 0; i < columns.length; i++) {
+            record.put(columns[i], fields[i + 1].trim());
+        }
+        return record;
+    }
+
+    /**
+     * Returns the names of the extra CSV columns for sensors of the given
+     * kind.
+     *
+     * @param kind kind of sensor; null if unknown
+     * @return names of the columns after the readings
+     */
+    private static String[] sensorColumns(SensorKind kind) {
+        if (kind == SensorKind.CARBON_DIOXIDE) {
+            return new String[] {"idealValue", "variationLimit"};
+        } else if (kind == SensorKind.OCCUPANCY) {
+            return new String[] {"capacity"};
+        }
+        return new String[0];
+    }
+
+    /**
+     * Returns the two given arrays joined together.
+     *
+     * @param first first array
+     * @param second second array
+     * @return array containing the elements of first then second
+     */
+    private static String[] concat(String[] first, String[] second) {
+        String[] joined = new String[first.length + second.length];
+        System.arraycopy(first, 0, joined, 0, first.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    /**
+     * Returns a field of a record as a string.
+     *
+     * @param record fields of the record
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if the field is missing or not a
+     * string or number
+     */
+    private static String getString(Map<String, Object> record, String name)
+            throws IllegalArgumentException {
+        Object value = record.get(name);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException(value == null
+                    ? "missing field \"" + name + "\""
+                    : "field \"" + name + "\" must not be an array");
+        }
+        return (String) value;
+    }
+
+    /**
+     * Returns a field of a record as an integer.
+     *
+     * @param record fields of the record
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if the field is missing or not an
+     * integer
+     */
+    private static int getInt(Map<String, Object> record, String name)
+            throws IllegalArgumentException {
+        String value = getString(record, name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("field \"" + name
+                    + "\" must be an integer: " + value);
+        }
+    }
+
+    /**
+     * Returns a field of a record as a decimal number.
+     *
+     * @param record fields of the record
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if the field is missing or not a
+     * number
+     */
+    private static double getDouble(Map<String, Object> record, String name)
+            throws IllegalArgumentException {
+        String value = getString(record, name);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("field \"" + name
+                    + "\" must be a number: " + value);
+        }
+    }
+
+    /**
+     * Returns a field of a record as an array of integers. The field may be
+     * an array (in JSON) or a string of space-separated integers (in CSV).
+     *
+     * @param record fields of the record
+     * @param name name of the field
+     * @return value of the field
+     * @throws IllegalArgumentException if the field is missing or not a
+     * sequence of integers
+     */
+    private static int[] getIntArray(Map<String, Object> record, String name)
+            throws IllegalArgumentException {
+        Object value = record.get(name);
+        if (value instanceof int[]) {
+            return (int[]) value;
+        }
+        String text = getString(record, name).trim();
+        if (text.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = text.split("\\s+");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                values[i] = Integer.parseInt(parts[i]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("field \"" + name
+                        + "\" must only contain integers: " + parts[i]);
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,608 @@
+package bms.io;
+
+import bms.building.Building;
+import bms.exceptions.DuplicateFloorException;
+import bms.exceptions.DuplicateRoomException;
+import bms.exceptions.DuplicateSensorException;
+import bms.exceptions.FloorTooSmallException;
+import bms.exceptions.InsufficientSpaceException;
+import bms.exceptions.NoFloorBelowException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.Sensor;
+import bms.sensors.SensorKind;
+import bms.sensors.TemperatureSensor;
+import bms.sensors.TimedSensor;
+import bms.util.TickMode;
+import bms.util.TimedItemManager;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A building loaded from a binary snapshot file, written by
+ * {@link #write(Building, Path)}.
+ * <p>
+ * A snapshot captures the building's name, its floors, their rooms, every
+ * timed sensor in the rooms (readings, update frequency, time elapsed and
+ * any thresholds), and the clock of the building's timed item manager.
+ * <p>
+ * The file is memory-mapped when opened, and only its header is read: the
+ * building's name, its room and sensor counts and where each floor starts.
+ * Each floor, along with its rooms and sensors, is only reconstructed the
+ * first time it is requested with {@link #getFloor(int)}, so the cost of
+ * loading a snapshot depends on how much of the building is used rather
+ * than on its size. {@link #getBuilding()} reconstructs every floor.
+ * <p>
+ * Floors are reconstructed with a new timed item manager, created when the
+ * snapshot is opened, whose clock is restored to the value it had when the
+ * snapshot was written.
+ * <p>
+ * All values are stored big-endian. The file starts with a header of:
+ * <ul>
+ *     <li>the magic number {@link #MAGIC} and the format {@link #VERSION};
+ *     </li>
+ *     <li>the building's name (length, then UTF-8 bytes);</li>
+ *     <li>the manager's minutes elapsed, deferred minutes and tick mode;
+ *     </li>
+ *     <li>the number of rooms and sensors in the building;</li>
+ *     <li>the number of floors, then the file offset of each floor.</li>
+ * </ul>
+ * Each floor is stored as its number, width, length and rooms; each room as
+ * its number, type, area, fire drill status and sensors; and each sensor as
+ * its kind, update frequency, time elapsed, thresholds and readings.
+ */
+public class BuildingSnapshot {
+
+    /**
+     * Magic number at the start of every snapshot file ("BMSS").
+     */
+    public static final int MAGIC = 0x424D5353;
+
+    /**
+     * Version of the snapshot format written by this class. Files of any
+     * other version are rejected when opened.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Value stored in place of a room type for rooms without a type.
+     */
+    private static final byte NO_ROOM_TYPE = -1;
+
+    /**
+     * Read-only mapping of the whole snapshot file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Name of the building.
+     */
+    private final String name;
+
+    /**
+     * Number of rooms in the building.
+     */
+    private final int roomCount;
+
+    /**
+     * Number of sensors in the building.
+     */
+    private final int sensorCount;
+
+    /**
+     * File offset of each floor, indexed by floor number minus one.
+     */
+    private final int[] floorOffsets;
+
+    /**
+     * Floors reconstructed so far, indexed by floor number minus one. Floors
+     * not yet reconstructed are null.
+     */
+    private final Floor[] floors;
+
+    /**
+     * Manager that reconstructed sensors are registered with.
+     */
+    private final TimedItemManager timedItemManager;
+
+    /**
+     * Building reconstructed by {@link #getBuilding()}, or null if it has not
+     * been reconstructed yet.
+     */
+    private Building building;
+
+    /**
+     * Creates a snapshot backed by the given mapped file, reading its header.
+     *
+     * @param buffer mapping of the snapshot file
+     * @throws IOException if the file is not a snapshot of a supported
+     * version, or its header is malformed
+     */
+    private BuildingSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        try {
+            ByteBuffer in = buffer.duplicate();
+            if (in.remaining() < 8 || in.getInt() != MAGIC) {
+                throw new IOException("Not a building snapshot");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException(
+                        "Unsupported snapshot version " + version);
+            }
+            int nameLength = checkCount(in.getInt());
+            if (nameLength > in.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            byte[] nameBytes = new byte[nameLength];
+            in.get(nameBytes);
+            this.name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            long minutesElapsed = in.getLong();
+            long deferredMinutes = in.getLong();
+            int mode = in.get();
+            if (deferredMinutes < 0 || deferredMinutes > minutesElapsed
+                    || mode < 0 || mode >= TickMode.values().length) {
+                throw new IOException("Malformed snapshot clock");
+            }
+            this.timedItemManager = restoreClock(minutesElapsed,
+                    deferredMinutes, TickMode.values()[mode]);
+
+            this.roomCount = checkCount(in.getInt());
+            this.sensorCount = checkCount(in.getInt());
+            this.floorOffsets = new int[checkCount(in.getInt())];
+            for (int i = 0; i < this.floorOffsets.length; i++) {
+                this.floorOffsets[i] = in.getInt();
+                if (this.floorOffsets[i] < 0
+                        || this.floorOffsets[i] >= buffer.limit()) {
+                    throw new IOException("Malformed snapshot floor offset");
+                }
+            }
+            this.floors = new Floor[this.floorOffsets.length];
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated snapshot header", e);
+        }
+    }
+
+    /**
+     * Opens the snapshot file at the given path.
+     * <p>
+     * The file is memory-mapped and only its header is read; floors are
+     * reconstructed when they are first requested. The file must not be
+     * modified while the snapshot is in use.
+     *
+     * @param path path of the snapshot file
+     * @return snapshot backed by the file
+     * @throws IOException if the file cannot be read, is larger than 2 GiB,
+     * or is not a snapshot of a supported version
+     */
+    public static BuildingSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large: " + size
+                        + " bytes");
+            }
+            // the mapping stays valid after the channel is closed
+            return new BuildingSnapshot(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given building to the file at the given path,
+     * replacing the file if it exists.
+     *
+     * @param building building to write
+     * @param path path of the snapshot file
+     * @throws IllegalArgumentException if any sensor in the building is not
+     * one of the built-in sensor kinds (see {@link SensorKind})
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Building building, Path path)
+            throws IllegalArgumentException, IOException {
+        List<byte[]> floorRecords = new ArrayList<>();
+        int roomCount = 0;
+        int sensorCount = 0;
+        for (Floor floor : building.getFloorsView()) {
+            floorRecords.add(floorRecord(floor));
+            roomCount += floor.roomCount();
+            sensorCount += floor.sensorCount();
+        }
+
+        TimedItemManager manager = building.getTimedItemManager();
+        byte[] nameBytes = building.getName().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.writeInt(nameBytes.length);
+        header.write(nameBytes);
+        header.writeLong(manager.getMinutesElapsed());
+        header.writeLong(manager.getDeferredMinutes());
+        header.writeByte(manager.getTickMode().ordinal());
+        header.writeInt(roomCount);
+        header.writeInt(sensorCount);
+        header.writeInt(floorRecords.size());
+
+        long offset = header.size()
+                + (long) Integer.BYTES * floorRecords.size();
+        for (byte[] record : floorRecords) {
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("Building is too large for a snapshot");
+            }
+            header.writeInt((int) offset);
+            offset += record.length;
+        }
+
+        try (OutputStream out = new BufferedOutputStream(
+                Files.newOutputStream(path))) {
+            headerBytes.writeTo(out);
+            for (byte[] record : floorRecords) {
+                out.write(record);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the building.
+     *
+     * @return name of the building
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the number of floors in the building.
+     *
+     * @return number of floors
+     */
+    public int floorCount() {
+        return this.floorOffsets.length;
+    }
+
+    /**
+     * Returns the total number of rooms on all floors of the building.
+     *
+     * @return number of rooms
+     */
+    public int roomCount() {
+        return this.roomCount;
+    }
+
+    /**
+     * Returns the total number of sensors in all rooms of the building.
+     *
+     * @return number of sensors
+     */
+    public int sensorCount() {
+        return this.sensorCount;
+    }
+
+    /**
+     * Returns the timed item manager that reconstructed sensors are
+     * registered with. Its clock has been restored to the value it had when
+     * the snapshot was written.
+     *
+     * @return the snapshot's timed item manager
+     */
+    public TimedItemManager getTimedItemManager() {
+        return this.timedItemManager;
+    }
+
+    /**
+     * Returns whether the floor with the given number has already been
+     * reconstructed.
+     *
+     * @param floorNumber floor number of the floor
+     * @return true if the floor has been reconstructed; false if it has not,
+     * or there is no such floor
+     */
+    public synchronized boolean isFloorLoaded(int floorNumber) {
+        return floorNumber >= 1 && floorNumber <= this.floors.length
+                && this.floors[floorNumber - 1] != null;
+    }
+
+    /**
+     * Returns the floor with the given number, reconstructing it, its rooms
+     * and their sensors from the snapshot the first time it is requested.
+     * <p>
+     * The same floor is returned on every call, and is assigned the
+     * snapshot's timed item manager.
+     *
+     * @param floorNumber floor number of the floor
+     * @return floor with the given number; null if there is no such floor
+     * @throws IOException if the floor's data is malformed
+     */
+    public synchronized Floor getFloor(int floorNumber) throws IOException {
+        if (floorNumber < 1 || floorNumber > this.floors.length) {
+            return null;
+        }
+        if (this.floors[floorNumber - 1] == null) {
+            ByteBuffer in = this.buffer.duplicate();
+            in.position(this.floorOffsets[floorNumber - 1]);
+            try {
+                this.floors[floorNumber - 1] = this.readFloor(in);
+            } catch (BufferUnderflowException e) {
+                throw new IOException(
+                        "Truncated snapshot floor " + floorNumber, e);
+            }
+        }
+        return this.floors[floorNumber - 1];
+    }
+
+    /**
+     * Returns the building, reconstructing every floor not yet requested
+     * with {@link #getFloor(int)}.
+     * <p>
+     * The same building is returned on every call, and uses the snapshot's
+     * timed item manager.
+     *
+     * @return the reconstructed building
+     * @throws IOException if any floor's data is malformed
+     */
+    public synchronized Building getBuilding() throws IOException {
+        if (this.building == null) {
+            List<Floor> allFloors = new ArrayList<>(this.floors.length);
+            for (int i = 1; i <= this.floors.length; i++) {
+                allFloors.add(this.getFloor(i));
+            }
+            Building newBuilding = new Building(this.name,
+                    this.timedItemManager);
+            try {
+                newBuilding.addFloors(allFloors);
+            } catch (DuplicateFloorException | NoFloorBelowException
+                    | FloorTooSmallException | IllegalArgumentException e) {
+                throw new IOException("Malformed snapshot floors", e);
+            }
+            this.building = newBuilding;
+        }
+        return this.building;
+    }
+
+    /**
+     * Reconstructs the floor starting at the buffer's position.
+     *
+     * @param in buffer positioned at the start of a floor record
+     * @return reconstructed floor
+     * @throws IOException if the floor's data is malformed
+     */
+    private Floor readFloor(ByteBuffer in) throws IOException {
+        int floorNumber = in.getInt();
+        double width = in.getDouble();
+        double length = in.getDouble();
+        int rooms = checkCount(in.getInt());
+
+        Floor floor = new Floor(floorNumber, width, length);
+        floor.setTimedItemManager(this.timedItemManager);
+        List<Room> newRooms = new ArrayList<>(rooms);
+        for (int i = 0; i < rooms; i++) {
+            newRooms.add(readRoom(in));
+        }
+        try {
+            floor.addRooms(newRooms);
+        } catch (DuplicateRoomException | InsufficientSpaceException
+                | IllegalArgumentException e) {
+            throw new IOException(
+                    "Malformed snapshot rooms on floor " + floorNumber, e);
+        }
+        return floor;
+    }
+
+    /**
+     * Reconstructs the room starting at the buffer's position.
+     *
+     * @param in buffer positioned at the start of a room record
+     * @return reconstructed room
+     * @throws IOException if the room's data is malformed
+     */
+    private static Room readRoom(ByteBuffer in) throws IOException {
+        int roomNumber = in.getInt();
+        int type = in.get();
+        double area = in.getDouble();
+        boolean fireDrill = in.get() != 0;
+        int sensors = checkCount(in.get());
+        if (type != NO_ROOM_TYPE
+                && (type < 0 || type >= RoomType.values().length)) {
+            throw new IOException("Malformed snapshot room type " + type);
+        }
+
+        Room room = new Room(roomNumber,
+                type == NO_ROOM_TYPE ? null : RoomType.values()[type], area);
+        room.setFireDrill(fireDrill);
+        for (int i = 0; i < sensors; i++) {
+            try {
+                room.addSensor(readSensor(in));
+            } catch (DuplicateSensorException e) {
+                throw new IOException(
+                        "Malformed snapshot sensors in room " + roomNumber, e);
+            }
+        }
+        return room;
+    }
+
+    /**
+     * Reconstructs the sensor starting at the buffer's position, and
+     * advances it to its time elapsed.
+     *
+     * @param in buffer positioned at the start of a sensor record
+     * @return reconstructed sensor
+     * @throws IOException if the sensor's data is malformed
+     */
+    private static TimedSensor readSensor(ByteBuffer in) throws IOException {
+        int kind = in.get();
+        int updateFrequency = in.get();
+        int timeElapsed = in.getInt();
+        if (kind < 0 || kind >= SensorKind.count()) {
+            throw new IOException("Malformed snapshot sensor kind " + kind);
+        }
+        try {
+            TimedSensor sensor;
+            switch (SensorKind.values()[kind]) {
+                case CARBON_DIOXIDE:
+                    int idealValue = in.getInt();
+                    int variationLimit = in.getInt();
+                    sensor = new CarbonDioxideSensor(readReadings(in),
+                            updateFrequency, idealValue, variationLimit);
+                    break;
+                case NOISE:
+                    sensor = new NoiseSensor(readReadings(in),
+                            updateFrequency);
+                    break;
+                case OCCUPANCY:
+                    int capacity = in.getInt();
+                    sensor = new OccupancySensor(readReadings(in),
+                            updateFrequency, capacity);
+                    break;
+                default:
+                    sensor = new TemperatureSensor(readReadings(in));
+                    break;
+            }
+            sensor.elapseMinutes(timeElapsed);
+            return sensor;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed snapshot sensor", e);
+        }
+    }
+
+    /**
+     * Reads a sequence of sensor readings, preceded by its length.
+     *
+     * @param in buffer positioned at the length of the readings
+     * @return readings read from the buffer
+     * @throws IOException if the length is negative
+     */
+    private static int[] readReadings(ByteBuffer in) throws IOException {
+        int count = checkCount(in.getInt());
+        if (count > in.remaining() / Integer.BYTES) {
+            throw new BufferUnderflowException();
+        }
+        int[] readings = new int[count];
+        in.asIntBuffer().get(readings);
+        in.position(in.position() + readings.length * Integer.BYTES);
+        return readings;
+    }
+
+    /**
+     * Serialises the given floor, its rooms and their sensors.
+     *
+     * @param floor floor to serialise
+     * @return floor record
+     * @throws IllegalArgumentException if any sensor on the floor is not one
+     * of the built-in sensor kinds
+     */
+    private static byte[] floorRecord(Floor floor)
+            throws IllegalArgumentException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(floor.getFloorNumber());
+            out.writeDouble(floor.getWidth());
+            out.writeDouble(floor.getLength());
+            out.writeInt(floor.roomCount());
+            for (Room room : floor.getRoomsView()) {
+                out.writeInt(room.getRoomNumber());
+                out.writeByte(room.getType() == null
+                        ? NO_ROOM_TYPE : room.getType().ordinal());
+                out.writeDouble(room.getArea());
+                out.writeBoolean(room.fireDrillOngoing());
+                out.writeByte(room.sensorCount());
+                for (Sensor sensor : room.getSensorsView()) {
+                    writeSensor(out, sensor);
+                }
+            }
+        } catch (IOException e) {
+            // writing to a byte array cannot fail
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Serialises the given sensor.
+     *
+     * @param out stream to write to
+     * @param sensor sensor to serialise
+     * @throws IllegalArgumentException if the sensor is not one of the
+     * built-in sensor kinds
+     * @throws IOException if the stream cannot be written to
+     */
+    private static void writeSensor(DataOutputStream out, Sensor sensor)
+            throws IllegalArgumentException, IOException {
+        SensorKind kind = SensorKind.of(sensor.getClass());
+        if (kind == null) {
+            throw new IllegalArgumentException("Cannot write sensor of type "
+                    + sensor.getClass().getSimpleName() + " to a snapshot");
+        }
+        TimedSensor timedSensor = (TimedSensor) sensor;
+        out.writeByte(kind.ordinal());
+        out.writeByte(timedSensor.getUpdateFrequency());
+        out.writeInt(timedSensor.getTimeElapsed());
+        if (sensor instanceof CarbonDioxideSensor) {
+            out.writeInt(((CarbonDioxideSensor) sensor).getIdealValue());
+            out.writeInt(((CarbonDioxideSensor) sensor).getVariationLimit());
+        } else if (sensor instanceof OccupancySensor) {
+            out.writeInt(((OccupancySensor) sensor).getCapacity());
+        }
+        int[] readings = timedSensor.getReadings();
+        out.writeInt(readings.length);
+        for (int reading : readings) {
+            out.writeInt(reading);
+        }
+    }
+
+    /**
+     * Creates a timed item manager whose clock is set to the given values.
+     *
+     * @param minutesElapsed total minutes elapsed
+     * @param deferredMinutes minutes elapsed in a deferred tick mode
+     * @param tickMode tick mode of the manager
+     * @return new manager with the given clock and no timed items
+     */
+    private static TimedItemManager restoreClock(long minutesElapsed,
+                                                 long deferredMinutes,
+                                                 TickMode tickMode) {
+        // the manager has no items yet, so elapsing minutes only moves its
+        // clocks forward
+        TimedItemManager manager = new TimedItemManager();
+        manager.setTickMode(TickMode.LAZY);
+        manager.elapseMinutes(deferredMinutes);
+        manager.setTickMode(TickMode.SEQUENTIAL);
+        manager.elapseMinutes(minutesElapsed - deferredMinutes);
+        manager.setTickMode(tickMode);
+        return manager;
+    }
+
+    /**
+     * Checks that a count read from a snapshot is not negative.
+     *
+     * @param count count read from the snapshot
+     * @return the count
+     * @throws IOException if the count is negative
+     */
+    private static int checkCount(int count) throws IOException {
+        if (count < 0) {
+            throw new IOException("Malformed snapshot count " + count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,267 @@
+package bms.io;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parser for the flat JSON objects read by {@link BuildingImporter}, one
+ * per line.
+ * <p>
+ * Only the subset of JSON used by import records is accepted: a single
+ * object whose members are strings, numbers, booleans, null, or arrays of
+ * integers. Strings, numbers and booleans are returned as their text,
+ * arrays as {@code int[]}, and null members are left out.
+ */
+final class JsonLineParser {
+
+    /**
+     * Text being parsed.
+     */
+    private final String text;
+
+    /**
+     * Index of the next character to read.
+     */
+    private int position;
+
+    /**
+     * Creates a parser for the given text.
+     *
+     * @param text text to parse
+     */
+    private JsonLineParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a line containing a single JSON object.
+     *
+     * @param line line to parse
+     * @return members of the object
+     * @throws IllegalArgumentException if the line is not a JSON object of
+     * the supported form
+     */
+    static Map<String, Object> parse(String line)
+            throws IllegalArgumentException {
+        JsonLineParser parser = new JsonLineParser(line);
+        Map<String, Object> members = parser.parseObject();
+        parser.skipWhitespace();
+        if (parser.position != line.length()) {
+            throw parser.error("unexpected text after object");
+        }
+        return members;
+    }
+
+    /**
+     * Parses an object.
+     *
+     * @return members of the object
+     */
+    private Map<String, Object> parseObject() {
+        this.expect('{');
+        Map<String, Object> members = new HashMap<>();
+        if (this.peek() == '}') {
+            this.position++;
+            return members;
+        }
+        do {
+            this.skipWhitespace();
+            String name = this.parseString();
+            this.expect(':');
+            Object value = this.parseValue();
+            if (value != null) {
+                members.put(name, value);
+            }
+        } while (this.next() == ',');
+        this.position--;
+        this.expect('}');
+        return members;
+    }
+
+    /**
+     * Parses a member value.
+     *
+     * @return text of the value, an int[] for an array, or null for null
+     */
+    private Object parseValue() {
+        char c = this.peek();
+        if (c == '"') {
+            return this.parseString();
+        } else if (c == '[') {
+            return this.parseIntArray();
+        }
+        int start = this.position;
+        while (this.position < this.text.length()
+                && ",}] \t".indexOf(this.text.charAt(this.position)) < 0) {
+            this.position++;
+        }
+        String literal = this.text.substring(start, this.position);
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (literal.isEmpty() || !(literal.equals("true")
+                || literal.equals("false")
+                || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?"))) {
+            throw this.error("invalid value \"" + literal + "\"");
+        }
+        return literal;
+    }
+
+    /**
+     * Parses an array of integers.
+     *
+     * @return the integers in the array
+     */
+    private int[] parseIntArray() {
+        this.expect('[');
+        int[] values = new int[8];
+        int count = 0;
+        if (this.peek() == ']') {
+            this.position++;
+            return new int[0];
+        }
+        do {
+            Object value = this.parseValue();
+            if (!(value instanceof String)) {
+                throw this.error("arrays may only contain integers");
+            }
+            int parsed;
+            try {
+                parsed = Integer.parseInt((String) value);
+            } catch (NumberFormatException e) {
+                throw this.error("arrays may only contain integers");
+            }
+            if (count == values.length) {
+                int[] grown = new int[count * 2];
+                System.arraycopy(values, 0, grown, 0, count);
+                values = grown;
+            }
+            values[count++] = parsed;
+        } while (this.next() == ',');
+        this.position--;
+        this.expect(']');
+        int[] result = new int[count];
+        System.arraycopy(values, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Parses a string, unescaping any escape sequences.
+     *
+     * @return contents of the string
+     */
+    private String parseString() {
+        this.expect('"');
+        StringBuilder builder = new StringBuilder();
+        while (true) {
+            if (this.position >= this.text.length()) {
+                throw this.error("unterminated string");
+            }
+            char c = this.text.charAt(this.position++);
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (this.position >= this.text.length()) {
+                throw this.error("unterminated string");
+            }
+            char escaped = this.text.charAt(this.position++);
+            switch (escaped) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    if (this.position + 4 > this.text.length()) {
+                        throw this.error("invalid unicode escape");
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(this.text
+                                .substring(this.position, this.position + 4),
+                                16));
+                    } catch (NumberFormatException e) {
+                        throw this.error("invalid unicode escape");
+                    }
+                    this.position += 4;
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    builder.append(escaped);
+                    break;
+                default:
+                    throw this.error("invalid escape \\" + escaped);
+            }
+        }
+    }
+
+    /**
+     * Skips whitespace and checks that the next character is the one given.
+     *
+     * @param c expected character
+     */
+    private void expect(char c) {
+        if (this.next() != c) {
+            this.position--;
+            throw this.error("expected '" + c + "'");
+        }
+    }
+
+    /**
+     * Skips whitespace and reads the next character.
+     *
+     * @return next character; 0 at the end of the text
+     */
+    private char next() {
+        char c = this.peek();
+        this.position++;
+        return c;
+    }
+
+    /**
+     * Skips whitespace and returns the next character without reading it.
+     *
+     * @return next character; 0 at the end of the text
+     */
+    private char peek() {
+        this.skipWhitespace();
+        return this.position < this.text.length()
+                ? this.text.charAt(this.position) : 0;
+    }
+
+    /**
+     * Moves past any whitespace at the current position.
+     */
+    private void skipWhitespace() {
+        while (this.position < this.text.length()
+                && Character.isWhitespace(this.text.charAt(this.position))) {
+            this.position++;
+        }
+    }
+
+    /**
+     * Returns an exception describing a syntax error at the current
+     * position.
+     *
+     * @param message description of the error
+     * @return exception to throw
+     */
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("invalid JSON at column "
+                + (this.position + 1) + ": " + message);
+    }
+}
@@ -0,0 +1,487 @@
+package bms.io;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An archive of per-minute sensor readings written by a
+ * {@link ReadingArchiveWriter}, opened for reading.
+ * <p>
+ * An archive is a directory of segment files, each holding the readings of
+ * every archived sensor over a contiguous range of the timed item manager's
+ * minutes. Segment files are named after the first minute they hold, so the
+ * segments covering a range of minutes are found from the directory listing
+ * alone, and only their headers are read when the archive is opened.
+ * <p>
+ * Within a segment, each sensor's readings are stored as runs of equal
+ * readings: the difference from the previous run's reading (zigzag-encoded)
+ * followed by the run's length in minutes, both as variable-length
+ * integers. Since a sensor's reading only changes every
+ * {@link bms.sensors.TimedSensor#getUpdateFrequency() update frequency}
+ * minutes, and often not even then, each run usually covers several
+ * minutes and takes two or three bytes. Each stream also has a sparse index
+ * of checkpoints, recording where the runs starting at least
+ * {@link ReadingArchiveWriter#INDEX_INTERVAL} minutes apart begin, so a
+ * range can be read without decoding the stream from its start.
+ * <p>
+ * All fixed-size values are stored big-endian. Each segment file starts
+ * with a header of:
+ * <ul>
+ *     <li>the magic number {@link #MAGIC} and the format {@link #VERSION};
+ *     </li>
+ *     <li>the first minute held and the minute after the last;</li>
+ *     <li>the number of sensors, then for each sensor its name (length,
+ *     then UTF-8 bytes), the first minute held and the minute after the
+ *     last, the file offset and length of its runs, and its checkpoints
+ *     (minute, offset within the runs, and the reading before it).</li>
+ * </ul>
+ */
+public class ReadingArchive {
+
+    /**
+     * Magic number at the start of every segment file ("BMSA").
+     */
+    public static final int MAGIC = 0x424D5341;
+
+    /**
+     * Version of the segment format. Segments of any other version are
+     * rejected when opened.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Value returned by {@link #read(String, long, long)} for the minutes at
+     * which a sensor's reading was not archived. Readings are never
+     * negative.
+     */
+    public static final int NO_READING = -1;
+
+    /**
+     * Prefix of the name of every segment file.
+     */
+    static final String SEGMENT_PREFIX = "segment-";
+
+    /**
+     * Suffix of the name of every segment file.
+     */
+    static final String SEGMENT_SUFFIX = ".bsa";
+
+    /**
+     * Segments of the archive, by the first minute they hold.
+     */
+    private final NavigableMap<Long, Segment> segments;
+
+    /**
+     * Creates an archive made up of the given segments.
+     *
+     * @param segments segments by first minute
+     */
+    private ReadingArchive(NavigableMap<Long, Segment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Opens the archive in the given directory.
+     * <p>
+     * Every segment file is memory-mapped and its header is read; readings
+     * are only decoded when requested. The segment files must not be
+     * modified while the archive is in use, but segments written afterwards
+     * are not seen until the archive is opened again.
+     *
+     * @param directory directory the archive was written to
+     * @return the archive
+     * @throws IOException if the directory cannot be read, or any segment
+     * file is malformed, of an unsupported version, or overlaps another
+     */
+    public static ReadingArchive open(Path directory) throws IOException {
+        NavigableMap<Long, Segment> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(
+                directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                Segment segment = Segment.open(file);
+                segments.put(segment.firstMinute, segment);
+            }
+        }
+        long end = Long.MIN_VALUE;
+        for (Segment segment : segments.values()) {
+            if (segment.firstMinute < end) {
+                throw new IOException("Overlapping archive segment "
+                        + segment.file.getFileName());
+            }
+            end = segment.endMinute;
+        }
+        return new ReadingArchive(segments);
+    }
+
+    /**
+     * Returns the name of the segment file whose first minute is the given
+     * minute.
+     *
+     * @param firstMinute first minute held by the segment
+     * @return file name of the segment
+     */
+    static String segmentFileName(long firstMinute) {
+        return String.format("%s%019d%s", SEGMENT_PREFIX, firstMinute,
+                SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Returns the number of segment files in the archive.
+     *
+     * @return number of segments
+     */
+    public int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    /**
+     * Returns the first minute held by the archive.
+     *
+     * @return first archived minute; -1 if the archive is empty
+     */
+    public long getFirstMinute() {
+        return this.segments.isEmpty() ? -1 : this.segments.firstKey();
+    }
+
+    /**
+     * Returns the minute after the last minute held by the archive.
+     *
+     * @return end of the archived minutes; -1 if the archive is empty
+     */
+    public long getEndMinute() {
+        return this.segments.isEmpty()
+                ? -1 : this.segments.lastEntry().getValue().endMinute;
+    }
+
+    /**
+     * Returns the names of every sensor with readings in the archive, in
+     * alphabetical order.
+     *
+     * @return names of the archived sensors
+     */
+    public Set<String> getSensorNames() {
+        Set<String> names = new TreeSet<>();
+        for (Segment segment : this.segments.values()) {
+            names.addAll(segment.streams.keySet());
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Returns the readings of the sensor with the given name for each
+     * minute in the given range.
+     * <p>
+     * Only the segments overlapping the range are read, and within each,
+     * decoding starts from the last checkpoint before the range.
+     *
+     * @param sensorName name the sensor was archived under
+     * @param fromMinute first minute of the range (inclusive)
+     * @param toMinute last minute of the range (exclusive)
+     * @return the reading at each minute of the range, in order; or
+     * {@link #NO_READING} for minutes at which the sensor was not archived
+     * @throws IllegalArgumentException if toMinute &lt; fromMinute, or the
+     * range is longer than {@link Integer#MAX_VALUE} minutes
+     * @throws IOException if a segment's readings are malformed
+     */
+    public int[] read(String sensorName, long fromMinute, long toMinute)
+            throws IllegalArgumentException, IOException {
+        if (toMinute < fromMinute
+                || toMinute - fromMinute > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid range of minutes: "
+                    + fromMinute + " to " + toMinute);
+        }
+        int[] readings = new int[(int) (toMinute - fromMinute)];
+        Arrays.fill(readings, NO_READING);
+        Long first = this.segments.floorKey(fromMinute);
+        for (Segment segment : this.segments.subMap(
+                first == null ? fromMinute : first, true,
+                toMinute, false).values()) {
+            Stream stream = segment.streams.get(sensorName);
+            if (stream != null) {
+                segment.read(stream, fromMinute, toMinute, readings);
+            }
+        }
+        return readings;
+    }
+
+    /**
+     * Returns the human-readable string representation of this archive.
+     * <p>
+     * The format of the string to return is
+     * "ReadingArchive: segments='count', minutes='first'-'end'"
+     * without the single quotes.
+     *
+     * @return string representation of this archive
+     */
+    @Override
+    public String toString() {
+        return String.format("ReadingArchive: segments=%d, minutes=%d-%d",
+                this.getSegmentCount(), this.getFirstMinute(),
+                this.getEndMinute());
+    }
+
+    /**
+     * Reads a variable-length unsigned integer: seven bits per byte, least
+     * significant first, with the high bit set on every byte but the last.
+     *
+     * @param in buffer positioned at the integer
+     * @return the integer
+     * @throws IOException if the integer is longer than ten bytes
+     */
+    static long readVarint(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    /**
+     * A stream of one sensor's readings within a segment.
+     */
+    private static final class Stream {
+        /**
+         * First minute held by the stream.
+         */
+        private final long firstMinute;
+
+        /**
+         * Minute after the last minute held by the stream.
+         */
+        private final long endMinute;
+
+        /**
+         * File offset of the stream's runs.
+         */
+        private final int dataOffset;
+
+        /**
+         * Length of the stream's runs in bytes.
+         */
+        private final int dataLength;
+
+        /**
+         * Minute at which each checkpointed run starts, in order.
+         */
+        private final long[] checkpointMinutes;
+
+        /**
+         * Offset of each checkpointed run within the stream's runs.
+         */
+        private final int[] checkpointOffsets;
+
+        /**
+         * Reading of the run before each checkpointed run.
+         */
+        private final int[] checkpointReadings;
+
+        /**
+         * Creates a new stream, reading its header entry from the buffer.
+         *
+         * @param in buffer positioned after the stream's name
+         * @param fileLength length of the segment file
+         * @throws IOException if the header entry is malformed
+         */
+        private Stream(ByteBuffer in, int fileLength) throws IOException {
+            this.firstMinute = in.getLong();
+            this.endMinute = in.getLong();
+            this.dataOffset = in.getInt();
+            this.dataLength = in.getInt();
+            int checkpoints = in.getInt();
+            if (this.endMinute < this.firstMinute || this.dataOffset < 0
+                    || this.dataLength < 0
+                    || this.dataLength > fileLength - this.dataOffset
+                    || checkpoints < 0 || checkpoints > in.remaining()) {
+                throw new IOException("Malformed archive stream header");
+            }
+            this.checkpointMinutes = new long[checkpoints];
+            this.checkpointOffsets = new int[checkpoints];
+            this.checkpointReadings = new int[checkpoints];
+            for (int i = 0; i < checkpoints; i++) {
+                this.checkpointMinutes[i] = in.getLong();
+                this.checkpointOffsets[i] = in.getInt();
+                this.checkpointReadings[i] = in.getInt();
+                if (this.checkpointOffsets[i] < 0
+                        || this.checkpointOffsets[i] > this.dataLength) {
+                    throw new IOException("Malformed archive checkpoint");
+                }
+            }
+        }
+    }
+
+    /**
+     * A segment file, holding the streams of every sensor archived over a
+     * range of minutes.
+     */
+    private static final class Segment {
+        /**
+         * Path of the segment file.
+         */
+        private final Path file;
+
+        /**
+         * Read-only mapping of the whole segment file.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * First minute held by the segment.
+         */
+        private final long firstMinute;
+
+        /**
+         * Minute after the last minute held by the segment.
+         */
+        private final long endMinute;
+
+        /**
+         * Streams in the segment, by sensor name.
+         */
+        private final Map<String, Stream> streams;
+
+        /**
+         * Creates a segment backed by the given mapped file, reading its
+         * header.
+         *
+         * @param file path of the segment file
+         * @param buffer mapping of the segment file
+         * @throws IOException if the header is malformed or of an
+         * unsupported version
+         */
+        private Segment(Path file, ByteBuffer buffer) throws IOException {
+            this.file = file;
+            this.buffer = buffer;
+            try {
+                ByteBuffer in = buffer.duplicate();
+                if (in.remaining() < 8 || in.getInt() != MAGIC) {
+                    throw new IOException("Not an archive segment: " + file);
+                }
+                int version = in.getInt();
+                if (version != VERSION) {
+                    throw new IOException(
+                            "Unsupported archive segment version " + version);
+                }
+                this.firstMinute = in.getLong();
+                this.endMinute = in.getLong();
+                int count = in.getInt();
+                if (this.endMinute < this.firstMinute || count < 0
+                        || count > in.remaining()) {
+                    throw new IOException("Malformed archive segment header");
+                }
+                this.streams = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    int nameLength = in.getInt();
+                    if (nameLength < 0 || nameLength > in.remaining()) {
+                        throw new BufferUnderflowException();
+                    }
+                    byte[] nameBytes = new byte[nameLength];
+                    in.get(nameBytes);
+                    this.streams.put(
+                            new String(nameBytes, StandardCharsets.UTF_8),
+                            new Stream(in, buffer.limit()));
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated archive segment header", e);
+            }
+        }
+
+        /**
+         * Opens the segment file at the given path.
+         *
+         * @param file path of the segment file
+         * @return segment backed by the file
+         * @throws IOException if the file cannot be read, is larger than
+         * 2 GiB, or is not a segment of a supported version
+         */
+        private static Segment open(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Archive segment is too large: "
+                            + size + " bytes");
+                }
+                // the mapping stays valid after the channel is closed
+                return new Segment(file,
+                        channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+        }
+
+        /**
+         * Decodes the readings of a stream that fall within the given range
+         * into the given array.
+         *
+         * @param stream stream to decode
+         * @param from first minute of the range (inclusive)
+         * @param to last minute of the range (exclusive)
+         * @param readings array holding the reading at each minute of the
+         *                 range
+         * @throws IOException if the stream's runs are malformed
+         */
+        private void read(Stream stream, long from, long to, int[] readings)
+                throws IOException {
+            if (stream.endMinute <= from || stream.firstMinute >= to) {
+                return;
+            }
+            long minute = stream.firstMinute;
+            int offset = 0;
+            long previous = 0;
+            int checkpoint = Arrays.binarySearch(stream.checkpointMinutes,
+                    from);
+            if (checkpoint < 0) {
+                // index of the last checkpoint before the range
+                checkpoint = -checkpoint - 2;
+            }
+            if (checkpoint >= 0) {
+                minute = stream.checkpointMinutes[checkpoint];
+                offset = stream.checkpointOffsets[checkpoint];
+                previous = stream.checkpointReadings[checkpoint];
+            }
+
+            ByteBuffer in = this.buffer.duplicate();
+            in.limit(stream.dataOffset + stream.dataLength);
+            in.position(stream.dataOffset + offset);
+            try {
+                while (minute < to && in.hasRemaining()) {
+                    long delta = readVarint(in);
+                    long reading = previous + ((delta >>> 1) ^ -(delta & 1));
+                    long length = readVarint(in);
+                    if (reading < 0 || reading > Integer.MAX_VALUE
+                            || length < 1
+                            || length > stream.endMinute - minute) {
+                        throw new IOException("Malformed archive run");
+                    }
+                    long start = Math.max(minute, from);
+                    long end = Math.min(minute + length, to);
+                    for (long m = start; m < end; m++) {
+                        readings[(int) (m - from)] = (int) reading;
+                    }
+                    minute += length;
+                    previous = reading;
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated archive segment "
+                        + this.file.getFileName(), e);
+            }
+        }
+    }
+}
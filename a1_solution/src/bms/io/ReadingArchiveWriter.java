@@ -0,0 +1,748 @@
+package bms.io;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+import bms.util.TickListener;
+import bms.util.TimedItemManager;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Appends the per-minute readings of a set of timed sensors to a compressed
+ * {@link ReadingArchive}, as their timed item manager ticks.
+ * <p>
+ * The writer listens for the end of each of the manager's ticks, and
+ * records every archived sensor's reading for each minute of the tick. A
+ * sensor's readings are fixed, so the readings for a tick of several
+ * minutes (or for minutes deferred in {@link bms.util.TickMode#LAZY} or
+ * {@link bms.util.TickMode#EVENT} mode) are derived from its readings
+ * array, one run of equal readings at a time, rather than one minute at a
+ * time.
+ * <p>
+ * Minutes are numbered by the manager's
+ * {@link TimedItemManager#getMinutesElapsed() minutes elapsed}, and are
+ * grouped into segments of a fixed number of minutes. Each segment is
+ * compressed in memory, then written to its own file once the first minute
+ * of the next segment is recorded, or the writer is closed. Files are never
+ * modified once written.
+ * <p>
+ * If a segment cannot be written during a tick, the writer keeps recording
+ * and the failure is available from {@link #getFailure()}. The unwritten
+ * readings are kept, and writing them is retried at the next segment
+ * boundary (or on closing), together with the readings of the segments
+ * recorded since, in a single file covering all of their minutes.
+ * <p>
+ * Sensors must remain registered with the writer's manager while they are
+ * archived.
+ */
+public class ReadingArchiveWriter implements TickListener, Closeable {
+
+    /**
+     * Default number of minutes in each segment: one day.
+     */
+    public static final int DEFAULT_SEGMENT_MINUTES = 24 * 60;
+
+    /**
+     * Minimum number of minutes between the checkpoints of a sensor's
+     * stream in a segment.
+     */
+    public static final int INDEX_INTERVAL = 60;
+
+    /**
+     * Directory that segment files are written to.
+     */
+    private final Path directory;
+
+    /**
+     * Manager whose ticks are archived.
+     */
+    private final TimedItemManager manager;
+
+    /**
+     * Number of minutes in each segment.
+     */
+    private final int segmentMinutes;
+
+    /**
+     * Streams of the archived sensors, by name, in the order they were
+     * added.
+     */
+    private final Map<String, SensorStream> streams;
+
+    /**
+     * Streams of the archived sensors, in the order they were added, as an
+     * array for iterating over on every tick; null if a sensor has been
+     * added since the array was built.
+     */
+    private SensorStream[] streamArray;
+
+    /**
+     * Time elapsed of each sensor in {@link #streamArray} at the end of the
+     * current tick, reused from one tick to the next.
+     */
+    private long[] sensorTimes;
+
+    /**
+     * Last minute recorded for every archived sensor.
+     */
+    private long recordedMinute;
+
+    /**
+     * Index of the segment currently being recorded, counting from minute 0.
+     */
+    private long segmentIndex;
+
+    /**
+     * Number of segment files written.
+     */
+    private int segmentCount;
+
+    /**
+     * Exception thrown by the last attempt to write a segment, or null if
+     * every segment completed so far has been written.
+     */
+    private IOException failure;
+
+    /**
+     * Whether the writer has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Creates a new writer which archives readings to the given directory as
+     * the given manager ticks, using segments of
+     * {@link #DEFAULT_SEGMENT_MINUTES}.
+     *
+     * @param directory directory to write segment files to; created if it
+     *                  does not exist
+     * @param manager manager whose ticks are archived
+     * @throws IllegalArgumentException if directory or manager is null
+     * @throws IOException if the directory cannot be created
+     */
+    public ReadingArchiveWriter(Path directory, TimedItemManager manager)
+            throws IllegalArgumentException, IOException {
+        this(directory, manager, DEFAULT_SEGMENT_MINUTES);
+    }
+
+    /**
+     * Creates a new writer which archives readings to the given directory as
+     * the given manager ticks.
+     * <p>
+     * The writer starts listening to the manager's ticks immediately. The
+     * first minute archived is the manager's current minute.
+     *
+     * @param directory directory to write segment files to; created if it
+     *                  does not exist
+     * @param manager manager whose ticks are archived
+     * @param segmentMinutes number of minutes in each segment
+     * @throws IllegalArgumentException if directory or manager is null, or
+     * segmentMinutes is &lt; 1
+     * @throws IOException if the directory cannot be created
+     */
+    public ReadingArchiveWriter(Path directory, TimedItemManager manager,
+                                int segmentMinutes)
+            throws IllegalArgumentException, IOException {
+        if (directory == null || manager == null) {
+            throw new IllegalArgumentException(
+                    "Directory and manager must not be null");
+        }
+        if (segmentMinutes < 1) {
+            throw new IllegalArgumentException(
+                    "Segment length must be 1 minute or more");
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.manager = manager;
+        this.segmentMinutes = segmentMinutes;
+        this.streams = new LinkedHashMap<>();
+        this.recordedMinute = manager.getMinutesElapsed();
+        this.segmentIndex = this.recordedMinute / segmentMinutes;
+        manager.addTickListener(this);
+    }
+
+    /**
+     * Returns the directory that segment files are written to.
+     *
+     * @return the archive's directory
+     */
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Returns the number of minutes in each segment.
+     *
+     * @return segment length in minutes
+     */
+    public int getSegmentMinutes() {
+        return this.segmentMinutes;
+    }
+
+    /**
+     * Returns the number of sensors being archived.
+     *
+     * @return number of sensors
+     */
+    public synchronized int getSensorCount() {
+        return this.streams.size();
+    }
+
+    /**
+     * Returns the number of segment files written so far.
+     *
+     * @return number of segments written
+     */
+    public synchronized int getSegmentCount() {
+        return this.segmentCount;
+    }
+
+    /**
+     * Returns the exception thrown by the last attempt to write a segment,
+     * if the readings it held have not been written since.
+     *
+     * @return exception preventing readings from being written; null if
+     * none
+     */
+    public synchronized IOException getFailure() {
+        return this.failure;
+    }
+
+    /**
+     * Returns whether the last attempt to write a segment failed, so that
+     * some of the recorded readings have not been written yet.
+     *
+     * @return true if readings are waiting to be written
+     */
+    public synchronized boolean isFailed() {
+        return this.failure != null;
+    }
+
+    /**
+     * Starts archiving the readings of the given sensor under the given
+     * name, beginning with its current reading.
+     *
+     * @param name name to archive the sensor's readings under
+     * @param sensor sensor to archive
+     * @throws IllegalArgumentException if name or sensor is null, a sensor
+     * is already archived under the name, or the sensor is not registered
+     * with the writer's manager
+     * @throws IllegalStateException if the writer has been closed
+     */
+    public synchronized void addSensor(String name, TimedSensor sensor)
+            throws IllegalArgumentException, IllegalStateException {
+        if (name == null || sensor == null) {
+            throw new IllegalArgumentException(
+                    "Name and sensor must not be null");
+        }
+        if (this.closed) {
+            throw new IllegalStateException("Archive writer is closed");
+        }
+        if (this.streams.containsKey(name)) {
+            throw new IllegalArgumentException(
+                    "A sensor is already archived as \"" + name + "\"");
+        }
+        if (sensor.getTimedItemManager() != this.manager) {
+            throw new IllegalArgumentException(
+                    "Sensor is not registered with the archived manager");
+        }
+        SensorStream stream = new SensorStream(sensor);
+        stream.record(this.recordedMinute, this.recordedMinute,
+                this.recordedMinute, sensor.getTimeElapsed());
+        this.streams.put(name, stream);
+        this.streamArray = null;
+    }
+
+    /**
+     * Starts archiving the readings of every timed sensor in the given
+     * building, each under the name "floor/room/type", where floor and
+     * room are the floor and room numbers and type is the sensor's simple
+     * class name.
+     *
+     * @param building building whose sensors are archived
+     * @return number of sensors added
+     * @throws IllegalArgumentException if building is null, or any of its
+     * sensors is already archived or not registered with the writer's
+     * manager
+     * @throws IllegalStateException if the writer has been closed
+     */
+    public synchronized int addBuilding(Building building)
+            throws IllegalArgumentException, IllegalStateException {
+        if (building == null) {
+            throw new IllegalArgumentException("Building must not be null");
+        }
+        int added = 0;
+        for (Floor floor : building.getFloorsView()) {
+            for (Room room : floor.getRoomsView()) {
+                for (Sensor sensor : room.getSensorsView()) {
+                    if (sensor instanceof TimedSensor) {
+                        this.addSensor(floor.getFloorNumber() + "/"
+                                + room.getRoomNumber() + "/"
+                                + sensor.getClass().getSimpleName(),
+                                (TimedSensor) sensor);
+                        added++;
+                    }
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Records the readings of every archived sensor for each minute since
+     * the last tick, writing out any segment that has been completed.
+     * <p>
+     * If a segment cannot be written, recording carries on, the exception
+     * is reported by {@link #getFailure()}, and the segment is written
+     * along with the next one instead.
+     *
+     * @param manager manager which has finished ticking
+     */
+    @Override
+    public synchronized void tickCompleted(TimedItemManager manager) {
+        if (this.closed || manager != this.manager) {
+            return;
+        }
+        long now = manager.getMinutesElapsed();
+        if (this.streamArray == null) {
+            this.streamArray =
+                    this.streams.values().toArray(new SensorStream[0]);
+            this.sensorTimes = new long[this.streamArray.length];
+        }
+        SensorStream[] tracked = this.streamArray;
+        long[] sensorTimes = this.sensorTimes;
+        for (int i = 0; i < tracked.length; i++) {
+            sensorTimes[i] = tracked[i].sensor.getTimeElapsed();
+        }
+        for (long from = this.recordedMinute + 1; from <= now; ) {
+            long segment = from / this.segmentMinutes;
+            if (segment != this.segmentIndex) {
+                try {
+                    this.writeSegment();
+                } catch (IOException e) {
+                    // the readings stay in the streams until they are
+                    // written at the next segment boundary
+                    this.failure = e;
+                }
+                this.segmentIndex = segment;
+            }
+            long to = Math.min(now, (segment + 1) * this.segmentMinutes - 1);
+            for (int i = 0; i < tracked.length; i++) {
+                tracked[i].record(from, to, now, sensorTimes[i]);
+            }
+            this.recordedMinute = to;
+            from = to + 1;
+        }
+    }
+
+    /**
+     * Stops archiving, writing out the segment being recorded.
+     * <p>
+     * The writer stops listening to the manager's ticks. Closing a writer
+     * which is already closed has no effect.
+     *
+     * @throws IOException if the segment, including the readings of any
+     * segment which could not be written during an earlier tick, cannot be
+     * written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.manager.removeTickListener(this);
+        try {
+            this.writeSegment();
+        } catch (IOException e) {
+            this.failure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the human-readable string representation of this writer.
+     * <p>
+     * The format of the string to return is
+     * "ReadingArchiveWriter: sensors='sensorCount', segments='segmentCount',
+     * minute='recordedMinute'"
+     * without the single quotes.
+     *
+     * @return string representation of this writer
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "ReadingArchiveWriter: sensors=%d, segments=%d, minute=%d",
+                this.streams.size(), this.segmentCount, this.recordedMinute);
+    }
+
+    /**
+     * Writes the readings recorded in the current segment to a new segment
+     * file, and clears them from every stream. Nothing is written if no
+     * readings have been recorded. If the file cannot be written, the
+     * readings are kept; otherwise, any earlier failure is cleared.
+     *
+     * @throws IOException if the file cannot be written, or already exists
+     */
+    private void writeSegment() throws IOException {
+        long first = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        int headerSize = 3 * Integer.BYTES + 2 * Long.BYTES;
+        for (Map.Entry<String, SensorStream> entry : this.streams.entrySet()) {
+            SensorStream stream = entry.getValue();
+            stream.finishRun();
+            if (stream.isEmpty()) {
+                continue;
+            }
+            first = Math.min(first, stream.firstMinute);
+            end = Math.max(end, stream.endMinute);
+            headerSize += entry.getKey().getBytes(StandardCharsets.UTF_8)
+                    .length + 4 * Integer.BYTES + 2 * Long.BYTES
+                    + stream.checkpointCount
+                    * (Long.BYTES + 2 * Integer.BYTES);
+        }
+        if (first == Long.MAX_VALUE) {
+            this.failure = null;
+            return;
+        }
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(ReadingArchive.MAGIC);
+        header.writeInt(ReadingArchive.VERSION);
+        header.writeLong(first);
+        header.writeLong(end);
+        int count = 0;
+        for (SensorStream stream : this.streams.values()) {
+            if (!stream.isEmpty()) {
+                count++;
+            }
+        }
+        header.writeInt(count);
+        long offset = headerSize;
+        for (Map.Entry<String, SensorStream> entry : this.streams.entrySet()) {
+            SensorStream stream = entry.getValue();
+            if (stream.isEmpty()) {
+                continue;
+            }
+            if (offset + stream.length > Integer.MAX_VALUE) {
+                throw new IOException("Archive segment is too large");
+            }
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            header.writeInt(name.length);
+            header.write(name);
+            header.writeLong(stream.firstMinute);
+            header.writeLong(stream.endMinute);
+            header.writeInt((int) offset);
+            header.writeInt(stream.length);
+            header.writeInt(stream.checkpointCount);
+            for (int i = 0; i < stream.checkpointCount; i++) {
+                header.writeLong(stream.checkpointMinutes[i]);
+                header.writeInt(stream.checkpointOffsets[i]);
+                header.writeInt(stream.checkpointReadings[i]);
+            }
+            offset += stream.length;
+        }
+
+        // written under a temporary name so that a partly written segment
+        // is never mistaken for a complete one
+        Path file = this.directory.resolve(
+                ReadingArchive.segmentFileName(first));
+        Path temporary = this.directory.resolve(file.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(
+                    Files.newOutputStream(temporary))) {
+                headerBytes.writeTo(out);
+                for (SensorStream stream : this.streams.values()) {
+                    out.write(stream.data, 0, stream.length);
+                }
+            }
+            Files.move(temporary, file);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        for (SensorStream stream : this.streams.values()) {
+            stream.clear();
+        }
+        this.segmentCount++;
+        this.failure = null;
+    }
+
+    /**
+     * The readings of one archived sensor in the segment being recorded,
+     * encoded as runs of equal readings.
+     */
+    private static final class SensorStream {
+        /**
+         * Sensor being archived.
+         */
+        private final TimedSensor sensor;
+
+        /**
+         * Copy of the sensor's readings.
+         */
+        private final int[] readings;
+
+        /**
+         * Sensor's update frequency.
+         */
+        private final int frequency;
+
+        /**
+         * Number of minutes before the sensor's readings repeat.
+         */
+        private final long rotation;
+
+        /**
+         * Sensor's time elapsed following the last minute recorded, or -1
+         * if nothing has been recorded.
+         */
+        private long nextTime;
+
+        /**
+         * Index of the sensor's reading at the last minute recorded.
+         */
+        private int readingIndex;
+
+        /**
+         * Sensor's time elapsed at which its reading next moves on from
+         * the reading at {@link #readingIndex}.
+         */
+        private long nextChangeTime;
+
+        /**
+         * Encoded runs recorded in the current segment.
+         */
+        private byte[] data;
+
+        /**
+         * Number of bytes used in {@link #data}.
+         */
+        private int length;
+
+        /**
+         * First minute recorded in the current segment, or -1 if none.
+         */
+        private long firstMinute;
+
+        /**
+         * Minute after the last minute recorded.
+         */
+        private long endMinute;
+
+        /**
+         * Reading of the last run encoded in the current segment.
+         */
+        private int previousReading;
+
+        /**
+         * Reading of the run being recorded.
+         */
+        private int runReading;
+
+        /**
+         * First minute of the run being recorded.
+         */
+        private long runStart;
+
+        /**
+         * Length in minutes of the run being recorded; 0 if there is none.
+         */
+        private long runLength;
+
+        /**
+         * Minute of the last checkpoint, or of the start of the stream.
+         */
+        private long checkpointMinute;
+
+        /**
+         * Minute at which each checkpointed run starts.
+         */
+        private long[] checkpointMinutes;
+
+        /**
+         * Offset of each checkpointed run within {@link #data}.
+         */
+        private int[] checkpointOffsets;
+
+        /**
+         * Reading of the run before each checkpointed run.
+         */
+        private int[] checkpointReadings;
+
+        /**
+         * Number of checkpoints in the current segment.
+         */
+        private int checkpointCount;
+
+        /**
+         * Creates an empty stream for the given sensor.
+         *
+         * @param sensor sensor being archived
+         */
+        private SensorStream(TimedSensor sensor) {
+            this.sensor = sensor;
+            this.readings = sensor.getReadings();
+            this.frequency = sensor.getUpdateFrequency();
+            this.rotation = (long) this.readings.length * this.frequency;
+            this.nextTime = -1;
+            this.data = new byte[16];
+            this.checkpointMinutes = new long[4];
+            this.checkpointOffsets = new int[4];
+            this.checkpointReadings = new int[4];
+            this.clear();
+        }
+
+        /**
+         * Returns whether no minutes have been recorded in the current
+         * segment.
+         *
+         * @return true if the stream is empty
+         */
+        private boolean isEmpty() {
+            return this.firstMinute < 0;
+        }
+
+        /**
+         * Records the sensor's reading at each minute in the given range.
+         *
+         * @param from first minute to record (inclusive)
+         * @param to last minute to record (inclusive)
+         * @param now current minute of the manager
+         * @param sensorTime sensor's time elapsed at the current minute
+         */
+        private void record(long from, long to, long now, long sensorTime) {
+            long minute = from;
+            long time = sensorTime - (now - from);
+            if (time < 0) {
+                // not running yet at the start of the range
+                minute -= time;
+                time = 0;
+            }
+            if (time != this.nextTime) {
+                this.readingIndex =
+                        (int) ((time % this.rotation) / this.frequency);
+                this.nextChangeTime = time - time % this.frequency
+                        + this.frequency;
+            }
+            while (minute <= to) {
+                if (time == this.nextChangeTime) {
+                    this.readingIndex =
+                            this.readingIndex + 1 == this.readings.length
+                                    ? 0 : this.readingIndex + 1;
+                    this.nextChangeTime += this.frequency;
+                }
+                long minutes = Math.min(this.nextChangeTime - time,
+                        to - minute + 1);
+                this.append(minute, this.readings[this.readingIndex],
+                        minutes);
+                minute += minutes;
+                time += minutes;
+            }
+            this.nextTime = time;
+        }
+
+        /**
+         * Appends a number of minutes with the same reading to the stream.
+         *
+         * @param minute first minute with the reading
+         * @param reading sensor reading
+         * @param minutes number of minutes with the reading
+         */
+        private void append(long minute, int reading, long minutes) {
+            if (this.runLength > 0 && reading == this.runReading) {
+                this.runLength += minutes;
+            } else {
+                this.finishRun();
+                if (this.isEmpty()) {
+                    this.firstMinute = minute;
+                    this.checkpointMinute = minute;
+                }
+                this.runReading = reading;
+                this.runStart = minute;
+                this.runLength = minutes;
+            }
+            this.endMinute = minute + minutes;
+        }
+
+        /**
+         * Encodes the run being recorded, adding a checkpoint before it if
+         * it starts long enough after the last one.
+         */
+        private void finishRun() {
+            if (this.runLength == 0) {
+                return;
+            }
+            if (this.runStart - this.checkpointMinute >= INDEX_INTERVAL) {
+                if (this.checkpointCount == this.checkpointMinutes.length) {
+                    int size = this.checkpointCount * 2;
+                    this.checkpointMinutes =
+                            Arrays.copyOf(this.checkpointMinutes, size);
+                    this.checkpointOffsets =
+                            Arrays.copyOf(this.checkpointOffsets, size);
+                    this.checkpointReadings =
+                            Arrays.copyOf(this.checkpointReadings, size);
+                }
+                this.checkpointMinutes[this.checkpointCount] = this.runStart;
+                this.checkpointOffsets[this.checkpointCount] = this.length;
+                this.checkpointReadings[this.checkpointCount] =
+                        this.previousReading;
+                this.checkpointCount++;
+                this.checkpointMinute = this.runStart;
+            }
+            long delta = (long) this.runReading - this.previousReading;
+            this.writeVarint((delta << 1) ^ (delta >> 63));
+            this.writeVarint(this.runLength);
+            this.previousReading = this.runReading;
+            this.runLength = 0;
+        }
+
+        /**
+         * Appends a variable-length unsigned integer to the encoded runs
+         * (see {@link ReadingArchive#readVarint}).
+         *
+         * @param value integer to append
+         */
+        private void writeVarint(long value) {
+            if (this.length + 10 > this.data.length) {
+                this.data = Arrays.copyOf(this.data, this.data.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                this.data[this.length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.data[this.length++] = (byte) value;
+        }
+
+        /**
+         * Removes every run from the stream, so that it can record the next
+         * segment.
+         */
+        private void clear() {
+            this.length = 0;
+            this.firstMinute = -1;
+            this.previousReading = 0;
+            this.runLength = 0;
+            this.checkpointCount = 0;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package bms.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies in nanoseconds which can be recorded to from
+ * many threads at once without locking.
+ * <p>
+ * Values are counted in log-linear buckets, in the style of an HDR
+ * histogram: each power of two is split into {@value #SUB_BUCKETS} buckets
+ * of equal width, so every value from 0 to {@link Long#MAX_VALUE} is
+ * counted with a relative error of at most about 3%, in a fixed amount of
+ * memory. Recording a value takes constant time; percentiles are found by
+ * walking the buckets.
+ * <p>
+ * Reads are not atomic with respect to concurrent recording, so a snapshot
+ * taken while values are being recorded may be slightly inconsistent.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of bits of each value that select its bucket within its power
+     * of two.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * Number of buckets each power of two is split into.
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Total number of buckets, enough for every non-negative long.
+     */
+    private static final int BUCKET_COUNT =
+            (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Number of values recorded in each bucket.
+     */
+    private final AtomicLongArray buckets;
+
+    /**
+     * Number of values recorded.
+     */
+    private final LongAdder count;
+
+    /**
+     * Sum of the values recorded.
+     */
+    private final LongAdder total;
+
+    /**
+     * Largest value recorded.
+     */
+    private final AtomicLong max;
+
+    /**
+     * Creates a new empty histogram.
+     */
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.count = new LongAdder();
+        this.total = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a latency. Negative values are recorded as 0.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        this.buckets.incrementAndGet(bucketOf(value));
+        this.count.increment();
+        this.total.add(value);
+        if (value > this.max.get()) {
+            this.max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return number of values
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Returns the sum of the latencies recorded.
+     *
+     * @return total latency in nanoseconds
+     */
+    public long getTotalNanos() {
+        return this.total.sum();
+    }
+
+    /**
+     * Returns the mean of the latencies recorded.
+     *
+     * @return mean latency in nanoseconds; 0 if none have been recorded
+     */
+    public double getMeanNanos() {
+        long n = this.count.sum();
+        return n == 0 ? 0 : (double) this.total.sum() / n;
+    }
+
+    /**
+     * Returns the largest latency recorded.
+     *
+     * @return maximum latency in nanoseconds; 0 if none have been recorded
+     */
+    public long getMaxNanos() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns the latency at or below which the given percentage of the
+     * recorded latencies fall.
+     * <p>
+     * The value returned is the largest value counted in the same bucket as
+     * the latency at that percentile, but no more than the largest latency
+     * recorded.
+     *
+     * @param percentile percentage of values, from 0 to 100
+     * @return latency at the percentile in nanoseconds; 0 if none have been
+     * recorded
+     * @throws IllegalArgumentException if percentile is not between 0 and
+     * 100 inclusive
+     */
+    public long getPercentileNanos(double percentile)
+            throws IllegalArgumentException {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException(
+                    "Percentile must be between 0 and 100 (inclusive)");
+        }
+        long[] counts = new long[BUCKET_COUNT];
+        long n = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = this.buckets.get(i);
+            n += counts[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * Removes every recorded latency.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.buckets.set(i, 0);
+        }
+        this.count.reset();
+        this.total.reset();
+        this.max.set(0);
+    }
+
+    /**
+     * Returns the human-readable string representation of this histogram.
+     * <p>
+     * The format of the string to return is
+     * "LatencyHistogram: count='count', mean='mean'ns, p99='p99'ns,
+     * max='max'ns"
+     * without the single quotes, where 'mean' is formatted to one decimal
+     * place.
+     *
+     * @return string representation of this histogram
+     */
+    @Override
+    public String toString() {
+        return String.format(
+                "LatencyHistogram: count=%d, mean=%.1fns, p99=%dns, max=%dns",
+                this.getCount(), this.getMeanNanos(),
+                this.getPercentileNanos(99), this.getMaxNanos());
+    }
+
+    /**
+     * Returns the index of the bucket counting the given value.
+     *
+     * @param value non-negative value
+     * @return bucket index
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value)
+                - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS)
+                + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns the largest value counted by the given bucket.
+     *
+     * @param bucket bucket index
+     * @return largest value in the bucket
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+        long mantissa = (bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,516 @@
+package bms.metrics;
+
+import bms.util.TimedItem;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Singleton class which records how long the building management system's
+ * hot paths take: ticks of every {@link bms.util.TimedItemManager}, fire
+ * drills and their cancellations, and hazard sweeps (refreshes of a
+ * {@link bms.hazard.HazardIndex}).
+ * <p>
+ * Recording is off by default, in which case instrumented code only reads
+ * one volatile flag. It can be switched on and off at any time, with
+ * {@link #setEnabled(boolean)} or over JMX once {@link #registerMBean()}
+ * has been called, and starts switched on if the system property
+ * {@value #ENABLED_PROPERTY} is "true".
+ * <p>
+ * Every metric is recorded without locking: counters are
+ * {@link LongAdder}s and latencies are recorded in
+ * {@link LatencyHistogram}s, so ticking managers on several threads at once
+ * does not contend on the metrics.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    /**
+     * Name the metrics are registered under with the platform MBean server.
+     */
+    public static final String OBJECT_NAME = "bms:type=Metrics";
+
+    /**
+     * System property which switches recording on when the metrics are
+     * first used.
+     */
+    public static final String ENABLED_PROPERTY = "bms.metrics.enabled";
+
+    /**
+     * Default tick latency above which a tick counts as an overrun: one
+     * second.
+     */
+    public static final long DEFAULT_OVERRUN_THRESHOLD_NANOS = 1_000_000_000L;
+
+    /**
+     * The singleton instance.
+     */
+    private static final Metrics INSTANCE = new Metrics();
+
+    /**
+     * Whether metrics are being recorded.
+     */
+    private volatile boolean enabled;
+
+    /**
+     * Tick latency above which a tick counts as an overrun.
+     */
+    private volatile long overrunThresholdNanos;
+
+    /**
+     * Latencies of ticks.
+     */
+    private final LatencyHistogram tickLatency;
+
+    /**
+     * Latencies of fire drills.
+     */
+    private final LatencyHistogram fireDrillLatency;
+
+    /**
+     * Latencies of cancellations of fire drills.
+     */
+    private final LatencyHistogram fireDrillCancellationLatency;
+
+    /**
+     * Latencies of hazard sweeps.
+     */
+    private final LatencyHistogram hazardSweepLatency;
+
+    /**
+     * Minutes advanced by ticks.
+     */
+    private final LongAdder minutesElapsed;
+
+    /**
+     * Items advanced by ticks.
+     */
+    private final LongAdder itemsAdvanced;
+
+    /**
+     * Ticks which took longer than the overrun threshold.
+     */
+    private final LongAdder overruns;
+
+    /**
+     * Items advanced by ticks, by simple class name.
+     */
+    private final Map<String, LongAdder> itemsByType;
+
+    /**
+     * Creates the singleton instance.
+     */
+    private Metrics() {
+        this.enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+        this.overrunThresholdNanos = DEFAULT_OVERRUN_THRESHOLD_NANOS;
+        this.tickLatency = new LatencyHistogram();
+        this.fireDrillLatency = new LatencyHistogram();
+        this.fireDrillCancellationLatency = new LatencyHistogram();
+        this.hazardSweepLatency = new LatencyHistogram();
+        this.minutesElapsed = new LongAdder();
+        this.itemsAdvanced = new LongAdder();
+        this.overruns = new LongAdder();
+        this.itemsByType = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the singleton instance of the metrics.
+     *
+     * @return the metrics
+     */
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under
+     * {@link #OBJECT_NAME}, so that they can be read and switched on and
+     * off over JMX. If they are already registered, no action is taken.
+     *
+     * @throws IllegalStateException if the metrics cannot be registered
+     */
+    public synchronized void registerMBean() throws IllegalStateException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, objectName());
+        } catch (InstanceAlreadyExistsException e) {
+            // already registered
+        } catch (JMException e) {
+            throw new IllegalStateException(
+                    "Metrics could not be registered", e);
+        }
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server. If they are
+     * not registered, no action is taken.
+     *
+     * @throws IllegalStateException if the metrics cannot be unregistered
+     */
+    public synchronized void unregisterMBean() throws IllegalStateException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName());
+        } catch (InstanceNotFoundException e) {
+            // not registered
+        } catch (JMException e) {
+            throw new IllegalStateException(
+                    "Metrics could not be unregistered", e);
+        }
+    }
+
+    /**
+     * Returns whether the metrics are registered with the platform MBean
+     * server.
+     *
+     * @return true if registered
+     */
+    public boolean isRegistered() {
+        return ManagementFactory.getPlatformMBeanServer()
+                .isRegistered(objectName());
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getOverrunThresholdNanos() {
+        return this.overrunThresholdNanos;
+    }
+
+    @Override
+    public void setOverrunThresholdNanos(long nanos)
+            throws IllegalArgumentException {
+        if (nanos < 0) {
+            throw new IllegalArgumentException(
+                    "Overrun threshold must be non-negative");
+        }
+        this.overrunThresholdNanos = nanos;
+    }
+
+    /**
+     * Records a tick of a timed item manager.
+     * <p>
+     * The breakdown of the items by type is cached by the manager: it
+     * passes in the breakdown returned by its previous call, and keeps the
+     * one returned for its next call. The breakdown is only recalculated
+     * when the manager ticks a different array of items from its previous
+     * tick, which happens when items are registered or unregistered, so
+     * managers ticking independently do not invalidate each other's
+     * breakdowns.
+     *
+     * @param items items advanced by the tick
+     * @param minutes number of minutes the items were advanced by
+     * @param nanos time taken by the tick, including the manager's tick
+     *              listeners
+     * @param breakdown breakdown returned by the manager's previous call;
+     *                  null if there was none
+     * @return breakdown to pass to the manager's next call
+     */
+    public TypeBreakdown recordTick(TimedItem[] items, long minutes,
+                                    long nanos, TypeBreakdown breakdown) {
+        this.tickLatency.record(nanos);
+        this.minutesElapsed.add(minutes);
+        this.itemsAdvanced.add(items.length);
+        if (nanos > this.overrunThresholdNanos) {
+            this.overruns.increment();
+        }
+        TypeBreakdown types = breakdown;
+        if (types == null || types.items.get() != items) {
+            types = new TypeBreakdown(items);
+        }
+        for (int i = 0; i < types.names.length; i++) {
+            this.itemsByType.computeIfAbsent(types.names[i],
+                    name -> new LongAdder()).add(types.counts[i]);
+        }
+        return types;
+    }
+
+    /**
+     * Records a fire drill.
+     *
+     * @param nanos time taken by the drill
+     */
+    public void recordFireDrill(long nanos) {
+        this.fireDrillLatency.record(nanos);
+    }
+
+    /**
+     * Records the cancellation of a fire drill.
+     *
+     * @param nanos time taken by the cancellation
+     */
+    public void recordFireDrillCancellation(long nanos) {
+        this.fireDrillCancellationLatency.record(nanos);
+    }
+
+    /**
+     * Records a hazard sweep.
+     *
+     * @param nanos time taken by the sweep
+     */
+    public void recordHazardSweep(long nanos) {
+        this.hazardSweepLatency.record(nanos);
+    }
+
+    /**
+     * Returns the histogram of tick latencies. A tick's latency includes
+     * the time taken by the manager's tick listeners.
+     *
+     * @return tick latencies
+     */
+    public LatencyHistogram getTickLatency() {
+        return this.tickLatency;
+    }
+
+    /**
+     * Returns the histogram of fire drill latencies.
+     *
+     * @return fire drill latencies
+     */
+    public LatencyHistogram getFireDrillLatency() {
+        return this.fireDrillLatency;
+    }
+
+    /**
+     * Returns the histogram of fire drill cancellation latencies.
+     *
+     * @return fire drill cancellation latencies
+     */
+    public LatencyHistogram getFireDrillCancellationLatency() {
+        return this.fireDrillCancellationLatency;
+    }
+
+    /**
+     * Returns the histogram of hazard sweep latencies.
+     *
+     * @return hazard sweep latencies
+     */
+    public LatencyHistogram getHazardSweepLatency() {
+        return this.hazardSweepLatency;
+    }
+
+    @Override
+    public long getTickCount() {
+        return this.tickLatency.getCount();
+    }
+
+    @Override
+    public long getMinutesElapsed() {
+        return this.minutesElapsed.sum();
+    }
+
+    @Override
+    public long getItemsAdvanced() {
+        return this.itemsAdvanced.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The map is a snapshot, sorted by type name.
+     */
+    @Override
+    public Map<String, Long> getItemsAdvancedByType() {
+        Map<String, Long> counts = new TreeMap<>();
+        this.itemsByType.forEach((name, count) ->
+                counts.put(name, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public long getOverrunCount() {
+        return this.overruns.sum();
+    }
+
+    @Override
+    public double getTickMeanNanos() {
+        return this.tickLatency.getMeanNanos();
+    }
+
+    @Override
+    public long getTickP50Nanos() {
+        return this.tickLatency.getPercentileNanos(50);
+    }
+
+    @Override
+    public long getTickP99Nanos() {
+        return this.tickLatency.getPercentileNanos(99);
+    }
+
+    @Override
+    public long getTickP999Nanos() {
+        return this.tickLatency.getPercentileNanos(99.9);
+    }
+
+    @Override
+    public long getTickMaxNanos() {
+        return this.tickLatency.getMaxNanos();
+    }
+
+    @Override
+    public long getFireDrillCount() {
+        return this.fireDrillLatency.getCount();
+    }
+
+    @Override
+    public double getFireDrillMeanNanos() {
+        return this.fireDrillLatency.getMeanNanos();
+    }
+
+    @Override
+    public long getFireDrillP99Nanos() {
+        return this.fireDrillLatency.getPercentileNanos(99);
+    }
+
+    @Override
+    public long getFireDrillMaxNanos() {
+        return this.fireDrillLatency.getMaxNanos();
+    }
+
+    @Override
+    public long getFireDrillCancellationCount() {
+        return this.fireDrillCancellationLatency.getCount();
+    }
+
+    @Override
+    public double getFireDrillCancellationMeanNanos() {
+        return this.fireDrillCancellationLatency.getMeanNanos();
+    }
+
+    @Override
+    public long getFireDrillCancellationP99Nanos() {
+        return this.fireDrillCancellationLatency.getPercentileNanos(99);
+    }
+
+    @Override
+    public long getFireDrillCancellationMaxNanos() {
+        return this.fireDrillCancellationLatency.getMaxNanos();
+    }
+
+    @Override
+    public long getHazardSweepCount() {
+        return this.hazardSweepLatency.getCount();
+    }
+
+    @Override
+    public double getHazardSweepMeanNanos() {
+        return this.hazardSweepLatency.getMeanNanos();
+    }
+
+    @Override
+    public long getHazardSweepP99Nanos() {
+        return this.hazardSweepLatency.getPercentileNanos(99);
+    }
+
+    @Override
+    public long getHazardSweepMaxNanos() {
+        return this.hazardSweepLatency.getMaxNanos();
+    }
+
+    @Override
+    public void reset() {
+        this.tickLatency.reset();
+        this.fireDrillLatency.reset();
+        this.fireDrillCancellationLatency.reset();
+        this.hazardSweepLatency.reset();
+        this.minutesElapsed.reset();
+        this.itemsAdvanced.reset();
+        this.overruns.reset();
+        this.itemsByType.clear();
+    }
+
+    /**
+     * Returns the human-readable string representation of the metrics.
+     * <p>
+     * The format of the string to return is
+     * "Metrics: enabled='enabled', ticks='tickCount',
+     * overruns='overrunCount', fireDrills='fireDrillCount',
+     * hazardSweeps='hazardSweepCount'"
+     * without the single quotes.
+     *
+     * @return string representation of the metrics
+     */
+    @Override
+    public String toString() {
+        return String.format("Metrics: enabled=%b, ticks=%d, overruns=%d, "
+                        + "fireDrills=%d, hazardSweeps=%d", this.enabled,
+                this.getTickCount(), this.getOverrunCount(),
+                this.getFireDrillCount(), this.getHazardSweepCount());
+    }
+
+    /**
+     * Returns the name the metrics are registered under.
+     *
+     * @return object name of the metrics
+     */
+    private static ObjectName objectName() {
+        try {
+            return new ObjectName(OBJECT_NAME);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The number of items of each type in an array of timed items, cached
+     * by a timed item manager between calls to
+     * {@link #recordTick(TimedItem[], long, long, TypeBreakdown)}.
+     */
+    public static final class TypeBreakdown {
+        /**
+         * Array the breakdown was calculated for. Only weakly referenced,
+         * so that managers with weak registrations are not prevented from
+         * releasing their items.
+         */
+        private final WeakReference<TimedItem[]> items;
+
+        /**
+         * Simple class names of the types of item.
+         */
+        private final String[] names;
+
+        /**
+         * Number of items of each type, in the same order as the names.
+         */
+        private final long[] counts;
+
+        /**
+         * Calculates the breakdown of the given items by type.
+         *
+         * @param items items to break down
+         */
+        private TypeBreakdown(TimedItem[] items) {
+            Map<Class<?>, Long> byClass = new LinkedHashMap<>();
+            for (TimedItem item : items) {
+                byClass.merge(item.getClass(), 1L, Long::sum);
+            }
+            this.items = new WeakReference<>(items);
+            this.names = new String[byClass.size()];
+            this.counts = new long[byClass.size()];
+            int i = 0;
+            for (Map.Entry<Class<?>, Long> entry : byClass.entrySet()) {
+                this.names[i] = entry.getKey().getSimpleName();
+                this.counts[i] = entry.getValue();
+                i++;
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package bms.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link Metrics}, through which the metrics can
+ * be read, and recording switched on and off, over JMX.
+ * <p>
+ * Latencies are reported in nanoseconds.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Returns whether metrics are being recorded.
+     *
+     * @return true if recording is enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Switches recording of metrics on or off. Metrics already recorded are
+     * kept.
+     *
+     * @param enabled true to record metrics
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns the tick latency above which a tick counts as an overrun.
+     *
+     * @return overrun threshold in nanoseconds
+     */
+    long getOverrunThresholdNanos();
+
+    /**
+     * Sets the tick latency above which a tick counts as an overrun.
+     *
+     * @param nanos overrun threshold in nanoseconds
+     * @throws IllegalArgumentException if nanos is &lt; 0
+     */
+    void setOverrunThresholdNanos(long nanos) throws IllegalArgumentException;
+
+    /**
+     * Returns the number of ticks recorded. Each call to
+     * {@link bms.util.TimedItemManager#elapseOneMinute()} or
+     * {@link bms.util.TimedItemManager#elapseMinutes(long)} counts as one
+     * tick, however many minutes it advances by.
+     *
+     * @return number of ticks
+     */
+    long getTickCount();
+
+    /**
+     * Returns the number of minutes advanced by the ticks recorded.
+     *
+     * @return number of minutes
+     */
+    long getMinutesElapsed();
+
+    /**
+     * Returns the number of timed items advanced by the ticks recorded,
+     * counting each item once per tick.
+     *
+     * @return number of items advanced
+     */
+    long getItemsAdvanced();
+
+    /**
+     * Returns the number of timed items advanced by the ticks recorded, by
+     * the simple class name of the item.
+     *
+     * @return items advanced by type
+     */
+    Map<String, Long> getItemsAdvancedByType();
+
+    /**
+     * Returns the number of ticks which took longer than the overrun
+     * threshold.
+     *
+     * @return number of overruns
+     */
+    long getOverrunCount();
+
+    /**
+     * Returns the mean tick latency.
+     *
+     * @return mean latency
+     */
+    double getTickMeanNanos();
+
+    /**
+     * Returns the median tick latency.
+     *
+     * @return 50th percentile latency
+     */
+    long getTickP50Nanos();
+
+    /**
+     * Returns the 99th percentile tick latency.
+     *
+     * @return 99th percentile latency
+     */
+    long getTickP99Nanos();
+
+    /**
+     * Returns the 99.9th percentile tick latency.
+     *
+     * @return 99.9th percentile latency
+     */
+    long getTickP999Nanos();
+
+    /**
+     * Returns the longest tick latency.
+     *
+     * @return maximum latency
+     */
+    long getTickMaxNanos();
+
+    /**
+     * Returns the number of fire drills recorded, including drills started
+     * asynchronously. Cancellations are recorded separately.
+     *
+     * @return number of fire drills
+     */
+    long getFireDrillCount();
+
+    /**
+     * Returns the mean fire drill latency.
+     *
+     * @return mean latency
+     */
+    double getFireDrillMeanNanos();
+
+    /**
+     * Returns the 99th percentile fire drill latency.
+     *
+     * @return 99th percentile latency
+     */
+    long getFireDrillP99Nanos();
+
+    /**
+     * Returns the longest fire drill latency.
+     *
+     * @return maximum latency
+     */
+    long getFireDrillMaxNanos();
+
+    /**
+     * Returns the number of cancellations of fire drills recorded,
+     * including cancellations made asynchronously.
+     *
+     * @return number of cancellations
+     */
+    long getFireDrillCancellationCount();
+
+    /**
+     * Returns the mean fire drill cancellation latency.
+     *
+     * @return mean latency
+     */
+    double getFireDrillCancellationMeanNanos();
+
+    /**
+     * Returns the 99th percentile fire drill cancellation latency.
+     *
+     * @return 99th percentile latency
+     */
+    long getFireDrillCancellationP99Nanos();
+
+    /**
+     * Returns the longest fire drill cancellation latency.
+     *
+     * @return maximum latency
+     */
+    long getFireDrillCancellationMaxNanos();
+
+    /**
+     * Returns the number of hazard sweeps recorded.
+     *
+     * @return number of hazard sweeps
+     */
+    long getHazardSweepCount();
+
+    /**
+     * Returns the mean hazard sweep latency.
+     *
+     * @return mean latency
+     */
+    double getHazardSweepMeanNanos();
+
+    /**
+     * Returns the 99th percentile hazard sweep latency.
+     *
+     * @return 99th percentile latency
+     */
+    long getHazardSweepP99Nanos();
+
+    /**
+     * Returns the longest hazard sweep latency.
+     *
+     * @return maximum latency
+     */
+    long getHazardSweepMaxNanos();
+
+    /**
+     * Discards every metric recorded so far.
+     */
+    void reset();
+}
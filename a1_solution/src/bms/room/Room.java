@@ -1,11 +1,17 @@
 package bms.room;
 
 import bms.exceptions.DuplicateSensorException;
+import bms.hazard.HazardRollup;
 import bms.sensors.Sensor;
+import bms.sensors.SensorKind;
+import bms.sensors.TimedHazardSensor;
+import bms.sensors.TimedSensor;
+import bms.util.TimedItemManager;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Represents a room on a floor of a building.
@@ -40,6 +46,18 @@ public class Room {
      */
     private List<Sensor> sensors;
 
+    /**
+     * Sensors of the built-in kinds located in the room, indexed by
+     * {@link SensorKind#ordinal()}. Empty slots are null.
+     */
+    private Sensor[] sensorSlots;
+
+    /**
+     * Unmodifiable view of {@link #sensors}, created once and shared by all
+     * callers of {@link #getSensorsView()}.
+     */
+    private List<Sensor> sensorsView;
+
     /**
      * Area of the room in square metres.
      */
@@ -53,9 +71,24 @@ public class Room {
     private static final int MIN_AREA = 5;
 
     /**
-     * Records whether there is currently a fire drill.
+     * Records whether there is currently a fire drill. Volatile so that a
+     * drill started or cancelled on another thread (see
+     * {@link bms.building.Building#fireDrillAsync(RoomType)}) is seen by
+     * every reader as soon as it has been set.
+     */
+    private volatile boolean fireDrill;
+
+    /**
+     * Timed item manager that timed sensors in this room are registered
+     * with, or null if the room has not been assigned a manager.
+     */
+    private TimedItemManager timedItemManager;
+
+    /**
+     * Roll-up of the hazard levels of the timed hazard sensors in this room,
+     * created on first use.
      */
-    private boolean fireDrill;
+    private HazardRollup hazardRollup;
 
     /**
      * Creates a new room with the given room number.
@@ -71,6 +104,8 @@ public class Room {
         this.area = area;
 
         this.sensors = new ArrayList<>();
+        this.sensorSlots = new Sensor[SensorKind.count()];
+        this.sensorsView = Collections.unmodifiableList(this.sensors);
         this.fireDrill = false;
     }
 
@@ -142,6 +177,41 @@ public class Room {
         return new ArrayList<>(this.sensors);
     }
 
+    /**
+     * Returns an unmodifiable, live view of the sensors in the room, in
+     * alphabetical order by the sensor's class name.
+     * <p>
+     * Unlike {@link #getSensors()}, no copy is made: the same view is
+     * returned on every call and reflects sensors added later.
+     *
+     * @return read-only view of all sensors in alphabetical order of class
+     * name
+     */
+    public List<Sensor> getSensorsView() {
+        return this.sensorsView;
+    }
+
+    /**
+     * Returns the number of sensors in the room.
+     *
+     * @return number of sensors
+     */
+    public int sensorCount() {
+        return this.sensors.size();
+    }
+
+    /**
+     * Performs the given action on each sensor in the room, in alphabetical
+     * order by the sensor's class name.
+     *
+     * @param action action to perform on each sensor
+     */
+    public void forEachSensor(Consumer<? super Sensor> action) {
+        for (Sensor s : this.sensors) {
+            action.accept(s);
+        }
+    }
+
     /**
      * Change the status of the fire drill to the given value.
      *
@@ -152,6 +222,74 @@ public class Room {
         this.fireDrill = fireDrill;
     }
 
+    /**
+     * Returns the timed item manager assigned to this room.
+     *
+     * @return the room's timed item manager; null if none has been assigned
+     */
+    public TimedItemManager getTimedItemManager() {
+        return timedItemManager;
+    }
+
+    /**
+     * Assigns a timed item manager to this room.
+     * <p>
+     * All timed sensors currently in the room, and any added to it later,
+     * are moved to the given manager (see
+     * {@link TimedSensor#setTimedItemManager(TimedItemManager)}).
+     *
+     * @param timedItemManager manager to register the room's sensors with
+     * @throws IllegalArgumentException if timedItemManager is null
+     */
+    public void setTimedItemManager(TimedItemManager timedItemManager)
+            throws IllegalArgumentException {
+        if (timedItemManager == null) {
+            throw new IllegalArgumentException(
+                    "Timed item manager must not be null");
+        }
+        this.timedItemManager = timedItemManager;
+        for (Sensor s : this.sensors) {
+            if (s instanceof TimedSensor) {
+                ((TimedSensor) s).setTimedItemManager(timedItemManager);
+            }
+        }
+    }
+
+    /**
+     * Stops the timed sensors in this room from being advanced (see
+     * {@link TimedSensor#release()}), so that their timed item manager no
+     * longer references them.
+     * <p>
+     * The sensors are registered again the next time a timed item manager
+     * is assigned to this room, such as when the room is added to a floor
+     * of a building, or when {@link #restoreTimedSensors()} is called.
+     */
+    public void releaseTimedSensors() {
+        for (Sensor s : this.sensors) {
+            if (s instanceof TimedSensor) {
+                ((TimedSensor) s).release();
+            }
+        }
+    }
+
+    /**
+     * Registers the timed sensors in this room which have been released
+     * (see {@link #releaseTimedSensors()}) with their timed item manager
+     * again, so that they resume being advanced.
+     * <p>
+     * Sensors which have not been released are unaffected.
+     */
+    public void restoreTimedSensors() {
+        for (Sensor s : this.sensors) {
+            if (s instanceof TimedSensor) {
+                TimedSensor sensor = (TimedSensor) s;
+                if (sensor.isReleased()) {
+                    sensor.setTimedItemManager(sensor.getTimedItemManager());
+                }
+            }
+        }
+    }
+
     /**
      * Return the given type of sensor if there is one in the list of sensors;
      * return null otherwise.
@@ -163,7 +301,11 @@ public class Room {
      * @ass1
      */
     public Sensor getSensor(String sensorType) {
-        for (Sensor s : this.getSensors()) {
+        SensorKind kind = SensorKind.forSimpleName(sensorType);
+        if (kind != null && this.sensorSlots[kind.ordinal()] != null) {
+            return this.sensorSlots[kind.ordinal()];
+        }
+        for (Sensor s : this.sensors) {
             if (s.getClass().getSimpleName().equals(sensorType)) {
                 return s;
             }
@@ -171,12 +313,51 @@ public class Room {
         return null;
     }
 
+    /**
+     * Returns the sensor of the given kind if there is one in the room;
+     * returns null otherwise.
+     *
+     * @param kind the kind of sensor to return
+     * @return the sensor in this room of the given kind; null if none found
+     */
+    public Sensor getSensor(SensorKind kind) {
+        return this.sensorSlots[kind.ordinal()];
+    }
+
+    /**
+     * Returns the sensor of exactly the given class if there is one in the
+     * room; returns null otherwise.
+     * <p>
+     * Sensors of the built-in kinds are found in constant time without
+     * allocating; other sensor classes are found by searching the room's
+     * sensors.
+     *
+     * @param sensorType the class of sensor to return
+     * @param <T> type of sensor to return
+     * @return the sensor in this room of the given class; null if none found
+     */
+    public <T extends Sensor> T getSensor(Class<T> sensorType) {
+        SensorKind kind = SensorKind.of(sensorType);
+        if (kind != null) {
+            return sensorType.cast(this.sensorSlots[kind.ordinal()]);
+        }
+        for (Sensor s : this.sensors) {
+            if (s.getClass() == sensorType) {
+                return sensorType.cast(s);
+            }
+        }
+        return null;
+    }
+
     /**
      * Adds a sensor to the room if a sensor of the same type is not
      * already in the room.
      * <p>
      * The list of sensors should be sorted after adding the new sensor, in
      * alphabetical order by simple class name ({@link Class#getSimpleName()}).
+     * <p>
+     * If the room has been assigned a timed item manager and the sensor is a
+     * timed sensor, the sensor is moved to the room's manager.
      *
      * @param sensor the sensor to add to the room
      * @throws DuplicateSensorException if the sensor to add is of the
@@ -185,15 +366,76 @@ public class Room {
      */
     public void addSensor(Sensor sensor)
             throws DuplicateSensorException {
-        for (Sensor s : sensors) {
-            if (s.getClass().equals(sensor.getClass())) {
-                throw new DuplicateSensorException(
-                        "Duplicate sensor of type: "
-                                + s.getClass().getSimpleName());
+        if (this.getSensor(sensor.getClass()) != null) {
+            throw new DuplicateSensorException(
+                    "Duplicate sensor of type: "
+                            + sensor.getClass().getSimpleName());
+        }
+
+        // insert after any sensors whose class name sorts before or equal to
+        // the new sensor's, keeping the list in alphabetical order
+        String name = sensor.getClass().getSimpleName();
+        int index = 0;
+        while (index < sensors.size() && sensors.get(index).getClass()
+                .getSimpleName().compareTo(name) <= 0) {
+            index++;
+        }
+        sensors.add(index, sensor);
+
+        SensorKind kind = SensorKind.of(sensor.getClass());
+        if (kind != null) {
+            this.sensorSlots[kind.ordinal()] = sensor;
+        }
+        if (this.timedItemManager != null && sensor instanceof TimedSensor) {
+            ((TimedSensor) sensor).setTimedItemManager(this.timedItemManager);
+        }
+        synchronized (this) {
+            if (this.hazardRollup != null) {
+                this.rollUp(sensor);
+            }
+        }
+    }
+
+    /**
+     * Returns the roll-up of the hazard levels of the timed hazard sensors
+     * in this room.
+     * <p>
+     * The same roll-up is returned on every call. It is created on first
+     * use, after which it is updated whenever the current reading of one of
+     * the sensors changes (see
+     * {@link TimedHazardSensor#setHazardRollup(HazardRollup)}), so it can be
+     * queried in constant time. Hazard sensors which are not timed hazard
+     * sensors are not included.
+     * <p>
+     * The roll-up is also kept up to date while the sensors' timed item
+     * manager is in {@link bms.util.TickMode#LAZY} mode: sensors included in
+     * a roll-up are caught up on the minutes their readings change, as in
+     * {@link bms.util.TickMode#EVENT} mode.
+     * <p>
+     * Each floor's roll-up includes the roll-ups of its rooms.
+     *
+     * @return hazard roll-up for this room
+     */
+    public synchronized HazardRollup getHazardRollup() {
+        if (this.hazardRollup == null) {
+            this.hazardRollup = new HazardRollup();
+            for (Sensor sensor : this.sensors) {
+                this.rollUp(sensor);
             }
         }
-        sensors.add(sensor);
-        sensors.sort(Comparator.comparing(s -> s.getClass().getSimpleName()));
+        return this.hazardRollup;
+    }
+
+    /**
+     * Includes the given sensor in this room's hazard roll-up if it is a
+     * timed hazard sensor.
+     *
+     * @param sensor sensor in this room
+     */
+    private void rollUp(Sensor sensor) {
+        if (sensor instanceof TimedHazardSensor) {
+            ((TimedHazardSensor) sensor).setHazardRollup(this.hazardRollup);
+        }
     }
 
     /**
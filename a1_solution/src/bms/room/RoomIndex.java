@@ -0,0 +1,208 @@
+package bms.room;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * An index of a group of rooms by {@link RoomType}, so that the rooms of one
+ * type can be visited without looking at the rooms of any other type.
+ * <p>
+ * Indexes form a tree that mirrors the building: the index of each floor is
+ * attached to the index of its building. Rooms added to or removed from an
+ * index are also added to or removed from its ancestors, so every index
+ * stays complete without being rebuilt, and the number of rooms it contains
+ * is always known.
+ * <p>
+ * Adding and removing a room take constant time at each level of the tree.
+ * Rooms of the same type are not visited in any particular order.
+ */
+public class RoomIndex {
+
+    /**
+     * Rooms in the index, by type. Rooms without a type are stored in
+     * {@link #untypedRooms} instead.
+     */
+    private final Map<RoomType, List<Room>> roomsByType;
+
+    /**
+     * Rooms in the index whose type is null.
+     */
+    private final List<Room> untypedRooms;
+
+    /**
+     * Position of each room in the index within the list of rooms of its
+     * type, so that it can be removed without searching the list.
+     */
+    private final Map<Room, Integer> positions;
+
+    /**
+     * Total number of rooms in the index.
+     */
+    private int roomCount;
+
+    /**
+     * Index that this index's rooms are also included in, or null if this
+     * index has not been attached to a parent.
+     */
+    private RoomIndex parent;
+
+    /**
+     * Creates a new index with no rooms.
+     */
+    public RoomIndex() {
+        this.roomsByType = new EnumMap<>(RoomType.class);
+        for (RoomType type : RoomType.values()) {
+            this.roomsByType.put(type, new ArrayList<>());
+        }
+        this.untypedRooms = new ArrayList<>();
+        this.positions = new IdentityHashMap<>();
+    }
+
+    /**
+     * Returns the total number of rooms in this index.
+     *
+     * @return number of rooms
+     */
+    public synchronized int roomCount() {
+        return this.roomCount;
+    }
+
+    /**
+     * Returns the number of rooms of the given type in this index.
+     *
+     * @param roomType type of room to count; null to count all rooms
+     * @return number of rooms of the given type
+     */
+    public synchronized int roomCount(RoomType roomType) {
+        return roomType == null
+                ? this.roomCount : this.roomsByType.get(roomType).size();
+    }
+
+    /**
+     * Performs the given action on each room of the given type in this
+     * index. Rooms of other types are not visited.
+     *
+     * @param roomType type of room to visit; null to visit all rooms
+     * @param action action to perform on each room
+     */
+    public synchronized void forEachRoom(RoomType roomType,
+                                         Consumer<? super Room> action) {
+        if (roomType != null) {
+            this.roomsByType.get(roomType).forEach(action);
+            return;
+        }
+        for (List<Room> rooms : this.roomsByType.values()) {
+            rooms.forEach(action);
+        }
+        this.untypedRooms.forEach(action);
+    }
+
+    /**
+     * Returns the index that this index has been attached to.
+     *
+     * @return parent index; null if not attached
+     */
+    public synchronized RoomIndex getParent() {
+        return this.parent;
+    }
+
+    /**
+     * Adds a room to this index and its ancestors.
+     *
+     * @param room room to add
+     */
+    public synchronized void add(Room room) {
+        List<Room> rooms = this.roomsOf(room);
+        this.positions.put(room, rooms.size());
+        rooms.add(room);
+        this.roomCount++;
+        if (this.parent != null) {
+            this.parent.add(room);
+        }
+    }
+
+    /**
+     * Removes a room from this index and its ancestors.
+     *
+     * @param room room to remove
+     * @return true if the room was in this index; false otherwise
+     */
+    public synchronized boolean remove(Room room) {
+        Integer position = this.positions.remove(room);
+        if (position == null) {
+            return false;
+        }
+        // move the last room of the same type into the removed room's place
+        List<Room> rooms = this.roomsOf(room);
+        Room last = rooms.remove(rooms.size() - 1);
+        if (last != room) {
+            rooms.set(position, last);
+            this.positions.put(last, position);
+        }
+        this.roomCount--;
+        if (this.parent != null) {
+            this.parent.remove(room);
+        }
+        return true;
+    }
+
+    /**
+     * Attaches this index to the given parent, so that the parent and its
+     * ancestors include every room in this index, both now and as rooms are
+     * added and removed.
+     * <p>
+     * If this index was attached to another parent, it is detached from
+     * that parent first.
+     *
+     * @param parent index to attach to
+     * @throws IllegalArgumentException if parent is null, or is this index
+     * or one of its descendants
+     */
+    public synchronized void attachTo(RoomIndex parent)
+            throws IllegalArgumentException {
+        if (parent == null) {
+            throw new IllegalArgumentException("Parent must not be null");
+        }
+        for (RoomIndex ancestor = parent; ancestor != null;
+                ancestor = ancestor.getParent()) {
+            if (ancestor == this) {
+                throw new IllegalArgumentException(
+                        "Room index cannot be attached to itself");
+            }
+        }
+        if (this.parent == parent) {
+            return;
+        }
+        this.detach();
+        this.parent = parent;
+        this.forEachRoom(null, parent::add);
+    }
+
+    /**
+     * Detaches this index from its parent, removing its rooms from the
+     * parent and the parent's ancestors.
+     * <p>
+     * Does nothing if this index is not attached.
+     */
+    public synchronized void detach() {
+        if (this.parent != null) {
+            this.forEachRoom(null, this.parent::remove);
+            this.parent = null;
+        }
+    }
+
+    /**
+     * Returns the list that the given room is stored in.
+     *
+     * @param room room to look up
+     * @return list of rooms with the same type as the given room
+     */
+    private List<Room> roomsOf(Room room) {
+        return room.getType() == null
+                ? this.untypedRooms : this.roomsByType.get(room.getType());
+    }
+}
@@ -5,7 +5,8 @@ package bms.sensors;
  * per million (ppm).
  * @ass1
  */
-public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
+public class CarbonDioxideSensor extends TimedHazardSensor
+        implements HazardSensor {
 
     /**
      * The ideal value for this sensor, where the comfort level is highest.
@@ -102,25 +103,66 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
      * <td>Headaches, sleepiness, loss of concentration</td></tr>
      * <tr><td>5000+</td><td>100</td><td>Oxygen deprivation</td></tr>
      * </table>
+     * <p>
+     * If the sensor's hazard schedule has been precomputed, the hazard level
+     * is looked up in it instead.
      *
      * @return the current hazard level as an integer between 0 and 100
      * @ass1
      */
     @Override
     public int getHazardLevel() {
-        final int currentReading = this.getCurrentReading();
-        if (currentReading < 1000) {
+        if (this.hasHazardSchedule()) {
+            return this.scheduledHazardLevel();
+        }
+        return this.hazardLevelFor(this.getCurrentReading());
+    }
+
+    /**
+     * Returns the hazard level for the given CO2 reading, as described in
+     * {@link #getHazardLevel()}.
+     *
+     * @param reading CO2 reading in ppm
+     * @return hazard level for that reading, 0 to 100
+     */
+    @Override
+    protected int hazardLevelFor(int reading) {
+        if (reading < 1000) {
             return 0;
         }
-        if (currentReading < 2000) {
+        if (reading < 2000) {
             return 25;
         }
-        if (currentReading < 5000) {
+        if (reading < 5000) {
             return 50;
         }
         return 100;
     }
 
+    /**
+     * Computes the hazard levels of many CO2 readings at once.
+     * <p>
+     * {@code levels[i]} is set to the hazard level a CO2 sensor would report
+     * with a current reading of {@code readings[i]}, as described in
+     * {@link #getHazardLevel()}, for each i less than count.
+     *
+     * @param readings CO2 readings in ppm
+     * @param levels array to store the hazard levels in
+     * @param count number of readings to compute hazard levels for
+     * @throws IllegalArgumentException if count is &lt; 0, or if either
+     * array is null or shorter than count
+     */
+    public static void hazardLevels(int[] readings, int[] levels, int count)
+            throws IllegalArgumentException {
+        checkBatch(count, readings, levels);
+        for (int i = 0; i < count; i++) {
+            final int reading = readings[i];
+            levels[i] = (reading >= 1000 ? 25 : 0)
+                    + (reading >= 2000 ? 25 : 0)
+                    + (reading >= 5000 ? 50 : 0);
+        }
+    }
+
     /**
      * Returns the human-readable string representation of this CO2 sensor.
      * <p>
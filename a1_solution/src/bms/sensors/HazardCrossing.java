@@ -0,0 +1,107 @@
+package bms.sensors;
+
+/**
+ * A timed hazard sensor's hazard level crossing a threshold, either rising
+ * to or above it, or falling back below it.
+ */
+public class HazardCrossing {
+
+    /**
+     * Sensor whose hazard level crossed the threshold.
+     */
+    private final TimedSensor sensor;
+
+    /**
+     * Threshold crossed.
+     */
+    private final int threshold;
+
+    /**
+     * Hazard level before the crossing.
+     */
+    private final int previousLevel;
+
+    /**
+     * Hazard level after the crossing.
+     */
+    private final int currentLevel;
+
+    /**
+     * Creates a new hazard threshold crossing.
+     *
+     * @param sensor sensor whose hazard level crossed the threshold
+     * @param threshold threshold crossed
+     * @param previousLevel hazard level before the crossing
+     * @param currentLevel hazard level after the crossing
+     */
+    public HazardCrossing(TimedSensor sensor, int threshold,
+                          int previousLevel, int currentLevel) {
+        this.sensor = sensor;
+        this.threshold = threshold;
+        this.previousLevel = previousLevel;
+        this.currentLevel = currentLevel;
+    }
+
+    /**
+     * Returns the sensor whose hazard level crossed the threshold.
+     *
+     * @return hazard sensor
+     */
+    public TimedSensor getSensor() {
+        return sensor;
+    }
+
+    /**
+     * Returns the threshold crossed.
+     *
+     * @return hazard level threshold
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns the sensor's hazard level before the crossing.
+     *
+     * @return previous hazard level
+     */
+    public int getPreviousLevel() {
+        return previousLevel;
+    }
+
+    /**
+     * Returns the sensor's hazard level after the crossing.
+     *
+     * @return new hazard level
+     */
+    public int getCurrentLevel() {
+        return currentLevel;
+    }
+
+    /**
+     * Returns whether the hazard level rose to or above the threshold, as
+     * opposed to falling below it.
+     *
+     * @return true if the threshold has been reached; false if the hazard
+     * level has fallen back below it
+     */
+    public boolean isRising() {
+        return currentLevel >= threshold;
+    }
+
+    /**
+     * Returns the human-readable string representation of this crossing.
+     * <p>
+     * The format of the string to return is
+     * "HazardCrossing: threshold='threshold', 'previousLevel' -&gt;
+     * 'currentLevel'"
+     * without the single quotes.
+     *
+     * @return string representation of this crossing
+     */
+    @Override
+    public String toString() {
+        return String.format("HazardCrossing: threshold=%d, %d -> %d",
+                this.threshold, this.previousLevel, this.currentLevel);
+    }
+}
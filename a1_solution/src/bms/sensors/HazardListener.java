@@ -0,0 +1,23 @@
+package bms.sensors;
+
+import java.util.List;
+
+/**
+ * A listener notified when the hazard level of a timed hazard sensor rises
+ * to or above, or falls back below, a threshold.
+ * <p>
+ * Crossings are collected while a timed item manager ticks and delivered in
+ * a single call once the tick has completed. See
+ * {@link TimedHazardSensor#addHazardListener(HazardListener, int)}.
+ */
+@FunctionalInterface
+public interface HazardListener {
+
+    /**
+     * Called at the end of a tick with every threshold crossing of the
+     * sensors this listener was added to.
+     *
+     * @param crossings threshold crossings, in the order they happened
+     */
+    void hazardThresholdsCrossed(List<HazardCrossing> crossings);
+}
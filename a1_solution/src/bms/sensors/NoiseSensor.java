@@ -4,7 +4,7 @@ package bms.sensors;
  * A sensor that measures the noise levels in a room.
  * @ass1
  */
-public class NoiseSensor extends TimedSensor implements HazardSensor {
+public class NoiseSensor extends TimedHazardSensor implements HazardSensor {
 
     /**
      * Threshold sound level for evaluating hazard and comfort levels.
@@ -13,6 +13,51 @@ public class NoiseSensor extends TimedSensor implements HazardSensor {
      */
     private static final int referenceDB = 70;
 
+    /**
+     * Number of readings (from 0dB upwards) whose relative loudness and
+     * hazard level are precomputed. Louder readings are calculated when
+     * needed.
+     */
+    private static final int TABLE_SIZE = 256;
+
+    /**
+     * Relative loudness of each reading below {@link #TABLE_SIZE}, indexed by
+     * reading.
+     */
+    private static final double[] RELATIVE_LOUDNESS = new double[TABLE_SIZE];
+
+    /**
+     * Hazard level of each reading below {@link #TABLE_SIZE}, indexed by
+     * reading.
+     */
+    private static final int[] HAZARD_LEVELS = new int[TABLE_SIZE];
+
+    /**
+     * Whether each class of noise sensor overrides
+     * {@link #calculateRelativeLoudness()}, in which case its hazard levels
+     * cannot be looked up in {@link #HAZARD_LEVELS}.
+     */
+    private static final ClassValue<Boolean> OVERRIDES_LOUDNESS =
+            new ClassValue<>() {
+                @Override
+                protected Boolean computeValue(Class<?> type) {
+                    try {
+                        return type.getMethod("calculateRelativeLoudness")
+                                .getDeclaringClass() != NoiseSensor.class;
+                    } catch (NoSuchMethodException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+
+    static {
+        for (int reading = 0; reading < TABLE_SIZE; reading++) {
+            RELATIVE_LOUDNESS[reading] = relativeLoudness(reading);
+            HAZARD_LEVELS[reading] =
+                    hazardLevel(RELATIVE_LOUDNESS[reading]);
+        }
+    }
+
     /**
      * Creates a new noise sensor with the given sensor readings and update
      * frequency.
@@ -43,12 +88,26 @@ public class NoiseSensor extends TimedSensor implements HazardSensor {
      * http://www.sengpielaudio.com/calculator-levelchange.htm
      * https://www.iacacoustics.com/blog-full/comparative-examples-of-noise-levels.html
      * https://www.safeworkaustralia.gov.au/noise
+     * <p>
+     * The relative loudness of readings up to 255dB is looked up in a table
+     * precomputed with this formula.
+     * <p>
+     * Subclasses may override this method. The hazard levels of a sensor
+     * whose class overrides it are then always calculated from this method,
+     * never from the precomputed table, so they cannot be derived from a
+     * reading alone: {@link #hazardLevelFor(int)}, and therefore
+     * {@link #precomputeHazardSchedule()}, throw
+     * {@link UnsupportedOperationException} for such a sensor.
      *
      * @return relative loudness of current reading to 70dB
      * @ass1
      */
     public double calculateRelativeLoudness() {
-        return Math.pow(2, (this.getCurrentReading() - referenceDB) / 10.0);
+        final int currentReading = this.getCurrentReading();
+        if (currentReading >= 0 && currentReading < TABLE_SIZE) {
+            return RELATIVE_LOUDNESS[currentReading];
+        }
+        return relativeLoudness(currentReading);
     }
 
     /**
@@ -67,11 +126,105 @@ public class NoiseSensor extends TimedSensor implements HazardSensor {
      * For example, if {@link #calculateRelativeLoudness()} returns 0.8968 then
      * 89 must be returned. If {@link #calculateRelativeLoudness()} returns
      * 1.7646 then 100 must be returned.
+     * <p>
+     * If the sensor's hazard schedule has been precomputed, the hazard level
+     * is looked up in it instead; if {@link #calculateRelativeLoudness()} is
+     * not overridden, it is looked up in a precomputed table.
      * @ass1
      */
     @Override
     public int getHazardLevel() {
-        double relativeLoudnessMult100 = this.calculateRelativeLoudness() * 100;
+        if (this.hasHazardSchedule()) {
+            return this.scheduledHazardLevel();
+        }
+        if (!this.overridesLoudness()) {
+            final int currentReading = this.getCurrentReading();
+            if (currentReading >= 0 && currentReading < TABLE_SIZE) {
+                return HAZARD_LEVELS[currentReading];
+            }
+        }
+        return hazardLevel(this.calculateRelativeLoudness());
+    }
+
+    /**
+     * Returns the hazard level for the given noise reading, as described in
+     * {@link #getHazardLevel()}.
+     *
+     * @param reading noise reading in decibels
+     * @return hazard level for that reading, 0 to 100
+     * @throws UnsupportedOperationException if this sensor's class overrides
+     * {@link #calculateRelativeLoudness()}
+     */
+    @Override
+    protected int hazardLevelFor(int reading)
+            throws UnsupportedOperationException {
+        if (this.overridesLoudness()) {
+            throw new UnsupportedOperationException("Hazard level of a noise "
+                    + "sensor which overrides calculateRelativeLoudness() "
+                    + "depends on more than its reading");
+        }
+        if (reading >= 0 && reading < TABLE_SIZE) {
+            return HAZARD_LEVELS[reading];
+        }
+        return hazardLevel(relativeLoudness(reading));
+    }
+
+    /**
+     * Computes the hazard levels of many noise readings at once.
+     * <p>
+     * {@code levels[i]} is set to the hazard level a noise sensor would
+     * report with a current reading of {@code readings[i]}, as described in
+     * {@link #getHazardLevel()}, for each i less than count. Levels are
+     * looked up in a table computed once, so no powers are calculated.
+     *
+     * @param readings noise readings in decibels
+     * @param levels array to store the hazard levels in
+     * @param count number of readings to compute hazard levels for
+     * @throws IllegalArgumentException if count is &lt; 0, or if either
+     * array is null or shorter than count
+     */
+    public static void hazardLevels(int[] readings, int[] levels, int count)
+            throws IllegalArgumentException {
+        checkBatch(count, readings, levels);
+        for (int i = 0; i < count; i++) {
+            final int reading = readings[i];
+            // readings outside the table are either quieter than 0dB, which
+            // rounds down to a hazard level of 0, or louder than 70dB
+            levels[i] = reading >= TABLE_SIZE ? 100
+                    : reading < 0 ? 0 : HAZARD_LEVELS[reading];
+        }
+    }
+
+    /**
+     * Returns whether this sensor's class overrides
+     * {@link #calculateRelativeLoudness()}.
+     *
+     * @return true if the relative loudness is not calculated by this class
+     */
+    private boolean overridesLoudness() {
+        return OVERRIDES_LOUDNESS.get(this.getClass());
+    }
+
+    /**
+     * Calculates the relative loudness of the given reading compared to
+     * {@link #referenceDB}.
+     *
+     * @param reading noise reading in decibels
+     * @return relative loudness of the reading
+     */
+    private static double relativeLoudness(int reading) {
+        return Math.pow(2, (reading - referenceDB) / 10.0);
+    }
+
+    /**
+     * Converts a relative loudness into a hazard level.
+     *
+     * @param relativeLoudness relative loudness compared to
+     *                         {@link #referenceDB}
+     * @return hazard level, 0 to 100
+     */
+    private static int hazardLevel(double relativeLoudness) {
+        double relativeLoudnessMult100 = relativeLoudness * 100;
         return (int) Math.min(Math.floor(relativeLoudnessMult100), 100);
     }
 
@@ -4,7 +4,7 @@ package bms.sensors;
  * A sensor that measures the number of people in a room.
  * @ass1
  */
-public class OccupancySensor extends TimedSensor implements HazardSensor {
+public class OccupancySensor extends TimedHazardSensor implements HazardSensor {
     /**
      * Maximum capacity of the space the sensor is monitoring.
      */
@@ -59,22 +59,67 @@ public class OccupancySensor extends TimedSensor implements HazardSensor {
      * Floating point division should be used when performing the calculation,
      * however the resulting floating point number should be <i>rounded to the
      * nearest integer</i> before being returned.
+     * <p>
+     * If the sensor's hazard schedule has been precomputed, the hazard level
+     * is looked up in it instead.
      *
      * @return the current hazard level as an integer between 0 and 100
      * @ass1
      */
     @Override
     public int getHazardLevel() {
-        final int currentReading = this.getCurrentReading();
+        if (this.hasHazardSchedule()) {
+            return this.scheduledHazardLevel();
+        }
+        return this.hazardLevelFor(this.getCurrentReading());
+    }
 
-        if (currentReading >= this.capacity) {
+    /**
+     * Returns the hazard level for the given occupancy reading, as described
+     * in {@link #getHazardLevel()}.
+     *
+     * @param reading occupancy reading
+     * @return hazard level for that reading, 0 to 100
+     */
+    @Override
+    protected int hazardLevelFor(int reading) {
+        if (reading >= this.capacity) {
             return 100;
         }
-        double occupancyRatio = ((double) currentReading) / this.capacity;
+        double occupancyRatio = ((double) reading) / this.capacity;
         double occupancyPct = 100 * occupancyRatio;
         return (int) Math.round(occupancyPct);
     }
 
+    /**
+     * Computes the hazard levels of many occupancy readings at once.
+     * <p>
+     * {@code levels[i]} is set to the hazard level an occupancy sensor with a
+     * capacity of {@code capacities[i]} would report with a current reading
+     * of {@code readings[i]}, as described in {@link #getHazardLevel()}, for
+     * each i less than count.
+     *
+     * @param readings occupancy readings
+     * @param capacities capacity of the sensor each reading was taken by
+     * @param levels array to store the hazard levels in
+     * @param count number of readings to compute hazard levels for
+     * @throws IllegalArgumentException if count is &lt; 0, or if any array is
+     * null or shorter than count
+     */
+    public static void hazardLevels(int[] readings, int[] capacities,
+                                    int[] levels, int count)
+            throws IllegalArgumentException {
+        checkBatch(count, readings, capacities, levels);
+        for (int i = 0; i < count; i++) {
+            final int reading = readings[i];
+            final int capacity = capacities[i];
+            // same floating point calculation as getHazardLevel(), so the
+            // rounding of exact halves matches
+            levels[i] = reading >= capacity ? 100
+                    : (int) Math.round(100 * ((double) reading / capacity));
+        }
+    }
+
     /**
      * Returns the human-readable string representation of this occupancy
      * sensor.
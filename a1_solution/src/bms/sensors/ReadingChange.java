@@ -0,0 +1,96 @@
+package bms.sensors;
+
+/**
+ * A change in the current reading of a timed sensor.
+ */
+public class ReadingChange {
+
+    /**
+     * Sensor whose reading changed.
+     */
+    private final TimedSensor sensor;
+
+    /**
+     * Current reading before the change.
+     */
+    private final int previousReading;
+
+    /**
+     * Current reading after the change.
+     */
+    private final int currentReading;
+
+    /**
+     * Time elapsed of the sensor when the change was observed.
+     */
+    private final int timeElapsed;
+
+    /**
+     * Creates a new reading change.
+     *
+     * @param sensor sensor whose reading changed
+     * @param previousReading current reading before the change
+     * @param currentReading current reading after the change
+     * @param timeElapsed time elapsed of the sensor when the change was
+     *                    observed, in minutes
+     */
+    public ReadingChange(TimedSensor sensor, int previousReading,
+                         int currentReading, int timeElapsed) {
+        this.sensor = sensor;
+        this.previousReading = previousReading;
+        this.currentReading = currentReading;
+        this.timeElapsed = timeElapsed;
+    }
+
+    /**
+     * Returns the sensor whose reading changed.
+     *
+     * @return changed sensor
+     */
+    public TimedSensor getSensor() {
+        return sensor;
+    }
+
+    /**
+     * Returns the sensor's current reading before the change.
+     *
+     * @return previous reading
+     */
+    public int getPreviousReading() {
+        return previousReading;
+    }
+
+    /**
+     * Returns the sensor's current reading after the change.
+     *
+     * @return new reading
+     */
+    public int getCurrentReading() {
+        return currentReading;
+    }
+
+    /**
+     * Returns the sensor's time elapsed when the change was observed.
+     *
+     * @return time elapsed in minutes
+     */
+    public int getTimeElapsed() {
+        return timeElapsed;
+    }
+
+    /**
+     * Returns the human-readable string representation of this change.
+     * <p>
+     * The format of the string to return is
+     * "ReadingChange: 'previousReading' -&gt; 'currentReading' at
+     * 'timeElapsed' min"
+     * without the single quotes.
+     *
+     * @return string representation of this change
+     */
+    @Override
+    public String toString() {
+        return String.format("ReadingChange: %d -> %d at %d min",
+                this.previousReading, this.currentReading, this.timeElapsed);
+    }
+}
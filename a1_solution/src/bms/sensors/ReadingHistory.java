@@ -0,0 +1,391 @@
+package bms.sensors;
+
+/**
+ * A fixed-capacity history of the readings observed by a timed sensor, one
+ * per minute of the sensor's time elapsed, with statistics over the most
+ * recent minutes.
+ * <p>
+ * The history holds the readings of the last {@link #getCapacity()} minutes
+ * in a ring buffer of primitives. Since a sensor's reading at any time is
+ * determined by its readings array, the history does not need to be updated
+ * as the sensor is advanced: it catches up with the sensor's time elapsed
+ * whenever it is queried, recording at most one capacity's worth of
+ * readings, so keeping a history adds no cost to a tick in any
+ * {@link bms.util.TickMode}.
+ * <p>
+ * Running prefix sums give the sum and mean of any window in constant time,
+ * and monotonic queues of the readings give the minimum and maximum of the
+ * whole history in constant time, or of a shorter window in time
+ * logarithmic in the capacity. Recording a reading takes amortised constant
+ * time.
+ * <p>
+ * See {@link TimedSensor#enableReadingHistory(int)}.
+ */
+public class ReadingHistory {
+
+    /**
+     * Sensor whose readings are recorded.
+     */
+    private final TimedSensor sensor;
+
+    /**
+     * Maximum number of readings held.
+     */
+    private final int capacity;
+
+    /**
+     * Recorded readings, the reading with sequence number k being held at
+     * index k % capacity.
+     */
+    private final int[] readings;
+
+    /**
+     * Running sums of the recorded readings, the sum of the readings before
+     * sequence number k being held at index k % (capacity + 1).
+     */
+    private final long[] prefixSums;
+
+    /**
+     * Sequence numbers of the readings that are smaller than every later
+     * reading, oldest first, as a ring buffer.
+     */
+    private final long[] minQueue;
+
+    /**
+     * Sequence numbers of the readings that are larger than every later
+     * reading, oldest first, as a ring buffer.
+     */
+    private final long[] maxQueue;
+
+    /**
+     * Index of the oldest entry in {@link #minQueue}.
+     */
+    private int minHead;
+
+    /**
+     * Number of entries in {@link #minQueue}.
+     */
+    private int minSize;
+
+    /**
+     * Index of the oldest entry in {@link #maxQueue}.
+     */
+    private int maxHead;
+
+    /**
+     * Number of entries in {@link #maxQueue}.
+     */
+    private int maxSize;
+
+    /**
+     * Number of readings recorded since the history was last cleared; the
+     * sequence number of the next reading.
+     */
+    private long recordedCount;
+
+    /**
+     * Time elapsed of the sensor when the most recent reading was observed.
+     */
+    private long latestTime;
+
+    /**
+     * Creates a new history for the given sensor, holding the sensor's
+     * current reading.
+     *
+     * @param sensor sensor whose readings are recorded
+     * @param capacity maximum number of readings held
+     */
+    ReadingHistory(TimedSensor sensor, int capacity) {
+        this.sensor = sensor;
+        this.capacity = capacity;
+        this.readings = new int[capacity];
+        this.prefixSums = new long[capacity + 1];
+        this.minQueue = new long[capacity];
+        this.maxQueue = new long[capacity];
+        this.latestTime = sensor.getTimeElapsed();
+        this.record(sensor.getCurrentReading());
+    }
+
+    /**
+     * Returns the sensor whose readings are recorded.
+     *
+     * @return the history's sensor
+     */
+    public TimedSensor getSensor() {
+        return this.sensor;
+    }
+
+    /**
+     * Returns the maximum number of readings held, which is also the
+     * longest window that statistics can be calculated over.
+     *
+     * @return capacity in minutes
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the number of readings held, which is the number of minutes
+     * since the history was enabled plus one, up to the capacity.
+     *
+     * @return number of readings held, at least 1
+     */
+    public synchronized int size() {
+        this.catchUp();
+        return (int) Math.min(this.recordedCount, this.capacity);
+    }
+
+    /**
+     * Returns the time elapsed of the sensor when the most recent reading
+     * was observed, which is the sensor's current time elapsed.
+     *
+     * @return time of the most recent reading, in minutes
+     */
+    public synchronized long getLatestTime() {
+        this.catchUp();
+        return this.latestTime;
+    }
+
+    /**
+     * Returns the readings observed in the given number of most recent
+     * minutes, oldest first.
+     *
+     * @param minutes length of the window, including the current minute
+     * @return readings in the window; fewer than minutes if the history
+     * holds fewer readings
+     * @throws IllegalArgumentException if minutes is &lt; 1 or greater
+     * than the capacity
+     */
+    public synchronized int[] getReadings(int minutes)
+            throws IllegalArgumentException {
+        int count = this.window(minutes);
+        int[] result = new int[count];
+        long first = this.recordedCount - count;
+        for (int i = 0; i < count; i++) {
+            result[i] = this.readingAt(first + i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the sum of the readings observed in the given number of most
+     * recent minutes.
+     *
+     * @param minutes length of the window, including the current minute
+     * @return sum of the readings in the window
+     * @throws IllegalArgumentException if minutes is &lt; 1 or greater
+     * than the capacity
+     */
+    public synchronized long getSum(int minutes)
+            throws IllegalArgumentException {
+        int count = this.window(minutes);
+        return this.prefixSum(this.recordedCount)
+                - this.prefixSum(this.recordedCount - count);
+    }
+
+    /**
+     * Returns the mean of the readings observed in the given number of most
+     * recent minutes.
+     *
+     * @param minutes length of the window, including the current minute
+     * @return mean of the readings in the window
+     * @throws IllegalArgumentException if minutes is &lt; 1 or greater
+     * than the capacity
+     */
+    public synchronized double getMean(int minutes)
+            throws IllegalArgumentException {
+        int count = this.window(minutes);
+        return (double) (this.prefixSum(this.recordedCount)
+                - this.prefixSum(this.recordedCount - count)) / count;
+    }
+
+    /**
+     * Returns the smallest reading observed in the given number of most
+     * recent minutes.
+     *
+     * @param minutes length of the window, including the current minute
+     * @return minimum reading in the window
+     * @throws IllegalArgumentException if minutes is &lt; 1 or greater
+     * than the capacity
+     */
+    public synchronized int getMin(int minutes)
+            throws IllegalArgumentException {
+        int count = this.window(minutes);
+        return this.readingAt(this.oldestInWindow(this.minQueue,
+                this.minHead, this.minSize, this.recordedCount - count));
+    }
+
+    /**
+     * Returns the largest reading observed in the given number of most
+     * recent minutes.
+     *
+     * @param minutes length of the window, including the current minute
+     * @return maximum reading in the window
+     * @throws IllegalArgumentException if minutes is &lt; 1 or greater
+     * than the capacity
+     */
+    public synchronized int getMax(int minutes)
+            throws IllegalArgumentException {
+        int count = this.window(minutes);
+        return this.readingAt(this.oldestInWindow(this.maxQueue,
+                this.maxHead, this.maxSize, this.recordedCount - count));
+    }
+
+    /**
+     * Returns the human-readable string representation of this history.
+     * <p>
+     * The format of the string to return is
+     * "ReadingHistory: readings='size'/'capacity', latest='latestTime'"
+     * without the single quotes.
+     *
+     * @return string representation of this history
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("ReadingHistory: readings=%d/%d, latest=%d",
+                this.size(), this.capacity, this.latestTime);
+    }
+
+    /**
+     * Catches up with the sensor's time elapsed and returns the number of
+     * readings in a window of the given length.
+     *
+     * @param minutes length of the window
+     * @return number of readings held in the window
+     * @throws IllegalArgumentException if minutes is &lt; 1 or greater
+     * than the capacity
+     */
+    private int window(int minutes) throws IllegalArgumentException {
+        if (minutes < 1 || minutes > this.capacity) {
+            throw new IllegalArgumentException("Window must be between 1 and "
+                    + this.capacity + " minutes (inclusive)");
+        }
+        this.catchUp();
+        return (int) Math.min(minutes, this.recordedCount);
+    }
+
+    /**
+     * Records the sensor's readings for every minute since the most recent
+     * reading, up to its current time elapsed. Only the readings that will
+     * still be held afterwards are recorded.
+     */
+    private void catchUp() {
+        long now = this.sensor.getTimeElapsed();
+        if (now <= this.latestTime) {
+            return;
+        }
+        long from = this.latestTime + 1;
+        if (now - this.capacity >= this.latestTime) {
+            // every reading held would be replaced, so start afresh
+            this.clear();
+            from = now - this.capacity + 1;
+        }
+        for (long time = from; time <= now; time++) {
+            this.record(this.sensor.readingAt(time));
+        }
+        this.latestTime = now;
+    }
+
+    /**
+     * Removes every reading held.
+     */
+    private void clear() {
+        this.recordedCount = 0;
+        this.prefixSums[0] = 0;
+        this.minHead = 0;
+        this.minSize = 0;
+        this.maxHead = 0;
+        this.maxSize = 0;
+    }
+
+    /**
+     * Appends a reading to the history, evicting the oldest reading if the
+     * history is full.
+     *
+     * @param reading reading to append
+     */
+    private void record(int reading) {
+        long sequence = this.recordedCount;
+        long sum = this.prefixSum(sequence);
+        this.readings[(int) (sequence % this.capacity)] = reading;
+        this.prefixSums[(int) ((sequence + 1) % (this.capacity + 1))] =
+                sum + reading;
+        this.recordedCount = sequence + 1;
+
+        // drop entries that have just left the history
+        long oldest = this.recordedCount - this.capacity;
+        if (this.minSize > 0 && this.minQueue[this.minHead] < oldest) {
+            this.minHead = (this.minHead + 1) % this.capacity;
+            this.minSize--;
+        }
+        if (this.maxSize > 0 && this.maxQueue[this.maxHead] < oldest) {
+            this.maxHead = (this.maxHead + 1) % this.capacity;
+            this.maxSize--;
+        }
+
+        // drop entries that can no longer be the minimum or maximum
+        while (this.minSize > 0 && this.readingAt(this.minQueue[
+                (this.minHead + this.minSize - 1) % this.capacity])
+                >= reading) {
+            this.minSize--;
+        }
+        this.minQueue[(this.minHead + this.minSize) % this.capacity] =
+                sequence;
+        this.minSize++;
+        while (this.maxSize > 0 && this.readingAt(this.maxQueue[
+                (this.maxHead + this.maxSize - 1) % this.capacity])
+                <= reading) {
+            this.maxSize--;
+        }
+        this.maxQueue[(this.maxHead + this.maxSize) % this.capacity] =
+                sequence;
+        this.maxSize++;
+    }
+
+    /**
+     * Returns the oldest sequence number in the given monotonic queue that
+     * is at or after the start of a window, found by binary search.
+     *
+     * @param queue queue to search
+     * @param head index of the oldest entry in the queue
+     * @param size number of entries in the queue
+     * @param start sequence number of the first reading in the window
+     * @return sequence number of the window's minimum or maximum reading
+     */
+    private long oldestInWindow(long[] queue, int head, int size,
+                                long start) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (queue[(head + middle) % this.capacity] < start) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return queue[(head + low) % this.capacity];
+    }
+
+    /**
+     * Returns the reading with the given sequence number.
+     *
+     * @param sequence sequence number of a reading held
+     * @return the reading
+     */
+    private int readingAt(long sequence) {
+        return this.readings[(int) (sequence % this.capacity)];
+    }
+
+    /**
+     * Returns the sum of the readings before the given sequence number.
+     *
+     * @param sequence sequence number, no more than the capacity before the
+     *                 next reading
+     * @return sum of the readings recorded before it
+     */
+    private long prefixSum(long sequence) {
+        return this.prefixSums[(int) (sequence % (this.capacity + 1))];
+    }
+}
@@ -0,0 +1,23 @@
+package bms.sensors;
+
+import java.util.List;
+
+/**
+ * A listener notified when the current readings of timed sensors change.
+ * <p>
+ * Changes are collected while a timed item manager ticks and delivered in a
+ * single call once the tick has completed, so a listener added to many
+ * sensors is called at most once per tick. See
+ * {@link TimedSensor#addReadingListener(ReadingListener)}.
+ */
+@FunctionalInterface
+public interface ReadingListener {
+
+    /**
+     * Called at the end of a tick with every change in the current reading
+     * of the sensors this listener was added to.
+     *
+     * @param changes reading changes, in the order they happened
+     */
+    void readingsChanged(List<ReadingChange> changes);
+}
@@ -0,0 +1,164 @@
+package bms.sensors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A shared, append-only store for the reading sequences of many timed
+ * sensors.
+ * <p>
+ * Rather than each sensor holding its own small array of readings, the
+ * readings of every sensor moved into the store (see
+ * {@link TimedSensor#moveReadingsTo(ReadingStore)}) are packed back to back
+ * into a few large chunks. Each sensor then only records which chunk its
+ * readings are in and where they start, which greatly reduces the number of
+ * objects on the heap for large numbers of sensors.
+ * <p>
+ * A sensor's readings never span two chunks. Sequences longer than the
+ * chunk size are given a chunk of their own.
+ */
+public class ReadingStore {
+
+    /**
+     * Default number of readings in each chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Number of readings in each (regular) chunk.
+     */
+    private final int chunkSize;
+
+    /**
+     * All chunks allocated so far, in allocation order.
+     */
+    private final List<int[]> chunks;
+
+    /**
+     * Chunk that readings are currently appended to, or null if no chunk
+     * has been allocated yet.
+     */
+    private int[] currentChunk;
+
+    /**
+     * Number of readings used in the current chunk.
+     */
+    private int used;
+
+    /**
+     * Total number of readings stored.
+     */
+    private long readingCount;
+
+    /**
+     * Creates a new empty reading store with the default chunk size.
+     */
+    public ReadingStore() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new empty reading store with the given chunk size.
+     *
+     * @param chunkSize number of readings in each chunk
+     * @throws IllegalArgumentException if chunkSize &lt; 1
+     */
+    public ReadingStore(int chunkSize) throws IllegalArgumentException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException(
+                    "Chunk size must be 1 or higher");
+        }
+        this.chunkSize = chunkSize;
+        this.chunks = new ArrayList<>();
+    }
+
+    /**
+     * Returns the total number of readings stored.
+     *
+     * @return number of readings
+     */
+    public synchronized long getReadingCount() {
+        return readingCount;
+    }
+
+    /**
+     * Returns the number of chunks allocated.
+     *
+     * @return number of chunks
+     */
+    public synchronized int getChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * Returns the total number of readings the allocated chunks can hold,
+     * including readings already stored.
+     *
+     * @return capacity of the allocated chunks
+     */
+    public synchronized long getCapacity() {
+        long capacity = 0;
+        for (int[] chunk : chunks) {
+            capacity += chunk.length;
+        }
+        return capacity;
+    }
+
+    /**
+     * Copies the given range of readings into the store.
+     *
+     * @param readings array containing the readings to store
+     * @param from index of the first reading to store
+     * @param length number of readings to store
+     * @return location the readings were copied to
+     */
+    synchronized Slot append(int[] readings, int from, int length) {
+        int[] chunk;
+        int offset;
+        if (length > chunkSize) {
+            // too long for a shared chunk, so give it one of its own
+            chunk = new int[length];
+            chunks.add(chunk);
+            offset = 0;
+        } else {
+            if (currentChunk == null
+                    || used + length > currentChunk.length) {
+                currentChunk = new int[chunkSize];
+                chunks.add(currentChunk);
+                used = 0;
+            }
+            chunk = currentChunk;
+            offset = used;
+            used += length;
+        }
+        System.arraycopy(readings, from, chunk, offset, length);
+        readingCount += length;
+        return new Slot(chunk, offset);
+    }
+
+    /**
+     * Location of a sequence of readings within the store.
+     */
+    static class Slot {
+        /**
+         * Chunk holding the readings.
+         */
+        final int[] chunk;
+
+        /**
+         * Index of the first reading within the chunk.
+         */
+        final int offset;
+
+        /**
+         * Creates a new slot.
+         *
+         * @param chunk chunk holding the readings
+         * @param offset index of the first reading within the chunk
+         */
+        Slot(int[] chunk, int offset) {
+            this.chunk = chunk;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package bms.sensors;
+
+import bms.util.TickListener;
+import bms.util.TimedItemManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Collects the reading changes and hazard threshold crossings of the timed
+ * sensors advanced by one timed item manager, and delivers them to their
+ * listeners at the end of each of the manager's ticks.
+ * <p>
+ * Events may be queued from several threads while the manager ticks in
+ * {@link bms.util.TickMode#PARALLEL} mode; they are delivered on the
+ * ticking thread once the tick has completed. Events queued outside a tick
+ * are delivered at the end of the next tick.
+ */
+final class SensorEventDispatcher implements TickListener {
+
+    /**
+     * Dispatcher of each manager which has had events queued. Managers are
+     * held weakly, so that a dispatcher does not keep its manager alive.
+     */
+    private static final Map<TimedItemManager, SensorEventDispatcher>
+            DISPATCHERS = new WeakHashMap<>();
+
+    /**
+     * Reading changes queued since the last tick, by listener.
+     */
+    private Map<ReadingListener, List<ReadingChange>> readingChanges;
+
+    /**
+     * Hazard crossings queued since the last tick, by listener.
+     */
+    private Map<HazardListener, List<HazardCrossing>> hazardCrossings;
+
+    /**
+     * Creates a new dispatcher with no queued events.
+     */
+    private SensorEventDispatcher() {
+        this.readingChanges = new LinkedHashMap<>();
+        this.hazardCrossings = new LinkedHashMap<>();
+    }
+
+    /**
+     * Returns the dispatcher for the given manager, creating it and adding
+     * it as a tick listener of the manager if needed.
+     *
+     * @param manager manager whose ticks deliver the events
+     * @return the manager's dispatcher
+     */
+    static SensorEventDispatcher of(TimedItemManager manager) {
+        synchronized (DISPATCHERS) {
+            SensorEventDispatcher dispatcher = DISPATCHERS.get(manager);
+            if (dispatcher == null) {
+                dispatcher = new SensorEventDispatcher();
+                DISPATCHERS.put(manager, dispatcher);
+                manager.addTickListener(dispatcher);
+            }
+            return dispatcher;
+        }
+    }
+
+    /**
+     * Queues a reading change for the given listener.
+     *
+     * @param listener listener to deliver the change to
+     * @param change reading change
+     */
+    synchronized void queue(ReadingListener listener, ReadingChange change) {
+        this.readingChanges.computeIfAbsent(listener, l -> new ArrayList<>())
+                .add(change);
+    }
+
+    /**
+     * Queues a hazard threshold crossing for the given listener.
+     *
+     * @param listener listener to deliver the crossing to
+     * @param crossing hazard threshold crossing
+     */
+    synchronized void queue(HazardListener listener, HazardCrossing crossing) {
+        this.hazardCrossings.computeIfAbsent(listener, l -> new ArrayList<>())
+                .add(crossing);
+    }
+
+    /**
+     * Delivers every queued event to its listener, one call per listener.
+     *
+     * @param manager manager which has finished ticking
+     */
+    @Override
+    public void tickCompleted(TimedItemManager manager) {
+        Map<ReadingListener, List<ReadingChange>> changes;
+        Map<HazardListener, List<HazardCrossing>> crossings;
+        synchronized (this) {
+            if (this.readingChanges.isEmpty()
+                    && this.hazardCrossings.isEmpty()) {
+                return;
+            }
+            changes = this.readingChanges;
+            crossings = this.hazardCrossings;
+            this.readingChanges = new LinkedHashMap<>();
+            this.hazardCrossings = new LinkedHashMap<>();
+        }
+        // listeners are called without holding the lock, so they may query
+        // sensors or add and remove listeners
+        for (Map.Entry<ReadingListener, List<ReadingChange>> entry
+                : changes.entrySet()) {
+            entry.getKey().readingsChanged(entry.getValue());
+        }
+        for (Map.Entry<HazardListener, List<HazardCrossing>> entry
+                : crossings.entrySet()) {
+            entry.getKey().hazardThresholdsCrossed(entry.getValue());
+        }
+    }
+}
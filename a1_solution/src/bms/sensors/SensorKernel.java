@@ -0,0 +1,650 @@
+package bms.sensors;
+
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A batch simulation kernel which advances many timed sensors at once.
+ * <p>
+ * The state of each adopted sensor (time elapsed, update frequency, where
+ * its readings are stored and its current reading) is kept in parallel
+ * primitive arrays, one entry per sensor, and every sensor is advanced by
+ * loops over those arrays. Rather than dividing the time elapsed by
+ * the update frequency every minute, the kernel counts down the minutes
+ * until each sensor's next reading. A tick is two passes over the arrays:
+ * the first advances every sensor's time, countdown and reading index
+ * without branching, and the second looks up the new current readings of
+ * the sensors which reached their next reading.
+ * <p>
+ * The kernel is registered with a timed item manager as a single timed
+ * item, in place of the sensors it adopts: an adopted sensor is unregistered
+ * from its own manager and is advanced only by the kernel until it is
+ * removed. Adopted sensors continue to report their time elapsed and current
+ * reading as usual, read from the kernel's arrays without taking the
+ * kernel's lock.
+ * <p>
+ * The kernel holds strong references to the sensors it adopts, even if its
+ * manager only holds weak references to its timed items: an adopted sensor
+ * stays reachable, and keeps being advanced, until it is removed from the
+ * kernel or released with {@link TimedSensor#release()}.
+ * <p>
+ * Sensors of any type can be adopted; keeping one kernel per sensor type
+ * keeps sensors with similar update frequencies together.
+ * <p>
+ * Observed sensors (those with listeners or a hazard roll-up) are told
+ * about changes to their current reading only after the kernel has
+ * released its lock, so that a sensor is never called back while the
+ * kernel's lock is held.
+ */
+public class SensorKernel implements TimedItem {
+
+    /**
+     * Initial capacity of the kernel's arrays.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Timed item manager this kernel is registered with.
+     */
+    private final TimedItemManager timedItemManager;
+
+    /**
+     * Number of sensors in the kernel.
+     */
+    private int size;
+
+    /**
+     * Adopted sensors, indexed by slot.
+     */
+    private TimedSensor[] sensors;
+
+    /**
+     * Time elapsed in minutes of each sensor.
+     */
+    private int[] timeElapsed;
+
+    /**
+     * Update frequency in minutes of each sensor.
+     */
+    private int[] updateFrequency;
+
+    /**
+     * Array holding the readings of each sensor.
+     */
+    private int[][] readings;
+
+    /**
+     * Index of each sensor's first reading within its readings array.
+     */
+    private int[] readingsOffset;
+
+    /**
+     * Number of readings of each sensor.
+     */
+    private int[] readingsLength;
+
+    /**
+     * Index of each sensor's current reading, relative to its first reading.
+     */
+    private int[] readingIndex;
+
+    /**
+     * Minutes until each sensor's current reading next changes.
+     */
+    private int[] countdown;
+
+    /**
+     * Current reading of each sensor.
+     */
+    private int[] currentReading;
+
+    /**
+     * Whether changes to each sensor are being listened for, in which case
+     * the sensor is told about changes to its current reading.
+     */
+    private boolean[] observed;
+
+    /**
+     * Changes to the current readings of observed sensors found while
+     * advancing the kernel, which are reported to the sensors once the
+     * kernel's lock has been released; null while a previous batch of
+     * changes is being reported.
+     */
+    private ReadingChanges changes;
+
+    /**
+     * Version of the kernel's arrays, incremented before and after every
+     * change to them, so that it is odd while a change is in progress.
+     * Readers of a single sensor's entries read the arrays without the lock
+     * and check that the version was even and unchanged around their read.
+     */
+    private volatile int version;
+
+    /**
+     * Creates a new, empty sensor kernel and registers it with the given
+     * timed item manager.
+     *
+     * @param timedItemManager manager whose ticks advance this kernel
+     * @throws IllegalArgumentException if timedItemManager is null
+     */
+    public SensorKernel(TimedItemManager timedItemManager)
+            throws IllegalArgumentException {
+        if (timedItemManager == null) {
+            throw new IllegalArgumentException(
+                    "Timed item manager must not be null");
+        }
+        this.timedItemManager = timedItemManager;
+        this.sensors = new TimedSensor[INITIAL_CAPACITY];
+        this.timeElapsed = new int[INITIAL_CAPACITY];
+        this.updateFrequency = new int[INITIAL_CAPACITY];
+        this.readings = new int[INITIAL_CAPACITY][];
+        this.readingsOffset = new int[INITIAL_CAPACITY];
+        this.readingsLength = new int[INITIAL_CAPACITY];
+        this.readingIndex = new int[INITIAL_CAPACITY];
+        this.countdown = new int[INITIAL_CAPACITY];
+        this.currentReading = new int[INITIAL_CAPACITY];
+        this.observed = new boolean[INITIAL_CAPACITY];
+        timedItemManager.registerTimedItem(this);
+    }
+
+    /**
+     * Returns the timed item manager this kernel is registered with.
+     *
+     * @return the kernel's timed item manager
+     */
+    public TimedItemManager getTimedItemManager() {
+        return timedItemManager;
+    }
+
+    /**
+     * Returns the number of sensors advanced by this kernel.
+     *
+     * @return number of adopted sensors
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the given sensor is advanced by this kernel.
+     *
+     * @param sensor sensor to look for
+     * @return true if the sensor has been adopted by this kernel
+     */
+    public boolean contains(TimedSensor sensor) {
+        return sensor != null && sensor.getSensorKernel() == this;
+    }
+
+    /**
+     * Adopts the given sensor, so that it is advanced by this kernel instead
+     * of by its timed item manager.
+     * <p>
+     * The sensor is unregistered from its manager; its time elapsed and
+     * current reading are unchanged. If the sensor has already been adopted
+     * by this kernel, no action is taken. The kernel keeps a strong
+     * reference to the sensor until it is removed.
+     *
+     * @param sensor sensor to adopt
+     * @throws IllegalArgumentException if sensor is null, or if it has been
+     * adopted by another kernel
+     */
+    public void add(TimedSensor sensor) throws IllegalArgumentException {
+        if (sensor == null) {
+            throw new IllegalArgumentException("Sensor must not be null");
+        }
+        // catch up before taking the lock, as catching up may report a
+        // change in reading to the sensor's listeners and roll-up
+        sensor.catchUp();
+        synchronized (this) {
+            if (sensor.getSensorKernel() == this) {
+                return;
+            }
+            if (sensor.getSensorKernel() != null) {
+                throw new IllegalArgumentException(
+                        "Sensor has already been adopted by another kernel");
+            }
+            int time = sensor.getTimeElapsed();
+            this.beginWrite();
+            if (this.size == this.sensors.length) {
+                this.grow();
+            }
+            int slot = this.size++;
+            sensor.attachKernel(this, slot);
+            this.sensors[slot] = sensor;
+            this.updateFrequency[slot] = sensor.getUpdateFrequency();
+            this.observed[slot] = false;
+            sensor.copyReadingsLocation();
+            this.seek(slot, time);
+            this.observed[slot] = sensor.isObserved();
+            this.endWrite();
+        }
+    }
+
+    /**
+     * Releases the given sensor from this kernel, registering it with its
+     * timed item manager again.
+     * <p>
+     * The sensor keeps the time elapsed and current reading it had in the
+     * kernel.
+     *
+     * @param sensor sensor to release
+     * @return true if the sensor was released; false if it had not been
+     * adopted by this kernel
+     */
+    public synchronized boolean remove(TimedSensor sensor) {
+        if (!this.contains(sensor)) {
+            return false;
+        }
+        int slot = sensor.getKernelSlot();
+        sensor.detachKernel(this.timeElapsed[slot],
+                this.currentReading[slot]);
+
+        // move the last sensor into the vacated slot
+        this.beginWrite();
+        int last = --this.size;
+        if (slot != last) {
+            this.sensors[slot] = this.sensors[last];
+            this.timeElapsed[slot] = this.timeElapsed[last];
+            this.updateFrequency[slot] = this.updateFrequency[last];
+            this.readings[slot] = this.readings[last];
+            this.readingsOffset[slot] = this.readingsOffset[last];
+            this.readingsLength[slot] = this.readingsLength[last];
+            this.readingIndex[slot] = this.readingIndex[last];
+            this.countdown[slot] = this.countdown[last];
+            this.currentReading[slot] = this.currentReading[last];
+            this.observed[slot] = this.observed[last];
+            this.sensors[slot].setKernelSlot(slot);
+        }
+        this.sensors[last] = null;
+        this.readings[last] = null;
+        this.endWrite();
+        return true;
+    }
+
+    /**
+     * Copies the current reading of every sensor in this kernel into the
+     * given array, in slot order.
+     *
+     * @param destination array to copy the readings into
+     * @return number of readings copied
+     * @throws IllegalArgumentException if destination is null or shorter
+     * than {@link #size()}
+     */
+    public synchronized int copyCurrentReadings(int[] destination)
+            throws IllegalArgumentException {
+        if (destination == null || destination.length < this.size) {
+            throw new IllegalArgumentException(
+                    "Destination must hold at least " + this.size
+                            + " readings");
+        }
+        System.arraycopy(this.currentReading, 0, destination, 0, this.size);
+        return this.size;
+    }
+
+    /**
+     * Advances every sensor in this kernel by one minute.
+     * <p>
+     * The first pass steps each sensor's reading index on by one when its
+     * countdown runs out, using a mask rather than a branch, and wraps the
+     * index around with a masked subtraction. A sensor's countdown has been
+     * reset to its update frequency exactly when it stepped, which the
+     * second pass uses to find the sensors whose current reading may have
+     * changed. (The first pass deliberately does not also accumulate
+     * whether any sensor stepped: combined with the masks, that reduction
+     * crashes the C2 compiler of some JDK 17 releases.)
+     */
+    @Override
+    public void elapseOneMinute() {
+        ReadingChanges pending;
+        synchronized (this) {
+            final int n = this.size;
+            final int[] time = this.timeElapsed;
+            final int[] remaining = this.countdown;
+            final int[] freq = this.updateFrequency;
+            final int[] index = this.readingIndex;
+            final int[] length = this.readingsLength;
+            this.beginWrite();
+            for (int i = 0; i < n; i++) {
+                time[i]++;
+                int left = remaining[i] - 1;
+                // -1 if the countdown ran out, 0 otherwise
+                int step = (left - 1) >> 31;
+                remaining[i] = left + (freq[i] & step);
+                int next = index[i] - step;
+                // -1 if the index ran past the last reading, 0 otherwise
+                int wrap = (length[i] - 1 - next) >> 31;
+                index[i] = next - (length[i] & wrap);
+            }
+            for (int i = 0; i < n; i++) {
+                if (remaining[i] == freq[i]) {
+                    this.setCurrentReading(i, this.readings[i][
+                            this.readingsOffset[i] + index[i]]);
+                }
+            }
+            this.endWrite();
+            pending = this.takeChanges();
+        }
+        this.reportChanges(pending);
+    }
+
+    /**
+     * Advances every sensor in this kernel by the given number of minutes.
+     * <p>
+     * Each sensor jumps directly to its reading at the new time elapsed, so
+     * this method takes the same time regardless of how many minutes are
+     * elapsed.
+     *
+     * @param minutes number of minutes to advance by
+     * @throws IllegalArgumentException if minutes is &lt; 0, or if the
+     * resulting time elapsed of any sensor would not fit in an {@code int}
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Minutes to elapse must be non-negative");
+        }
+        ReadingChanges pending;
+        synchronized (this) {
+            for (int i = 0; i < this.size; i++) {
+                if (minutes > Integer.MAX_VALUE - this.timeElapsed[i]) {
+                    throw new IllegalArgumentException("Time elapsed cannot "
+                            + "exceed " + Integer.MAX_VALUE + " minutes");
+                }
+            }
+            this.beginWrite();
+            for (int i = 0; i < this.size; i++) {
+                this.seek(i, this.timeElapsed[i] + (int) minutes);
+            }
+            this.endWrite();
+            pending = this.takeChanges();
+        }
+        this.reportChanges(pending);
+    }
+
+    /**
+     * Returns the time elapsed of the sensor in the given slot.
+     *
+     * @param slot slot of the sensor
+     * @return the sensor's time elapsed in minutes
+     */
+    int timeElapsedOf(int slot) {
+        int version = this.version;
+        if ((version & 1) == 0) {
+            int time = this.timeElapsed[slot];
+            VarHandle.acquireFence();
+            if (this.version == version) {
+                return time;
+            }
+        }
+        synchronized (this) {
+            return this.timeElapsed[slot];
+        }
+    }
+
+    /**
+     * Returns the current reading of the sensor in the given slot.
+     *
+     * @param slot slot of the sensor
+     * @return the sensor's current reading
+     */
+    int currentReadingOf(int slot) {
+        int version = this.version;
+        if ((version & 1) == 0) {
+            int reading = this.currentReading[slot];
+            VarHandle.acquireFence();
+            if (this.version == version) {
+                return reading;
+            }
+        }
+        synchronized (this) {
+            return this.currentReading[slot];
+        }
+    }
+
+    /**
+     * Returns the index of the current reading of the sensor in the given
+     * slot, relative to its first reading.
+     *
+     * @param slot slot of the sensor
+     * @return index of the sensor's current reading
+     */
+    int readingIndexOf(int slot) {
+        int version = this.version;
+        if ((version & 1) == 0) {
+            int index = this.readingIndex[slot];
+            VarHandle.acquireFence();
+            if (this.version == version) {
+                return index;
+            }
+        }
+        synchronized (this) {
+            return this.readingIndex[slot];
+        }
+    }
+
+    /**
+     * Advances the sensor in the given slot by the given number of minutes.
+     *
+     * @param slot slot of the sensor
+     * @param minutes number of minutes to advance by
+     * @throws IllegalArgumentException if minutes is &lt; 0, or if the
+     * resulting time elapsed would not fit in an {@code int}
+     */
+    void elapseSensor(int slot, long minutes)
+            throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Minutes to elapse must be non-negative");
+        }
+        ReadingChanges pending;
+        synchronized (this) {
+            if (minutes > Integer.MAX_VALUE - this.timeElapsed[slot]) {
+                throw new IllegalArgumentException("Time elapsed cannot "
+                        + "exceed " + Integer.MAX_VALUE + " minutes");
+            }
+            this.beginWrite();
+            this.seek(slot, this.timeElapsed[slot] + (int) minutes);
+            this.endWrite();
+            pending = this.takeChanges();
+        }
+        this.reportChanges(pending);
+    }
+
+    /**
+     * Records where the readings of the sensor in the given slot are stored.
+     *
+     * @param slot slot of the sensor
+     * @param readings array holding the sensor's readings
+     * @param offset index of the sensor's first reading within the array
+     * @param length number of readings of the sensor
+     */
+    synchronized void setReadingsLocation(int slot, int[] readings,
+                                          int offset, int length) {
+        this.readings[slot] = readings;
+        this.readingsOffset[slot] = offset;
+        this.readingsLength[slot] = length;
+    }
+
+    /**
+     * Records whether changes to the sensor in the given slot are being
+     * listened for.
+     *
+     * @param slot slot of the sensor
+     * @param observed whether the sensor has any listeners
+     */
+    synchronized void setObserved(int slot, boolean observed) {
+        this.observed[slot] = observed;
+    }
+
+    /**
+     * Moves the sensor in the given slot to the given time elapsed,
+     * recalculating its reading index, countdown and current reading.
+     *
+     * @param slot slot of the sensor
+     * @param time new time elapsed in minutes
+     */
+    private void seek(int slot, int time) {
+        int freq = this.updateFrequency[slot];
+        int rotationDuration = this.readingsLength[slot] * freq;
+        int index = (time % rotationDuration) / freq;
+        this.timeElapsed[slot] = time;
+        this.readingIndex[slot] = index;
+        this.countdown[slot] = freq - (time % freq);
+        this.setCurrentReading(slot, this.readings[slot][
+                this.readingsOffset[slot] + index]);
+    }
+
+    /**
+     * Sets the current reading of the sensor in the given slot, recording
+     * the change to be reported to the sensor if it is observed and the
+     * reading has changed.
+     *
+     * @param slot slot of the sensor
+     * @param reading new current reading
+     */
+    private void setCurrentReading(int slot, int reading) {
+        int previous = this.currentReading[slot];
+        this.currentReading[slot] = reading;
+        if (this.observed[slot] && previous != reading) {
+            if (this.changes == null) {
+                this.changes = new ReadingChanges();
+            }
+            this.changes.add(this.sensors[slot], previous, reading);
+        }
+    }
+
+    /**
+     * Marks the start of a change to the kernel's arrays, so that readers
+     * which do not take the lock retry. Must be called while holding the
+     * lock.
+     */
+    private void beginWrite() {
+        this.version++;
+        // keep the changes to the arrays from becoming visible before the
+        // odd version
+        VarHandle.storeStoreFence();
+    }
+
+    /**
+     * Marks the end of a change to the kernel's arrays, publishing it to
+     * readers which do not take the lock. Must be called while holding the
+     * lock.
+     */
+    private void endWrite() {
+        this.version++;
+    }
+
+    /**
+     * Takes the changes recorded since the kernel's lock was acquired, so
+     * that they can be reported once it is released. Must be called while
+     * holding the lock.
+     *
+     * @return changes to report; null if there are none
+     */
+    private ReadingChanges takeChanges() {
+        ReadingChanges pending = this.changes;
+        if (pending == null || pending.size == 0) {
+            return null;
+        }
+        this.changes = null;
+        return pending;
+    }
+
+    /**
+     * Reports the given changes to their sensors, then keeps the buffer for
+     * reuse. Must be called without holding the kernel's lock.
+     *
+     * @param pending changes to report; null if there are none
+     */
+    private void reportChanges(ReadingChanges pending) {
+        if (pending == null) {
+            return;
+        }
+        for (int i = 0; i < pending.size; i++) {
+            pending.sensors[i].readingChanged(pending.previous[i],
+                    pending.current[i]);
+        }
+        pending.clear();
+        synchronized (this) {
+            if (this.changes == null) {
+                this.changes = pending;
+            }
+        }
+    }
+
+    /**
+     * Doubles the capacity of the kernel's arrays.
+     */
+    private void grow() {
+        int capacity = this.sensors.length * 2;
+        this.sensors = Arrays.copyOf(this.sensors, capacity);
+        this.timeElapsed = Arrays.copyOf(this.timeElapsed, capacity);
+        this.updateFrequency = Arrays.copyOf(this.updateFrequency, capacity);
+        this.readings = Arrays.copyOf(this.readings, capacity);
+        this.readingsOffset = Arrays.copyOf(this.readingsOffset, capacity);
+        this.readingsLength = Arrays.copyOf(this.readingsLength, capacity);
+        this.readingIndex = Arrays.copyOf(this.readingIndex, capacity);
+        this.countdown = Arrays.copyOf(this.countdown, capacity);
+        this.currentReading = Arrays.copyOf(this.currentReading, capacity);
+        this.observed = Arrays.copyOf(this.observed, capacity);
+    }
+
+    /**
+     * Changes to the current readings of observed sensors, in the order
+     * they were found.
+     */
+    private static final class ReadingChanges {
+        /**
+         * Number of changes recorded.
+         */
+        private int size;
+
+        /**
+         * Sensor whose reading changed, for each change.
+         */
+        private TimedSensor[] sensors = new TimedSensor[INITIAL_CAPACITY];
+
+        /**
+         * Reading before each change.
+         */
+        private int[] previous = new int[INITIAL_CAPACITY];
+
+        /**
+         * Reading after each change.
+         */
+        private int[] current = new int[INITIAL_CAPACITY];
+
+        /**
+         * Records a change in a sensor's current reading.
+         *
+         * @param sensor sensor whose reading changed
+         * @param previousReading reading before the change
+         * @param currentReading reading after the change
+         */
+        private void add(TimedSensor sensor, int previousReading,
+                         int currentReading) {
+            if (this.size == this.sensors.length) {
+                int capacity = this.size * 2;
+                this.sensors = Arrays.copyOf(this.sensors, capacity);
+                this.previous = Arrays.copyOf(this.previous, capacity);
+                this.current = Arrays.copyOf(this.current, capacity);
+            }
+            this.sensors[this.size] = sensor;
+            this.previous[this.size] = previousReading;
+            this.current[this.size] = currentReading;
+            this.size++;
+        }
+
+        /**
+         * Removes every change, releasing the sensors.
+         */
+        private void clear() {
+            Arrays.fill(this.sensors, 0, this.size, null);
+            this.size = 0;
+        }
+    }
+}
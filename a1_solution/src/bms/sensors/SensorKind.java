@@ -0,0 +1,97 @@
+package bms.sensors;
+
+/**
+ * Enum to represent the built-in kinds of sensor.
+ * <p>
+ * Kinds are declared in alphabetical order of their sensor's simple class
+ * name, matching the order in which a room lists its sensors.
+ */
+public enum SensorKind {
+    /** Carbon dioxide sensor. */
+    CARBON_DIOXIDE(CarbonDioxideSensor.class),
+    /** Noise sensor. */
+    NOISE(NoiseSensor.class),
+    /** Occupancy sensor. */
+    OCCUPANCY(OccupancySensor.class),
+    /** Temperature sensor. */
+    TEMPERATURE(TemperatureSensor.class);
+
+    /**
+     * All kinds, in declaration order. Cached since {@code values()} returns
+     * a new array on every call.
+     */
+    private static final SensorKind[] KINDS = values();
+
+    /**
+     * Class of sensor this kind represents.
+     */
+    private final Class<? extends Sensor> sensorClass;
+
+    /**
+     * Simple name of the sensor class, e.g. "NoiseSensor".
+     */
+    private final String simpleName;
+
+    /**
+     * Creates a new sensor kind for the given sensor class.
+     *
+     * @param sensorClass class of sensor this kind represents
+     */
+    SensorKind(Class<? extends Sensor> sensorClass) {
+        this.sensorClass = sensorClass;
+        this.simpleName = sensorClass.getSimpleName();
+    }
+
+    /**
+     * Returns the class of sensor this kind represents.
+     *
+     * @return sensor class
+     */
+    public Class<? extends Sensor> getSensorClass() {
+        return sensorClass;
+    }
+
+    /**
+     * Returns the kind representing exactly the given class of sensor.
+     * <p>
+     * Subclasses of the built-in sensors are not considered to be of the
+     * same kind as their superclass.
+     *
+     * @param sensorClass class of sensor to look up
+     * @return kind of the given sensor class; null if it is not a built-in
+     * kind
+     */
+    public static SensorKind of(Class<?> sensorClass) {
+        for (SensorKind kind : KINDS) {
+            if (kind.sensorClass == sensorClass) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the kind whose sensor class has the given simple name, as
+     * returned by {@link Class#getSimpleName()}.
+     *
+     * @param simpleName simple class name to look up, e.g. "NoiseSensor"
+     * @return kind with the given simple class name; null if there is none
+     */
+    public static SensorKind forSimpleName(String simpleName) {
+        for (SensorKind kind : KINDS) {
+            if (kind.simpleName.equals(simpleName)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of built-in sensor kinds.
+     *
+     * @return number of kinds
+     */
+    public static int count() {
+        return KINDS.length;
+    }
+}
@@ -4,7 +4,8 @@ package bms.sensors;
  * A sensor that measures ambient temperature in a room.
  * @ass1
  */
-public class TemperatureSensor extends TimedSensor implements HazardSensor {
+public class TemperatureSensor extends TimedHazardSensor
+        implements HazardSensor {
 
     /**
      * Creates a new temperature sensor with the given sensor readings and
@@ -29,18 +30,57 @@ public class TemperatureSensor extends TimedSensor implements HazardSensor {
      * indicating a fire.
      * In this case, a hazard level of 100 should be returned.
      * Otherwise, the returned hazard level is 0.
+     * <p>
+     * If the sensor's hazard schedule has been precomputed, the hazard level
+     * is looked up in it instead.
      *
      * @return sensor's current hazard level, 0 to 100
      * @ass1
      */
     @Override
     public int getHazardLevel() {
-        if (this.getCurrentReading() >= 68) {
+        if (this.hasHazardSchedule()) {
+            return this.scheduledHazardLevel();
+        }
+        return this.hazardLevelFor(this.getCurrentReading());
+    }
+
+    /**
+     * Returns the hazard level for the given temperature reading, as
+     * described in {@link #getHazardLevel()}.
+     *
+     * @param reading temperature reading
+     * @return hazard level for that reading, 0 or 100
+     */
+    @Override
+    protected int hazardLevelFor(int reading) {
+        if (reading >= 68) {
             return 100;
         }
         return 0;
     }
 
+    /**
+     * Computes the hazard levels of many temperature readings at once.
+     * <p>
+     * {@code levels[i]} is set to the hazard level a temperature sensor would
+     * report with a current reading of {@code readings[i]}, as described in
+     * {@link #getHazardLevel()}, for each i less than count.
+     *
+     * @param readings temperature readings
+     * @param levels array to store the hazard levels in
+     * @param count number of readings to compute hazard levels for
+     * @throws IllegalArgumentException if count is &lt; 0, or if either
+     * array is null or shorter than count
+     */
+    public static void hazardLevels(int[] readings, int[] levels, int count)
+            throws IllegalArgumentException {
+        checkBatch(count, readings, levels);
+        for (int i = 0; i < count; i++) {
+            levels[i] = readings[i] >= 68 ? 100 : 0;
+        }
+    }
+
     /**
      * Returns the human-readable string representation of this temperature
      * sensor.
@@ -0,0 +1,439 @@
+package bms.sensors;
+
+import bms.hazard.HazardRollup;
+
+import java.util.Arrays;
+
+/**
+ * A timed sensor which also reports a hazard level.
+ * <p>
+ * On top of what every timed sensor supports, a timed hazard sensor can
+ * precompute the hazard level of each of its readings, notify listeners when
+ * its hazard level crosses a threshold, and be included in a
+ * {@link HazardRollup}.
+ */
+public abstract class TimedHazardSensor extends TimedSensor
+        implements HazardSensor {
+
+    /**
+     * Creates a new timed hazard sensor, using the provided list of sensor
+     * readings and update frequency.
+     *
+     * @param sensorReadings a non-empty array of sensor readings
+     * @param updateFrequency indicates how often the sensor readings updates,
+     *                        in minutes
+     * @throws IllegalArgumentException if updateFrequency is &lt; 1 or &gt; 5;
+     * or if sensorReadings is null; if sensorReadings is empty; or if any
+     * value in sensorReadings is less than zero
+     * @see TimedSensor#TimedSensor(int[], int)
+     */
+    public TimedHazardSensor(int[] sensorReadings, int updateFrequency)
+            throws IllegalArgumentException {
+        super(sensorReadings, updateFrequency);
+    }
+
+    /**
+     * Returns the hazard level this sensor would report with the given
+     * current reading.
+     * <p>
+     * This is used to precompute the sensor's hazard schedule, see
+     * {@link #precomputeHazardSchedule()}.
+     *
+     * @param reading sensor reading
+     * @return hazard level for that reading, 0 to 100
+     * @throws UnsupportedOperationException if this sensor's hazard level
+     * cannot be derived from a single reading
+     */
+    protected abstract int hazardLevelFor(int reading)
+            throws UnsupportedOperationException;
+
+    /**
+     * Returns whether this sensor's hazard schedule has been precomputed.
+     *
+     * @return true if {@link #precomputeHazardSchedule()} has been called
+     */
+    public boolean hasHazardSchedule() {
+        HazardExtras extras = this.peekHazardExtras();
+        return extras != null && extras.hazardSchedule != null;
+    }
+
+    /**
+     * Precomputes the hazard level of each of this sensor's readings.
+     * <p>
+     * Since the readings are fixed, the hazard level at any time is then
+     * known in advance: built-in hazard sensors report their hazard level
+     * with a single array lookup, and
+     * {@link #minutesUntilHazardLevel(int)} can be answered without
+     * simulating forward. If the schedule has already been precomputed, no
+     * action is taken.
+     *
+     * @throws UnsupportedOperationException if this sensor's hazard level
+     * cannot be derived from a single reading
+     */
+    public void precomputeHazardSchedule()
+            throws UnsupportedOperationException {
+        if (this.hasHazardSchedule()) {
+            return;
+        }
+        int[] schedule = this.getReadings();
+        for (int i = 0; i < schedule.length; i++) {
+            schedule[i] = this.hazardLevelFor(schedule[i]);
+        }
+        this.hazardExtras().hazardSchedule = schedule;
+    }
+
+    /**
+     * Returns the hazard level of the current reading from this sensor's
+     * precomputed hazard schedule.
+     *
+     * @return current hazard level, 0 to 100
+     * @throws IllegalStateException if the hazard schedule has not been
+     * precomputed
+     */
+    protected int scheduledHazardLevel() throws IllegalStateException {
+        return this.requireHazardSchedule()[this.currentReadingIndex()];
+    }
+
+    /**
+     * Returns the number of minutes until this sensor's hazard level is
+     * next greater than or equal to the given threshold.
+     * <p>
+     * The answer is found from the precomputed hazard schedule, taking at
+     * most one step per reading rather than per minute.
+     *
+     * @param threshold hazard level to reach
+     * @return 0 if the current hazard level already reaches the threshold;
+     * otherwise the number of minutes until it does, or -1 if none of the
+     * sensor's readings reach it
+     * @throws IllegalStateException if the hazard schedule has not been
+     * precomputed
+     */
+    public int minutesUntilHazardLevel(int threshold)
+            throws IllegalStateException {
+        int[] schedule = this.requireHazardSchedule();
+        int time = this.getTimeElapsed();
+        int index = this.readingIndex(time);
+        if (schedule[index] >= threshold) {
+            return 0;
+        }
+        // minutes until the reading after the current one
+        int updateFrequency = this.getUpdateFrequency();
+        int minutes = updateFrequency - time % updateFrequency;
+        for (int k = 1; k < schedule.length; k++) {
+            index = index + 1 == schedule.length ? 0 : index + 1;
+            if (schedule[index] >= threshold) {
+                return minutes;
+            }
+            minutes += updateFrequency;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns this sensor's hazard schedule.
+     *
+     * @return precomputed hazard schedule
+     * @throws IllegalStateException if the hazard schedule has not been
+     * precomputed
+     */
+    private int[] requireHazardSchedule() throws IllegalStateException {
+        HazardExtras extras = this.peekHazardExtras();
+        if (extras == null || extras.hazardSchedule == null) {
+            throw new IllegalStateException(
+                    "Hazard schedule has not been precomputed");
+        }
+        return extras.hazardSchedule;
+    }
+
+    /**
+     * Adds a listener to be notified whenever this sensor's hazard level
+     * rises to or above the given threshold, or falls back below it.
+     * <p>
+     * Crossings are detected whenever the current reading changes, and are
+     * delivered in the same way as reading changes (see
+     * {@link #addReadingListener(ReadingListener)}). The same listener can
+     * be added several times with different thresholds.
+     *
+     * @param listener listener to add
+     * @param threshold hazard level whose crossings are reported
+     * @throws IllegalArgumentException if listener is null
+     */
+    public synchronized void addHazardListener(HazardListener listener,
+                                               int threshold)
+            throws IllegalArgumentException {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener must not be null");
+        }
+        this.catchUp();
+        HazardExtras extras = this.hazardExtras();
+        HazardSubscription[] existing = extras.hazardSubscriptions;
+        if (existing == null) {
+            existing = new HazardSubscription[0];
+            extras.notifiedHazardLevel = this.getHazardLevel();
+        }
+        for (HazardSubscription subscription : existing) {
+            if (subscription.listener == listener
+                    && subscription.threshold == threshold) {
+                return;
+            }
+        }
+        HazardSubscription[] subscriptions =
+                Arrays.copyOf(existing, existing.length + 1);
+        subscriptions[subscriptions.length - 1] =
+                new HazardSubscription(listener, threshold);
+        extras.hazardSubscriptions = subscriptions;
+        this.updateObserved();
+    }
+
+    /**
+     * Removes a listener added with
+     * {@link #addHazardListener(HazardListener, int)}, for every threshold it
+     * was added with.
+     *
+     * @param listener listener to remove
+     * @return true if the listener had been added; false otherwise
+     */
+    public synchronized boolean removeHazardListener(HazardListener listener) {
+        HazardExtras extras = this.peekHazardExtras();
+        if (extras == null || extras.hazardSubscriptions == null) {
+            return false;
+        }
+        HazardSubscription[] subscriptions =
+                Arrays.stream(extras.hazardSubscriptions)
+                        .filter(existing -> existing.listener != listener)
+                        .toArray(HazardSubscription[]::new);
+        if (subscriptions.length == extras.hazardSubscriptions.length) {
+            return false;
+        }
+        extras.hazardSubscriptions =
+                subscriptions.length == 0 ? null : subscriptions;
+        this.updateObserved();
+        return true;
+    }
+
+    /**
+     * Returns the roll-up that this sensor's hazard level is included in.
+     *
+     * @return hazard roll-up; null if none
+     */
+    public HazardRollup getHazardRollup() {
+        HazardExtras extras = this.peekHazardExtras();
+        return extras == null ? null : extras.hazardRollup;
+    }
+
+    /**
+     * Includes this sensor's hazard level in the given roll-up, removing it
+     * from any roll-up it was previously included in.
+     * <p>
+     * The roll-up is updated as soon as a change in the current reading
+     * changes the hazard level, rather than at the end of the tick, and
+     * without creating any events, so that keeping roll-ups up to date only
+     * costs work for the sensors that change. In
+     * {@link bms.util.TickMode#LAZY} mode, a sensor included in a roll-up is
+     * caught up on the minutes its reading changes, so the roll-up is kept
+     * up to date there too.
+     *
+     * @param hazardRollup roll-up to include this sensor in; null to remove
+     *                     it from its current roll-up
+     */
+    public synchronized void setHazardRollup(HazardRollup hazardRollup) {
+        if (this.getHazardRollup() == hazardRollup) {
+            return;
+        }
+        // the level added to the roll-up must match the current reading, so
+        // that later changes are measured from it
+        this.catchUp();
+        HazardExtras extras = this.hazardExtras();
+        if (extras.hazardRollup != null) {
+            extras.hazardRollup.remove(extras.rolledUpLevel);
+        }
+        if (hazardRollup != null) {
+            extras.rolledUpLevel = this.getHazardLevel();
+            hazardRollup.add(extras.rolledUpLevel);
+        }
+        extras.hazardRollup = hazardRollup;
+        this.updateObserved();
+    }
+
+    /**
+     * Returns whether any reading or hazard listeners have been added to
+     * this sensor, or it is included in a hazard roll-up.
+     *
+     * @return true if changes to this sensor are being listened for
+     */
+    @Override
+    public boolean isObserved() {
+        HazardExtras extras = this.peekHazardExtras();
+        return super.isObserved() || extras != null
+                && (extras.hazardSubscriptions != null
+                || extras.hazardRollup != null);
+    }
+
+    /**
+     * Updates this sensor's hazard roll-up, and queues notifications of a
+     * change in the current reading for its listeners, including any hazard
+     * threshold crossings it causes. The current reading must already have
+     * been updated.
+     *
+     * @param previousReading current reading before the change
+     * @param currentReading current reading after the change
+     */
+    @Override
+    void readingChanged(int previousReading, int currentReading) {
+        HazardExtras extras = this.peekHazardExtras();
+        if (extras == null) {
+            return;
+        }
+        if (extras.hazardRollup != null) {
+            this.updateHazardRollup();
+        }
+        super.readingChanged(previousReading, currentReading);
+        HazardSubscription[] subscriptions = extras.hazardSubscriptions;
+        if (subscriptions == null) {
+            return;
+        }
+        SensorEventDispatcher dispatcher = this.getDispatcher();
+        int previousLevel = extras.notifiedHazardLevel;
+        int level = this.getHazardLevel();
+        extras.notifiedHazardLevel = level;
+        for (HazardSubscription subscription : subscriptions) {
+            if ((previousLevel >= subscription.threshold)
+                    != (level >= subscription.threshold)) {
+                dispatcher.queue(subscription.listener,
+                        new HazardCrossing(this, subscription.threshold,
+                                previousLevel, level));
+            }
+        }
+    }
+
+    /**
+     * Moves this sensor to its current hazard level in its hazard roll-up,
+     * if the level has changed.
+     */
+    private synchronized void updateHazardRollup() {
+        HazardExtras extras = this.peekHazardExtras();
+        if (extras.hazardRollup == null) {
+            return;
+        }
+        int level = this.getHazardLevel();
+        if (level != extras.rolledUpLevel) {
+            extras.hazardRollup.update(extras.rolledUpLevel, level);
+            extras.rolledUpLevel = level;
+        }
+    }
+
+    /**
+     * Returns this sensor's extras, or null if none of the state they hold
+     * has been used yet.
+     *
+     * @return the sensor's extras, or null
+     */
+    private HazardExtras peekHazardExtras() {
+        return (HazardExtras) this.peekExtras();
+    }
+
+    /**
+     * Returns this sensor's extras, allocating them if this is the first
+     * time they are needed.
+     *
+     * @return the sensor's extras
+     */
+    private HazardExtras hazardExtras() {
+        return (HazardExtras) this.extras();
+    }
+
+    /**
+     * Creates the extras of this sensor, with room for its hazard state.
+     *
+     * @return new, empty extras
+     */
+    @Override
+    Extras newExtras() {
+        return new HazardExtras();
+    }
+
+    /**
+     * Checks the arguments of a batch hazard level computation.
+     *
+     * @param count number of entries to compute
+     * @param arrays input and output arrays of the computation
+     * @throws IllegalArgumentException if count is &lt; 0, or if any array
+     * is null or shorter than count
+     */
+    static void checkBatch(int count, int[]... arrays)
+            throws IllegalArgumentException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must be non-negative");
+        }
+        for (int[] array : arrays) {
+            if (array == null || array.length < count) {
+                throw new IllegalArgumentException("Arrays must not be null "
+                        + "and must hold at least " + count + " elements");
+            }
+        }
+    }
+
+    /**
+     * Rarely used state of a timed hazard sensor: its hazard schedule,
+     * listeners and roll-up, on top of that of every timed sensor.
+     */
+    private static final class HazardExtras extends Extras {
+
+        /**
+         * Hazard level of each of the sensor's readings, in the same order
+         * as the readings, or null if the schedule has not been precomputed.
+         */
+        private int[] hazardSchedule;
+
+        /**
+         * Hazard listeners and the thresholds they are notified of crossing,
+         * or null if there are none. Replaced rather than modified when
+         * listeners are added or removed.
+         */
+        private volatile HazardSubscription[] hazardSubscriptions;
+
+        /**
+         * Hazard level as of the last change reported to the hazard
+         * listeners.
+         */
+        private int notifiedHazardLevel;
+
+        /**
+         * Roll-up that the sensor's hazard level is included in, or null if
+         * none.
+         */
+        private volatile HazardRollup hazardRollup;
+
+        /**
+         * Hazard level last recorded in {@link #hazardRollup}.
+         */
+        private int rolledUpLevel;
+    }
+
+    /**
+     * A hazard listener added to this sensor, with the threshold it is
+     * notified of crossing.
+     */
+    private static final class HazardSubscription {
+        /**
+         * Listener to notify.
+         */
+        private final HazardListener listener;
+
+        /**
+         * Hazard level whose crossings are reported.
+         */
+        private final int threshold;
+
+        /**
+         * Creates a new hazard subscription.
+         *
+         * @param listener listener to notify
+         * @param threshold hazard level whose crossings are reported
+         */
+        HazardSubscription(HazardListener listener, int threshold) {
+            this.listener = listener;
+            this.threshold = threshold;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package bms.sensors;
 
+import bms.util.ScheduledTimedItem;
 import bms.util.TimedItem;
 import bms.util.TimedItemManager;
 
@@ -8,21 +9,52 @@ import java.util.Arrays;
 /**
  * An abstract class to represent a sensor that iterates through observed values
  * on a timer.
+ * <p>
+ * Timed sensors are deferrable: while their timed item manager is in
+ * {@link bms.util.TickMode#LAZY} mode they are not updated every minute, and
+ * instead derive their current reading on demand from the manager's deferred
+ * clock. They are also scheduled: in {@link bms.util.TickMode#EVENT} mode the
+ * manager only catches them up at the minutes when their reading changes.
  */
-public abstract class TimedSensor implements TimedItem, Sensor {
+public abstract class TimedSensor implements ScheduledTimedItem, Sensor {
 
     /**
-     * Data array representing the readings observed by the sensor.
+     * Listener array shared by every sensor without reading listeners.
+     */
+    private static final ReadingListener[] NO_READING_LISTENERS =
+            new ReadingListener[0];
+
+    /**
+     * Data array containing the readings observed by the sensor, starting at
+     * the offset recorded in {@link #extras}. This is either the array given
+     * to the constructor, or a chunk of a shared {@link ReadingStore}.
      * <p>
      * Readings taken one minute apart.
      */
     private int[] sensorReadings;
 
+    /**
+     * Number of readings observed by the sensor.
+     */
+    private int readingsLength;
+
     /**
      * The current sensor reading observed by the sensor.
      */
     private int currentReading;
 
+    /**
+     * Index of the current sensor reading, relative to the sensor's first
+     * reading.
+     */
+    private int readingIndex;
+
+    /**
+     * Time elapsed at which the reading after {@link #currentReading} is
+     * observed.
+     */
+    private long nextChangeTime;
+
     /**
      * The amount of time in minutes that the sensor has been running
      * (according to the system, not real life).
@@ -35,6 +67,18 @@ public abstract class TimedSensor implements TimedItem, Sensor {
      */
     private int updateFrequency;
 
+    /**
+     * The timed item manager this sensor is registered with.
+     */
+    private TimedItemManager timedItemManager;
+
+    /**
+     * State which most sensors never use, or null until any of it is first
+     * needed. Keeping it out of the sensor itself roughly halves the size
+     * of a sensor that only has readings and a manager.
+     */
+    private volatile Extras extras;
+
     /**
      * Creates a new timed sensor, using the provided list of sensor readings.
      * These represent "raw" data values, and have different meanings depending
@@ -77,20 +121,37 @@ public abstract class TimedSensor implements TimedItem, Sensor {
             }
         }
         this.sensorReadings = sensorReadings;
+        this.readingsLength = sensorReadings.length;
         this.currentReading = sensorReadings[0];
+        this.readingIndex = 0;
+        this.nextChangeTime = updateFrequency;
         this.updateFrequency = updateFrequency;
         this.timeElapsed = 0;
-        TimedItemManager.getInstance().registerTimedItem(this);
+        this.timedItemManager = TimedItemManager.getInstance();
+        this.setDeferredBase(this.timedItemManager.getDeferredMinutes());
+        this.timedItemManager.registerTimedItem(this);
     }
 
     /**
      * Returns the current sensor reading observed by the sensor.
+     * <p>
+     * If minutes have been deferred by the timed item manager since this
+     * sensor was last updated, the reading is derived from the resulting
+     * time elapsed.
      *
      * @return the current sensor reading
      * @ass1
      */
     public int getCurrentReading() {
-        return this.currentReading;
+        Extras extras = this.extras;
+        if (extras != null && extras.sensorKernel != null) {
+            return extras.sensorKernel.currentReadingOf(extras.kernelSlot);
+        }
+        long time = this.timeElapsed + this.pendingMinutes();
+        if (time < this.nextChangeTime) {
+            return this.currentReading;
+        }
+        return this.readingAt(time);
     }
 
     /**
@@ -102,7 +163,156 @@ public abstract class TimedSensor implements TimedItem, Sensor {
      * @ass1
      */
     public int getTimeElapsed() {
-        return timeElapsed;
+        Extras extras = this.extras;
+        if (extras != null && extras.sensorKernel != null) {
+            return extras.sensorKernel.timeElapsedOf(extras.kernelSlot);
+        }
+        return (int) (timeElapsed + this.pendingMinutes());
+    }
+
+    /**
+     * Returns the timed item manager this sensor is registered with.
+     * <p>
+     * Sensors are registered with the singleton
+     * {@link TimedItemManager#getInstance()} when they are created.
+     *
+     * @return the sensor's timed item manager
+     */
+    public TimedItemManager getTimedItemManager() {
+        return timedItemManager;
+    }
+
+    /**
+     * Moves this sensor to the given timed item manager.
+     * <p>
+     * The sensor is unregistered from its current manager and registered
+     * with the given one. Its time elapsed and current reading are preserved,
+     * including any minutes deferred by its current manager that it has not
+     * yet caught up with. If the sensor already belongs to the given manager,
+     * no action is taken.
+     * <p>
+     * If the sensor has been adopted by a {@link SensorKernel}, the given
+     * manager is only recorded, and the sensor is registered with it when it
+     * is released from the kernel.
+     * <p>
+     * If the sensor has been released with {@link #release()}, it is
+     * registered with the given manager even if it already belongs to it,
+     * and is advanced again from its time elapsed when it was released.
+     *
+     * @param timedItemManager manager to register this sensor with
+     * @throws IllegalArgumentException if timedItemManager is null
+     */
+    public void setTimedItemManager(TimedItemManager timedItemManager)
+            throws IllegalArgumentException {
+        if (timedItemManager == null) {
+            throw new IllegalArgumentException(
+                    "Timed item manager must not be null");
+        }
+        if (timedItemManager == this.timedItemManager && !this.isReleased()) {
+            return;
+        }
+        if (this.getSensorKernel() != null) {
+            this.timedItemManager = timedItemManager;
+            return;
+        }
+        this.catchUp();
+        this.timedItemManager.unregisterTimedItem(this);
+        this.setReleased(false);
+        this.timedItemManager = timedItemManager;
+        this.setDeferredBase(timedItemManager.getDeferredMinutes());
+        timedItemManager.registerTimedItem(this);
+    }
+
+    /**
+     * Stops this sensor from being advanced by its timed item manager.
+     * <p>
+     * The sensor is released from its {@link SensorKernel}, if any, catches
+     * up with any minutes deferred by its manager, and is unregistered from
+     * the manager, so that the manager no longer references it. Its time
+     * elapsed and current reading are kept, and no longer change until the
+     * sensor is registered again with
+     * {@link #setTimedItemManager(TimedItemManager)}. If the sensor has
+     * already been released, no action is taken.
+     */
+    public void release() {
+        if (this.isReleased()) {
+            return;
+        }
+        SensorKernel kernel = this.getSensorKernel();
+        if (kernel != null) {
+            kernel.remove(this);
+        }
+        this.catchUp();
+        this.timedItemManager.unregisterTimedItem(this);
+        this.setReleased(true);
+    }
+
+    /**
+     * Returns whether this sensor has been released from its timed item
+     * manager with {@link #release()}.
+     *
+     * @return true if the sensor is not being advanced by any manager
+     */
+    public boolean isReleased() {
+        Extras extras = this.extras;
+        return extras != null && extras.released;
+    }
+
+    /**
+     * Records whether this sensor has been released from its timed item
+     * manager.
+     *
+     * @param released true if the sensor has been released
+     */
+    private void setReleased(boolean released) {
+        if (released || this.extras != null) {
+            this.extras().released = released;
+        }
+    }
+
+    /**
+     * Returns the shared store holding this sensor's readings.
+     *
+     * @return the sensor's reading store; null if the sensor holds its own
+     * readings array
+     */
+    public ReadingStore getReadingStore() {
+        Extras extras = this.extras;
+        return extras == null ? null : extras.readingStore;
+    }
+
+    /**
+     * Moves this sensor's readings into the given shared store.
+     * <p>
+     * The readings are copied into the store and the sensor stops
+     * referencing its own readings array, so the array can be garbage
+     * collected if nothing else references it. The sensor's readings, time
+     * elapsed and current reading are unchanged. If the sensor's readings are
+     * already in the given store, no action is taken; if they are in another
+     * store, they are copied again (stores are append-only, so the space in
+     * the old store is not reclaimed).
+     *
+     * @param store store to move the readings into
+     * @throws IllegalArgumentException if store is null
+     */
+    public void moveReadingsTo(ReadingStore store)
+            throws IllegalArgumentException {
+        if (store == null) {
+            throw new IllegalArgumentException(
+                    "Reading store must not be null");
+        }
+        if (store == this.getReadingStore()) {
+            return;
+        }
+        ReadingStore.Slot slot = store.append(this.sensorReadings,
+                this.readingsOffset(), this.readingsLength);
+        Extras extras = this.extras();
+        this.sensorReadings = slot.chunk;
+        extras.readingsOffset = slot.offset;
+        extras.readingStore = store;
+        if (extras.sensorKernel != null) {
+            this.copyReadingsLocation();
+        }
     }
 
     /**
@@ -116,6 +326,65 @@ public abstract class TimedSensor implements TimedItem, Sensor {
         return updateFrequency;
     }
 
+    /**
+     * Returns a copy of the sensor's readings, in the order they are
+     * observed.
+     * <p>
+     * Changing the returned array does not affect the sensor.
+     *
+     * @return the sensor's readings
+     */
+    public int[] getReadings() {
+        int offset = this.readingsOffset();
+        return Arrays.copyOfRange(this.sensorReadings, offset,
+                offset + this.readingsLength);
+    }
+
+    /**
+     * Returns the history of this sensor's recent readings.
+     *
+     * @return reading history; null if not enabled
+     */
+    public ReadingHistory getReadingHistory() {
+        Extras extras = this.extras;
+        return extras == null ? null : extras.readingHistory;
+    }
+
+    /**
+     * Starts keeping a history of this sensor's readings for the given
+     * number of most recent minutes, beginning with the current reading.
+     * <p>
+     * If a history with the same capacity is already being kept, it is
+     * returned unchanged; a history with a different capacity is replaced.
+     *
+     * @param capacity number of minutes of readings to keep
+     * @return the sensor's reading history
+     * @throws IllegalArgumentException if capacity is &lt; 1
+     */
+    public synchronized ReadingHistory enableReadingHistory(int capacity)
+            throws IllegalArgumentException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "History capacity must be 1 or higher");
+        }
+        Extras extras = this.extras();
+        if (extras.readingHistory == null
+                || extras.readingHistory.getCapacity() != capacity) {
+            extras.readingHistory = new ReadingHistory(this, capacity);
+        }
+        return extras.readingHistory;
+    }
+
+    /**
+     * Stops keeping a history of this sensor's readings, discarding any
+     * readings held.
+     */
+    public synchronized void disableReadingHistory() {
+        if (this.extras != null) {
+            this.extras.readingHistory = null;
+        }
+    }
+
     /**
      * Increments the time elapsed (in minutes) by one.
      * <p>
@@ -129,21 +398,455 @@ public abstract class TimedSensor implements TimedItem, Sensor {
      * @ass1
      * */
     public void elapseOneMinute() {
+        Extras extras = this.extras;
+        if (extras != null && extras.sensorKernel != null) {
+            extras.sensorKernel.elapseSensor(extras.kernelSlot, 1);
+            return;
+        }
+        this.catchUp();
         this.timeElapsed++;
+        this.updateCurrentReading();
+    }
 
+    /**
+     * Increments the time elapsed (in minutes) by the given amount.
+     * <p>
+     * The current sensor reading is updated to the value it would have after
+     * calling {@link #elapseOneMinute()} {@code minutes} times, but is
+     * calculated directly from the new time elapsed, so this method takes
+     * the same time regardless of how many minutes are elapsed.
+     *
+     * @param minutes number of minutes to advance by
+     * @throws IllegalArgumentException if minutes is &lt; 0, or if the
+     * resulting time elapsed would not fit in an {@code int}
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Minutes to elapse must be non-negative");
+        }
+        Extras extras = this.extras;
+        if (extras != null && extras.sensorKernel != null) {
+            extras.sensorKernel.elapseSensor(extras.kernelSlot, minutes);
+            return;
+        }
+        this.catchUp();
+        if (minutes > Integer.MAX_VALUE - this.timeElapsed) {
+            throw new IllegalArgumentException("Time elapsed cannot exceed "
+                    + Integer.MAX_VALUE + " minutes");
+        }
+        this.timeElapsed += (int) minutes;
+        this.updateCurrentReading();
+    }
+
+    /**
+     * Adds a listener to be notified whenever this sensor's current reading
+     * changes to a different value. Adding a listener which has already been
+     * added has no effect.
+     * <p>
+     * Changes are reported as the sensor is advanced, and delivered in a
+     * single call per listener at the end of the tick of the timed item
+     * manager advancing the sensor. When the sensor is advanced several
+     * minutes at once, only the change from its old to its new reading is
+     * reported. In {@link bms.util.TickMode#LAZY} and
+     * {@link bms.util.TickMode#EVENT} modes, a sensor with listeners is
+     * caught up on the minutes its reading changes, so changes are still
+     * reported on the minute they happen.
+     *
+     * @param listener listener to add
+     * @throws IllegalArgumentException if listener is null
+     */
+    public synchronized void addReadingListener(ReadingListener listener)
+            throws IllegalArgumentException {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener must not be null");
+        }
+        // bring a deferred sensor up to date first, so that the listener is
+        // only told about changes made after it was added
+        this.catchUp();
+        Extras extras = this.extras();
+        for (ReadingListener existing : extras.readingListeners) {
+            if (existing == listener) {
+                return;
+            }
+        }
+        ReadingListener[] listeners = Arrays.copyOf(extras.readingListeners,
+                extras.readingListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        extras.readingListeners = listeners;
+        this.updateObserved();
+    }
+
+    /**
+     * Removes a listener added with
+     * {@link #addReadingListener(ReadingListener)}.
+     *
+     * @param listener listener to remove
+     * @return true if the listener had been added; false otherwise
+     */
+    public synchronized boolean removeReadingListener(
+            ReadingListener listener) {
+        Extras extras = this.extras;
+        if (extras == null) {
+            return false;
+        }
+        ReadingListener[] listeners = Arrays.stream(extras.readingListeners)
+                .filter(existing -> existing != listener)
+                .toArray(ReadingListener[]::new);
+        if (listeners.length == extras.readingListeners.length) {
+            return false;
+        }
+        extras.readingListeners = listeners.length == 0
+                ? NO_READING_LISTENERS : listeners;
+        this.updateObserved();
+        return true;
+    }
+
+    /**
+     * Returns whether any listeners have been added to this sensor.
+     *
+     * @return true if changes to this sensor are being listened for
+     */
+    @Override
+    public boolean isObserved() {
+        Extras extras = this.extras;
+        return extras != null && extras.readingListeners.length > 0;
+    }
+
+    /**
+     * Queues notifications of a change in the current reading for this
+     * sensor's listeners. The current reading must already have been
+     * updated.
+     *
+     * @param previousReading current reading before the change
+     * @param currentReading current reading after the change
+     */
+    void readingChanged(int previousReading, int currentReading) {
+        Extras extras = this.extras;
+        if (extras == null || extras.readingListeners.length == 0) {
+            return;
+        }
+        ReadingListener[] listeners = extras.readingListeners;
+        SensorEventDispatcher dispatcher = this.getDispatcher();
+        ReadingChange change = new ReadingChange(this, previousReading,
+                currentReading, this.getTimeElapsed());
+        for (ReadingListener listener : listeners) {
+            dispatcher.queue(listener, change);
+        }
+    }
+
+    /**
+     * Returns the dispatcher that delivers this sensor's events at the end
+     * of the tick of the timed item manager advancing it.
+     *
+     * @return event dispatcher of the sensor's manager
+     */
+    SensorEventDispatcher getDispatcher() {
+        SensorKernel kernel = this.getSensorKernel();
+        return SensorEventDispatcher.of(kernel != null
+                ? kernel.getTimedItemManager()
+                : this.timedItemManager);
+    }
+
+    /**
+     * Tells this sensor's kernel, or otherwise its timed item manager,
+     * whether changes to this sensor are being listened for.
+     */
+    void updateObserved() {
+        SensorKernel kernel = this.getSensorKernel();
+        if (kernel != null) {
+            kernel.setObserved(this.extras.kernelSlot, this.isObserved());
+        } else {
+            this.timedItemManager.observedChanged(this);
+        }
+    }
+
+    /**
+     * Returns the number of minutes until this sensor moves on to its next
+     * reading.
+     *
+     * @return minutes until the next reading, from 1 to the update
+     * frequency; or -1 if the sensor only has one reading, so its reading
+     * never changes
+     */
+    @Override
+    public long minutesUntilNextChange() {
+        if (this.readingsLength == 1) {
+            return -1;
+        }
+        long time = this.getTimeElapsed();
+        if (this.getSensorKernel() == null && time < this.nextChangeTime) {
+            return this.nextChangeTime - time;
+        }
+        return this.updateFrequency - time % this.updateFrequency;
+    }
+
+    /**
+     * Returns the kernel advancing this sensor.
+     *
+     * @return the sensor's kernel; null if the sensor is advanced by its
+     * timed item manager
+     */
+    public SensorKernel getSensorKernel() {
+        Extras extras = this.extras;
+        return extras == null ? null : extras.sensorKernel;
+    }
+
+    /**
+     * Hands this sensor over to the given kernel, unregistering it from its
+     * timed item manager. Any deferred minutes are caught up with first.
+     *
+     * @param kernel kernel adopting this sensor
+     * @param slot index of this sensor's entry in the kernel's arrays
+     */
+    void attachKernel(SensorKernel kernel, int slot) {
+        this.catchUp();
+        this.timedItemManager.unregisterTimedItem(this);
+        Extras extras = this.extras();
+        extras.released = false;
+        extras.sensorKernel = kernel;
+        extras.kernelSlot = slot;
+    }
+
+    /**
+     * Takes this sensor back from its kernel, registering it with its timed
+     * item manager again.
+     *
+     * @param timeElapsed time elapsed of the sensor in the kernel
+     * @param currentReading current reading of the sensor in the kernel
+     */
+    void detachKernel(int timeElapsed, int currentReading) {
+        this.extras.sensorKernel = null;
+        this.timeElapsed = timeElapsed;
+        this.currentReading = currentReading;
+        this.readingIndex = this.readingIndex(timeElapsed);
+        this.nextChangeTime = this.nextChangeTime(timeElapsed);
+        this.setDeferredBase(this.timedItemManager.getDeferredMinutes());
+        this.timedItemManager.registerTimedItem(this);
+    }
+
+    /**
+     * Returns the index of this sensor's entry in its kernel's arrays.
+     *
+     * @return the sensor's kernel slot
+     */
+    int getKernelSlot() {
+        return this.extras.kernelSlot;
+    }
+
+    /**
+     * Updates the index of this sensor's entry in its kernel's arrays.
+     *
+     * @param slot the sensor's new kernel slot
+     */
+    void setKernelSlot(int slot) {
+        this.extras.kernelSlot = slot;
+    }
+
+    /**
+     * Tells this sensor's kernel where the sensor's readings are stored.
+     */
+    void copyReadingsLocation() {
+        Extras extras = this.extras;
+        extras.sensorKernel.setReadingsLocation(extras.kernelSlot,
+                this.sensorReadings, extras.readingsOffset,
+                this.readingsLength);
+    }
+
+    /**
+     * Returns the index of the current sensor reading, relative to the
+     * sensor's first reading.
+     *
+     * @return index of the current reading
+     */
+    int currentReadingIndex() {
+        Extras extras = this.extras;
+        if (extras != null && extras.sensorKernel != null) {
+            return extras.sensorKernel.readingIndexOf(extras.kernelSlot);
+        }
+        long time = this.timeElapsed + this.pendingMinutes();
+        if (time < this.nextChangeTime) {
+            return this.readingIndex;
+        }
+        return this.readingIndex(time);
+    }
+
+    /**
+     * Updates the current reading (and its index) to the reading observed at
+     * the current time elapsed.
+     * <p>
+     * When the time elapsed has not reached the next reading, nothing needs
+     * to change; when it has reached exactly the next reading, the index is
+     * stepped on by one. Only larger jumps recalculate the index.
+     */
+    private void updateCurrentReading() {
+        if (this.timeElapsed < this.nextChangeTime) {
+            return;
+        }
+        int previousReading = this.currentReading;
+        if (this.timeElapsed == this.nextChangeTime) {
+            int index = this.readingIndex + 1;
+            this.readingIndex = index == this.readingsLength ? 0 : index;
+            this.nextChangeTime += this.updateFrequency;
+        } else {
+            this.readingIndex = this.readingIndex(this.timeElapsed);
+            this.nextChangeTime = this.nextChangeTime(this.timeElapsed);
+        }
+        this.currentReading =
+                this.sensorReadings[this.readingsOffset() + this.readingIndex];
+        if (this.currentReading != previousReading) {
+            this.readingChanged(previousReading, this.currentReading);
+        }
+    }
+
+    /**
+     * Returns the time elapsed at which the reading after the one observed
+     * at the given time is observed.
+     *
+     * @param time time elapsed in minutes
+     * @return time of the next reading
+     */
+    private long nextChangeTime(long time) {
+        return time + this.updateFrequency - time % this.updateFrequency;
+    }
+
+    /**
+     * Returns the number of minutes deferred by the timed item manager that
+     * this sensor has not yet caught up with.
+     *
+     * @return minutes deferred since this sensor was last updated
+     */
+    private long pendingMinutes() {
+        Extras extras = this.extras;
+        if (extras == null) {
+            return this.timedItemManager.getDeferredMinutes();
+        }
+        if (extras.released) {
+            return 0;
+        }
+        return this.timedItemManager.getDeferredMinutes()
+                - extras.deferredBase;
+    }
+
+    /**
+     * Records the value of the manager's deferred clock this sensor has
+     * caught up with. A value of zero, which is all a manager that never
+     * defers minutes needs, does not allocate the sensor's extras.
+     *
+     * @param deferredBase value of the manager's deferred clock
+     */
+    private void setDeferredBase(long deferredBase) {
+        if (deferredBase != 0 || this.extras != null) {
+            this.extras().deferredBase = deferredBase;
+        }
+    }
+
+    /**
+     * Adds any minutes deferred by the timed item manager to the time
+     * elapsed, so that the sensor can resume being updated every minute.
+     * <p>
+     * Called by the timed item manager in {@link bms.util.TickMode#EVENT}
+     * mode at the minutes when this sensor's reading changes. Has no effect
+     * while the sensor is adopted by a {@link SensorKernel}, or after it has
+     * been released with {@link #release()}.
+     */
+    @Override
+    public void catchUp() {
+        Extras extras = this.extras;
+        if (extras != null && (extras.sensorKernel != null
+                || extras.released)) {
+            return;
+        }
+        long deferredBase = extras == null ? 0 : extras.deferredBase;
+        long deferred = this.timedItemManager.getDeferredMinutes();
+        if (deferred != deferredBase) {
+            this.timeElapsed += (int) (deferred - deferredBase);
+            this.setDeferredBase(deferred);
+            this.updateCurrentReading();
+        }
+    }
+
+    /**
+     * Returns the reading observed at the given time elapsed.
+     *
+     * @param time time elapsed in minutes
+     * @return reading observed at that time
+     */
+    int readingAt(long time) {
+        return this.sensorReadings[this.readingsOffset()
+                + this.readingIndex(time)];
+    }
+
+    /**
+     * Returns the index of this sensor's first reading within
+     * {@link #sensorReadings}.
+     *
+     * @return offset of the sensor's readings
+     */
+    private int readingsOffset() {
+        Extras extras = this.extras;
+        return extras == null ? 0 : extras.readingsOffset;
+    }
+
+    /**
+     * Returns the index within this sensor's readings of the reading observed
+     * at the given time elapsed.
+     *
+     * @param time time elapsed in minutes
+     * @return index of the reading observed at that time
+     */
+    int readingIndex(long time) {
         // calculate the time taken before wrapping around to the starting value
         // again
-        int rotationDuration = this.sensorReadings.length
-                * this.updateFrequency;
+        int rotationDuration = this.readingsLength * this.updateFrequency;
 
         // calculate the time remaining in the current rotation
-        int timeRemainingInRotation =  this.timeElapsed % rotationDuration;
+        int timeRemainingInRotation = (int) (time % rotationDuration);
 
         // index is time remaining in the current rotation divided by the update
         // frequency
-        int index = timeRemainingInRotation / this.updateFrequency;
+        return timeRemainingInRotation / this.updateFrequency;
+    }
 
-        this.currentReading = this.sensorReadings[index];
+    /**
+     * Returns this sensor's extras, or null if none of the state they hold
+     * has been used yet.
+     *
+     * @return the sensor's extras, or null
+     */
+    Extras peekExtras() {
+        return this.extras;
+    }
+
+    /**
+     * Returns this sensor's extras, allocating them with
+     * {@link #newExtras()} if this is the first time they are needed.
+     *
+     * @return the sensor's extras
+     */
+    Extras extras() {
+        Extras extras = this.extras;
+        if (extras == null) {
+            synchronized (this) {
+                extras = this.extras;
+                if (extras == null) {
+                    extras = this.newExtras();
+                    this.extras = extras;
+                }
+            }
+        }
+        return extras;
+    }
+
+    /**
+     * Creates the extras of this sensor. Subclasses with rarely used state
+     * of their own return a subclass of {@link Extras} holding it.
+     *
+     * @return new, empty extras
+     */
+    Extras newExtras() {
+        return new Extras();
     }
 
     /**
@@ -164,8 +867,67 @@ public abstract class TimedSensor implements TimedItem, Sensor {
     public String toString() {
         return String.format("TimedSensor: freq=%d, readings=%s",
                 this.updateFrequency,
-                String.join(",", Arrays.stream(this.sensorReadings)
+                String.join(",", Arrays.stream(this.getReadings())
                         .mapToObj(String::valueOf)
                         .toArray(String[]::new)));
     }
+
+    /**
+     * State of a timed sensor which most sensors never use: where its
+     * readings are kept in a shared store, its kernel, its listeners and
+     * history, and how far it has caught up with a manager that defers
+     * minutes.
+     */
+    static class Extras {
+
+        /**
+         * Shared store holding the sensor's readings, or null if the sensor
+         * holds its own array.
+         */
+        private ReadingStore readingStore;
+
+        /**
+         * Index of the sensor's first reading within its readings array.
+         */
+        private int readingsOffset;
+
+        /**
+         * Value of the manager's deferred clock when the sensor last caught
+         * up with it. Minutes deferred since then have not yet been added to
+         * the sensor's time elapsed.
+         */
+        private long deferredBase;
+
+        /**
+         * Whether the sensor has been released by
+         * {@link TimedSensor#release()} and not
+         * registered with a timed item manager since.
+         */
+        private boolean released;
+
+        /**
+         * Kernel advancing the sensor, or null if the sensor is advanced by
+         * its timed item manager. While set, the kernel holds the sensor's
+         * time elapsed and current reading.
+         */
+        private SensorKernel sensorKernel;
+
+        /**
+         * Index of the sensor's entry in the arrays of
+         * {@link #sensorKernel}.
+         */
+        private int kernelSlot;
+
+        /**
+         * Listeners notified of changes to the current reading. Replaced
+         * rather than modified when listeners are added or removed.
+         */
+        private volatile ReadingListener[] readingListeners =
+                NO_READING_LISTENERS;
+
+        /**
+         * History of the sensor's recent readings, or null if not enabled.
+         */
+        private volatile ReadingHistory readingHistory;
+    }
 }
@@ -0,0 +1,16 @@
+package bms.util;
+
+/**
+ * Denotes a timed item whose state can be derived on demand from the number
+ * of minutes that have elapsed, rather than being updated every minute.
+ * <p>
+ * When the {@link TimedItemManager} is in {@link TickMode#LAZY} (or
+ * {@link TickMode#EVENT}) mode, it does
+ * not call {@link TimedItem#elapseOneMinute()} on deferrable items. Instead,
+ * it only advances its deferred clock
+ * ({@link TimedItemManager#getDeferredMinutes()}), and each deferrable item
+ * is responsible for taking the minutes elapsed on that clock since it was
+ * registered into account whenever its state is queried.
+ */
+public interface DeferrableTimedItem extends TimedItem {
+}
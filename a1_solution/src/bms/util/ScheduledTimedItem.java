@@ -0,0 +1,45 @@
+package bms.util;
+
+/**
+ * Denotes a deferrable timed item which knows in advance when its state
+ * next changes.
+ * <p>
+ * When the {@link TimedItemManager} is in {@link TickMode#EVENT} mode, it
+ * advances its deferred clock as in {@link TickMode#LAZY} mode, but also
+ * calls {@link #catchUp()} on each scheduled item at the minutes when that
+ * item's state changes, so that the item's state is kept up to date without
+ * it being called every minute. In {@link TickMode#LAZY} mode, the same is
+ * done for the scheduled items which are observed (see
+ * {@link #isObserved()}).
+ */
+public interface ScheduledTimedItem extends DeferrableTimedItem {
+
+    /**
+     * Brings this item's state up to date with the minutes elapsed on its
+     * manager's deferred clock.
+     */
+    void catchUp();
+
+    /**
+     * Returns the number of minutes on the manager's deferred clock until
+     * this item's state next changes, assuming the item is up to date.
+     *
+     * @return minutes until the next change, at least 1; or -1 if the item's
+     * state never changes
+     */
+    long minutesUntilNextChange();
+
+    /**
+     * Returns whether changes to this item's state are being listened for,
+     * in which case the item is caught up at the minutes when its state
+     * changes even in {@link TickMode#LAZY} mode.
+     * <p>
+     * Items must tell their manager whenever this changes, see
+     * {@link TimedItemManager#observedChanged(ScheduledTimedItem)}.
+     *
+     * @return true if the item is observed; false by default
+     */
+    default boolean isObserved() {
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package bms.util;
+
+/**
+ * A listener notified by a {@link TimedItemManager} each time it finishes
+ * advancing its registered timed items.
+ */
+@FunctionalInterface
+public interface TickListener {
+
+    /**
+     * Called once every registered item has been advanced by a call to
+     * {@link TimedItemManager#elapseOneMinute()} or
+     * {@link TimedItemManager#elapseMinutes(long)}, on the thread that made
+     * the call.
+     *
+     * @param manager manager which has finished ticking
+     */
+    void tickCompleted(TimedItemManager manager);
+}
@@ -0,0 +1,43 @@
+package bms.util;
+
+/**
+ * Enum to represent the strategy used by the {@link TimedItemManager} to
+ * advance its registered timed items by one minute.
+ */
+public enum TickMode {
+    /**
+     * Timed items are advanced one after another on the calling thread, in
+     * the order they were registered.
+     */
+    SEQUENTIAL,
+    /**
+     * Timed items are partitioned into shards which are advanced concurrently
+     * on a fork-join pool. The tick does not return until every shard has
+     * been advanced.
+     */
+    PARALLEL,
+    /**
+     * Only the manager's deferred clock is advanced for
+     * {@link DeferrableTimedItem}s, which derive their state from that clock
+     * when queried. Any other timed items are advanced sequentially.
+     * <p>
+     * {@link ScheduledTimedItem}s which are observed (see
+     * {@link ScheduledTimedItem#isObserved()}) are caught up at the minutes
+     * when their state changes, as in {@link #EVENT} mode, so that their
+     * listeners are not left behind.
+     * <p>
+     * The cost of a tick therefore does not depend on the number of
+     * deferrable items registered which are not observed.
+     */
+    LAZY,
+    /**
+     * As in {@link #LAZY} mode, the deferred clock is advanced instead of
+     * calling {@link DeferrableTimedItem}s, but {@link ScheduledTimedItem}s
+     * are also caught up at the minutes when their state changes. Any other
+     * timed items are advanced sequentially.
+     * <p>
+     * The cost of a tick therefore only depends on the number of scheduled
+     * items whose state changes in that minute.
+     */
+    EVENT
+}
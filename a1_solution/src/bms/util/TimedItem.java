@@ -12,4 +12,26 @@ public interface TimedItem {
      * @ass1
      */
     void elapseOneMinute();
+
+    /**
+     * Advances this item by the given number of minutes.
+     * <p>
+     * The item must end up in the same state as if
+     * {@link #elapseOneMinute()} had been called {@code minutes} times.
+     * The default implementation does exactly that; implementations whose
+     * state can be derived directly from the time elapsed should override
+     * this method to jump ahead in constant time.
+     *
+     * @param minutes number of minutes to advance by
+     * @throws IllegalArgumentException if minutes is &lt; 0
+     */
+    default void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Minutes to elapse must be non-negative");
+        }
+        for (long i = 0; i < minutes; i++) {
+            this.elapseOneMinute();
+        }
+    }
 }
@@ -1,11 +1,28 @@
 package bms.util;
 
+import bms.hazard.HazardRollup;
+import bms.metrics.Metrics;
+
+import java.lang.ref.ReferenceQueue;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Singleton class which manages all the timed items.
  * <p>
+ * In addition to the singleton instance, separate managers can be created to
+ * scope a set of timed items to, for example, a single
+ * {@link bms.building.Building}. Such a manager is only ticked when its own
+ * {@link #elapseOneMinute()} method is called.
+ * <p>
  * All classes that implement TimedItem must be registered with this manager,
  * which will allow their {@link TimedItemManager#elapseOneMinute()} method to
  * be called at regular time intervals.
@@ -14,6 +31,15 @@ import java.util.List;
  * {@link TimedItemManager#registerTimedItem(TimedItem)} ()} and passing itself,
  * the manager will ensure that its {@code elapseOneMinute()} method is called
  * at regular intervals.
+ * <p>
+ * By default, registered items are advanced sequentially on the calling
+ * thread. The manager can instead be switched to {@link TickMode#PARALLEL},
+ * in which case the registered items are split into shards that are advanced
+ * concurrently, or to {@link TickMode#LAZY}, in which case
+ * {@link DeferrableTimedItem}s are not called at all and only the manager's
+ * deferred clock is advanced, or to {@link TickMode#EVENT}, in which case
+ * {@link ScheduledTimedItem}s are additionally caught up only at the minutes
+ * when their state changes (see {@link #setTickMode(TickMode)}).
  * @ass1
  */
 public class TimedItemManager implements TimedItem {
@@ -23,16 +49,156 @@ public class TimedItemManager implements TimedItem {
     private static TimedItemManager instance = new TimedItemManager();
 
     /**
-     * List of timed items currently registered with the manager.
+     * Smallest number of timed items worth handing to a separate shard.
+     * Below this, the cost of scheduling the shard outweighs the work.
+     */
+    private static final int MIN_SHARD_SIZE = 1024;
+
+    /**
+     * Set of timed items currently registered with the manager, in
+     * registration order unless registrations are weak.
+     */
+    private Set<TimedItem> timedItems;
+
+    /**
+     * Whether the manager only holds weak references to its timed items.
+     */
+    private final boolean weakRegistrations;
+
+    /**
+     * Registered timed items as of the last tick, or null if an item has
+     * been registered or unregistered since the snapshot was taken. Only
+     * used when registrations are strong.
+     */
+    private TimedItem[] snapshot;
+
+    /**
+     * Registered timed items which are not {@link DeferrableTimedItem}s, as
+     * of the last tick in {@link TickMode#LAZY} mode, or null if an item has
+     * been registered or unregistered since the snapshot was taken. Only
+     * used when registrations are strong.
+     */
+    private TimedItem[] eagerSnapshot;
+
+    /**
+     * Equivalent of {@link #snapshot} when registrations are weak, which is
+     * also discarded once any of its items has been garbage collected.
+     */
+    private WeakSnapshot weakSnapshot;
+
+    /**
+     * Equivalent of {@link #eagerSnapshot} when registrations are weak,
+     * which is also discarded once any of its items has been garbage
+     * collected.
+     */
+    private WeakSnapshot weakEagerSnapshot;
+
+    /**
+     * Queue onto which the references held by the weak snapshots are
+     * enqueued once their items have been garbage collected, or null if
+     * registrations are strong.
+     */
+    private final ReferenceQueue<TimedItem> collected;
+
+    /**
+     * Timing wheel of the registered {@link ScheduledTimedItem}s (only the
+     * observed ones in {@link TickMode#LAZY} mode), as of the last tick in
+     * {@link TickMode#EVENT} or {@link TickMode#LAZY} mode, or null if it
+     * must be rebuilt because an item has been registered or unregistered,
+     * or the tick mode has changed. Only holds weak references to the items
+     * when registrations are weak.
+     */
+    private TimingWheel timingWheel;
+
+    /**
+     * Whether an item has become observed or stopped being observed since
+     * the timing wheel was built in {@link TickMode#LAZY} mode, in which
+     * case the wheel must be rebuilt. Set without holding the manager's
+     * lock, so that items can report changes while a tick is calling them.
+     */
+    private volatile boolean observersChanged;
+
+    /**
+     * Listeners notified at the end of every tick, in the order they were
+     * added. Replaced rather than modified, so a tick can notify them without
+     * holding the manager's lock.
      */
-    private List<TimedItem> timedItems;
+    private volatile TickListener[] tickListeners;
+
+    /**
+     * Lock held for the duration of each tick, so that concurrent ticks of
+     * the same manager are applied one after the other rather than
+     * interleaved.
+     */
+    private final Object tickLock = new Object();
+
+    /**
+     * Number of minutes that have elapsed while in {@link TickMode#LAZY} or
+     * {@link TickMode#EVENT} mode. Only written while holding the tick lock.
+     */
+    private volatile long deferredMinutes;
+
+    /**
+     * Total number of minutes the manager has been advanced by, in any tick
+     * mode. Only written while holding the tick lock.
+     */
+    private volatile long minutesElapsed;
+
+    /**
+     * Strategy used to advance the registered items.
+     */
+    private volatile TickMode tickMode;
+
+    /**
+     * Maximum number of shards to split the registered items into when
+     * ticking in parallel.
+     */
+    private volatile int shardCount;
+
+    /**
+     * Breakdown by type of the items last ticked, kept for the metrics
+     * recorded on the next tick; null if no tick has been recorded. Only
+     * accessed while holding the tick lock.
+     */
+    private Metrics.TypeBreakdown typeBreakdown;
 
     /**
      * Creates a new timed item manager with an empty list of registered items.
+     * <p>
+     * The manager holds strong references to its registered items, which
+     * remain registered until they are unregistered.
      * @ass1
      */
-    private TimedItemManager() {
-        this.timedItems = new ArrayList<>();
+    public TimedItemManager() {
+        this(false);
+    }
+
+    /**
+     * Creates a new timed item manager with an empty list of registered
+     * items.
+     * <p>
+     * If weakRegistrations is true, the manager only holds weak references to
+     * its registered items. Items which are no longer reachable from
+     * elsewhere are then garbage collected as usual, and are purged from the
+     * manager during subsequent ticks. Items are not ticked in any particular
+     * order when registrations are weak.
+     * <p>
+     * Between ticks, such a manager keeps its snapshot of the registered
+     * items as weak references, so that it only needs to be rebuilt once an
+     * item has been registered, unregistered or garbage collected.
+     *
+     * @param weakRegistrations whether the manager should only hold weak
+     *                          references to its registered items
+     */
+    public TimedItemManager(boolean weakRegistrations) {
+        this.weakRegistrations = weakRegistrations;
+        this.collected = weakRegistrations ? new ReferenceQueue<>() : null;
+        this.timedItems = weakRegistrations
+                ? Collections.newSetFromMap(new WeakHashMap<>())
+                : new LinkedHashSet<>();
+        this.tickMode = TickMode.SEQUENTIAL;
+        this.tickListeners = new TickListener[0];
+        this.shardCount = ForkJoinPool.getCommonPoolParallelism();
     }
 
     /**
@@ -49,23 +215,561 @@ public class TimedItemManager implements TimedItem {
      * Registers a timed item with the manager.
      * <p>
      * After calling this method, the manager will call the given timed item's
-     * {@code elapseOneMinute()} method at regular intervals.
+     * {@code elapseOneMinute()} method at regular intervals. Registering an
+     * item which is already registered has no effect.
      *
      * @param timedItem a timed item to register with the manager
      * @ass1
      */
-    public void registerTimedItem(TimedItem timedItem) {
-        this.timedItems.add(timedItem);
+    public synchronized void registerTimedItem(TimedItem timedItem) {
+        if (this.timedItems.add(timedItem)) {
+            this.invalidateSnapshots();
+        }
+    }
+
+    /**
+     * Unregisters a timed item from the manager.
+     * <p>
+     * After calling this method, the manager will no longer call the given
+     * timed item's {@code elapseOneMinute()} method, and will no longer hold
+     * a reference to it.
+     *
+     * @param timedItem a timed item to unregister from the manager
+     * @return true if the item was registered with the manager; false
+     * otherwise
+     */
+    public synchronized boolean unregisterTimedItem(TimedItem timedItem) {
+        if (this.timedItems.remove(timedItem)) {
+            this.invalidateSnapshots();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Discards the snapshots of the registered items and the timing wheel,
+     * so that they are rebuilt on the next tick.
+     */
+    private void invalidateSnapshots() {
+        this.snapshot = null;
+        this.eagerSnapshot = null;
+        this.weakSnapshot = null;
+        this.weakEagerSnapshot = null;
+        this.timingWheel = null;
+    }
+
+    /**
+     * Returns whether the given timed item is registered with the manager.
+     *
+     * @param timedItem timed item to check
+     * @return true if the item is registered; false otherwise
+     */
+    public synchronized boolean isRegistered(TimedItem timedItem) {
+        return this.timedItems.contains(timedItem);
+    }
+
+    /**
+     * Returns the number of timed items registered with the manager.
+     * <p>
+     * When registrations are weak, items which have been garbage collected
+     * are purged before counting.
+     *
+     * @return number of registered timed items
+     */
+    public synchronized int getTimedItemCount() {
+        return this.timedItems.size();
+    }
+
+    /**
+     * Returns whether the manager only holds weak references to its
+     * registered items.
+     *
+     * @return true if registrations are weak; false otherwise
+     */
+    public boolean hasWeakRegistrations() {
+        return weakRegistrations;
+    }
+
+    /**
+     * Adds a listener to be notified at the end of every tick, after all
+     * registered items have been advanced. Adding a listener which has
+     * already been added has no effect.
+     *
+     * @param listener listener to add
+     * @throws IllegalArgumentException if listener is null
+     */
+    public synchronized void addTickListener(TickListener listener)
+            throws IllegalArgumentException {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener must not be null");
+        }
+        for (TickListener existing : this.tickListeners) {
+            if (existing == listener) {
+                return;
+            }
+        }
+        TickListener[] listeners = Arrays.copyOf(this.tickListeners,
+                this.tickListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        this.tickListeners = listeners;
+    }
+
+    /**
+     * Removes a listener added with {@link #addTickListener(TickListener)}.
+     *
+     * @param listener listener to remove
+     * @return true if the listener had been added; false otherwise
+     */
+    public synchronized boolean removeTickListener(TickListener listener) {
+        for (int i = 0; i < this.tickListeners.length; i++) {
+            if (this.tickListeners[i] == listener) {
+                TickListener[] listeners =
+                        new TickListener[this.tickListeners.length - 1];
+                System.arraycopy(this.tickListeners, 0, listeners, 0, i);
+                System.arraycopy(this.tickListeners, i + 1, listeners, i,
+                        listeners.length - i);
+                this.tickListeners = listeners;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the total number of minutes this manager has been advanced by
+     * through {@link #elapseOneMinute()} and {@link #elapseMinutes(long)}.
+     * <p>
+     * The value is only updated once all registered items have been
+     * advanced, so it can be used to detect that a tick has completed.
+     *
+     * @return minutes elapsed since the manager was created
+     */
+    public long getMinutesElapsed() {
+        return minutesElapsed;
+    }
+
+    /**
+     * Returns the number of minutes that have elapsed while the manager was
+     * in {@link TickMode#LAZY} or {@link TickMode#EVENT} mode.
+     * <p>
+     * {@link DeferrableTimedItem}s were not called for these minutes, and
+     * must catch up on the difference between this value and its value when
+     * they were registered.
+     *
+     * @return minutes elapsed in lazy mode
+     */
+    public long getDeferredMinutes() {
+        return deferredMinutes;
+    }
+
+    /**
+     * Returns the strategy currently used to advance the registered items.
+     *
+     * @return current tick mode
+     */
+    public TickMode getTickMode() {
+        return tickMode;
+    }
+
+    /**
+     * Changes the strategy used to advance the registered items.
+     * <p>
+     * The new mode takes effect from the next call to
+     * {@link #elapseOneMinute()}. On the first tick in
+     * {@link TickMode#EVENT} mode (and after any item is registered or
+     * unregistered in that mode), every scheduled item is caught up once to
+     * build the schedule of their next changes.
+     *
+     * @param tickMode strategy to use for subsequent ticks
+     * @throws IllegalArgumentException if tickMode is null
+     */
+    public synchronized void setTickMode(TickMode tickMode)
+            throws IllegalArgumentException {
+        if (tickMode == null) {
+            throw new IllegalArgumentException("Tick mode must not be null");
+        }
+        if (tickMode != this.tickMode) {
+            this.timingWheel = null;
+        }
+        this.tickMode = tickMode;
+    }
+
+    /**
+     * Tells this manager that the given item has become observed, or has
+     * stopped being observed (see {@link ScheduledTimedItem#isObserved()}).
+     * <p>
+     * In {@link TickMode#LAZY} mode, the schedule of observed items is
+     * rebuilt on the next tick. This method does not take the manager's
+     * lock, so it may be called while the item is being advanced.
+     *
+     * @param item item whose observed state has changed
+     */
+    public void observedChanged(ScheduledTimedItem item) {
+        if (this.tickMode == TickMode.LAZY) {
+            this.observersChanged = true;
+        }
+    }
+
+    /**
+     * Returns the maximum number of shards used when ticking in parallel.
+     *
+     * @return maximum number of shards
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Sets the maximum number of shards the registered items are split into
+     * when ticking in {@link TickMode#PARALLEL} mode.
+     * <p>
+     * Fewer shards may be used if there are not enough registered items to
+     * make splitting worthwhile. Defaults to the parallelism of the common
+     * fork-join pool.
+     *
+     * @param shardCount maximum number of shards
+     * @throws IllegalArgumentException if shardCount is &lt; 1
+     */
+    public void setShardCount(int shardCount) throws IllegalArgumentException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException(
+                    "Shard count must be 1 or higher");
+        }
+        this.shardCount = shardCount;
     }
 
     /**
      * Calls {@code elapseOneMinute()} on each registered timed item.
+     * <p>
+     * In {@link TickMode#PARALLEL} mode the items may be advanced on other
+     * threads, but this method does not return until every item has been
+     * advanced, so all items reflect the same minute once it returns.
+     * <p>
+     * Concurrent calls on the same manager are serialised: a tick started
+     * while another is in progress waits for it to complete first.
      * @ass1
      */
     @Override
     public void elapseOneMinute() {
+        this.advance(1);
+    }
+
+    /**
+     * Advances each registered timed item by the given number of minutes.
+     * <p>
+     * Each item is advanced with a single call to
+     * {@link TimedItem#elapseMinutes(long)}, so items able to jump ahead in
+     * constant time make this as cheap as one call to
+     * {@link #elapseOneMinute()}, however many minutes are elapsed.
+     * As with {@code elapseOneMinute()}, all items reflect the same minute
+     * once this method returns.
+     *
+     * @param minutes number of minutes to advance by
+     * @throws IllegalArgumentException if minutes is &lt; 0
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Minutes to elapse must be non-negative");
+        }
+        if (minutes > 0) {
+            this.advance(minutes);
+        }
+    }
+
+    /**
+     * Advances every registered item by the given (positive) number of
+     * minutes, using the current tick mode.
+     *
+     * @param minutes number of minutes to advance by
+     */
+    private void advance(long minutes) {
+        synchronized (this.tickLock) {
+            this.advanceLocked(minutes);
+        }
+    }
+
+    /**
+     * Advances every registered item by the given (positive) number of
+     * minutes, using the current tick mode. Must only be called while
+     * holding the tick lock.
+     *
+     * @param minutes number of minutes to advance by
+     */
+    private void advanceLocked(long minutes) {
+        Metrics metrics = Metrics.getInstance();
+        boolean timed = metrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0;
+        TickMode mode = this.tickMode;
+        TimedItem[] items;
+        if (mode == TickMode.LAZY || mode == TickMode.EVENT) {
+            this.deferredMinutes += minutes;
+            items = this.getEagerSnapshot();
+        } else {
+            items = this.getSnapshot();
+        }
+
+        int shards = mode == TickMode.PARALLEL
+                ? Math.min(this.shardCount,
+                        (items.length + MIN_SHARD_SIZE - 1) / MIN_SHARD_SIZE)
+                : 1;
+
+        try {
+            if (shards <= 1) {
+                advanceRange(items, 0, items.length, minutes);
+            } else {
+                this.advanceShards(items, shards, minutes);
+            }
+            if (mode == TickMode.EVENT || mode == TickMode.LAZY) {
+                this.getTimingWheel(mode).advanceTo(this.deferredMinutes);
+            }
+            this.minutesElapsed += minutes;
+            for (TickListener listener : this.tickListeners) {
+                listener.tickCompleted(this);
+            }
+            if (timed) {
+                // timed after the listeners, which deliver sensor events
+                // and archive readings as part of the tick
+                this.typeBreakdown = metrics.recordTick(items, minutes,
+                        System.nanoTime() - start, this.typeBreakdown);
+            }
+        } finally {
+            if (this.weakRegistrations) {
+                // only hold strong references for the duration of the tick
+                Arrays.fill(items, null);
+            }
+        }
+    }
+
+    /**
+     * Advances the given items by the given number of minutes, split into
+     * the given number of shards which are advanced concurrently.
+     *
+     * @param items items to advance
+     * @param shards number of shards to split the items into
+     * @param minutes number of minutes to advance by
+     */
+    private void advanceShards(TimedItem[] items, int shards, long minutes) {
+        List<Shard> tasks = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            // spread the remainder over the first shards
+            int from = (int) ((long) items.length * i / shards);
+            int to = (int) ((long) items.length * (i + 1) / shards);
+            tasks.add(new Shard(items, from, to, minutes));
+        }
+        // invokeAll returns only once every shard has completed, which acts
+        // as the barrier between consecutive minutes
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    /**
+     * Returns the registered items as an array, reusing the previous
+     * snapshot if no items have been registered or unregistered since it
+     * was taken.
+     * <p>
+     * When registrations are weak, the returned array must be cleared once
+     * the tick is over, so that the manager does not hold strong references
+     * between ticks. The snapshot is then also rebuilt if any of its items
+     * has been garbage collected.
+     *
+     * @return registered timed items
+     */
+    private synchronized TimedItem[] getSnapshot() {
+        if (this.weakRegistrations) {
+            this.pollCollected();
+            TimedItem[] items = this.weakSnapshot == null
+                    ? null : this.weakSnapshot.acquire();
+            if (items == null) {
+                this.weakSnapshot =
+                        new WeakSnapshot(this.timedItems, this.collected);
+                items = this.weakSnapshot.acquire();
+            }
+            return items;
+        }
+        if (this.snapshot == null) {
+            this.snapshot = this.timedItems.toArray(new TimedItem[0]);
+        }
+        return this.snapshot;
+    }
+
+    /**
+     * Returns the registered items which are not deferrable as an array,
+     * reusing the previous snapshot if no items have been registered or
+     * unregistered since it was taken.
+     * <p>
+     * As with {@link #getSnapshot()}, the returned array must be cleared
+     * once the tick is over when registrations are weak.
+     *
+     * @return registered non-deferrable timed items
+     */
+    private synchronized TimedItem[] getEagerSnapshot() {
+        if (this.weakRegistrations) {
+            this.pollCollected();
+            TimedItem[] items = this.weakEagerSnapshot == null
+                    ? null : this.weakEagerSnapshot.acquire();
+            if (items == null) {
+                this.weakEagerSnapshot =
+                        new WeakSnapshot(this.getEagerItems(), this.collected);
+                items = this.weakEagerSnapshot.acquire();
+            }
+            return items;
+        }
+        if (this.eagerSnapshot == null) {
+            this.eagerSnapshot =
+                    this.getEagerItems().toArray(new TimedItem[0]);
+        }
+        return this.eagerSnapshot;
+    }
+
+    /**
+     * Returns the registered items which are not deferrable.
+     *
+     * @return registered non-deferrable timed items
+     */
+    private List<TimedItem> getEagerItems() {
+        List<TimedItem> eagerItems = new ArrayList<>();
         for (TimedItem timedItem : this.timedItems) {
-            timedItem.elapseOneMinute();
+            if (!(timedItem instanceof DeferrableTimedItem)) {
+                eagerItems.add(timedItem);
+            }
+        }
+        return eagerItems;
+    }
+
+    /**
+     * Discards the weak snapshots if any of the items they refer to have
+     * been garbage collected since the queue was last polled.
+     */
+    private void pollCollected() {
+        if (this.collected.poll() == null) {
+            return;
+        }
+        while (this.collected.poll() != null) {
+            // drain the references enqueued alongside the first one
+        }
+        this.weakSnapshot = null;
+        this.weakEagerSnapshot = null;
+    }
+
+    /**
+     * Returns a timing wheel of the registered scheduled items which can be
+     * advanced to the current minute of the deferred clock. In
+     * {@link TickMode#LAZY} mode, only the observed items are included.
+     * <p>
+     * The previous wheel is reused if no items have been registered or
+     * unregistered and the tick mode has not changed since it was built, and
+     * it has not fallen more than a revolution behind the deferred clock; in
+     * {@link TickMode#LAZY} mode, no item must have become observed or
+     * stopped being observed either. Otherwise, every included item is
+     * caught up and a new wheel is built. When registrations are weak, the
+     * wheel only holds weak references to the items, and drops items which
+     * have been garbage collected when they come due.
+     *
+     * @param mode tick mode of the current tick
+     * @return timing wheel of registered scheduled items
+     */
+    private synchronized TimingWheel getTimingWheel(TickMode mode) {
+        boolean lazy = mode == TickMode.LAZY;
+        TimingWheel wheel = this.timingWheel;
+        if (wheel != null && !(lazy && this.observersChanged)
+                && this.deferredMinutes - wheel.getTime() <= TimingWheel.SIZE) {
+            return wheel;
+        }
+        // cleared before the items are checked, so that any change made
+        // while the wheel is being built rebuilds it again on the next tick
+        this.observersChanged = false;
+        wheel = new TimingWheel(this.deferredMinutes,
+                this.weakRegistrations);
+        for (TimedItem timedItem : this.timedItems) {
+            if (timedItem instanceof ScheduledTimedItem) {
+                ScheduledTimedItem item = (ScheduledTimedItem) timedItem;
+                if (lazy && !item.isObserved()) {
+                    continue;
+                }
+                item.catchUp();
+                wheel.schedule(item);
+            }
+        }
+        this.timingWheel = wheel;
+        return wheel;
+    }
+
+    /**
+     * Advances the items in the given range by the given number of minutes.
+     *
+     * @param items items being ticked
+     * @param from index of the first item to advance (inclusive)
+     * @param to index of the last item to advance (exclusive)
+     * @param minutes number of minutes to advance by
+     */
+    private static void advanceRange(TimedItem[] items, int from, int to,
+                                     long minutes) {
+        if (minutes == 1) {
+            for (int i = from; i < to; i++) {
+                items[i].elapseOneMinute();
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                items[i].elapseMinutes(minutes);
+            }
+        }
+    }
+
+    /**
+     * A contiguous range of registered items advanced as a single task.
+     * <p>
+     * Changes to hazard roll-ups made while a shard is advanced are batched
+     * (see {@link HazardRollup#beginBatch()}), so that the roll-ups of
+     * floors and buildings shared by every shard are locked once per shard
+     * rather than once per change.
+     */
+    private static class Shard extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Items being ticked.
+         */
+        private final TimedItem[] items;
+
+        /**
+         * Index of the first item in this shard (inclusive).
+         */
+        private final int from;
+
+        /**
+         * Index of the last item in this shard (exclusive).
+         */
+        private final int to;
+
+        /**
+         * Number of minutes to advance each item by.
+         */
+        private final long minutes;
+
+        /**
+         * Creates a new shard over the given range of items.
+         *
+         * @param items items being ticked
+         * @param from index of the first item in the shard (inclusive)
+         * @param to index of the last item in the shard (exclusive)
+         * @param minutes number of minutes to advance each item by
+         */
+        Shard(TimedItem[] items, int from, int to, long minutes) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.minutes = minutes;
+        }
+
+        @Override
+        protected void compute() {
+            HazardRollup.beginBatch();
+            try {
+                advanceRange(items, from, to, minutes);
+            } finally {
+                HazardRollup.endBatch();
+            }
         }
     }
 }
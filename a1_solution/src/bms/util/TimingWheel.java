@@ -0,0 +1,177 @@
+package bms.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * A hashed timing wheel of {@link ScheduledTimedItem}s, each due to be woken
+ * at a given minute of a {@link TimedItemManager}'s deferred clock.
+ * <p>
+ * The wheel has a fixed number of buckets, one per minute, and items are
+ * placed in the bucket for their due minute modulo the number of buckets.
+ * Items due further ahead than one revolution share a bucket with earlier
+ * items and are skipped until their minute comes round. Advancing the wheel
+ * by one minute therefore only looks at the items in a single bucket.
+ * <p>
+ * A wheel can hold weak references to its items instead, for managers with
+ * weak registrations. Items which have been garbage collected are then
+ * dropped from the wheel when they come due.
+ */
+class TimingWheel {
+
+    /**
+     * Number of buckets in the wheel. Must be a power of two.
+     */
+    static final int SIZE = 64;
+
+    /**
+     * Mask giving a minute's bucket.
+     */
+    private static final int MASK = SIZE - 1;
+
+    /**
+     * Whether the wheel holds weak references to its items.
+     */
+    private final boolean weak;
+
+    /**
+     * Entries in each bucket: either the items themselves or weak references
+     * to them. Held as plain objects, since storing into an array of an
+     * interface type costs a subtype check per store.
+     */
+    private final Object[][] items;
+
+    /**
+     * Due minute of each item in each bucket.
+     */
+    private final long[][] due;
+
+    /**
+     * Number of items in each bucket.
+     */
+    private final int[] sizes;
+
+    /**
+     * Entries woken by the current call to {@link #advanceTo(long)}.
+     */
+    private Object[] woken;
+
+    /**
+     * Last minute the wheel has been advanced to.
+     */
+    private long time;
+
+    /**
+     * Creates a new empty timing wheel starting at the given minute.
+     *
+     * @param time current minute of the deferred clock
+     * @param weak whether the wheel should only hold weak references to its
+     *             items
+     */
+    TimingWheel(long time, boolean weak) {
+        this.weak = weak;
+        this.items = new Object[SIZE][4];
+        this.due = new long[SIZE][4];
+        this.sizes = new int[SIZE];
+        this.woken = new Object[16];
+        this.time = time;
+    }
+
+    /**
+     * Returns the last minute the wheel has been advanced to.
+     *
+     * @return current minute of the wheel
+     */
+    long getTime() {
+        return time;
+    }
+
+    /**
+     * Schedules the given item, which is up to date with the wheel's current
+     * minute, to be woken when its state next changes.
+     *
+     * @param item item to schedule
+     */
+    void schedule(ScheduledTimedItem item) {
+        this.schedule(this.weak ? new WeakReference<>(item) : item, item);
+    }
+
+    /**
+     * Schedules the given entry for the given item, which is up to date with
+     * the wheel's current minute, to be woken when the item's state next
+     * changes.
+     *
+     * @param entry item itself or weak reference to it
+     * @param item item to schedule
+     */
+    private void schedule(Object entry, ScheduledTimedItem item) {
+        long minutes = item.minutesUntilNextChange();
+        if (minutes > 0) {
+            this.add(entry, this.time + minutes);
+        }
+    }
+
+    /**
+     * Advances the wheel minute by minute up to the given minute, calling
+     * {@link ScheduledTimedItem#catchUp()} on every item due in that time
+     * and rescheduling it for its next change.
+     * <p>
+     * The items must already be able to catch up to the given minute, so an
+     * item woken for an earlier minute is brought up to the given minute
+     * and rescheduled from there.
+     *
+     * @param target minute to advance to
+     */
+    void advanceTo(long target) {
+        int count = 0;
+        for (long minute = this.time + 1; minute <= target; minute++) {
+            int b = (int) (minute & MASK);
+            Object[] bucket = this.items[b];
+            long[] bucketDue = this.due[b];
+            int kept = 0;
+            for (int i = 0; i < this.sizes[b]; i++) {
+                if (bucketDue[i] == minute) {
+                    if (count == this.woken.length) {
+                        this.woken = Arrays.copyOf(this.woken, count * 2);
+                    }
+                    this.woken[count++] = bucket[i];
+                } else {
+                    bucket[kept] = bucket[i];
+                    bucketDue[kept++] = bucketDue[i];
+                }
+            }
+            Arrays.fill(bucket, kept, this.sizes[b], null);
+            this.sizes[b] = kept;
+        }
+        this.time = target;
+        for (int i = 0; i < count; i++) {
+            Object entry = this.woken[i];
+            this.woken[i] = null;
+            ScheduledTimedItem item = (ScheduledTimedItem) (this.weak
+                    ? ((WeakReference<?>) entry).get() : entry);
+            if (item != null) {
+                item.catchUp();
+                // reuse the entry rather than allocate a new reference
+                this.schedule(entry, item);
+            }
+        }
+    }
+
+    /**
+     * Adds an entry to the bucket for the given minute.
+     *
+     * @param entry item or weak reference to it to add
+     * @param minute minute the item is due to be woken
+     */
+    private void add(Object entry, long minute) {
+        int b = (int) (minute & MASK);
+        int size = this.sizes[b];
+        if (size == this.items[b].length) {
+            this.items[b] = Arrays.copyOf(this.items[b], size * 2);
+            this.due[b] = Arrays.copyOf(this.due[b], size * 2);
+        }
+        this.items[b][size] = entry;
+        this.due[b][size] = minute;
+        this.sizes[b] = size + 1;
+    }
+}
@@ -0,0 +1,75 @@
+package bms.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Snapshot of the items registered with a {@link TimedItemManager} with weak
+ * registrations.
+ * <p>
+ * The snapshot only holds weak references to its items between ticks. For
+ * the duration of a tick, {@link #acquire()} fills an array of strong
+ * references to them which is reused from one tick to the next, so ticking
+ * a manager with weak registrations does not allocate as long as no item is
+ * registered, unregistered or garbage collected.
+ */
+class WeakSnapshot {
+
+    /**
+     * Weak references to the items in the snapshot, in the order they are
+     * ticked.
+     */
+    private final WeakReference<TimedItem>[] references;
+
+    /**
+     * Strong references to the items, filled by {@link #acquire()} and
+     * cleared by the manager once the tick is over.
+     */
+    private final TimedItem[] items;
+
+    /**
+     * Creates a new snapshot of the given items, which are already acquired
+     * by the time the constructor returns.
+     * <p>
+     * Each reference is registered with the given queue, so that the manager
+     * can tell that the snapshot is out of date once any of its items has
+     * been garbage collected.
+     *
+     * @param items items to take a snapshot of
+     * @param queue queue to register the weak references with
+     */
+    @SuppressWarnings("unchecked")
+    WeakSnapshot(Collection<? extends TimedItem> items,
+                 ReferenceQueue<? super TimedItem> queue) {
+        this.items = items.toArray(new TimedItem[0]);
+        this.references = (WeakReference<TimedItem>[])
+                new WeakReference<?>[this.items.length];
+        for (int i = 0; i < this.items.length; i++) {
+            this.references[i] = new WeakReference<>(this.items[i], queue);
+        }
+    }
+
+    /**
+     * Returns the items in the snapshot as an array holding strong
+     * references to them, which the caller must clear once it is done.
+     * <p>
+     * Returns null if any of the items has been garbage collected, in which
+     * case the snapshot is out of date and must be rebuilt. This can happen
+     * before the item's reference has been enqueued.
+     *
+     * @return items in the snapshot, or null if the snapshot is out of date
+     */
+    TimedItem[] acquire() {
+        for (int i = 0; i < this.references.length; i++) {
+            TimedItem item = this.references[i].get();
+            if (item == null) {
+                Arrays.fill(this.items, 0, i, null);
+                return null;
+            }
+            this.items[i] = item;
+        }
+        return this.items;
+    }
+}
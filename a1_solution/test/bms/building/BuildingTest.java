@@ -7,11 +7,16 @@ import bms.room.RoomType;
 import bms.sensors.CarbonDioxideSensor;
 import bms.sensors.OccupancySensor;
 import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class BuildingTest {
@@ -488,6 +493,286 @@ public class BuildingTest {
         assertFalse(building1.getFloorByNumber(2).getRoomByNumber(7).fireDrillOngoing());
     }
 
+    // **************** view and count tests ****************
+
+    @Test
+    public void getFloorsViewTest() {
+        assertSame(building1.getFloorsView(), building1.getFloorsView());
+        assertTrue(building1.getFloorsView().isEmpty());
+        Floor floor1 = new Floor(1, 10, 10);
+        try {
+            building1.addFloor(floor1);
+        } catch (DuplicateFloorException | NoFloorBelowException |
+                FloorTooSmallException e) {
+            fail();
+        }
+        // the view reflects floors added after it was obtained
+        assertEquals(Arrays.asList(floor1), building1.getFloorsView());
+        try {
+            building1.getFloorsView().add(new Floor(2, 10, 10));
+            fail();
+        } catch (UnsupportedOperationException expected) {}
+        assertEquals(1, building1.floorCount());
+    }
+
+    @Test
+    public void countsAndForEachTest() {
+        try {
+            Floor floor1 = new Floor(1, 10, 10);
+            Floor floor2 = new Floor(2, 10, 10);
+            Room room1 = new Room(1, RoomType.STUDY, 20);
+            Room room2 = new Room(2, RoomType.LABORATORY, 20);
+            Room room3 = new Room(6, RoomType.OFFICE, 20);
+            room1.addSensor(new TemperatureSensor(new int[] {20}));
+            room1.addSensor(new OccupancySensor(new int[] {2}, 1, 10));
+            room3.addSensor(new TemperatureSensor(new int[] {20}));
+            floor1.addRoom(room1);
+            floor1.addRoom(room2);
+            floor2.addRoom(room3);
+            building1.addFloor(floor1);
+            building1.addFloor(floor2);
+        } catch (DuplicateFloorException | NoFloorBelowException |
+                FloorTooSmallException | DuplicateRoomException |
+                InsufficientSpaceException | DuplicateSensorException e) {
+            fail();
+        }
+        assertEquals(2, building1.floorCount());
+        assertEquals(3, building1.roomCount());
+        assertEquals(3, building1.sensorCount());
+
+        List<Integer> roomNumbers = new ArrayList<>();
+        building1.forEachRoom(room -> roomNumbers.add(room.getRoomNumber()));
+        assertEquals(Arrays.asList(1, 2, 6), roomNumbers);
+
+        int[] sensors = new int[1];
+        building1.forEachSensor(sensor -> sensors[0]++);
+        assertEquals(3, sensors[0]);
+    }
+
+    @Test
+    public void roomsAddedAfterFloorAreCountedTest() throws Exception {
+        Floor floor1 = new Floor(1, 10, 10);
+        building1.addFloor(floor1);
+        try {
+            building1.fireDrill(RoomType.STUDY);
+            fail();
+        } catch (FireDrillException expected) {}
+
+        Room study = new Room(1, RoomType.STUDY, 20);
+        Room office = new Room(2, RoomType.OFFICE, 20);
+        floor1.addRoom(study);
+        floor1.addRoom(office);
+        assertEquals(2, building1.roomCount());
+        assertEquals(1, building1.getRoomIndex().roomCount(RoomType.STUDY));
+
+        building1.fireDrill(RoomType.STUDY);
+        assertTrue(study.fireDrillOngoing());
+        assertFalse(office.fireDrillOngoing());
+
+        floor1.removeRoom(1);
+        assertEquals(1, building1.roomCount());
+        assertEquals(0, building1.getRoomIndex().roomCount(RoomType.STUDY));
+    }
+
+    @Test
+    public void fireDrillAsyncTest() throws Exception {
+        Floor floor1 = new Floor(1, 10, 10);
+        Floor floor2 = new Floor(2, 10, 10);
+        Room study1 = new Room(1, RoomType.STUDY, 20);
+        Room office = new Room(2, RoomType.OFFICE, 20);
+        Room study2 = new Room(6, RoomType.STUDY, 20);
+        floor1.addRoom(study1);
+        floor1.addRoom(office);
+        floor2.addRoom(study2);
+        building1.addFloors(Arrays.asList(floor1, floor2));
+
+        FireDrillHandle handle = building1.fireDrillAsync(RoomType.STUDY);
+        assertSame(handle, handle.getFuture().get());
+        assertTrue(handle.isDone());
+        assertFalse(handle.isCancellation());
+        assertEquals(RoomType.STUDY, handle.getRoomType());
+        assertEquals(2, handle.getFloorCount());
+        assertEquals(2, handle.getCompletedFloorCount());
+        assertEquals(2, handle.getUpdatedRoomCount());
+        assertEquals(1.0, handle.getProgress(), 0.0001);
+        assertNotNull(handle.getCompletionTime());
+        assertFalse(handle.getDuration().isNegative());
+        assertTrue(study1.fireDrillOngoing());
+        assertTrue(study2.fireDrillOngoing());
+        assertFalse(office.fireDrillOngoing());
+
+        handle = building1.cancelFireDrillAsync(Runnable::run);
+        assertTrue(handle.isDone());
+        assertTrue(handle.isCancellation());
+        assertEquals(3, handle.getUpdatedRoomCount());
+        assertEquals("FireDrillHandle: type=CANCEL, floors=2/2, rooms=3, "
+                + "done=true", handle.toString());
+        assertFalse(study1.fireDrillOngoing());
+        assertFalse(study2.fireDrillOngoing());
+    }
+
+    @Test
+    public void fireDrillAsyncPendingTest() throws Exception {
+        Floor floor1 = new Floor(1, 10, 10);
+        floor1.addRoom(new Room(1, RoomType.LABORATORY, 20));
+        building1.addFloor(floor1);
+
+        List<Runnable> queued = new ArrayList<>();
+        FireDrillHandle handle = building1.fireDrillAsync(null, queued::add);
+        assertFalse(handle.isDone());
+        assertEquals(0.0, handle.getProgress(), 0.0001);
+        assertNull(handle.getCompletionTime());
+        assertNull(handle.getDuration());
+        assertEquals("FireDrillHandle: type=ALL, floors=0/1, rooms=0, "
+                + "done=false", handle.toString());
+
+        queued.forEach(Runnable::run);
+        assertTrue(handle.isDone());
+        assertEquals(1, handle.getUpdatedRoomCount());
+        assertTrue(floor1.getRoomByNumber(1).fireDrillOngoing());
+    }
+
+    @Test
+    public void fireDrillAsyncInvalidTest() throws Exception {
+        try {
+            building1.fireDrillAsync(RoomType.STUDY);
+            fail();
+        } catch (FireDrillException expected) {}
+        building1.addFloor(new Floor(1, 10, 10));
+        try {
+            building1.fireDrillAsync(RoomType.STUDY);
+            fail();
+        } catch (FireDrillException expected) {}
+        try {
+            building1.fireDrillAsync(RoomType.STUDY, null);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        try {
+            building1.cancelFireDrillAsync(null);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    // **************** add floors tests ****************
+
+    @Test
+    public void addFloorsUnorderedTest() {
+        Floor floor1 = new Floor(1, 10, 10);
+        Floor floor2 = new Floor(2, 10, 8);
+        Floor floor3 = new Floor(3, 8, 5);
+        try {
+            building1.addFloor(floor1);
+            building1.addFloors(Arrays.asList(floor3, floor2));
+        } catch (DuplicateFloorException | NoFloorBelowException |
+                FloorTooSmallException e) {
+            fail();
+        }
+        assertEquals(Arrays.asList(floor1, floor2, floor3),
+                building1.getFloors());
+        assertEquals(floor3, building1.getFloorByNumber(3));
+        assertNull(building1.getFloorByNumber(4));
+        assertNull(building1.getFloorByNumber(0));
+    }
+
+    @Test
+    public void addFloorsDuplicateInBatchTest() {
+        boolean thrown = false;
+        try {
+            building1.addFloors(Arrays.asList(new Floor(1, 10, 10),
+                    new Floor(2, 10, 10), new Floor(2, 10, 10)));
+        } catch (DuplicateFloorException e) {
+            thrown = true;
+        } catch (NoFloorBelowException | FloorTooSmallException e) {
+            fail();
+        }
+        assertTrue(thrown);
+        assertEquals(0, building1.getFloors().size());
+    }
+
+    @Test
+    public void addFloorsGapTest() {
+        boolean thrown = false;
+        try {
+            building1.addFloors(Arrays.asList(new Floor(1, 10, 10),
+                    new Floor(3, 10, 10)));
+        } catch (NoFloorBelowException e) {
+            thrown = true;
+        } catch (DuplicateFloorException | FloorTooSmallException e) {
+            fail();
+        }
+        assertTrue(thrown);
+        assertEquals(0, building1.getFloors().size());
+    }
+
+    @Test
+    public void addFloorsTooSmallLeavesBuildingUnchangedTest() {
+        boolean thrown = false;
+        try {
+            building1.addFloor(new Floor(1, 10, 10));
+            building1.addFloors(Arrays.asList(new Floor(2, 10, 10),
+                    new Floor(3, 12, 10)));
+        } catch (FloorTooSmallException e) {
+            thrown = true;
+        } catch (DuplicateFloorException | NoFloorBelowException e) {
+            fail();
+        }
+        assertTrue(thrown);
+        assertEquals(1, building1.getFloors().size());
+        assertNull(building1.getFloorByNumber(2));
+    }
+
+    // **************** timed item manager tests ****************
+
+    @Test
+    public void defaultTimedItemManagerTest() {
+        assertSame(TimedItemManager.getInstance(),
+                building1.getTimedItemManager());
+    }
+
+    @Test
+    public void scopedTimedItemManagerTest() {
+        TimedItemManager manager = new TimedItemManager();
+        Building building2 = new Building("GP North", manager);
+        TemperatureSensor before = new TemperatureSensor(new int[] {20, 21});
+        TemperatureSensor after = new TemperatureSensor(new int[] {30, 31});
+        try {
+            Floor floor1 = new Floor(1, 10, 10);
+            Room room1 = new Room(1, RoomType.STUDY, 20);
+            Room room2 = new Room(2, RoomType.OFFICE, 20);
+            room1.addSensor(before);
+            floor1.addRoom(room1);
+            building2.addFloor(floor1);
+            // rooms and sensors added after the floor joined the building
+            floor1.addRoom(room2);
+            room2.addSensor(after);
+        } catch (DuplicateFloorException | NoFloorBelowException |
+                FloorTooSmallException | DuplicateRoomException |
+                InsufficientSpaceException | DuplicateSensorException e) {
+            fail();
+        }
+
+        assertSame(manager, before.getTimedItemManager());
+        assertSame(manager, after.getTimedItemManager());
+        assertFalse(TimedItemManager.getInstance().isRegistered(before));
+        assertFalse(TimedItemManager.getInstance().isRegistered(after));
+        assertEquals(2, manager.getTimedItemCount());
+
+        TimedItemManager.getInstance().elapseOneMinute();
+        assertEquals(0, before.getTimeElapsed());
+        manager.elapseOneMinute();
+        assertEquals(1, before.getTimeElapsed());
+        assertEquals(21, before.getCurrentReading());
+        assertEquals(31, after.getCurrentReading());
+    }
+
+    @Test
+    public void scopedTimedItemManagerNullTest() {
+        try {
+            new Building("GP North", null);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
     // **************** toString tests ****************
 
     @Test
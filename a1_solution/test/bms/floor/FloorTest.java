@@ -4,14 +4,18 @@ import bms.exceptions.*;
 import bms.room.Room;
 import bms.room.RoomType;
 import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.NoiseSensor;
 import bms.sensors.OccupancySensor;
+import bms.sensors.SensorKernel;
 import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -103,6 +107,26 @@ public class FloorTest {
         assertEquals(expected, floor1.getRooms());
     }
 
+    @Test
+    public void getRoomsViewTest() {
+        Floor floor1 = new Floor(1, 5, 6);
+        Room room1 = new Room(1, RoomType.STUDY, 10);
+        List<Room> view = floor1.getRoomsView();
+        assertSame(view, floor1.getRoomsView());
+        try {
+            floor1.addRoom(room1);
+        } catch (DuplicateRoomException | InsufficientSpaceException e) {
+            fail();
+        }
+        assertEquals(Arrays.asList(room1), view);
+        assertEquals(1, floor1.roomCount());
+        try {
+            view.clear();
+            fail();
+        } catch (UnsupportedOperationException expected) {}
+        assertEquals(1, floor1.roomCount());
+    }
+
     // **************** calculate area tests ****************
 
     @Test
@@ -155,6 +179,211 @@ public class FloorTest {
         assertEquals(19.1, floor1.occupiedArea(), 0.0001);
     }
 
+    @Test
+    public void remainingAreaTest() {
+        Floor floor1 = new Floor(1, 5, 6);
+        assertEquals(30.0, floor1.remainingArea(), 0.0001);
+        try {
+            floor1.addRoom(new Room(1, RoomType.LABORATORY, 12.0));
+            floor1.addRoom(new Room(2, RoomType.STUDY, 7.1));
+        } catch (DuplicateRoomException | InsufficientSpaceException e) {
+            fail();
+        }
+        assertEquals(10.9, floor1.remainingArea(), 0.0001);
+    }
+
+    // **************** remove room tests ****************
+
+    @Test
+    public void removeRoomTest() {
+        Floor floor1 = new Floor(1, 5, 6);
+        Room room1 = new Room(1, RoomType.LABORATORY, 12.0);
+        Room room2 = new Room(2, RoomType.STUDY, 7.1);
+        try {
+            floor1.addRoom(room1);
+            floor1.addRoom(room2);
+        } catch (DuplicateRoomException | InsufficientSpaceException e) {
+            fail();
+        }
+
+        assertEquals(room1, floor1.removeRoom(1));
+        assertNull(floor1.getRoomByNumber(1));
+        assertEquals(Arrays.asList(room2), floor1.getRooms());
+        assertEquals(7.1, floor1.occupiedArea(), 0.0001);
+
+        assertNull(floor1.removeRoom(1));
+        assertEquals(room2, floor1.removeRoom(2));
+        assertEquals(0, floor1.occupiedArea(), 0);
+    }
+
+    @Test
+    public void removeRoomFreesNumberAndSpaceTest() {
+        Floor floor1 = new Floor(1, 5, 6);
+        try {
+            floor1.addRoom(new Room(1, RoomType.LABORATORY, 25));
+            floor1.removeRoom(1);
+            floor1.addRoom(new Room(1, RoomType.OFFICE, 30));
+        } catch (DuplicateRoomException | InsufficientSpaceException e) {
+            fail();
+        }
+        assertEquals(RoomType.OFFICE, floor1.getRoomByNumber(1).getType());
+    }
+
+    @Test
+    public void removeRoomKeepsOrderTest() throws Exception {
+        Floor floor1 = new Floor(1, 10, 10);
+        for (int i = 1; i <= 6; i++) {
+            floor1.addRoom(new Room(i, RoomType.STUDY, 10));
+        }
+        List<Room> view = floor1.getRoomsView();
+        assertEquals(4, view.get(3).getRoomNumber());
+        floor1.removeRoom(2);
+        floor1.removeRoom(5);
+        assertEquals(4, view.size());
+        assertEquals(4, view.get(2).getRoomNumber());
+        List<Integer> numbers = new ArrayList<>();
+        for (Room room : view) {
+            numbers.add(room.getRoomNumber());
+        }
+        assertEquals(Arrays.asList(1, 3, 4, 6), numbers);
+        floor1.addRoom(new Room(2, RoomType.OFFICE, 10));
+        assertEquals(2, view.get(4).getRoomNumber());
+    }
+
+    @Test
+    public void removeRoomReleasesSensorsTest() throws Exception {
+        TimedItemManager manager = new TimedItemManager();
+        SensorKernel kernel = new SensorKernel(manager);
+        Floor floor1 = new Floor(1, 5, 6);
+        floor1.setTimedItemManager(manager);
+        Room room1 = new Room(1, RoomType.LABORATORY, 12.0);
+        TemperatureSensor temperature =
+                new TemperatureSensor(new int[] {20, 21, 22});
+        OccupancySensor occupancy =
+                new OccupancySensor(new int[] {1, 2, 3}, 1, 5);
+        room1.addSensor(temperature);
+        room1.addSensor(occupancy);
+        floor1.addRoom(room1);
+        kernel.add(occupancy);
+        manager.elapseOneMinute();
+
+        floor1.removeRoom(1);
+        assertTrue(temperature.isReleased());
+        assertFalse(manager.isRegistered(temperature));
+        assertFalse(manager.isRegistered(occupancy));
+        assertEquals(0, kernel.size());
+        manager.elapseMinutes(5);
+        assertEquals(1, temperature.getTimeElapsed());
+        assertEquals(2, occupancy.getCurrentReading());
+
+        // sensors are advanced again once the room is added back
+        floor1.addRoom(room1);
+        assertFalse(temperature.isReleased());
+        assertTrue(manager.isRegistered(occupancy));
+        manager.elapseOneMinute();
+        assertEquals(2, temperature.getTimeElapsed());
+        assertEquals(3, occupancy.getCurrentReading());
+    }
+
+    @Test
+    public void moveRoomBetweenStandaloneFloorsTest() throws Exception {
+        Floor floor1 = new Floor(1, 5, 6);
+        Floor floor2 = new Floor(2, 5, 6);
+        Room room1 = new Room(1, RoomType.STUDY, 12.0);
+        NoiseSensor noise = new NoiseSensor(new int[] {60, 70}, 1);
+        room1.addSensor(noise);
+        floor1.addRoom(room1);
+
+        floor1.removeRoom(1);
+        assertTrue(noise.isReleased());
+        floor2.addRoom(room1);
+        // neither floor has a manager, so the sensor goes back to its own
+        assertFalse(noise.isReleased());
+        assertTrue(TimedItemManager.getInstance().isRegistered(noise));
+        try {
+            TimedItemManager.getInstance().elapseOneMinute();
+            assertEquals(70, noise.getCurrentReading());
+        } finally {
+            room1.releaseTimedSensors();
+        }
+    }
+
+    @Test
+    public void occupiedAreaAfterRemoveRoomTest() throws Exception {
+        Floor floor1 = new Floor(1, 10, 10);
+        for (int i = 1; i <= 18; i++) {
+            floor1.addRoom(new Room(i, RoomType.STUDY, 5.3));
+        }
+        for (int i = 1; i <= 18; i += 2) {
+            floor1.removeRoom(i);
+        }
+        // same as summing the areas of the remaining rooms from scratch
+        float expected = 0;
+        for (Room room : floor1.getRooms()) {
+            expected += room.getArea();
+        }
+        assertEquals(expected, floor1.occupiedArea(), 0);
+
+        floor1.addRoom(new Room(31, RoomType.STUDY, 100 - expected));
+        try {
+            floor1.addRoom(new Room(32, RoomType.STUDY, 5));
+            fail();
+        } catch (InsufficientSpaceException expectedException) {}
+    }
+
+    // **************** add rooms tests ****************
+
+    @Test
+    public void addRoomsTest() {
+        Floor floor1 = new Floor(1, 5, 6);
+        Room room1 = new Room(1, RoomType.LABORATORY, 12.0);
+        Room room2 = new Room(2, RoomType.STUDY, 7.1);
+        Room room3 = new Room(3, RoomType.OFFICE, 10);
+        try {
+            floor1.addRoom(room1);
+            floor1.addRooms(Arrays.asList(room2, room3));
+        } catch (DuplicateRoomException | InsufficientSpaceException e) {
+            fail();
+        }
+        assertEquals(Arrays.asList(room1, room2, room3), floor1.getRooms());
+        assertEquals(room3, floor1.getRoomByNumber(3));
+        assertEquals(29.1, floor1.occupiedArea(), 0.0001);
+    }
+
+    @Test
+    public void addRoomsDuplicateInBatchTest() {
+        Floor floor1 = new Floor(1, 5, 6);
+        boolean thrown = false;
+        try {
+            floor1.addRooms(Arrays.asList(new Room(1, RoomType.STUDY, 5),
+                    new Room(1, RoomType.OFFICE, 5)));
+        } catch (DuplicateRoomException e) {
+            thrown = true;
+        } catch (InsufficientSpaceException e) {
+            fail();
+        }
+        assertTrue(thrown);
+        assertTrue(floor1.getRooms().isEmpty());
+    }
+
+    @Test
+    public void addRoomsInsufficientSpaceTest() {
+        Floor floor1 = new Floor(1, 5, 6);
+        boolean thrown = false;
+        try {
+            floor1.addRoom(new Room(1, RoomType.STUDY, 10));
+            floor1.addRooms(Arrays.asList(new Room(2, RoomType.STUDY, 10),
+                    new Room(3, RoomType.OFFICE, 11)));
+        } catch (DuplicateRoomException e) {
+            fail();
+        } catch (InsufficientSpaceException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+        assertEquals(1, floor1.getRooms().size());
+        assertEquals(10, floor1.occupiedArea(), 0.0001);
+    }
+
     // **************** add room tests ****************
 
     @Test
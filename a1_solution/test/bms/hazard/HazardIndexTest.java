@@ -0,0 +1,209 @@
+package bms.hazard;
+
+import bms.building.Building;
+import bms.exceptions.*;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.SensorKind;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HazardIndexTest {
+    private TimedItemManager manager;
+    private Building building;
+    private Room study;
+    private Room lab;
+    private Room office;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Before
+    public void setUp() throws Exception {
+        manager = new TimedItemManager();
+        building = new Building("GP South", manager);
+        Floor floor1 = new Floor(1, 10, 10);
+        Floor floor2 = new Floor(2, 10, 10);
+        study = new Room(101, RoomType.STUDY, 20);
+        lab = new Room(102, RoomType.LABORATORY, 20);
+        office = new Room(201, RoomType.OFFICE, 20);
+
+        // hazard levels 40 then 100
+        study.addSensor(new OccupancySensor(new int[] {4, 12}, 1, 10));
+        // hazard levels 0 then 100
+        lab.addSensor(new TemperatureSensor(new int[] {20, 70}));
+        // hazard level 50 throughout
+        lab.addSensor(new NoiseSensor(new int[] {60}, 1));
+        // hazard levels 20 then 0
+        office.addSensor(new OccupancySensor(new int[] {2, 0}, 1, 10));
+
+        floor1.addRoom(study);
+        floor1.addRoom(lab);
+        floor2.addRoom(office);
+        building.addFloor(floor1);
+        building.addFloor(floor2);
+    }
+
+    @Test
+    public void maxHazardLevelTest() {
+        HazardIndex index = building.getHazardIndex();
+        assertEquals(50, index.maxHazardLevel());
+        assertEquals(40, index.maxHazardLevel(RoomType.STUDY, null));
+        assertEquals(0, index.maxHazardLevel(null, SensorKind.TEMPERATURE));
+        assertEquals(40, index.maxHazardLevel(null, SensorKind.OCCUPANCY));
+        assertEquals(0, index.maxHazardLevel(RoomType.OFFICE,
+                SensorKind.NOISE));
+    }
+
+    @Test
+    public void hazardLevelOnFloorTest() {
+        HazardIndex index = building.getHazardIndex();
+        assertEquals(50, index.maxHazardLevelOnFloor(1));
+        assertEquals(20, index.maxHazardLevelOnFloor(2));
+        assertEquals(0, index.maxHazardLevelOnFloor(3));
+        assertEquals(30.0, index.averageHazardLevelOnFloor(1), 0.0001);
+        assertEquals(0.0, index.averageHazardLevelOnFloor(3), 0.0001);
+    }
+
+    @Test
+    public void averageHazardLevelTest() {
+        HazardIndex index = building.getHazardIndex();
+        assertEquals(27.5, index.averageHazardLevel(), 0.0001);
+        assertEquals(30.0, index.averageHazardLevel(null,
+                SensorKind.OCCUPANCY), 0.0001);
+        assertEquals(25.0, index.averageHazardLevel(RoomType.LABORATORY,
+                null), 0.0001);
+    }
+
+    @Test
+    public void roomsAboveAndTopRoomsTest() {
+        HazardIndex index = building.getHazardIndex();
+        assertEquals(List.of(study, lab), index.roomsAbove(30));
+        assertEquals(List.of(lab, study), index.topRooms(2));
+        assertEquals(List.of(lab, study, office), index.topRooms(10));
+        assertTrue(index.topRooms(0).isEmpty());
+        try {
+            index.topRooms(-1);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void refreshedAfterTickTest() {
+        HazardIndex index = building.getHazardIndex();
+        assertEquals(50, index.maxHazardLevel());
+        manager.elapseOneMinute();
+        assertEquals(100, index.maxHazardLevel());
+        assertEquals(0, index.maxHazardLevelOnFloor(2));
+        assertEquals(List.of(study, lab, office), index.topRooms(3));
+    }
+
+    @Test
+    public void roomChangesRefreshIndexTest()
+            throws DuplicateRoomException, InsufficientSpaceException,
+            DuplicateSensorException {
+        HazardIndex index = building.getHazardIndex();
+        assertEquals(20, index.maxHazardLevelOnFloor(2));
+
+        // adding or removing a room is picked up without a tick
+        Room newRoom = new Room(202, RoomType.OFFICE, 20);
+        newRoom.addSensor(new TemperatureSensor(new int[] {90}));
+        building.getFloorByNumber(2).addRoom(newRoom);
+        assertEquals(100, index.maxHazardLevelOnFloor(2));
+        building.getFloorByNumber(2).removeRoom(202);
+        assertEquals(20, index.maxHazardLevelOnFloor(2));
+    }
+
+    @Test
+    public void sensorChangesNeedTickOrRefreshTest()
+            throws DuplicateSensorException {
+        HazardIndex index = building.getHazardIndex();
+        assertEquals(20, index.maxHazardLevelOnFloor(2));
+
+        office.addSensor(new TemperatureSensor(new int[] {90}));
+        assertEquals(20, index.maxHazardLevelOnFloor(2));
+
+        index.refresh();
+        assertEquals(100, index.maxHazardLevelOnFloor(2));
+    }
+
+    @Test
+    public void topRoomsTiesTest() throws Exception {
+        Floor floor3 = new Floor(3, 10, 10);
+        List<Room> noisy = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Room room = new Room(301 + i, RoomType.STUDY, 20);
+            // hazard levels 50, 6, 50 and 6
+            room.addSensor(new NoiseSensor(new int[] {i % 2 == 0 ? 60 : 30},
+                    1));
+            floor3.addRoom(room);
+            noisy.add(room);
+        }
+        building.addFloor(floor3);
+        HazardIndex index = building.getHazardIndex();
+
+        // equal levels are ranked in floor order then room order
+        assertEquals(List.of(lab, noisy.get(0), noisy.get(2), study),
+                index.topRooms(4));
+        assertEquals(List.of(lab, noisy.get(0), noisy.get(2), study, office,
+                noisy.get(1), noisy.get(3)), index.topRooms(7));
+        assertEquals(List.of(lab), index.topRooms(1));
+    }
+
+    @Test
+    public void floorHazardIndexTest() {
+        HazardIndex index = building.getFloorByNumber(1).getHazardIndex();
+        assertSame(index, building.getFloorByNumber(1).getHazardIndex());
+        assertEquals(50, index.maxHazardLevel());
+        assertEquals(List.of(study, lab), index.roomsAbove(0));
+        manager.elapseOneMinute();
+        assertEquals(100, index.maxHazardLevel(RoomType.STUDY, null));
+    }
+
+    @Test
+    public void customHazardSensorTest() throws Exception {
+        // subclasses of built-in sensors are not batched, so their own
+        // hazard level is used
+        Room quiet = new Room(202, RoomType.OFFICE, 20);
+        quiet.addSensor(new NoiseSensor(new int[] {90}, 1) {
+            @Override
+            public int getHazardLevel() {
+                return 5;
+            }
+        });
+        building.getFloorByNumber(2).addRoom(quiet);
+        HazardIndex index = building.getHazardIndex();
+        index.refresh();
+        assertEquals(List.of(study, lab, office, quiet),
+                index.roomsAbove(4));
+        // the anonymous sensor is not counted as a built-in noise sensor
+        assertEquals(50, index.maxHazardLevel(null, SensorKind.NOISE));
+        assertEquals(12.5, index.averageHazardLevelOnFloor(2), 0.0001);
+    }
+
+    @Test
+    public void minutesUntilHazardLevelTest() {
+        HazardIndex index = building.getHazardIndex();
+        // no sensor has a precomputed schedule yet
+        assertEquals(-1, index.minutesUntilHazardLevel(100));
+        lab.getSensor(TemperatureSensor.class).precomputeHazardSchedule();
+        office.getSensor(OccupancySensor.class).precomputeHazardSchedule();
+        assertEquals(1, index.minutesUntilHazardLevel(100));
+        assertEquals(0, index.minutesUntilHazardLevel(20));
+        assertEquals(-1, index.minutesUntilHazardLevel(101));
+        assertEquals(1, building.getFloorByNumber(1).getHazardIndex()
+                .minutesUntilHazardLevel(50));
+    }
+}
@@ -0,0 +1,310 @@
+package bms.hazard;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.SensorKernel;
+import bms.sensors.TemperatureSensor;
+import bms.util.TickMode;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+public class HazardRollupTest {
+    private TimedItemManager manager;
+    private Building building;
+    private Floor floor1;
+    private Floor floor2;
+    private Room study;
+    private Room office;
+    private TemperatureSensor temperature;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Before
+    public void setUp() throws Exception {
+        manager = new TimedItemManager();
+        building = new Building("GP South", manager);
+        floor1 = new Floor(1, 10, 10);
+        floor2 = new Floor(2, 10, 10);
+        study = new Room(101, RoomType.STUDY, 20);
+        Room lab = new Room(102, RoomType.LABORATORY, 20);
+        office = new Room(201, RoomType.OFFICE, 20);
+
+        // hazard levels 40 then 100
+        study.addSensor(new OccupancySensor(new int[] {4, 12}, 1, 10));
+        // hazard levels 0 then 100
+        temperature = new TemperatureSensor(new int[] {20, 70});
+        lab.addSensor(temperature);
+        // hazard level 50 throughout
+        lab.addSensor(new NoiseSensor(new int[] {60}, 1));
+        // hazard levels 20 then 0
+        office.addSensor(new OccupancySensor(new int[] {2, 0}, 1, 10));
+
+        floor1.addRoom(study);
+        floor1.addRoom(lab);
+        floor2.addRoom(office);
+        building.addFloor(floor1);
+        building.addFloor(floor2);
+    }
+
+    @Test
+    public void emptyRollupTest() {
+        HazardRollup rollup = new HazardRollup();
+        assertEquals(0, rollup.getSensorCount());
+        assertEquals(0, rollup.getHazardLevelSum());
+        assertEquals(0, rollup.getMaxHazardLevel());
+        assertEquals(0.0, rollup.getAverageHazardLevel(), 0.0001);
+        assertEquals(0, rollup.countAtOrAbove(0));
+        assertNull(rollup.getParent());
+    }
+
+    @Test
+    public void addUpdateRemoveTest() {
+        HazardRollup rollup = new HazardRollup();
+        rollup.add(30);
+        rollup.add(80);
+        rollup.add(150);  // clamped to 100
+        assertEquals(3, rollup.getSensorCount());
+        assertEquals(210, rollup.getHazardLevelSum());
+        assertEquals(100, rollup.getMaxHazardLevel());
+        assertEquals(2, rollup.countAtOrAbove(80));
+
+        rollup.update(100, 10);
+        assertEquals(80, rollup.getMaxHazardLevel());
+        assertEquals(120, rollup.getHazardLevelSum());
+        assertEquals(3, rollup.countAtOrAbove(10));
+
+        rollup.remove(80);
+        assertEquals(30, rollup.getMaxHazardLevel());
+        rollup.remove(30);
+        rollup.remove(10);
+        assertEquals(0, rollup.getSensorCount());
+        assertEquals(0, rollup.getMaxHazardLevel());
+        try {
+            rollup.remove(10);
+            fail();
+        } catch (IllegalStateException expected) {}
+        try {
+            rollup.update(10, 20);
+            fail();
+        } catch (IllegalStateException expected) {}
+    }
+
+    @Test
+    public void attachAndDetachTest() {
+        HazardRollup parent = new HazardRollup();
+        HazardRollup child = new HazardRollup();
+        parent.add(20);
+        child.add(60);
+        child.attachTo(parent);
+        assertSame(parent, child.getParent());
+        assertEquals(2, parent.getSensorCount());
+        assertEquals(60, parent.getMaxHazardLevel());
+
+        child.update(60, 90);
+        assertEquals(110, parent.getHazardLevelSum());
+        assertEquals(90, parent.getMaxHazardLevel());
+
+        child.detach();
+        assertNull(child.getParent());
+        assertEquals(1, parent.getSensorCount());
+        assertEquals(20, parent.getMaxHazardLevel());
+        assertEquals(90, child.getMaxHazardLevel());
+
+        try {
+            parent.attachTo(null);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        child.attachTo(parent);
+        try {
+            parent.attachTo(child);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void buildingRollupTest() {
+        HazardRollup rollup = building.getHazardRollup();
+        assertEquals(4, rollup.getSensorCount());
+        assertEquals(110, rollup.getHazardLevelSum());
+        assertEquals(50, rollup.getMaxHazardLevel());
+        assertEquals(2, rollup.countAtOrAbove(40));
+        assertEquals(90, floor1.getHazardRollup().getHazardLevelSum());
+        assertEquals(20, floor2.getHazardRollup().getMaxHazardLevel());
+        assertEquals(40, study.getHazardRollup().getMaxHazardLevel());
+        assertSame(floor1.getHazardRollup(),
+                temperature.getHazardRollup().getParent());
+        assertSame(building.getHazardRollup(),
+                floor1.getHazardRollup().getParent());
+    }
+
+    @Test
+    public void updatedByTickTest() {
+        manager.elapseOneMinute();
+        assertTickedRollups();
+    }
+
+    @Test
+    public void updatedByEventTickTest() {
+        manager.setTickMode(TickMode.EVENT);
+        manager.elapseOneMinute();
+        assertTickedRollups();
+    }
+
+    @Test
+    public void updatedByLazyTickTest() {
+        // roll-ups taken before ticking are kept up to date
+        building.getHazardRollup();
+        manager.setTickMode(TickMode.LAZY);
+        manager.elapseOneMinute();
+        assertTickedRollups();
+        manager.elapseOneMinute();
+        assertEquals(110, building.getHazardRollup().getHazardLevelSum());
+    }
+
+    @Test
+    public void lazyTickWithoutRollupTest() {
+        // sensors which join a roll-up late are caught up first
+        manager.setTickMode(TickMode.LAZY);
+        manager.elapseMinutes(3);
+        assertEquals(250, building.getHazardRollup().getHazardLevelSum());
+        manager.elapseOneMinute();
+        assertEquals(110, building.getHazardRollup().getHazardLevelSum());
+    }
+
+    @Test
+    public void updatedByParallelTickTest() {
+        manager.setTickMode(TickMode.PARALLEL);
+        manager.setShardCount(4);
+        HazardRollup parent = new HazardRollup();
+        HazardRollup[] children = new HazardRollup[8];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = new HazardRollup();
+            children[i].attachTo(parent);
+        }
+        OccupancySensor[] sensors = new OccupancySensor[4096];
+        for (int i = 0; i < sensors.length; i++) {
+            sensors[i] = new OccupancySensor(
+                    new int[] {i % 11, (i * 7) % 13, 10}, 1 + i % 3, 10);
+            sensors[i].setTimedItemManager(manager);
+            sensors[i].setHazardRollup(children[i % children.length]);
+        }
+        for (int minute = 0; minute < 4; minute++) {
+            manager.elapseOneMinute();
+            long sum = 0;
+            for (OccupancySensor sensor : sensors) {
+                sum += Math.min(sensor.getHazardLevel(), 100);
+            }
+            assertEquals(sum, parent.getHazardLevelSum());
+            assertEquals(sensors.length + 0L, parent.getSensorCount());
+        }
+    }
+
+    @Test
+    public void batchTest() {
+        HazardRollup grandparent = new HazardRollup();
+        HazardRollup parent = new HazardRollup();
+        HazardRollup child = new HazardRollup();
+        parent.attachTo(grandparent);
+        child.attachTo(parent);
+        child.add(30);
+        child.add(50);
+
+        HazardRollup.beginBatch();
+        try {
+            child.update(30, 90);
+            child.add(10);
+            HazardRollup.beginBatch();
+            child.remove(50);
+            HazardRollup.endBatch();
+            // only the changed roll-up is up to date until the batch ends
+            assertEquals(100, child.getHazardLevelSum());
+            assertEquals(80, parent.getHazardLevelSum());
+            assertEquals(80, grandparent.getHazardLevelSum());
+        } finally {
+            HazardRollup.endBatch();
+        }
+        assertEquals(2, grandparent.getSensorCount());
+        assertEquals(100, parent.getHazardLevelSum());
+        assertEquals(100, grandparent.getHazardLevelSum());
+        assertEquals(90, grandparent.getMaxHazardLevel());
+
+        try {
+            HazardRollup.endBatch();
+            fail();
+        } catch (IllegalStateException expected) {}
+    }
+
+    @Test
+    public void detachWhileBatchingTest() {
+        HazardRollup parent = new HazardRollup();
+        HazardRollup child = new HazardRollup();
+        child.add(40);
+        child.attachTo(parent);
+        HazardRollup.beginBatch();
+        try {
+            child.update(40, 70);
+            child.detach();
+            assertEquals(0, parent.getSensorCount());
+            assertEquals(0, parent.getMaxHazardLevel());
+        } finally {
+            HazardRollup.endBatch();
+        }
+        assertEquals(0, parent.getSensorCount());
+        assertEquals(0, parent.getHazardLevelSum());
+    }
+
+    @Test
+    public void updatedByKernelTickTest() {
+        SensorKernel kernel = new SensorKernel(manager);
+        kernel.add(temperature);
+        manager.elapseOneMinute();
+        assertTickedRollups();
+    }
+
+    @Test
+    public void removeRoomTest() {
+        assertSame(study, floor1.removeRoom(101));
+        assertNull(study.getHazardRollup().getParent());
+        assertEquals(3, building.getHazardRollup().getSensorCount());
+        assertEquals(70, building.getHazardRollup().getHazardLevelSum());
+
+        // the removed room's sensors are no longer advanced
+        manager.elapseOneMinute();
+        assertEquals(40, study.getHazardRollup().getMaxHazardLevel());
+        assertEquals(150, building.getHazardRollup().getHazardLevelSum());
+    }
+
+    @Test
+    public void sensorRollupTest() {
+        assertEquals(4, building.getHazardRollup().getSensorCount());
+        HazardRollup rollup = new HazardRollup();
+        temperature.setHazardRollup(rollup);
+        assertSame(rollup, temperature.getHazardRollup());
+        assertEquals(1, rollup.getSensorCount());
+        assertEquals(3, building.getHazardRollup().getSensorCount());
+
+        temperature.setHazardRollup(null);
+        assertNull(temperature.getHazardRollup());
+        assertEquals(0, rollup.getSensorCount());
+    }
+
+    private void assertTickedRollups() {
+        HazardRollup rollup = building.getHazardRollup();
+        assertEquals(4, rollup.getSensorCount());
+        assertEquals(250, rollup.getHazardLevelSum());
+        assertEquals(100, rollup.getMaxHazardLevel());
+        assertEquals(2, rollup.countAtOrAbove(100));
+        assertEquals(250, floor1.getHazardRollup().getHazardLevelSum());
+        assertEquals(0, floor2.getHazardRollup().getMaxHazardLevel());
+    }
+}
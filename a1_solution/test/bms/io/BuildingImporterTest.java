@@ -0,0 +1,195 @@
+package bms.io;
+
+import bms.building.Building;
+import bms.exceptions.ImportException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class BuildingImporterTest {
+    private TimedItemManager manager;
+    private Building building;
+    private BuildingImporter importer;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Before
+    public void setUp() {
+        manager = new TimedItemManager();
+        building = new Building("GP South", manager);
+        importer = new BuildingImporter(building);
+    }
+
+    @Test
+    public void constructorTest() {
+        assertSame(building, importer.getBuilding());
+        try {
+            new BuildingImporter(null);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void importCsvTest() throws Exception {
+        String csv = "# GP South\n"
+                + "floor,1,10,10\n"
+                + "\n"
+                + "floor,2,10,8\n"
+                + "room,1,101,STUDY,20\n"
+                + "room,1,102,LABORATORY,25.5\n"
+                + "room,2,201,OFFICE,30\n"
+                + "sensor,1,101,OccupancySensor,2,4 12 7,10\n"
+                + "sensor,1,102,CarbonDioxideSensor,5,690 740,700,150\n"
+                + "sensor,1,102,TemperatureSensor,1,20 70 25\n"
+                + "sensor,2,201,NoiseSensor,3,35 38 60 41\n";
+
+        assertEquals(9, importer.importCsv(new StringReader(csv)));
+
+        assertEquals(2, building.getFloors().size());
+        Floor floor2 = building.getFloorByNumber(2);
+        assertEquals(8, floor2.getLength(), 1e-9);
+        assertEquals(3, building.roomCount());
+        Room lab = building.getFloorByNumber(1).getRoomByNumber(102);
+        assertEquals(RoomType.LABORATORY, lab.getType());
+        assertEquals(25.5, lab.getArea(), 1e-9);
+        CarbonDioxideSensor co2 = lab.getSensor(CarbonDioxideSensor.class);
+        assertArrayEquals(new int[] {690, 740}, co2.getReadings());
+        assertEquals(5, co2.getUpdateFrequency());
+        assertEquals(700, co2.getIdealValue());
+        assertEquals(150, co2.getVariationLimit());
+        assertNotNull(lab.getSensor(TemperatureSensor.class));
+        OccupancySensor occupancy = building.getFloorByNumber(1)
+                .getRoomByNumber(101).getSensor(OccupancySensor.class);
+        assertEquals(10, occupancy.getCapacity());
+        assertSame(manager, floor2.getRoomByNumber(201)
+                .getSensor(NoiseSensor.class).getTimedItemManager());
+    }
+
+    @Test
+    public void importJsonTest() throws Exception {
+        String json = "{\"record\": \"floor\", \"number\": 1, "
+                + "\"width\": 10, \"length\": 10}\n"
+                + "\n"
+                + "{\"record\":\"room\",\"floor\":1,\"number\":101,"
+                + "\"type\":\"STUDY\",\"area\":20.5}\n"
+                + "{\"record\": \"sensor\", \"floor\": 1, \"room\": 101, "
+                + "\"kind\": \"OccupancySensor\", \"frequency\": 2, "
+                + "\"readings\": [4, 12, 7], \"capacity\": 10}\n"
+                + "{\"record\": \"sensor\", \"floor\": 1, \"room\": 101, "
+                + "\"kind\": \"Noise\\u0053ensor\", \"frequency\": 3, "
+                + "\"readings\": [], \"comment\": null}\n";
+
+        try {
+            importer.importJson(new StringReader(json));
+            fail();
+        } catch (ImportException expected) {
+            // noise sensor without readings is rejected by the sensor
+            assertEquals(1, expected.getErrorCount());
+            assertTrue(expected.getErrors().get(0).startsWith("line 5: "));
+        }
+
+        Room study = building.getFloorByNumber(1).getRoomByNumber(101);
+        assertEquals(20.5, study.getArea(), 1e-9);
+        assertEquals(1, study.sensorCount());
+        assertArrayEquals(new int[] {4, 12, 7},
+                study.getSensor(OccupancySensor.class).getReadings());
+    }
+
+    @Test
+    public void errorsBatchedTest() throws Exception {
+        String csv = "floor,1,10,10\n"
+                + "floor,3,10,10\n"                    // no floor below
+                + "floor,1,10,10\n"                    // duplicate floor
+                + "floor,2,20,20\n"                    // too large
+                + "floor,2,10,10\n"
+                + "room,1,101,STUDY,60\n"
+                + "room,1,102,STUDY,60\n"              // no space
+                + "room,1,101,OFFICE,10\n"             // duplicate room
+                + "room,4,401,OFFICE,10\n"             // no floor
+                + "room,2,201,KITCHEN,10\n"            // unknown type
+                + "room,2,202,OFFICE\n"                // too few fields
+                + "sensor,1,101,NoiseSensor,3,35 38\n"
+                + "sensor,1,101,NoiseSensor,3,40\n"    // duplicate sensor
+                + "sensor,1,103,NoiseSensor,3,40\n"    // no room
+                + "sensor,1,101,SmokeSensor,3,40\n"    // unknown kind
+                + "sensor,1,101,TemperatureSensor,2,20\n"
+                + "sensor,1,101,OccupancySensor,x,4,10\n"
+                + "lift,1,2\n";
+
+        try {
+            importer.importCsv(new StringReader(csv));
+            fail();
+        } catch (ImportException expected) {
+            assertEquals(14, expected.getErrorCount());
+            int[] lines = {2, 3, 4, 7, 8, 9, 10, 11, 13, 14, 15, 16, 17, 18};
+            assertEquals(lines.length, expected.getErrors().size());
+            for (int i = 0; i < lines.length; i++) {
+                String error = expected.getErrors().get(i);
+                assertTrue(error, error.startsWith("line " + lines[i] + ": "));
+            }
+        }
+
+        // every valid record was still imported
+        assertEquals(2, building.getFloors().size());
+        assertEquals(1, building.roomCount());
+        Room study = building.getFloorByNumber(1).getRoomByNumber(101);
+        assertEquals(1, study.sensorCount());
+        assertArrayEquals(new int[] {35, 38},
+                study.getSensor(NoiseSensor.class).getReadings());
+    }
+
+    @Test
+    public void errorsLimitedTest() throws Exception {
+        StringBuilder csv = new StringBuilder();
+        int count = BuildingImporter.MAX_REPORTED_ERRORS + 50;
+        for (int i = 0; i < count; i++) {
+            csv.append("room,1,").append(i).append(",STUDY,10\n");
+        }
+
+        try {
+            importer.importCsv(new StringReader(csv.toString()));
+            fail();
+        } catch (ImportException expected) {
+            assertEquals(count, expected.getErrorCount());
+            assertEquals(BuildingImporter.MAX_REPORTED_ERRORS,
+                    expected.getErrors().size());
+            assertTrue(expected.getMessage().contains("line 1: "));
+        }
+    }
+
+    @Test
+    public void malformedJsonTest() throws Exception {
+        String json = "{\"record\": \"floor\", \"number\": 1, "
+                + "\"width\": 10, \"length\": 10}\n"
+                + "{\"record\": \"floor\", \"number\": 2\n"
+                + "{\"record\": \"floor\", \"number\": \"two\", "
+                + "\"width\": 10, \"length\": 10}\n"
+                + "{\"record\": \"sensor\", \"floor\": 1, \"room\": 101, "
+                + "\"readings\": [1, \"a\"]}\n"
+                + "[1, 2]\n"
+                + "{\"record\": \"floor\", \"number\": 2, "
+                + "\"width\": 10, \"length\": 10} trailing\n";
+
+        try {
+            importer.importJson(new StringReader(json));
+            fail();
+        } catch (ImportException expected) {
+            assertEquals(5, expected.getErrorCount());
+        }
+        assertEquals(1, building.getFloors().size());
+    }
+}
@@ -0,0 +1,191 @@
+package bms.io;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.Sensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TickMode;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BuildingSnapshotTest {
+    private TimedItemManager manager;
+    private Building building;
+    private Path file;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Before
+    public void setUp() throws Exception {
+        manager = new TimedItemManager();
+        building = new Building("GP South", manager);
+        Floor floor1 = new Floor(1, 10, 10);
+        Floor floor2 = new Floor(2, 10, 8);
+        Room study = new Room(101, RoomType.STUDY, 20);
+        Room lab = new Room(102, RoomType.LABORATORY, 25.5);
+        Room office = new Room(201, RoomType.OFFICE, 30);
+        study.addSensor(new OccupancySensor(new int[] {4, 12, 7}, 2, 10));
+        lab.addSensor(new CarbonDioxideSensor(new int[] {690, 740}, 5, 700,
+                150));
+        lab.addSensor(new TemperatureSensor(new int[] {20, 70, 25}));
+        office.addSensor(new NoiseSensor(new int[] {35, 38, 60, 41}, 3));
+        floor1.addRoom(study);
+        floor1.addRoom(lab);
+        floor2.addRoom(office);
+        building.addFloor(floor1);
+        building.addFloor(floor2);
+        office.setFireDrill(true);
+
+        manager.elapseMinutes(4);
+        manager.setTickMode(TickMode.LAZY);
+        manager.elapseMinutes(3);
+
+        file = Files.createTempFile("building", ".snapshot");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void headerTest() throws IOException {
+        BuildingSnapshot.write(building, file);
+        BuildingSnapshot snapshot = BuildingSnapshot.open(file);
+        assertEquals("GP South", snapshot.getName());
+        assertEquals(2, snapshot.floorCount());
+        assertEquals(3, snapshot.roomCount());
+        assertEquals(4, snapshot.sensorCount());
+
+        TimedItemManager restored = snapshot.getTimedItemManager();
+        assertEquals(7, restored.getMinutesElapsed());
+        assertEquals(3, restored.getDeferredMinutes());
+        assertEquals(TickMode.LAZY, restored.getTickMode());
+    }
+
+    @Test
+    public void lazyFloorTest() throws IOException {
+        BuildingSnapshot.write(building, file);
+        BuildingSnapshot snapshot = BuildingSnapshot.open(file);
+        assertFalse(snapshot.isFloorLoaded(1));
+        assertFalse(snapshot.isFloorLoaded(2));
+
+        Floor floor2 = snapshot.getFloor(2);
+        assertTrue(snapshot.isFloorLoaded(2));
+        assertFalse(snapshot.isFloorLoaded(1));
+        assertSame(floor2, snapshot.getFloor(2));
+        assertNull(snapshot.getFloor(3));
+        assertNull(snapshot.getFloor(0));
+
+        Room office = floor2.getRoomByNumber(201);
+        assertEquals(RoomType.OFFICE, office.getType());
+        assertTrue(office.fireDrillOngoing());
+        assertSame(snapshot.getTimedItemManager(),
+                floor2.getTimedItemManager());
+    }
+
+    @Test
+    public void roundTripTest() throws IOException {
+        BuildingSnapshot.write(building, file);
+        BuildingSnapshot snapshot = BuildingSnapshot.open(file);
+        Building restored = snapshot.getBuilding();
+        assertSame(restored, snapshot.getBuilding());
+        assertEquals(building.toString(), restored.toString());
+        assertEquals(building.roomCount(), restored.roomCount());
+        assertSame(snapshot.getTimedItemManager(),
+                restored.getTimedItemManager());
+
+        for (Floor floor : building.getFloorsView()) {
+            Floor restoredFloor = restored.getFloorByNumber(
+                    floor.getFloorNumber());
+            assertEquals(floor.toString(), restoredFloor.toString());
+            for (Room room : floor.getRoomsView()) {
+                Room restoredRoom = restoredFloor.getRoomByNumber(
+                        room.getRoomNumber());
+                assertEquals(room.toString(), restoredRoom.toString());
+                assertEquals(room.fireDrillOngoing(),
+                        restoredRoom.fireDrillOngoing());
+                for (Sensor sensor : room.getSensorsView()) {
+                    Sensor restoredSensor =
+                            restoredRoom.getSensor(sensor.getClass());
+                    assertEquals(sensor.toString(),
+                            restoredSensor.toString());
+                }
+            }
+        }
+
+        // both buildings keep ticking in step
+        manager.elapseMinutes(5);
+        snapshot.getTimedItemManager().elapseMinutes(5);
+        OccupancySensor original = building.getFloorByNumber(1)
+                .getRoomByNumber(101).getSensor(OccupancySensor.class);
+        OccupancySensor copy = restored.getFloorByNumber(1)
+                .getRoomByNumber(101).getSensor(OccupancySensor.class);
+        assertEquals(original.getTimeElapsed(), copy.getTimeElapsed());
+        assertEquals(original.getCurrentReading(), copy.getCurrentReading());
+        assertTrue(Arrays.equals(original.getReadings(), copy.getReadings()));
+    }
+
+    @Test
+    public void customSensorTest() throws Exception {
+        building.getFloorByNumber(1).getRoomByNumber(101).addSensor(
+                new TemperatureSensor(new int[] {20}) {});
+        try {
+            BuildingSnapshot.write(building, file);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void notASnapshotTest() throws IOException {
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+        try {
+            BuildingSnapshot.open(file);
+            fail();
+        } catch (IOException expected) {}
+    }
+
+    @Test
+    public void unsupportedVersionTest() throws IOException {
+        BuildingSnapshot.write(building, file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[7] = (byte) (BuildingSnapshot.VERSION + 1);
+        Files.write(file, bytes);
+        try {
+            BuildingSnapshot.open(file);
+            fail();
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("version"));
+        }
+    }
+
+    @Test
+    public void truncatedFloorTest() throws IOException {
+        BuildingSnapshot.write(building, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+        BuildingSnapshot snapshot = BuildingSnapshot.open(file);
+        assertNotNull(snapshot.getFloor(1));
+        try {
+            snapshot.getFloor(2);
+            fail();
+        } catch (IOException expected) {}
+    }
+}
@@ -0,0 +1,272 @@
+package bms.io;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.TemperatureSensor;
+import bms.sensors.TimedSensor;
+import bms.util.TickMode;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ReadingArchiveTest {
+    private TimedItemManager manager;
+    private Path directory;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Before
+    public void setUp() throws IOException {
+        manager = new TimedItemManager();
+        directory = Files.createTempDirectory("archive");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path ->
+                    path.toFile().delete());
+        }
+    }
+
+    /**
+     * Returns the reading a sensor with the given readings and update
+     * frequency observes at the given time elapsed.
+     */
+    private static int readingAt(int[] readings, int frequency, long time) {
+        return readings[(int) ((time / frequency) % readings.length)];
+    }
+
+    private TimedSensor sensor(int[] readings, int frequency) {
+        TimedSensor sensor = new NoiseSensor(readings, frequency);
+        sensor.setTimedItemManager(manager);
+        return sensor;
+    }
+
+    @Test
+    public void writeAndReadTest() throws IOException {
+        int[] readings = {40, 42, 42, 65, 38};
+        TimedSensor noise = sensor(readings, 3);
+        ReadingArchiveWriter writer =
+                new ReadingArchiveWriter(directory, manager, 10);
+        writer.addSensor("noise", noise);
+        for (int i = 0; i < 5; i++) {
+            manager.elapseOneMinute();
+        }
+        manager.elapseMinutes(17);
+        manager.setTickMode(TickMode.LAZY);
+        manager.elapseMinutes(9);
+        manager.elapseOneMinute();
+        // minutes 0 to 32 recorded, in segments 0-9, 10-19, 20-29 and 30-32
+        assertEquals(3, writer.getSegmentCount());
+        writer.close();
+        assertEquals(4, writer.getSegmentCount());
+
+        ReadingArchive archive = ReadingArchive.open(directory);
+        assertEquals(4, archive.getSegmentCount());
+        assertEquals(0, archive.getFirstMinute());
+        assertEquals(33, archive.getEndMinute());
+        assertEquals(Set.of("noise"), archive.getSensorNames());
+
+        int[] archived = archive.read("noise", 0, 33);
+        for (int minute = 0; minute < 33; minute++) {
+            assertEquals(readingAt(readings, 3, minute), archived[minute]);
+        }
+        int[] range = archive.read("noise", 27, 35);
+        assertEquals(readingAt(readings, 3, 27), range[0]);
+        assertEquals(readingAt(readings, 3, 32), range[5]);
+        assertEquals(ReadingArchive.NO_READING, range[6]);
+        assertArrayEquals(new int[0], archive.read("noise", 5, 5));
+        assertArrayEquals(new int[] {ReadingArchive.NO_READING},
+                archive.read("missing", 3, 4));
+    }
+
+    @Test
+    public void sensorAddedLaterTest() throws IOException {
+        ReadingArchiveWriter writer =
+                new ReadingArchiveWriter(directory, manager, 100);
+        TimedSensor first = sensor(new int[] {1, 2}, 1);
+        writer.addSensor("first", first);
+        manager.elapseMinutes(4);
+        TimedSensor second = sensor(new int[] {7, 8, 9}, 1);
+        writer.addSensor("second", second);
+        manager.elapseMinutes(3);
+        writer.close();
+
+        ReadingArchive archive = ReadingArchive.open(directory);
+        assertArrayEquals(new int[] {1, 2, 1, 2, 1, 2, 1, 2},
+                archive.read("first", 0, 8));
+        assertArrayEquals(new int[] {-1, -1, -1, -1, 7, 8, 9, 7},
+                archive.read("second", 0, 8));
+    }
+
+    @Test
+    public void checkpointTest() throws IOException {
+        int[] readings = new int[97];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = (i * 37) % 101;
+        }
+        TimedSensor noise = sensor(readings, 2);
+        ReadingArchiveWriter writer = new ReadingArchiveWriter(directory,
+                manager);
+        writer.addSensor("noise", noise);
+        manager.elapseMinutes(ReadingArchiveWriter.DEFAULT_SEGMENT_MINUTES
+                - 1);
+        writer.close();
+
+        ReadingArchive archive = ReadingArchive.open(directory);
+        assertEquals(1, archive.getSegmentCount());
+        for (int from : new int[] {0, 59, 60, 61, 119, 700, 1401}) {
+            int[] range = archive.read("noise", from, from + 39);
+            for (int i = 0; i < range.length; i++) {
+                assertEquals(readingAt(readings, 2, from + i), range[i]);
+            }
+        }
+    }
+
+    @Test
+    public void compressionTest() throws IOException {
+        TimedSensor temperature = new TemperatureSensor(new int[] {21});
+        temperature.setTimedItemManager(manager);
+        TimedSensor noise = sensor(new int[] {30, 31}, 5);
+        ReadingArchiveWriter writer = new ReadingArchiveWriter(directory,
+                manager);
+        writer.addSensor("temperature", temperature);
+        writer.addSensor("noise", noise);
+        manager.elapseMinutes(ReadingArchiveWriter.DEFAULT_SEGMENT_MINUTES
+                - 1);
+        writer.close();
+
+        long size;
+        try (Stream<Path> files = Files.list(directory)) {
+            size = files.mapToLong(path -> path.toFile().length()).sum();
+        }
+        // 2880 readings, but two bytes per five-minute run of noise
+        assertTrue("archive is " + size + " bytes", size < 1500);
+    }
+
+    @Test
+    public void addBuildingTest() throws Exception {
+        Building building = new Building("GP South", manager);
+        Floor floor = new Floor(1, 10, 10);
+        Room room = new Room(101, RoomType.LABORATORY, 20);
+        room.addSensor(new CarbonDioxideSensor(new int[] {700, 800}, 2, 700,
+                150));
+        room.addSensor(new TemperatureSensor(new int[] {20, 22}));
+        floor.addRoom(room);
+        building.addFloor(floor);
+
+        ReadingArchiveWriter writer = new ReadingArchiveWriter(directory,
+                manager, 5);
+        assertEquals(2, writer.addBuilding(building));
+        assertEquals(2, writer.getSensorCount());
+        manager.elapseMinutes(6);
+        writer.close();
+
+        ReadingArchive archive = ReadingArchive.open(directory);
+        assertEquals(Set.of("1/101/CarbonDioxideSensor",
+                "1/101/TemperatureSensor"), archive.getSensorNames());
+        assertArrayEquals(new int[] {700, 700, 800, 800, 700, 700, 800},
+                archive.read("1/101/CarbonDioxideSensor", 0, 7));
+    }
+
+    @Test
+    public void invalidTest() throws IOException {
+        ReadingArchiveWriter writer = new ReadingArchiveWriter(directory,
+                manager);
+        TimedSensor noise = sensor(new int[] {1}, 1);
+        writer.addSensor("noise", noise);
+        try {
+            writer.addSensor("noise", sensor(new int[] {2}, 1));
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        try {
+            writer.addSensor("other", new NoiseSensor(new int[] {2}, 1));
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        try {
+            new ReadingArchiveWriter(directory, manager, 0);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        writer.close();
+        writer.close();
+        try {
+            writer.addSensor("late", noise);
+            fail();
+        } catch (IllegalStateException expected) {}
+
+        ReadingArchive archive = ReadingArchive.open(directory);
+        try {
+            archive.read("noise", 5, 4);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void writeFailureTest() throws IOException {
+        TimedSensor noise = sensor(new int[] {1, 2, 3}, 1);
+        ReadingArchiveWriter writer =
+                new ReadingArchiveWriter(directory, manager, 4);
+        writer.addSensor("noise", noise);
+        // a non-empty directory in the way of the first segment file
+        Path blocker = directory.resolve(ReadingArchive.segmentFileName(0));
+        Files.createDirectory(blocker);
+        Files.createFile(blocker.resolve("file"));
+
+        manager.elapseMinutes(5);
+        assertTrue(writer.isFailed());
+        assertNotNull(writer.getFailure());
+        assertEquals(0, writer.getSegmentCount());
+        // recording carries on after the failure
+        manager.elapseMinutes(2);
+        assertEquals(0, writer.getSegmentCount());
+
+        Files.delete(blocker.resolve("file"));
+        Files.delete(blocker);
+        manager.elapseMinutes(3);
+        // minutes 0 to 7 are retried together at the next boundary
+        assertFalse(writer.isFailed());
+        assertNull(writer.getFailure());
+        assertEquals(1, writer.getSegmentCount());
+        writer.close();
+        assertEquals(2, writer.getSegmentCount());
+
+        ReadingArchive archive = ReadingArchive.open(directory);
+        assertEquals(2, archive.getSegmentCount());
+        int[] archived = archive.read("noise", 0, 11);
+        for (int minute = 0; minute < 11; minute++) {
+            assertEquals(readingAt(new int[] {1, 2, 3}, 1, minute),
+                    archived[minute]);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    public void malformedTest() throws IOException {
+        Files.write(directory.resolve(ReadingArchive.segmentFileName(0)),
+                new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        try {
+            ReadingArchive.open(directory);
+            fail();
+        } catch (IOException expected) {}
+    }
+}
@@ -0,0 +1,96 @@
+package bms.metrics;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    private LatencyHistogram histogram;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void bucketBoundsTest() {
+        for (long value : new long[] {0, 1, 31, 32, 33, 63, 64, 1000,
+                123_456_789L, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket));
+            if (bucket > 0) {
+                assertTrue(value
+                        > LatencyHistogram.upperBoundOf(bucket - 1));
+            }
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBoundOf(
+                LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void emptyTest() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanNanos(), 0);
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void percentileTest() {
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000L, histogram.getMaxNanos());
+        assertEquals(5_000_500.0, histogram.getMeanNanos(), 0.001);
+        assertEquals(5_000_000, histogram.getPercentileNanos(50), 150_000);
+        assertEquals(9_900_000, histogram.getPercentileNanos(99), 300_000);
+        assertEquals(10_000_000L, histogram.getPercentileNanos(100));
+        assertEquals(1000, histogram.getPercentileNanos(0), 30);
+    }
+
+    @Test
+    public void smallValuesExactTest() {
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(-5);
+        assertEquals(0, histogram.getPercentileNanos(30));
+        assertEquals(3, histogram.getPercentileNanos(50));
+        assertEquals(7, histogram.getPercentileNanos(100));
+        assertEquals(10, histogram.getTotalNanos());
+    }
+
+    @Test
+    public void resetTest() {
+        histogram.record(500);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getTotalNanos());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    public void invalidPercentileTest() {
+        for (double percentile : new double[] {-1, 100.5, Double.NaN}) {
+            try {
+                histogram.getPercentileNanos(percentile);
+                fail();
+            } catch (IllegalArgumentException expected) {}
+        }
+    }
+
+    @Test
+    public void toStringTest() {
+        histogram.record(10);
+        histogram.record(20);
+        assertEquals("LatencyHistogram: count=2, mean=15.0ns, p99=20ns, "
+                + "max=20ns", histogram.toString());
+    }
+}
@@ -0,0 +1,205 @@
+package bms.metrics;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+    private Metrics metrics;
+    private TimedItemManager manager;
+    private Building building;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Before
+    public void setUp() throws Exception {
+        metrics = Metrics.getInstance();
+        metrics.setEnabled(true);
+        metrics.reset();
+        manager = new TimedItemManager();
+        building = new Building("GP South", manager);
+        Floor floor = new Floor(1, 10, 10);
+        Room room = new Room(101, RoomType.LABORATORY, 20);
+        room.addSensor(new NoiseSensor(new int[] {40, 50}, 1));
+        room.addSensor(new TemperatureSensor(new int[] {20, 22}));
+        room.addSensor(new CarbonDioxideSensor(new int[] {700, 800}, 2, 700,
+                150));
+        floor.addRoom(room);
+        Room office = new Room(102, RoomType.OFFICE, 20);
+        office.addSensor(new NoiseSensor(new int[] {45}, 1));
+        floor.addRoom(office);
+        building.addFloor(floor);
+    }
+
+    @After
+    public void tearDown() {
+        metrics.setEnabled(false);
+        metrics.setOverrunThresholdNanos(
+                Metrics.DEFAULT_OVERRUN_THRESHOLD_NANOS);
+        metrics.reset();
+        metrics.unregisterMBean();
+    }
+
+    @Test
+    public void tickTest() {
+        manager.elapseOneMinute();
+        manager.elapseOneMinute();
+        manager.elapseMinutes(3);
+        // elapseMinutes advances every item once, so counts as one tick
+        assertEquals(3, metrics.getTickCount());
+        assertEquals(5, metrics.getMinutesElapsed());
+        assertEquals(12, metrics.getItemsAdvanced());
+        assertTrue(metrics.getTickMaxNanos() > 0);
+        assertTrue(metrics.getTickP50Nanos() <= metrics.getTickP99Nanos());
+        assertTrue(metrics.getTickP99Nanos() <= metrics.getTickMaxNanos());
+        assertEquals(0, metrics.getOverrunCount());
+
+        Map<String, Long> byType = metrics.getItemsAdvancedByType();
+        assertEquals(Long.valueOf(6), byType.get("NoiseSensor"));
+        assertEquals(Long.valueOf(3), byType.get("TemperatureSensor"));
+        assertEquals(Long.valueOf(3), byType.get("CarbonDioxideSensor"));
+    }
+
+    @Test
+    public void tickIncludesListenersTest() {
+        long listenerNanos = 5_000_000;
+        manager.addTickListener(ticked -> {
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < listenerNanos) {
+                Thread.onSpinWait();
+            }
+        });
+        manager.elapseOneMinute();
+        assertEquals(1, metrics.getTickCount());
+        assertTrue(metrics.getTickMaxNanos() >= listenerNanos);
+    }
+
+    @Test
+    public void itemsChangedTest() throws Exception {
+        manager.elapseOneMinute();
+        building.getFloorByNumber(1).getRoomByNumber(102)
+                .addSensor(new TemperatureSensor(new int[] {19}));
+        manager.elapseOneMinute();
+        assertEquals(Long.valueOf(3),
+                metrics.getItemsAdvancedByType().get("TemperatureSensor"));
+    }
+
+    @Test
+    public void severalManagersTest() throws Exception {
+        TimedItemManager other = new TimedItemManager();
+        new NoiseSensor(new int[] {40}, 1).setTimedItemManager(other);
+        for (int i = 0; i < 3; i++) {
+            manager.elapseOneMinute();
+            other.elapseOneMinute();
+        }
+        Map<String, Long> byType = metrics.getItemsAdvancedByType();
+        assertEquals(Long.valueOf(9), byType.get("NoiseSensor"));
+        assertEquals(Long.valueOf(3), byType.get("TemperatureSensor"));
+        assertEquals(15, metrics.getItemsAdvanced());
+    }
+
+    @Test
+    public void overrunTest() {
+        metrics.setOverrunThresholdNanos(0);
+        manager.elapseOneMinute();
+        manager.elapseOneMinute();
+        assertEquals(2, metrics.getOverrunCount());
+        try {
+            metrics.setOverrunThresholdNanos(-1);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void fireDrillTest() throws Exception {
+        building.fireDrill(RoomType.LABORATORY);
+        building.cancelFireDrill();
+        building.fireDrillAsync(null).getFuture().join();
+        building.cancelFireDrillAsync().getFuture().join();
+        assertEquals(2, metrics.getFireDrillCount());
+        assertTrue(metrics.getFireDrillMeanNanos() > 0);
+        assertEquals(2, metrics.getFireDrillCancellationCount());
+        assertTrue(metrics.getFireDrillCancellationMaxNanos() > 0);
+    }
+
+    @Test
+    public void hazardSweepTest() {
+        building.getHazardIndex().maxHazardLevel();
+        building.getHazardIndex().maxHazardLevel();
+        assertEquals(1, metrics.getHazardSweepCount());
+        manager.elapseOneMinute();
+        building.getHazardIndex().maxHazardLevel();
+        assertEquals(2, metrics.getHazardSweepCount());
+        assertTrue(metrics.getHazardSweepMaxNanos() > 0);
+    }
+
+    @Test
+    public void disabledTest() throws Exception {
+        metrics.setEnabled(false);
+        manager.elapseOneMinute();
+        building.fireDrill(null);
+        building.getHazardIndex().refresh();
+        assertEquals(0, metrics.getTickCount());
+        assertEquals(0, metrics.getItemsAdvanced());
+        assertTrue(metrics.getItemsAdvancedByType().isEmpty());
+        assertEquals(0, metrics.getFireDrillCount());
+        assertEquals(0, metrics.getHazardSweepCount());
+    }
+
+    @Test
+    public void resetTest() {
+        manager.elapseOneMinute();
+        metrics.reset();
+        assertEquals(0, metrics.getTickCount());
+        assertEquals(0, metrics.getMinutesElapsed());
+        assertTrue(metrics.getItemsAdvancedByType().isEmpty());
+    }
+
+    @Test
+    public void mbeanTest() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        assertFalse(metrics.isRegistered());
+        metrics.registerMBean();
+        metrics.registerMBean();
+        assertTrue(metrics.isRegistered());
+
+        manager.elapseOneMinute();
+        assertEquals(1L, server.getAttribute(name, "TickCount"));
+        assertEquals(true, server.getAttribute(name, "Enabled"));
+        server.setAttribute(name, new Attribute("Enabled",
+                false));
+        assertFalse(metrics.isEnabled());
+        server.invoke(name, "reset", null, null);
+        assertEquals(0, metrics.getTickCount());
+
+        metrics.unregisterMBean();
+        assertFalse(metrics.isRegistered());
+    }
+
+    @Test
+    public void toStringTest() {
+        manager.elapseOneMinute();
+        assertEquals("Metrics: enabled=true, ticks=1, overruns=0, "
+                + "fireDrills=0, hazardSweeps=0", metrics.toString());
+    }
+}
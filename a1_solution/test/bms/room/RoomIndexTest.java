@@ -0,0 +1,127 @@
+package bms.room;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RoomIndexTest {
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Test
+    public void forEachRoomOfTypeTest() {
+        RoomIndex index = new RoomIndex();
+        Room study1 = new Room(1, RoomType.STUDY, 10);
+        Room office = new Room(2, RoomType.OFFICE, 10);
+        Room study2 = new Room(3, RoomType.STUDY, 10);
+        index.add(study1);
+        index.add(office);
+        index.add(study2);
+
+        List<Room> visited = new ArrayList<>();
+        index.forEachRoom(RoomType.STUDY, visited::add);
+        assertEquals(Arrays.asList(study1, study2), visited);
+
+        visited.clear();
+        index.forEachRoom(RoomType.LABORATORY, visited::add);
+        assertTrue(visited.isEmpty());
+
+        visited.clear();
+        index.forEachRoom(null, visited::add);
+        assertEquals(3, visited.size());
+        assertEquals(3, index.roomCount());
+        assertEquals(3, index.roomCount(null));
+        assertEquals(2, index.roomCount(RoomType.STUDY));
+        assertEquals(0, index.roomCount(RoomType.LABORATORY));
+    }
+
+    @Test
+    public void removeTest() {
+        RoomIndex index = new RoomIndex();
+        Room study = new Room(1, RoomType.STUDY, 10);
+        index.add(study);
+        assertTrue(index.remove(study));
+        assertFalse(index.remove(study));
+        assertEquals(0, index.roomCount());
+        assertEquals(0, index.roomCount(RoomType.STUDY));
+    }
+
+    @Test
+    public void removeFromMiddleTest() {
+        RoomIndex index = new RoomIndex();
+        Room[] studies = new Room[5];
+        for (int i = 0; i < studies.length; i++) {
+            studies[i] = new Room(i + 1, RoomType.STUDY, 10);
+            index.add(studies[i]);
+        }
+        assertTrue(index.remove(studies[1]));
+        assertTrue(index.remove(studies[4]));
+        assertFalse(index.remove(studies[1]));
+
+        // the remaining rooms are all still visited, in some order
+        List<Room> visited = new ArrayList<>();
+        index.forEachRoom(RoomType.STUDY, visited::add);
+        assertEquals(3, visited.size());
+        assertTrue(visited.containsAll(
+                Arrays.asList(studies[0], studies[2], studies[3])));
+        assertTrue(index.remove(studies[3]));
+        assertTrue(index.remove(studies[0]));
+        assertTrue(index.remove(studies[2]));
+        assertEquals(0, index.roomCount(RoomType.STUDY));
+    }
+
+    @Test
+    public void untypedRoomTest() {
+        RoomIndex index = new RoomIndex();
+        Room room = new Room(1, null, 10);
+        index.add(room);
+        assertEquals(1, index.roomCount());
+        List<Room> visited = new ArrayList<>();
+        index.forEachRoom(null, visited::add);
+        assertEquals(Arrays.asList(room), visited);
+        assertTrue(index.remove(room));
+    }
+
+    @Test
+    public void attachAndDetachTest() {
+        RoomIndex parent = new RoomIndex();
+        RoomIndex child = new RoomIndex();
+        Room office = new Room(1, RoomType.OFFICE, 10);
+        Room lab = new Room(2, RoomType.LABORATORY, 10);
+        parent.add(office);
+        child.add(lab);
+
+        child.attachTo(parent);
+        assertSame(parent, child.getParent());
+        assertEquals(2, parent.roomCount());
+        assertEquals(1, parent.roomCount(RoomType.LABORATORY));
+
+        Room study = new Room(3, RoomType.STUDY, 10);
+        child.add(study);
+        assertEquals(3, parent.roomCount());
+        child.remove(lab);
+        assertEquals(0, parent.roomCount(RoomType.LABORATORY));
+
+        child.detach();
+        assertNull(child.getParent());
+        assertEquals(1, parent.roomCount());
+        assertEquals(1, child.roomCount());
+
+        try {
+            child.attachTo(null);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        child.attachTo(parent);
+        try {
+            parent.attachTo(child);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+}
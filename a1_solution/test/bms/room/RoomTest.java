@@ -124,6 +124,73 @@ public class RoomTest {
         assertNull(room1.getSensor("NoiseSensor"));
     }
 
+    @Test
+    public void getSensorByClassTest() {
+        Room room1 = new Room(1, RoomType.STUDY, 10);
+        NoiseSensor sensor1 = new NoiseSensor(new int[] {65,67,62,61}, 1);
+        try {
+            room1.addSensor(sensor1);
+        } catch (DuplicateSensorException e) {
+            fail(); // should not generate an exception
+        }
+        assertSame(sensor1, room1.getSensor(NoiseSensor.class));
+        assertNull(room1.getSensor(TemperatureSensor.class));
+    }
+
+    @Test
+    public void getSensorByKindTest() {
+        Room room1 = new Room(1, RoomType.STUDY, 10);
+        Sensor sensor1 = new OccupancySensor(new int[] {15,13,12,17}, 1, 25);
+        try {
+            room1.addSensor(sensor1);
+        } catch (DuplicateSensorException e) {
+            fail(); // should not generate an exception
+        }
+        assertSame(sensor1, room1.getSensor(SensorKind.OCCUPANCY));
+        assertNull(room1.getSensor(SensorKind.CARBON_DIOXIDE));
+    }
+
+    /*
+    Sensor of a kind not built in to the system, used to test that rooms
+    still accept and look up arbitrary sensor classes.
+     */
+    private static class AirflowSensor implements Sensor {
+        @Override
+        public int getCurrentReading() {
+            return 3;
+        }
+    }
+
+    @Test
+    public void getSensorCustomSensorTest() {
+        Room room1 = new Room(1, RoomType.STUDY, 10);
+        Sensor sensor1 = new AirflowSensor();
+        Sensor sensor2 = new TemperatureSensor(new int[] {24, 23, 25});
+        try {
+            room1.addSensor(sensor2);
+            room1.addSensor(sensor1);
+        } catch (DuplicateSensorException e) {
+            fail(); // should not generate an exception
+        }
+        assertSame(sensor1, room1.getSensor("AirflowSensor"));
+        assertSame(sensor1, room1.getSensor(AirflowSensor.class));
+        assertEquals(List.of(sensor1, sensor2), room1.getSensors());
+    }
+
+    @Test
+    public void addSensorDuplicateCustomSensorTest() {
+        boolean thrown = false;
+        Room room1 = new Room(1, RoomType.STUDY, 10);
+        try {
+            room1.addSensor(new AirflowSensor());
+            room1.addSensor(new AirflowSensor());
+        } catch (DuplicateSensorException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+        assertEquals(1, room1.getSensors().size());
+    }
+
     // **************** GetSensors tests ***************
 
     @Test
@@ -150,6 +217,33 @@ public class RoomTest {
                 room1.getSensors());
     }
 
+    @Test
+    public void getSensorsViewTest() {
+        Room room1 = new Room(1, RoomType.STUDY, 10);
+        Sensor sensor1 = new OccupancySensor(
+                new int[] {15,13,12,17}, 1, 25);
+        Sensor sensor2 = new CarbonDioxideSensor(
+                new int[] {700, 720, 712}, 1, 700, 300);
+        List<Sensor> view = room1.getSensorsView();
+        try {
+            room1.addSensor(sensor1);
+            room1.addSensor(sensor2);
+        } catch (DuplicateSensorException e) {
+            fail(); // should not generate an exception
+        }
+        assertSame(view, room1.getSensorsView());
+        assertEquals(List.of(sensor2, sensor1), view);
+        assertEquals(2, room1.sensorCount());
+        try {
+            view.remove(0);
+            fail();
+        } catch (UnsupportedOperationException expected) {}
+
+        List<Sensor> visited = new ArrayList<>();
+        room1.forEachSensor(visited::add);
+        assertEquals(List.of(sensor2, sensor1), visited);
+    }
+
     // **************** Add Hazard Sensor tests ***************
 
     @Test
@@ -79,4 +79,17 @@ public class CarbonDioxideSensorTest {
                         "type=CarbonDioxideSensor,idealPPM=700,varLimit=250",
                 sensor1.toString().replace(" ", "").replace("\"", ""));
     }
+
+    @Test
+    public void hazardLevelsMatchesGetHazardLevelTest() {
+        int[] readings = new int[] {0, 999, 1000, 1999, 2000, 4999, 5000,
+                12000};
+        int[] levels = new int[readings.length];
+        CarbonDioxideSensor.hazardLevels(readings, levels, readings.length);
+        for (int i = 0; i < readings.length; i++) {
+            CarbonDioxideSensor sensor = new CarbonDioxideSensor(
+                    new int[] {readings[i]}, 1, 600, 250);
+            assertEquals(levels[i], sensor.getHazardLevel());
+        }
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package bms.sensors;
 
+import bms.util.TimedItemManager;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
@@ -119,4 +120,93 @@ public class NoiseSensorTest {
         assertEquals("TimedSensor:freq=3,readings=70,73,78,65,72,type=NoiseSensor",
                 sensor1.toString().replace(" ", "").replace("\"", ""));
     }
+
+    @Test
+    public void hazardLevelsMatchesGetHazardLevelTest() {
+        int[] readings = new int[131];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = i;
+        }
+        int[] levels = new int[readings.length];
+        NoiseSensor.hazardLevels(readings, levels, readings.length);
+        // keep the sensors off the shared manager
+        TimedItemManager manager = new TimedItemManager();
+        for (int i = 0; i < readings.length; i++) {
+            NoiseSensor sensor = new NoiseSensor(new int[] {i}, 1);
+            sensor.setTimedItemManager(manager);
+            assertEquals(levels[i], sensor.getHazardLevel());
+        }
+    }
+
+    @Test
+    public void hazardLevelsCountTest() {
+        int[] levels = new int[] {-1, -1, -1};
+        NoiseSensor.hazardLevels(new int[] {70, 70, 70}, levels, 2);
+        assertEquals(100, levels[1]);
+        assertEquals(-1, levels[2]);
+    }
+
+    @Test
+    public void hazardLevelsInvalidArgumentsTest() {
+        try {
+            NoiseSensor.hazardLevels(new int[2], new int[1], 2);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        try {
+            NoiseSensor.hazardLevels(null, new int[1], 1);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        try {
+            NoiseSensor.hazardLevels(new int[1], new int[1], -1);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void precomputedLevelsMatchFormulaTest() {
+        // covers the precomputed table and readings louder than it
+        TimedItemManager manager = new TimedItemManager();
+        for (int reading = 0; reading <= 300; reading++) {
+            NoiseSensor sensor = new NoiseSensor(new int[] {reading}, 1);
+            sensor.setTimedItemManager(manager);
+            double loudness = Math.pow(2, (reading - 70) / 10.0);
+            assertEquals(loudness, sensor.calculateRelativeLoudness(), 0);
+            assertEquals((int) Math.min(Math.floor(loudness * 100), 100),
+                    sensor.getHazardLevel());
+        }
+    }
+
+    @Test
+    public void overriddenRelativeLoudnessTest() {
+        NoiseSensor sensor = new NoiseSensor(new int[] {60}, 1) {
+            @Override
+            public double calculateRelativeLoudness() {
+                return 0.25;
+            }
+        };
+        assertEquals(25, sensor.getHazardLevel());
+        try {
+            sensor.precomputeHazardSchedule();
+            fail();
+        } catch (UnsupportedOperationException expected) {}
+        assertFalse(sensor.hasHazardSchedule());
+        assertEquals(25, sensor.getHazardLevel());
+    }
+
+    @Test
+    public void subclassWithoutOverrideTest() {
+        // a subclass which keeps the relative loudness calculation still
+        // supports a hazard schedule
+        NoiseSensor sensor = new NoiseSensor(new int[] {60, 80}, 1) {
+            @Override
+            public String toString() {
+                return "subclass";
+            }
+        };
+        assertEquals(50, sensor.getHazardLevel());
+        sensor.precomputeHazardSchedule();
+        assertTrue(sensor.hasHazardSchedule());
+        sensor.elapseOneMinute();
+        assertEquals(100, sensor.getHazardLevel());
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package bms.sensors;
 
+import bms.util.TimedItemManager;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
@@ -95,4 +96,36 @@ public class OccupancySensorTest {
                         "type=OccupancySensor,capacity=30",
                 sensor1.toString().replace(" ", "").replace("\"", ""));
     }
+
+    @Test
+    public void hazardLevelsMatchesGetHazardLevelTest() {
+        int count = 0;
+        int[] readings = new int[51 * 51];
+        int[] capacities = new int[readings.length];
+        for (int capacity = 0; capacity <= 50; capacity++) {
+            for (int reading = 0; reading <= 50; reading++) {
+                readings[count] = reading;
+                capacities[count++] = capacity;
+            }
+        }
+        int[] levels = new int[count];
+        OccupancySensor.hazardLevels(readings, capacities, levels, count);
+        // keep the sensors off the shared manager
+        TimedItemManager manager = new TimedItemManager();
+        for (int i = 0; i < count; i++) {
+            OccupancySensor sensor = new OccupancySensor(
+                    new int[] {readings[i]}, 1, capacities[i]);
+            sensor.setTimedItemManager(manager);
+            assertEquals(levels[i], sensor.getHazardLevel());
+        }
+    }
+
+    @Test
+    public void hazardLevelsInvalidArgumentsTest() {
+        try {
+            OccupancySensor.hazardLevels(new int[2], new int[1], new int[2],
+                    2);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
 }
\ No newline at end of file
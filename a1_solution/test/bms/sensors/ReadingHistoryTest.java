@@ -0,0 +1,166 @@
+package bms.sensors;
+
+import bms.util.TickMode;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReadingHistoryTest {
+    private TimedSensor sensor;
+    private int[] readings;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Before
+    public void setUp() {
+        readings = new int[] {5, 9, 2, 7, 7, 1, 8};
+        sensor = new NoiseSensor(readings, 1);
+    }
+
+    @Test
+    public void enableTest() {
+        assertNull(sensor.getReadingHistory());
+        ReadingHistory history = sensor.enableReadingHistory(4);
+        assertSame(history, sensor.getReadingHistory());
+        assertSame(sensor, history.getSensor());
+        assertEquals(4, history.getCapacity());
+        assertEquals(1, history.size());
+        assertArrayEquals(new int[] {5}, history.getReadings(4));
+
+        assertSame(history, sensor.enableReadingHistory(4));
+        assertNotSame(history, sensor.enableReadingHistory(5));
+
+        sensor.disableReadingHistory();
+        assertNull(sensor.getReadingHistory());
+        try {
+            sensor.enableReadingHistory(0);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void windowTest() {
+        ReadingHistory history = sensor.enableReadingHistory(4);
+        for (int i = 0; i < 5; i++) {
+            sensor.elapseOneMinute();
+        }
+        // readings at minutes 2 to 5
+        assertEquals(5, history.getLatestTime());
+        assertEquals(4, history.size());
+        assertArrayEquals(new int[] {2, 7, 7, 1}, history.getReadings(4));
+        assertArrayEquals(new int[] {7, 1}, history.getReadings(2));
+        assertEquals(17, history.getSum(4));
+        assertEquals(4.25, history.getMean(4), 1e-9);
+        assertEquals(1, history.getMin(4));
+        assertEquals(7, history.getMax(4));
+        assertEquals(1, history.getMax(1));
+        assertEquals(1, history.getMin(1));
+        assertEquals(7, history.getMax(2));
+
+        try {
+            history.getSum(0);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        try {
+            history.getMax(5);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void partialWindowTest() {
+        ReadingHistory history = sensor.enableReadingHistory(10);
+        sensor.elapseMinutes(2);
+        assertEquals(3, history.size());
+        assertArrayEquals(new int[] {5, 9, 2}, history.getReadings(10));
+        assertEquals(16, history.getSum(10));
+        assertEquals(2, history.getMin(10));
+        assertEquals(9, history.getMax(10));
+    }
+
+    @Test
+    public void longJumpTest() {
+        ReadingHistory history = sensor.enableReadingHistory(3);
+        sensor.elapseMinutes(1000);
+        // minute 1000 is reading index 1000 % 7 = 6
+        assertEquals(1000, history.getLatestTime());
+        assertArrayEquals(new int[] {7, 1, 8}, history.getReadings(3));
+        assertEquals(16, history.getSum(3));
+        assertEquals(1, history.getMin(3));
+        assertEquals(8, history.getMax(3));
+    }
+
+    @Test
+    public void updateFrequencyTest() {
+        TimedSensor slow = new NoiseSensor(new int[] {10, 20}, 3);
+        ReadingHistory history = slow.enableReadingHistory(8);
+        slow.elapseMinutes(7);
+        assertArrayEquals(new int[] {10, 10, 10, 20, 20, 20, 10, 10},
+                history.getReadings(8));
+        assertEquals(16.0, history.getMean(5), 1e-9);
+    }
+
+    @Test
+    public void lazyModeTest() {
+        TimedItemManager manager = new TimedItemManager();
+        sensor.setTimedItemManager(manager);
+        manager.setTickMode(TickMode.LAZY);
+        ReadingHistory history = sensor.enableReadingHistory(7);
+        manager.elapseMinutes(3);
+        assertArrayEquals(new int[] {5, 9, 2, 7}, history.getReadings(7));
+        manager.elapseMinutes(2);
+        assertArrayEquals(new int[] {5, 9, 2, 7, 7, 1},
+                history.getReadings(7));
+    }
+
+    @Test
+    public void matchesRecomputedTest() {
+        Random random = new Random(7);
+        int[] values = new int[37];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(100);
+        }
+        TimedSensor source = new NoiseSensor(values, 1);
+        int capacity = 16;
+        ReadingHistory history = source.enableReadingHistory(capacity);
+        int[] seen = new int[500];
+        seen[0] = values[0];
+        int time = 0;
+        while (time < 400) {
+            int step = 1 + random.nextInt(random.nextBoolean() ? 3 : 20);
+            source.elapseMinutes(step);
+            for (int t = time + 1; t <= time + step; t++) {
+                seen[t] = values[t % values.length];
+            }
+            time += step;
+            for (int window = 1; window <= capacity; window++) {
+                int count = Math.min(window, time + 1);
+                int[] expected = Arrays.copyOfRange(seen, time + 1 - count,
+                        time + 1);
+                assertArrayEquals(expected, history.getReadings(window));
+                assertEquals(Arrays.stream(expected).sum(),
+                        history.getSum(window));
+                assertEquals(Arrays.stream(expected).min().getAsInt(),
+                        history.getMin(window));
+                assertEquals(Arrays.stream(expected).max().getAsInt(),
+                        history.getMax(window));
+            }
+        }
+    }
+
+    @Test
+    public void toStringTest() {
+        ReadingHistory history = sensor.enableReadingHistory(4);
+        sensor.elapseOneMinute();
+        assertEquals("ReadingHistory: readings=2/4, latest=1",
+                history.toString());
+    }
+}
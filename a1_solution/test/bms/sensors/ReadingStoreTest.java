@@ -0,0 +1,94 @@
+package bms.sensors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+public class ReadingStoreTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Test
+    public void constructorInvalidChunkSizeTest() {
+        try {
+            new ReadingStore(0);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void emptyStoreTest() {
+        ReadingStore store = new ReadingStore(8);
+        assertEquals(0, store.getReadingCount());
+        assertEquals(0, store.getChunkCount());
+        assertEquals(0, store.getCapacity());
+    }
+
+    @Test
+    public void movedSensorKeepsReadingsTest() {
+        ReadingStore store = new ReadingStore(8);
+        int[] readings = {12, 14, 16};
+        TimedSensor sensor = new OccupancySensor(readings, 2, 25);
+        sensor.elapseMinutes(2);
+        sensor.moveReadingsTo(store);
+
+        assertSame(store, sensor.getReadingStore());
+        assertEquals(3, store.getReadingCount());
+        // the store holds a copy, so the original array is no longer used
+        readings[1] = 99;
+        assertEquals(14, sensor.getCurrentReading());
+        sensor.elapseMinutes(2);
+        assertEquals(16, sensor.getCurrentReading());
+        sensor.elapseMinutes(2);
+        assertEquals(12, sensor.getCurrentReading());
+        assertEquals("TimedSensor:freq=2,readings=12,14,16,type=OccupancySensor,capacity=25",
+                sensor.toString().replace(" ", ""));
+    }
+
+    @Test
+    public void sensorsPackedIntoChunksTest() {
+        ReadingStore store = new ReadingStore(8);
+        TimedSensor sensor1 = new NoiseSensor(new int[] {1, 2, 3}, 1);
+        TimedSensor sensor2 = new NoiseSensor(new int[] {4, 5, 6}, 1);
+        TimedSensor sensor3 = new NoiseSensor(new int[] {7, 8, 9}, 1);
+        TimedSensor sensor4 = new NoiseSensor(new int[20], 1);
+        sensor1.moveReadingsTo(store);
+        sensor2.moveReadingsTo(store);
+        assertEquals(1, store.getChunkCount());
+        // does not fit in the remaining space of the first chunk
+        sensor3.moveReadingsTo(store);
+        assertEquals(2, store.getChunkCount());
+        // longer than a chunk, so stored in a chunk of its own
+        sensor4.moveReadingsTo(store);
+        assertEquals(3, store.getChunkCount());
+        assertEquals(29, store.getReadingCount());
+        assertEquals(36, store.getCapacity());
+
+        sensor2.elapseOneMinute();
+        sensor3.elapseMinutes(5);
+        assertEquals(1, sensor1.getCurrentReading());
+        assertEquals(5, sensor2.getCurrentReading());
+        assertEquals(9, sensor3.getCurrentReading());
+    }
+
+    @Test
+    public void moveToSameStoreTest() {
+        ReadingStore store = new ReadingStore(8);
+        TimedSensor sensor = new NoiseSensor(new int[] {1, 2, 3}, 1);
+        sensor.moveReadingsTo(store);
+        sensor.moveReadingsTo(store);
+        assertEquals(3, store.getReadingCount());
+    }
+
+    @Test
+    public void moveToNullStoreTest() {
+        TimedSensor sensor = new NoiseSensor(new int[] {1, 2, 3}, 1);
+        try {
+            sensor.moveReadingsTo(null);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        assertNull(sensor.getReadingStore());
+    }
+}
@@ -0,0 +1,299 @@
+package bms.sensors;
+
+import bms.hazard.HazardRollup;
+import bms.util.TickMode;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class SensorKernelTest {
+    private TimedItemManager manager;
+    private SensorKernel kernel;
+    private TimedSensor sensor;
+    private TimedSensor sensorLongUF;
+    private TimedSensor reference;
+    private TimedSensor referenceLongUF;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Before
+    public void setup() {
+        manager = new TimedItemManager();
+        kernel = new SensorKernel(manager);
+
+        sensor = new OccupancySensor(new int[] {12,14,16,11,9}, 1, 25);
+        sensorLongUF = new NoiseSensor(new int[] {50,60,70}, 3);
+        reference = new OccupancySensor(new int[] {12,14,16,11,9}, 1, 25);
+        referenceLongUF = new NoiseSensor(new int[] {50,60,70}, 3);
+        for (TimedSensor s : new TimedSensor[] {sensor, sensorLongUF,
+                reference, referenceLongUF}) {
+            s.setTimedItemManager(manager);
+        }
+        kernel.add(sensor);
+        kernel.add(sensorLongUF);
+    }
+
+    @Test
+    public void constructorNullManagerTest() {
+        try {
+            new SensorKernel(null);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void addTest() {
+        assertEquals(2, kernel.size());
+        assertTrue(kernel.contains(sensor));
+        assertSame(kernel, sensor.getSensorKernel());
+        // kernel replaces the sensors in the manager
+        assertTrue(manager.isRegistered(kernel));
+        assertFalse(manager.isRegistered(sensor));
+        assertFalse(manager.isRegistered(sensorLongUF));
+    }
+
+    @Test
+    public void addTwiceTest() {
+        kernel.add(sensor);
+        assertEquals(2, kernel.size());
+    }
+
+    @Test
+    public void addToOtherKernelTest() {
+        try {
+            new SensorKernel(manager).add(sensor);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void tickMatchesTimedSensorTest() {
+        for (int i = 0; i < 40; i++) {
+            manager.elapseOneMinute();
+            assertEquals(reference.getTimeElapsed(), sensor.getTimeElapsed());
+            assertEquals(reference.getCurrentReading(),
+                    sensor.getCurrentReading());
+            assertEquals(referenceLongUF.getCurrentReading(),
+                    sensorLongUF.getCurrentReading());
+        }
+    }
+
+    @Test
+    public void tickMatchesTimedSensorMixedTest() {
+        // every update frequency, with reading counts that wrap on
+        // different minutes, including a single reading
+        List<TimedSensor> adopted = new ArrayList<>();
+        List<TimedSensor> references = new ArrayList<>();
+        for (int freq = 1; freq <= 5; freq++) {
+            for (int length = 1; length <= 4; length++) {
+                int[] readings = new int[length];
+                for (int i = 0; i < length; i++) {
+                    readings[i] = 10 * freq + i;
+                }
+                TimedSensor s = new OccupancySensor(readings, freq, 100);
+                TimedSensor r = new OccupancySensor(readings, freq, 100);
+                s.setTimedItemManager(manager);
+                r.setTimedItemManager(manager);
+                kernel.add(s);
+                adopted.add(s);
+                references.add(r);
+            }
+        }
+        for (int minute = 0; minute < 65; minute++) {
+            manager.elapseOneMinute();
+            for (int i = 0; i < adopted.size(); i++) {
+                assertEquals(references.get(i).getTimeElapsed(),
+                        adopted.get(i).getTimeElapsed());
+                assertEquals(references.get(i).getCurrentReading(),
+                        adopted.get(i).getCurrentReading());
+            }
+        }
+    }
+
+    @Test
+    public void readWhileTickingTest() throws InterruptedException {
+        // reads of an adopted sensor do not take the kernel's lock, but
+        // must never see a half-finished tick
+        AtomicBoolean done = new AtomicBoolean();
+        Thread ticker = new Thread(() -> {
+            while (!done.get()) {
+                manager.elapseOneMinute();
+            }
+        });
+        ticker.start();
+        try {
+            int previous = 0;
+            for (int i = 0; i < 20_000; i++) {
+                int time = sensorLongUF.getTimeElapsed();
+                assertTrue(time >= previous);
+                previous = time;
+                int reading = sensorLongUF.getCurrentReading();
+                assertTrue(reading == 50 || reading == 60 || reading == 70);
+            }
+        } finally {
+            done.set(true);
+            ticker.join();
+        }
+    }
+
+    @Test
+    public void addAfterTicksTest() {
+        TimedSensor late = new NoiseSensor(new int[] {50,60,70}, 3);
+        late.setTimedItemManager(manager);
+        manager.elapseMinutes(7);
+        kernel.add(late);
+        assertEquals(7, late.getTimeElapsed());
+        for (int i = 0; i < 10; i++) {
+            manager.elapseOneMinute();
+            assertEquals(referenceLongUF.getCurrentReading(),
+                    late.getCurrentReading());
+        }
+    }
+
+    @Test
+    public void lazyManagerStillAdvancesKernelTest() {
+        manager.setTickMode(TickMode.LAZY);
+        for (int i = 0; i < 8; i++) {
+            manager.elapseOneMinute();
+        }
+        assertEquals(8, sensorLongUF.getTimeElapsed());
+        assertEquals(referenceLongUF.getCurrentReading(),
+                sensorLongUF.getCurrentReading());
+    }
+
+    @Test
+    public void elapseMinutesTest() {
+        manager.elapseMinutes(23);
+        assertEquals(23, sensor.getTimeElapsed());
+        assertEquals(reference.getCurrentReading(), sensor.getCurrentReading());
+        assertEquals(referenceLongUF.getCurrentReading(),
+                sensorLongUF.getCurrentReading());
+    }
+
+    @Test
+    public void elapseAdoptedSensorDirectlyTest() {
+        sensorLongUF.elapseMinutes(4);
+        referenceLongUF.elapseMinutes(4);
+        assertEquals(4, sensorLongUF.getTimeElapsed());
+        assertEquals(0, sensor.getTimeElapsed());
+        assertEquals(referenceLongUF.getCurrentReading(),
+                sensorLongUF.getCurrentReading());
+    }
+
+    @Test
+    public void removeTest() {
+        manager.elapseMinutes(4);
+        assertTrue(kernel.remove(sensor));
+        assertFalse(kernel.remove(sensor));
+        assertNull(sensor.getSensorKernel());
+        assertTrue(manager.isRegistered(sensor));
+        assertEquals(1, kernel.size());
+
+        // moved sensor keeps working in its new slot
+        for (int i = 0; i < 5; i++) {
+            manager.elapseOneMinute();
+            assertEquals(reference.getCurrentReading(),
+                    sensor.getCurrentReading());
+            assertEquals(referenceLongUF.getCurrentReading(),
+                    sensorLongUF.getCurrentReading());
+        }
+    }
+
+    @Test
+    public void setTimedItemManagerWhileAdoptedTest() {
+        TimedItemManager other = new TimedItemManager();
+        sensor.setTimedItemManager(other);
+        assertFalse(other.isRegistered(sensor));
+        kernel.remove(sensor);
+        assertTrue(other.isRegistered(sensor));
+        assertFalse(manager.isRegistered(sensor));
+    }
+
+    @Test
+    public void moveReadingsWhileAdoptedTest() {
+        sensorLongUF.moveReadingsTo(new ReadingStore(16));
+        for (int i = 0; i < 10; i++) {
+            manager.elapseOneMinute();
+            assertEquals(referenceLongUF.getCurrentReading(),
+                    sensorLongUF.getCurrentReading());
+        }
+    }
+
+    @Test
+    public void copyCurrentReadingsTest() {
+        int[] readings = new int[2];
+        assertEquals(2, kernel.copyCurrentReadings(readings));
+        assertEquals(12, readings[0]);
+        assertEquals(50, readings[1]);
+        try {
+            kernel.copyCurrentReadings(new int[1]);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void growTest() {
+        for (int i = 0; i < 40; i++) {
+            TimedSensor s = new NoiseSensor(new int[] {50,60,70}, 3);
+            s.setTimedItemManager(manager);
+            kernel.add(s);
+        }
+        assertEquals(42, kernel.size());
+        manager.elapseMinutes(3);
+        assertEquals(60, sensorLongUF.getCurrentReading());
+    }
+
+    @Test
+    public void readingListenerTest() {
+        List<ReadingChange> changes = new ArrayList<>();
+        sensorLongUF.addReadingListener(changes::addAll);
+        manager.elapseMinutes(2);
+        assertTrue(changes.isEmpty());
+        manager.elapseOneMinute();
+        assertEquals(1, changes.size());
+        assertEquals(60, changes.get(0).getCurrentReading());
+        assertEquals(3, changes.get(0).getTimeElapsed());
+    }
+
+    @Test
+    public void observeWhileTickingTest() throws InterruptedException {
+        // a listener or roll-up attached while another thread ticks the
+        // kernel must not deadlock
+        NoiseSensor noise = new NoiseSensor(new int[] {40, 80}, 1);
+        noise.setTimedItemManager(manager);
+        kernel.add(noise);
+        noise.setHazardRollup(new HazardRollup());
+        AtomicBoolean done = new AtomicBoolean();
+        Thread ticker = new Thread(() -> {
+            while (!done.get()) {
+                manager.elapseOneMinute();
+            }
+        });
+        ticker.start();
+        try {
+            ReadingListener readingListener = changes -> {};
+            HazardListener hazardListener = crossings -> {};
+            for (int i = 0; i < 2_000; i++) {
+                noise.addReadingListener(readingListener);
+                noise.addHazardListener(hazardListener, 50);
+                noise.setHazardRollup(new HazardRollup());
+                noise.removeReadingListener(readingListener);
+                noise.removeHazardListener(hazardListener);
+            }
+        } finally {
+            done.set(true);
+            ticker.join();
+        }
+        assertEquals(noise.getHazardLevel(),
+                noise.getHazardRollup().getMaxHazardLevel());
+    }
+}
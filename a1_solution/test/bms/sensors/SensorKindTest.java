@@ -0,0 +1,46 @@
+package bms.sensors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+public class SensorKindTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Test
+    public void ofBuiltInClassTest() {
+        assertEquals(SensorKind.CARBON_DIOXIDE,
+                SensorKind.of(CarbonDioxideSensor.class));
+        assertEquals(SensorKind.NOISE, SensorKind.of(NoiseSensor.class));
+        assertEquals(SensorKind.OCCUPANCY,
+                SensorKind.of(OccupancySensor.class));
+        assertEquals(SensorKind.TEMPERATURE,
+                SensorKind.of(TemperatureSensor.class));
+    }
+
+    @Test
+    public void ofOtherClassTest() {
+        assertNull(SensorKind.of(TimedSensor.class));
+        assertNull(SensorKind.of(String.class));
+    }
+
+    @Test
+    public void forSimpleNameTest() {
+        assertEquals(SensorKind.NOISE, SensorKind.forSimpleName("NoiseSensor"));
+        assertNull(SensorKind.forSimpleName("noisesensor"));
+        assertNull(SensorKind.forSimpleName(null));
+    }
+
+    @Test
+    public void alphabeticalOrderTest() {
+        SensorKind[] kinds = SensorKind.values();
+        for (int i = 1; i < kinds.length; i++) {
+            assertTrue(kinds[i - 1].getSensorClass().getSimpleName().compareTo(
+                    kinds[i].getSensorClass().getSimpleName()) < 0);
+        }
+        assertEquals(kinds.length, SensorKind.count());
+    }
+}
@@ -51,4 +51,13 @@ public class TemperatureSensorTest {
         assertEquals("TimedSensor:freq=1,readings=22,25,35,47,69,71,type=TemperatureSensor",
                 sensor1.toString().replace(" ", "").replace("\"", ""));
     }
+
+    @Test
+    public void hazardLevelsTest() {
+        int[] levels = new int[3];
+        TemperatureSensor.hazardLevels(new int[] {20, 67, 68}, levels, 3);
+        assertEquals(0, levels[0]);
+        assertEquals(0, levels[1]);
+        assertEquals(100, levels[2]);
+    }
 }
@@ -0,0 +1,195 @@
+package bms.sensors;
+
+import bms.util.TickMode;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimedHazardSensorTest {
+    private int[] sensorReadings;
+    private int limit;
+
+    TimedHazardSensor sensor;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(1);  // Fail any test that takes longer than 1 second to execute.
+
+    @Before
+    public void setup() {
+        sensorReadings = new int[] {12,14,16,11,9};
+        limit = 25;
+        sensor = new OccupancySensor(sensorReadings, 1, limit);
+    }
+
+    @Test
+    public void hazardScheduleNotPrecomputedTest() {
+        assertFalse(sensor.hasHazardSchedule());
+        try {
+            sensor.minutesUntilHazardLevel(50);
+            fail();
+        } catch (IllegalStateException expected) {}
+    }
+
+    @Test
+    public void hazardScheduleUnsupportedTest() {
+        TimedHazardSensor unsupported =
+                new TimedHazardSensor(sensorReadings, 1) {
+            @Override
+            protected int hazardLevelFor(int reading) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int getHazardLevel() {
+                return 0;
+            }
+        };
+        try {
+            unsupported.precomputeHazardSchedule();
+            fail();
+        } catch (UnsupportedOperationException expected) {}
+        assertFalse(unsupported.hasHazardSchedule());
+    }
+
+    @Test
+    public void hazardScheduleMatchesHazardLevelTest() {
+        // occupancy hazard levels 48,56,64,44,36 with capacity 25
+        OccupancySensor scheduled =
+                new OccupancySensor(sensorReadings, 2, limit);
+        OccupancySensor unscheduled =
+                new OccupancySensor(sensorReadings, 2, limit);
+        scheduled.precomputeHazardSchedule();
+        assertTrue(scheduled.hasHazardSchedule());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(unscheduled.getHazardLevel(),
+                    scheduled.getHazardLevel());
+            scheduled.elapseOneMinute();
+            unscheduled.elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void minutesUntilHazardLevelTest() {
+        // hazard levels 48,56,64,44,36, each for 2 minutes
+        OccupancySensor occupancy =
+                new OccupancySensor(sensorReadings, 2, limit);
+        occupancy.precomputeHazardSchedule();
+        assertEquals(0, occupancy.minutesUntilHazardLevel(48));
+        assertEquals(2, occupancy.minutesUntilHazardLevel(50));
+        assertEquals(4, occupancy.minutesUntilHazardLevel(60));
+        assertEquals(-1, occupancy.minutesUntilHazardLevel(65));
+        occupancy.elapseOneMinute();
+        assertEquals(3, occupancy.minutesUntilHazardLevel(60));
+        occupancy.elapseMinutes(5);
+        // now at 44, wraps around to 48 after 4 minutes
+        assertEquals(4, occupancy.minutesUntilHazardLevel(45));
+    }
+
+    @Test
+    public void minutesUntilHazardLevelMatchesSimulationTest() {
+        OccupancySensor occupancy =
+                new OccupancySensor(sensorReadings, 3, limit);
+        occupancy.precomputeHazardSchedule();
+        for (int t = 0; t < 20; t++) {
+            for (int threshold = 30; threshold <= 70; threshold += 5) {
+                OccupancySensor probe =
+                        new OccupancySensor(sensorReadings, 3, limit);
+                probe.elapseMinutes(t);
+                int expected = -1;
+                for (int m = 0; m < 15; m++) {
+                    if (probe.getHazardLevel() >= threshold) {
+                        expected = m;
+                        break;
+                    }
+                    probe.elapseOneMinute();
+                }
+                assertEquals(expected,
+                        occupancy.minutesUntilHazardLevel(threshold));
+            }
+            occupancy.elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void hazardScheduleLazyModeTest() {
+        TimedItemManager manager = new TimedItemManager();
+        OccupancySensor occupancy =
+                new OccupancySensor(sensorReadings, 1, limit);
+        occupancy.setTimedItemManager(manager);
+        occupancy.precomputeHazardSchedule();
+        manager.setTickMode(TickMode.LAZY);
+        manager.elapseMinutes(3);
+        assertEquals(44, occupancy.getHazardLevel());
+        assertEquals(2, occupancy.minutesUntilHazardLevel(45));
+    }
+
+    @Test
+    public void hazardScheduleKernelTest() {
+        TimedItemManager manager = new TimedItemManager();
+        OccupancySensor occupancy =
+                new OccupancySensor(sensorReadings, 1, limit);
+        occupancy.setTimedItemManager(manager);
+        occupancy.precomputeHazardSchedule();
+        new SensorKernel(manager).add(occupancy);
+        manager.elapseMinutes(3);
+        assertEquals(44, occupancy.getHazardLevel());
+        manager.elapseOneMinute();
+        assertEquals(36, occupancy.getHazardLevel());
+    }
+
+    @Test
+    public void hazardListenerCrossingTest() {
+        // hazard levels 48,56,64,44,36
+        TimedItemManager manager = new TimedItemManager();
+        sensor.setTimedItemManager(manager);
+        List<HazardCrossing> crossings = new ArrayList<>();
+        sensor.addHazardListener(crossings::addAll, 60);
+
+        manager.elapseOneMinute();
+        assertTrue(crossings.isEmpty());
+        manager.elapseOneMinute();
+        assertEquals(1, crossings.size());
+        assertTrue(crossings.get(0).isRising());
+        assertEquals(56, crossings.get(0).getPreviousLevel());
+        assertEquals(64, crossings.get(0).getCurrentLevel());
+        assertEquals(60, crossings.get(0).getThreshold());
+        manager.elapseOneMinute();
+        assertEquals(2, crossings.size());
+        assertFalse(crossings.get(1).isRising());
+    }
+
+    @Test
+    public void hazardListenerEventModeTest() {
+        TimedItemManager manager = new TimedItemManager();
+        manager.setTickMode(TickMode.EVENT);
+        sensor.setTimedItemManager(manager);
+        List<HazardCrossing> crossings = new ArrayList<>();
+        HazardListener listener = crossings::addAll;
+        sensor.addHazardListener(listener, 60);
+        sensor.addHazardListener(listener, 40);
+        for (int i = 0; i < 3; i++) {
+            manager.elapseOneMinute();
+        }
+        // 48 -> 56 -> 64 -> 44: crosses 60 up then down
+        assertEquals(2, crossings.size());
+        assertTrue(sensor.removeHazardListener(listener));
+        manager.elapseOneMinute();
+        assertEquals(2, crossings.size());
+    }
+
+    @Test
+    public void hazardListenerNullTest() {
+        try {
+            sensor.addHazardListener(null, 50);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        assertFalse(sensor.removeHazardListener(crossings -> {}));
+    }
+}
@@ -1,10 +1,15 @@
 package bms.sensors;
 
+import bms.util.TickMode;
+import bms.util.TimedItemManager;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class TimedSensorTest {
@@ -32,6 +37,21 @@ public class TimedSensorTest {
         sensorLongUF = new OccupancySensor(sensorReadings2, longerUpdateFrequency, limit);
     }
 
+    // **************** Get readings tests ****************
+
+    @Test
+    public void getReadingsTest() {
+        int[] readings = sensor.getReadings();
+        assertArrayEquals(sensorReadings, readings);
+        readings[0] = 99;
+        assertEquals(12, sensor.getReadings()[0]);
+
+        ReadingStore store = new ReadingStore(16);
+        sensorLongUF.moveReadingsTo(store);
+        sensor.moveReadingsTo(store);
+        assertArrayEquals(sensorReadings, sensor.getReadings());
+    }
+
     // **************** Constructor tests ****************
 
     @Test
@@ -159,6 +179,103 @@ public class TimedSensorTest {
         sensorLongUF.elapseOneMinute(); // after this time is 8
     }
 
+    @Test
+    public void elapseMinutesMatchesElapseOneMinuteTest() {
+        TimedSensor stepped = new OccupancySensor(sensorReadings2, 3, limit);
+        TimedSensor jumped = new OccupancySensor(sensorReadings2, 3, limit);
+        for (int i = 1; i <= 20; i++) {
+            stepped.elapseOneMinute();
+        }
+        jumped.elapseMinutes(20);
+        assertEquals(stepped.getTimeElapsed(), jumped.getTimeElapsed());
+        assertEquals(stepped.getCurrentReading(), jumped.getCurrentReading());
+    }
+
+    @Test
+    public void elapseMinutesZeroTest() {
+        sensorLongUF.elapseMinutes(0);
+        assertEquals(0, sensorLongUF.getTimeElapsed());
+        assertEquals(sensorReadings2[0], sensorLongUF.getCurrentReading());
+    }
+
+    @Test
+    public void elapseMinutesLargeTest() {
+        // a 30-day month; 43200 is a multiple of the 6 minute rotation
+        sensorLongUF.elapseMinutes(30 * 24 * 60 + 3);
+        assertEquals(30 * 24 * 60 + 3, sensorLongUF.getTimeElapsed());
+        assertEquals(sensorReadings2[1], sensorLongUF.getCurrentReading());
+    }
+
+    @Test
+    public void elapseMinutesNegativeTest() {
+        try {
+            sensor.elapseMinutes(-1);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        assertEquals(0, sensor.getTimeElapsed());
+    }
+
+    @Test
+    public void elapseMinutesOverflowTest() {
+        try {
+            sensor.elapseMinutes(Integer.MAX_VALUE + 1L);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        assertEquals(0, sensor.getTimeElapsed());
+    }
+
+    @Test
+    public void lazyTickModeTest() {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        manager.setTickMode(TickMode.LAZY);
+        try {
+            manager.elapseOneMinute();
+            manager.elapseOneMinute();
+            // reading is derived from the manager's clock when queried
+            assertEquals(2, sensorLongUF.getTimeElapsed());
+            assertEquals(sensorReadings2[1], sensorLongUF.getCurrentReading());
+
+            manager.elapseMinutes(3);
+            assertEquals(5, sensorLongUF.getTimeElapsed());
+            assertEquals(sensorReadings2[2], sensorLongUF.getCurrentReading());
+        } finally {
+            manager.setTickMode(TickMode.SEQUENTIAL);
+        }
+
+        // switching back to eager ticks continues from the deferred time
+        manager.elapseOneMinute();
+        assertEquals(6, sensorLongUF.getTimeElapsed());
+        assertEquals(sensorReadings2[0], sensorLongUF.getCurrentReading());
+        sensorLongUF.elapseOneMinute();
+        assertEquals(7, sensorLongUF.getTimeElapsed());
+        assertEquals(sensorReadings2[0], sensorLongUF.getCurrentReading());
+    }
+
+    @Test
+    public void setTimedItemManagerTest() {
+        TimedItemManager manager = new TimedItemManager();
+        sensorLongUF.elapseMinutes(2);
+        sensorLongUF.setTimedItemManager(manager);
+        assertSame(manager, sensorLongUF.getTimedItemManager());
+        assertTrue(manager.isRegistered(sensorLongUF));
+        assertFalse(TimedItemManager.getInstance().isRegistered(sensorLongUF));
+
+        // time is preserved across the move
+        assertEquals(2, sensorLongUF.getTimeElapsed());
+        manager.elapseMinutes(2);
+        assertEquals(4, sensorLongUF.getTimeElapsed());
+        assertEquals(sensorReadings2[2], sensorLongUF.getCurrentReading());
+    }
+
+    @Test
+    public void setTimedItemManagerNullTest() {
+        try {
+            sensor.setTimedItemManager(null);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        assertSame(TimedItemManager.getInstance(), sensor.getTimedItemManager());
+    }
+
     /*
     Bare-bones implementation of TimedSensor, used to test default
     implementation of equals, hashCode and toString in the abstract class.
@@ -189,4 +306,114 @@ public class TimedSensorTest {
                 sensor1.toString().replace(" ", "").replace("\"", ""));
     }
 
+    @Test
+    public void eventTickModeMatchesSequentialTest() {
+        TimedItemManager event = new TimedItemManager();
+        TimedItemManager sequential = new TimedItemManager();
+        event.setTickMode(TickMode.EVENT);
+        TimedSensor[] eventSensors = new TimedSensor[5];
+        TimedSensor[] sequentialSensors = new TimedSensor[5];
+        for (int f = 1; f <= 5; f++) {
+            eventSensors[f - 1] = new OccupancySensor(sensorReadings, f, limit);
+            eventSensors[f - 1].setTimedItemManager(event);
+            sequentialSensors[f - 1] =
+                    new OccupancySensor(sensorReadings, f, limit);
+            sequentialSensors[f - 1].setTimedItemManager(sequential);
+        }
+        for (int i = 0; i < 40; i++) {
+            if (i == 20) {
+                event.setTickMode(TickMode.SEQUENTIAL);
+            } else if (i == 30) {
+                event.setTickMode(TickMode.EVENT);
+            }
+            event.elapseOneMinute();
+            sequential.elapseOneMinute();
+            for (int f = 0; f < 5; f++) {
+                assertEquals(sequentialSensors[f].getTimeElapsed(),
+                        eventSensors[f].getTimeElapsed());
+                assertEquals(sequentialSensors[f].getCurrentReading(),
+                        eventSensors[f].getCurrentReading());
+            }
+        }
+    }
+
+    @Test
+    public void minutesUntilNextChangeTest() {
+        assertEquals(1, sensor.minutesUntilNextChange());
+        assertEquals(2, sensorLongUF.minutesUntilNextChange());
+        sensorLongUF.elapseOneMinute();
+        assertEquals(1, sensorLongUF.minutesUntilNextChange());
+        assertEquals(-1, new OccupancySensor(new int[] {3}, 1, limit)
+                .minutesUntilNextChange());
+    }
+
+    @Test
+    public void readingListenerBatchedPerTickTest() {
+        TimedItemManager manager = new TimedItemManager();
+        sensor.setTimedItemManager(manager);
+        sensorLongUF.setTimedItemManager(manager);
+        List<List<ReadingChange>> batches = new ArrayList<>();
+        ReadingListener listener = batches::add;
+        sensor.addReadingListener(listener);
+        sensorLongUF.addReadingListener(listener);
+        sensorLongUF.addReadingListener(listener);
+
+        manager.elapseOneMinute();
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).size());
+        ReadingChange change = batches.get(0).get(0);
+        assertSame(sensor, change.getSensor());
+        assertEquals(12, change.getPreviousReading());
+        assertEquals(14, change.getCurrentReading());
+        assertEquals(1, change.getTimeElapsed());
+
+        // both sensors change on minute 2, delivered in one call
+        manager.elapseOneMinute();
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(1).size());
+
+        assertTrue(sensor.removeReadingListener(listener));
+        assertFalse(sensor.removeReadingListener(listener));
+        manager.elapseOneMinute();
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    public void readingListenerLazyTest() {
+        TimedItemManager manager = new TimedItemManager();
+        manager.setTickMode(TickMode.LAZY);
+        sensor.setTimedItemManager(manager);
+        manager.elapseMinutes(2);
+        List<ReadingChange> changes = new ArrayList<>();
+        sensor.addReadingListener(changes::addAll);
+        assertTrue(changes.isEmpty());
+
+        // reported on the minute the reading changes
+        manager.elapseOneMinute();
+        assertEquals(1, changes.size());
+        assertEquals(16, changes.get(0).getPreviousReading());
+        assertEquals(11, changes.get(0).getCurrentReading());
+        assertEquals(3, changes.get(0).getTimeElapsed());
+    }
+
+    @Test
+    public void readingListenerNullTest() {
+        try {
+            sensor.addReadingListener(null);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void readingListenerSkipsEqualReadingsTest() {
+        TimedItemManager manager = new TimedItemManager();
+        TimedSensor repeated = new OccupancySensor(new int[] {3, 3, 4}, 1, 10);
+        repeated.setTimedItemManager(manager);
+        List<ReadingChange> changes = new ArrayList<>();
+        repeated.addReadingListener(changes::addAll);
+        manager.elapseMinutes(2);
+        assertEquals(1, changes.size());
+        assertEquals(4, changes.get(0).getCurrentReading());
+    }
+
 }
\ No newline at end of file
@@ -5,7 +5,11 @@ import org.junit.Test;
 import org.junit.rules.Timeout;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TimedItemManagerTest {
     @Rule
@@ -15,7 +19,11 @@ public class TimedItemManagerTest {
         int counter = 0;
 
         DummyTimedItem() {
-            TimedItemManager.getInstance().registerTimedItem(this);
+            this(TimedItemManager.getInstance());
+        }
+
+        DummyTimedItem(TimedItemManager manager) {
+            manager.registerTimedItem(this);
         }
 
         @Override
@@ -24,6 +32,43 @@ public class TimedItemManagerTest {
         }
     }
 
+    /**
+     * Scheduled item whose state changes every period minutes on the
+     * deferred clock, counting how often it is caught up.
+     */
+    private class DummyScheduledItem implements ScheduledTimedItem {
+        final TimedItemManager manager;
+        final int period;
+        long deferredBase;
+        long time = 0;
+        int catchUps = 0;
+
+        DummyScheduledItem(TimedItemManager manager, int period) {
+            this.manager = manager;
+            this.period = period;
+            this.deferredBase = manager.getDeferredMinutes();
+            manager.registerTimedItem(this);
+        }
+
+        @Override
+        public void elapseOneMinute() {
+            this.catchUp();
+            this.time++;
+        }
+
+        @Override
+        public void catchUp() {
+            this.catchUps++;
+            this.time += manager.getDeferredMinutes() - deferredBase;
+            this.deferredBase = manager.getDeferredMinutes();
+        }
+
+        @Override
+        public long minutesUntilNextChange() {
+            return period - time % period;
+        }
+    }
+
     @Test
     public void singletonTest() {
         TimedItemManager manager1 = TimedItemManager.getInstance();
@@ -65,4 +110,327 @@ public class TimedItemManagerTest {
         }
         assertEquals(1, newAddition.counter);
     }
+
+    @Test
+    public void parallelElapseOneMinuteTest() {
+        TimedItemManager manager = new TimedItemManager();
+        DummyTimedItem[] items = new DummyTimedItem[5000];
+        for (int i = 0; i < items.length; ++i) {
+            items[i] = new DummyTimedItem(manager);
+        }
+
+        manager.setTickMode(TickMode.PARALLEL);
+        manager.setShardCount(4);
+        manager.elapseOneMinute();
+        manager.elapseOneMinute();
+        for (int i = 0; i < items.length; ++i) {
+            assertEquals(2, items[i].counter);
+        }
+
+        // Registering after switching modes should still be picked up
+        DummyTimedItem newAddition = new DummyTimedItem(manager);
+        manager.elapseOneMinute();
+        assertEquals(3, items[0].counter);
+        assertEquals(3, items[items.length - 1].counter);
+        assertEquals(1, newAddition.counter);
+    }
+
+    @Test
+    public void concurrentElapseOneMinuteTest() throws InterruptedException {
+        TimedItemManager manager = new TimedItemManager();
+        DummyTimedItem item = new DummyTimedItem(manager);
+        Thread ticker = new Thread(() -> {
+            for (int i = 0; i < 1000; ++i) {
+                manager.elapseOneMinute();
+            }
+        });
+
+        ticker.start();
+        for (int i = 0; i < 1000; ++i) {
+            manager.elapseOneMinute();
+        }
+        ticker.join();
+        // ticks from both threads are applied one after the other
+        assertEquals(2000, item.counter);
+        assertEquals(2000, manager.getMinutesElapsed());
+    }
+
+    @Test
+    public void elapseMinutesTest() {
+        TimedItemManager manager = new TimedItemManager();
+        DummyTimedItem[] items = new DummyTimedItem[4];
+        for (int i = 0; i < 4; ++i) {
+            items[i] = new DummyTimedItem(manager);
+        }
+
+        manager.elapseMinutes(0);
+        for (int i = 0; i < 4; ++i) {
+            assertEquals(0, items[i].counter);
+        }
+
+        // DummyTimedItem relies on the default implementation, which calls
+        // elapseOneMinute() once per minute
+        manager.elapseMinutes(7);
+        for (int i = 0; i < 4; ++i) {
+            assertEquals(7, items[i].counter);
+        }
+    }
+
+    @Test
+    public void elapseMinutesNegativeTest() {
+        try {
+            TimedItemManager.getInstance().elapseMinutes(-1);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void lazyTickModeTicksNonDeferrableItemsTest() {
+        TimedItemManager manager = new TimedItemManager();
+        DummyTimedItem item = new DummyTimedItem(manager);
+
+        manager.setTickMode(TickMode.LAZY);
+        manager.elapseOneMinute();
+        manager.elapseMinutes(4);
+        manager.setTickMode(TickMode.SEQUENTIAL);
+        assertEquals(5, item.counter);
+        assertEquals(5, manager.getDeferredMinutes());
+
+        manager.elapseOneMinute();
+        assertEquals(6, item.counter);
+        assertEquals(5, manager.getDeferredMinutes());
+    }
+
+    @Test
+    public void unregisterTimedItemTest() {
+        TimedItemManager manager = new TimedItemManager();
+        DummyTimedItem kept = new DummyTimedItem(manager);
+        DummyTimedItem removed = new DummyTimedItem(manager);
+
+        assertTrue(manager.isRegistered(removed));
+        assertTrue(manager.unregisterTimedItem(removed));
+        assertFalse(manager.isRegistered(removed));
+        assertFalse(manager.unregisterTimedItem(removed));
+
+        manager.elapseOneMinute();
+        assertEquals(1, kept.counter);
+        assertEquals(0, removed.counter);
+    }
+
+    @Test
+    public void registerTwiceTest() {
+        TimedItemManager manager = new TimedItemManager();
+        DummyTimedItem item = new DummyTimedItem(manager);
+        manager.registerTimedItem(item);
+        assertEquals(1, manager.getTimedItemCount());
+
+        manager.elapseOneMinute();
+        assertEquals(1, item.counter);
+    }
+
+    @Test
+    public void separateInstanceTest() {
+        TimedItemManager manager = new TimedItemManager();
+        assertNotSame(TimedItemManager.getInstance(), manager);
+        assertFalse(manager.hasWeakRegistrations());
+
+        DummyTimedItem scoped = new DummyTimedItem(manager);
+        DummyTimedItem global = new DummyTimedItem();
+        manager.elapseOneMinute();
+        assertEquals(1, scoped.counter);
+        assertEquals(0, global.counter);
+
+        TimedItemManager.getInstance().elapseOneMinute();
+        assertEquals(1, scoped.counter);
+        assertEquals(1, global.counter);
+    }
+
+    @Test
+    public void weakRegistrationsTest() {
+        TimedItemManager manager = new TimedItemManager(true);
+        assertTrue(manager.hasWeakRegistrations());
+
+        // strongly reachable items are still ticked
+        DummyTimedItem[] items = new DummyTimedItem[3];
+        for (int i = 0; i < 3; ++i) {
+            items[i] = new DummyTimedItem(manager);
+        }
+        manager.elapseOneMinute();
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(1, items[i].counter);
+        }
+        assertEquals(3, manager.getTimedItemCount());
+
+        assertTrue(manager.unregisterTimedItem(items[1]));
+        manager.elapseOneMinute();
+        assertEquals(2, items[0].counter);
+        assertEquals(1, items[1].counter);
+        assertEquals(2, items[2].counter);
+    }
+
+    @Test
+    public void weakRegistrationsPurgedTest() {
+        TimedItemManager manager = new TimedItemManager(true);
+        DummyTimedItem kept = new DummyTimedItem(manager);
+        DummyTimedItem[] dropped = new DummyTimedItem[100];
+        for (int i = 0; i < dropped.length; ++i) {
+            dropped[i] = new DummyTimedItem(manager);
+        }
+        manager.elapseOneMinute();
+        assertEquals(101, manager.getTimedItemCount());
+
+        dropped = null;
+        int ticks = 1;
+        for (int i = 0; i < 20 && manager.getTimedItemCount() > 1; ++i) {
+            System.gc();
+            manager.elapseOneMinute();
+            ticks++;
+        }
+        // the tick snapshot must not have kept the dropped items alive
+        assertEquals(1, manager.getTimedItemCount());
+        assertEquals(ticks, kept.counter);
+
+        manager.elapseOneMinute();
+        assertEquals(ticks + 1, kept.counter);
+    }
+
+    @Test
+    public void weakRegistrationsEventTickModeTest() {
+        TimedItemManager manager = new TimedItemManager(true);
+        manager.setTickMode(TickMode.EVENT);
+        DummyScheduledItem kept = new DummyScheduledItem(manager, 2);
+        new DummyScheduledItem(manager, 2);
+        manager.elapseOneMinute();
+
+        for (int i = 0; i < 20 && manager.getTimedItemCount() > 1; ++i) {
+            System.gc();
+            manager.elapseOneMinute();
+        }
+        // neither the snapshot nor the timing wheel keep the item alive
+        assertEquals(1, manager.getTimedItemCount());
+
+        kept.catchUp();
+        assertEquals(manager.getDeferredMinutes(), kept.time);
+    }
+
+    @Test
+    public void getMinutesElapsedTest() {
+        TimedItemManager manager = new TimedItemManager();
+        assertEquals(0, manager.getMinutesElapsed());
+        manager.elapseOneMinute();
+        manager.elapseMinutes(10);
+        manager.setTickMode(TickMode.LAZY);
+        manager.elapseOneMinute();
+        assertEquals(12, manager.getMinutesElapsed());
+    }
+
+    @Test
+    public void setTickModeNullTest() {
+        try {
+            TimedItemManager.getInstance().setTickMode(null);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        assertEquals(TickMode.SEQUENTIAL,
+                TimedItemManager.getInstance().getTickMode());
+    }
+
+    @Test
+    public void setShardCountInvalidTest() {
+        try {
+            TimedItemManager.getInstance().setShardCount(0);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void eventTickModeWakesOnlyAtChangesTest() {
+        TimedItemManager manager = new TimedItemManager();
+        manager.setTickMode(TickMode.EVENT);
+        DummyScheduledItem everyMinute = new DummyScheduledItem(manager, 1);
+        DummyScheduledItem everyFive = new DummyScheduledItem(manager, 5);
+        DummyTimedItem eager = new DummyTimedItem(manager);
+
+        // first tick builds the schedule, catching every item up once
+        manager.elapseOneMinute();
+        assertEquals(1, everyFive.catchUps);
+        for (int i = 1; i < 20; i++) {
+            manager.elapseOneMinute();
+        }
+        assertEquals(20, eager.counter);
+        assertEquals(20, everyMinute.time);
+        assertEquals(20, everyFive.time);
+        // woken at minutes 5, 10, 15 and 20 after the initial catch up
+        assertEquals(5, everyFive.catchUps);
+        assertEquals(20, everyMinute.catchUps);
+    }
+
+    @Test
+    public void eventTickModeElapseMinutesTest() {
+        TimedItemManager manager = new TimedItemManager();
+        manager.setTickMode(TickMode.EVENT);
+        DummyScheduledItem item = new DummyScheduledItem(manager, 3);
+        manager.elapseOneMinute();
+        manager.elapseMinutes(7);
+        assertEquals(8, item.time);
+        // beyond one revolution of the wheel, the schedule is rebuilt
+        manager.elapseMinutes(1000);
+        assertEquals(1008, item.time);
+        manager.elapseOneMinute();
+        // minute 1009 is not a change point, so the item has not been woken
+        assertEquals(1008, item.time);
+        item.catchUp();
+        assertEquals(1009, item.time);
+        assertEquals(1009, manager.getDeferredMinutes());
+    }
+
+    @Test
+    public void eventTickModeRegistrationTest() {
+        TimedItemManager manager = new TimedItemManager();
+        manager.setTickMode(TickMode.EVENT);
+        DummyScheduledItem first = new DummyScheduledItem(manager, 2);
+        manager.elapseMinutes(3);
+        DummyScheduledItem second = new DummyScheduledItem(manager, 2);
+        manager.unregisterTimedItem(first);
+        manager.elapseMinutes(4);
+        assertEquals(4, second.time);
+        int catchUps = first.catchUps;
+        manager.elapseMinutes(4);
+        assertEquals(catchUps, first.catchUps);
+    }
+
+    @Test
+    public void eventTickModeSwitchTest() {
+        TimedItemManager manager = new TimedItemManager();
+        DummyScheduledItem item = new DummyScheduledItem(manager, 2);
+        manager.setTickMode(TickMode.EVENT);
+        manager.elapseMinutes(3);
+        manager.setTickMode(TickMode.SEQUENTIAL);
+        manager.elapseMinutes(3);
+        manager.setTickMode(TickMode.EVENT);
+        manager.elapseMinutes(3);
+        item.catchUp();
+        assertEquals(9, item.time);
+    }
+
+    @Test
+    public void tickListenerTest() {
+        TimedItemManager manager = new TimedItemManager();
+        DummyTimedItem item = new DummyTimedItem(manager);
+        int[] ticks = new int[1];
+        TickListener listener = m -> {
+            assertSame(manager, m);
+            // every item has been advanced before listeners are notified
+            assertEquals(m.getMinutesElapsed(), item.counter);
+            ticks[0]++;
+        };
+        manager.addTickListener(listener);
+        manager.addTickListener(listener);
+        manager.elapseOneMinute();
+        manager.elapseMinutes(3);
+        assertEquals(2, ticks[0]);
+        assertTrue(manager.removeTickListener(listener));
+        assertFalse(manager.removeTickListener(listener));
+        manager.elapseOneMinute();
+        assertEquals(2, ticks[0]);
+    }
 }